@@ -0,0 +1,89 @@
+package browser.benchmark;
+
+import static browser.css.CSSStyle.DisplayType;
+
+import java.util.concurrent.TimeUnit;
+
+import browser.app.Pipeline;
+import browser.layout.BoxTreeGenerator;
+import browser.model.BoxNode;
+import browser.model.RenderNode;
+import browser.parser.HTMLElements;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks box tree generation on a generated render tree: a block element with many children that mix inline and
+ * block elements, so that anonymous block boxes are added around the runs of inline children. Some of the inline
+ * children also contain a block element, and are replaced by anonymous block boxes themselves. Generating the box tree
+ * only links each render node to its new box, so the same render tree is used for every invocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BoxTreeBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class MixedChildrenTree {
+        @Param({"10000"})
+        public int children;
+
+        public RenderNode renderTree;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            Pipeline.init();
+            RenderNode.nextId.set(0);
+            renderTree = createElement(HTMLElements.DIV, DisplayType.BLOCK);
+            for (int i = 0; i < children; i++) {
+                if (i % 3 == 0) {
+                    RenderNode div = createElement(HTMLElements.DIV, DisplayType.BLOCK);
+                    div.addChild(createText("block " + i));
+                    renderTree.addChild(div);
+                } else if (i % 10 == 1) {
+                    RenderNode span = createElement(HTMLElements.SPAN, DisplayType.INLINE);
+                    span.addChild(createText("inline " + i));
+                    span.addChild(createElement(HTMLElements.DIV, DisplayType.BLOCK));
+                    renderTree.addChild(span);
+                } else {
+                    RenderNode span = createElement(HTMLElements.SPAN, DisplayType.INLINE);
+                    span.addChild(createText("inline " + i));
+                    renderTree.addChild(span);
+                }
+            }
+        }
+
+        private static RenderNode createElement(String type, DisplayType outerDisplay) {
+            RenderNode element = new RenderNode(type);
+            element.id = RenderNode.nextId.getAndIncrement();
+            element.style.outerDisplay = outerDisplay;
+            element.style.innerDisplay = DisplayType.FLOW;
+            return element;
+        }
+
+        private static RenderNode createText(String text) {
+            RenderNode textNode = createElement(HTMLElements.TEXT, DisplayType.INLINE);
+            textNode.text = text;
+            return textNode;
+        }
+    }
+
+    @Benchmark
+    public BoxNode mixedChildren(MixedChildrenTree tree) {
+        return new BoxTreeGenerator().generate(tree.renderTree);
+    }
+
+}
@@ -0,0 +1,83 @@
+package browser.benchmark;
+
+import static browser.constants.ResourceConstants.FILE_PREFIX;
+
+import java.util.concurrent.TimeUnit;
+
+import browser.app.Pipeline;
+import browser.css.CSSLoader;
+import browser.exception.PageLoadException;
+import browser.model.DOMNode;
+import browser.model.RenderNode;
+import browser.network.ResourceLoader;
+import browser.parser.RenderTreeGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the CSS cascade alone, on the Hacker News front page and the SerenityOS man page indexes. The
+ * stylesheets are parsed once per trial, so only matching, cascading, computing and inheriting are measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CascadeBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class CascadePage {
+        @Param({
+                "hn/Hacker News.html",
+                "serenity/SerenityOS man pages.html",
+                "serenity/Section 1 - User Programs.html",
+                "serenity/Section 2 - System Calls.html",
+                "serenity/Section 3 - Library Functions.html",
+                "serenity/Section 5 - File Formats.html",
+                "serenity/Section 6 - Games.html",
+                "serenity/Section 7 - Miscellanea.html",
+                "serenity/Section 8 - Sysadmin Tools.html"
+        })
+        public String page;
+
+        public DOMNode dom;
+        public CSSLoader cssLoader;
+
+        @Setup(Level.Trial)
+        public void setup() throws PageLoadException {
+            Pipeline.init();
+            ResourceLoader resourceLoader = new ResourceLoader();
+            resourceLoader.loadWebpage(FILE_PREFIX + PageState.OFFLINE_PAGES + page);
+            dom = resourceLoader.getDom();
+            cssLoader = new CSSLoader(dom, resourceLoader.getExternalCSS(), PageState.SCREEN_WIDTH, PageState.SCREEN_HEIGHT);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class UnstyledRenderTree {
+        public RenderNode renderTree;
+
+        @Setup(Level.Invocation)
+        public void setup(CascadePage page) {
+            renderTree = new RenderTreeGenerator().generateRenderTree(page.dom);
+        }
+    }
+
+    @Benchmark
+    public RenderNode cascade(CascadePage page, UnstyledRenderTree state) {
+        page.cssLoader.applyAllCSS(state.renderTree);
+        return state.renderTree;
+    }
+
+}
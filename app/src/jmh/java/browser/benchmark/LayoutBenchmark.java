@@ -0,0 +1,72 @@
+package browser.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import browser.css.CSSLoader;
+import browser.layout.BoxLayoutGenerator;
+import browser.layout.BoxTreeGenerator;
+import browser.model.BoxNode;
+import browser.model.RenderNode;
+import browser.parser.RenderTreeGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the CSS cascade, box tree generation and box layout. The cascade and layout modify the trees they
+ * are given, so fresh trees are built before each invocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LayoutBenchmark {
+
+    @State(Scope.Thread)
+    public static class UnstyledRenderTree {
+        public RenderNode renderTree;
+
+        @Setup(Level.Invocation)
+        public void setup(PageState page) {
+            renderTree = new RenderTreeGenerator().generateRenderTree(page.dom);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class UnpositionedBoxTree {
+        public BoxNode boxTree;
+
+        @Setup(Level.Invocation)
+        public void setup(StyledPageState styledPage) {
+            boxTree = new BoxTreeGenerator().generate(styledPage.renderTree);
+        }
+    }
+
+    @Benchmark
+    public RenderNode applyAllCSS(PageState page, UnstyledRenderTree state) {
+        new CSSLoader(page.dom, page.externalCSS, PageState.SCREEN_WIDTH, PageState.SCREEN_HEIGHT).applyAllCSS(state.renderTree);
+        return state.renderTree;
+    }
+
+    @Benchmark
+    public BoxNode boxTreeGenerator(StyledPageState styledPage) {
+        return new BoxTreeGenerator().generate(styledPage.renderTree);
+    }
+
+    @Benchmark
+    public BoxNode boxLayoutGenerator(StyledPageState styledPage, UnpositionedBoxTree state) {
+        new BoxLayoutGenerator(styledPage.textDimensionCalculator).calculateLayout(state.boxTree, PageState.SCREEN_WIDTH);
+        return state.boxTree;
+    }
+
+}
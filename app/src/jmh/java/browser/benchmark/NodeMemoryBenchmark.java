@@ -0,0 +1,87 @@
+package browser.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import browser.model.DOMNode;
+import browser.model.RenderNode;
+import browser.parser.HTMLParser;
+import browser.parser.RenderTreeGenerator;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * Measures the heap size of the DOM and render trees of each page, in bytes per node. The size of a tree is that of
+ * every object reachable from its root, found by walking the object graph with JOL, so it includes the text and
+ * attributes of the nodes. The time reported is that of building and walking the tree, and is not of interest.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(1)
+public class NodeMemoryBenchmark {
+
+    /**
+     * The size of the tree built by the benchmark, which JMH reports alongside the time.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class TreeSize {
+        public long nodes;
+        public double bytesPerNode;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+            bytesPerNode = 0;
+        }
+
+        private void measure(Object root, long nodeCount) {
+            nodes = nodeCount;
+            bytesPerNode = (double) GraphLayout.parseInstance(root).totalSize() / nodeCount;
+        }
+    }
+
+    @Benchmark
+    public DOMNode domTree(PageState page, TreeSize treeSize) {
+        DOMNode dom = new HTMLParser().generateDOMTree(page.html);
+        treeSize.measure(dom, countNodes(dom));
+        return dom;
+    }
+
+    @Benchmark
+    public RenderNode renderTree(PageState page, TreeSize treeSize) {
+        RenderNode renderTree = new RenderTreeGenerator().generateRenderTree(page.dom);
+        treeSize.measure(renderTree, countNodes(renderTree));
+        return renderTree;
+    }
+
+    private static long countNodes(DOMNode node) {
+        long count = 1;
+        for (DOMNode child : node.children) {
+            count += countNodes(child);
+        }
+        return count;
+    }
+
+    private static long countNodes(RenderNode node) {
+        long count = 1;
+        for (RenderNode child : node.children) {
+            count += countNodes(child);
+        }
+        return count;
+    }
+
+}
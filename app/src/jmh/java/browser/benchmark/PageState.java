@@ -0,0 +1,77 @@
+package browser.benchmark;
+
+import static browser.constants.ResourceConstants.FILE_PREFIX;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import browser.app.Pipeline;
+import browser.exception.PageLoadException;
+import browser.model.DOMNode;
+import browser.network.LocalResourceProvider;
+import browser.network.ResourceLoader;
+import browser.parser.HTMLElements;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * A page from the offline-webpages directory, loaded once per trial. Benchmarks run from the app directory, since
+ * the pipeline loads its own resources relative to it.
+ */
+@State(Scope.Benchmark)
+public class PageState {
+
+    public static final String OFFLINE_PAGES = "src/main/resources/offline-webpages/";
+    public static final float SCREEN_WIDTH = 1000;
+    public static final float SCREEN_HEIGHT = 800;
+
+    // hn_comments is excluded, since a single layout of it currently takes several minutes.
+    @Param({
+            "eytzinger/Eytzinger Binary Search - Algorithmica.html",
+            "hn/Hacker News.html",
+            "man/The Linux man-pages project.html",
+            "menhir/Menhir.html",
+            "saturn/APOD_ 2022 July 24 - Saturn in Infrared from Cassini.html",
+            "serenity/Section 1 - User Programs.html",
+            "spamhaus/About The Spamhaus Project.html"
+    })
+    public String page;
+
+    public String html;
+    public DOMNode dom;
+    public List<String> externalCSS;
+    // External stylesheets followed by the contents of style tags.
+    public List<String> stylesheets;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, PageLoadException {
+        Pipeline.init();
+        String url = FILE_PREFIX + OFFLINE_PAGES + page;
+        Path path = LocalResourceProvider.toPath(url);
+        html = new LocalResourceProvider(url).readHTML(path);
+
+        ResourceLoader resourceLoader = new ResourceLoader();
+        resourceLoader.loadWebpage(url);
+        dom = resourceLoader.getDom();
+        externalCSS = new ArrayList<>(resourceLoader.getExternalCSS());
+        stylesheets = new ArrayList<>(externalCSS);
+        addStyleTagCSS(dom, stylesheets);
+    }
+
+    private void addStyleTagCSS(DOMNode node, List<String> stylesheets) {
+        if (node.type.equals(HTMLElements.STYLE) && !node.children.isEmpty()) {
+            stylesheets.add(node.children.get(0).content);
+            return;
+        }
+        for (DOMNode child : node.children) {
+            addStyleTagCSS(child, stylesheets);
+        }
+    }
+
+}
@@ -0,0 +1,52 @@
+package browser.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import browser.model.CSSSelectorGroup;
+import browser.model.DOMNode;
+import browser.model.HTMLToken;
+import browser.parser.CSSParser;
+import browser.parser.HTMLLexer;
+import browser.parser.HTMLParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for converting page text into the DOM tree and CSS rules.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Benchmark
+    public List<HTMLToken> htmlLexer(PageState page) {
+        return new HTMLLexer(page.html).getTokens();
+    }
+
+    @Benchmark
+    public DOMNode htmlParser(PageState page) {
+        return new HTMLParser().generateDOMTree(page.html);
+    }
+
+    @Benchmark
+    public List<Map<CSSSelectorGroup, Map<String, String>>> cssParser(PageState page) {
+        List<Map<CSSSelectorGroup, Map<String, String>>> rules = new ArrayList<>();
+        for (String css : page.stylesheets) {
+            rules.add(CSSParser.parseRules(css));
+        }
+        return rules;
+    }
+
+}
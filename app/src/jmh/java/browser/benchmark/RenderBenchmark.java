@@ -0,0 +1,96 @@
+package browser.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javafx.application.Platform;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+
+import browser.model.Box;
+import browser.renderer.DisplayList;
+import browser.renderer.HTMLRenderer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks drawing a laid out page to an offscreen canvas. This measures HTMLRenderer recording draw commands, not
+ * rasterization, which happens later on the JavaFX render thread. Recording the display list and replaying it are also
+ * measured separately, along with replaying only the operations within the first screen of the page.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dprism.order=sw")
+public class RenderBenchmark {
+
+    // Canvas dimensions are limited by the maximum texture size.
+    private static final int MAX_CANVAS_HEIGHT = 8192;
+
+    @State(Scope.Thread)
+    public static class CanvasState {
+        public Canvas canvas;
+        public GraphicsContext gc;
+
+        @Setup(Level.Trial)
+        public void setup(StyledPageState styledPage) {
+            try {
+                Platform.startup(() -> {});
+            } catch (IllegalStateException ignored) {
+                // The toolkit was already started by another state.
+            }
+            float height = Math.min(Math.max(styledPage.layoutBoxTree.height, PageState.SCREEN_HEIGHT), MAX_CANVAS_HEIGHT);
+            canvas = new Canvas(PageState.SCREEN_WIDTH, height);
+            gc = canvas.getGraphicsContext2D();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class DisplayListState {
+        public DisplayList displayList;
+        public Box viewport;
+
+        @Setup(Level.Trial)
+        public void setup(StyledPageState styledPage) {
+            displayList = HTMLRenderer.record(styledPage.layoutBoxTree);
+            viewport = new Box(0, 0, PageState.SCREEN_WIDTH, PageState.SCREEN_HEIGHT);
+        }
+    }
+
+    @Benchmark
+    public GraphicsContext htmlRenderer(StyledPageState styledPage, CanvasState state) {
+        // Clearing the whole canvas discards the commands buffered by the previous invocation.
+        state.gc.clearRect(0, 0, state.canvas.getWidth(), state.canvas.getHeight());
+        HTMLRenderer.setBackground(state.gc, styledPage.renderTree.style.backgroundColor);
+        HTMLRenderer.render(state.gc, styledPage.layoutBoxTree);
+        return state.gc;
+    }
+
+    @Benchmark
+    public DisplayList recordDisplayList(StyledPageState styledPage) {
+        return HTMLRenderer.record(styledPage.layoutBoxTree);
+    }
+
+    @Benchmark
+    public int replayDisplayList(CanvasState state, DisplayListState displayList) {
+        state.gc.clearRect(0, 0, state.canvas.getWidth(), state.canvas.getHeight());
+        return displayList.displayList.replay(state.gc);
+    }
+
+    @Benchmark
+    public int replayVisibleDisplayList(CanvasState state, DisplayListState displayList) {
+        state.gc.clearRect(0, 0, state.canvas.getWidth(), state.canvas.getHeight());
+        return displayList.displayList.replay(state.gc, displayList.viewport);
+    }
+
+}
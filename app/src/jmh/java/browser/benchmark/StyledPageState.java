@@ -0,0 +1,43 @@
+package browser.benchmark;
+
+import browser.css.CSSLoader;
+import browser.layout.BoxLayoutGenerator;
+import browser.layout.BoxTreeGenerator;
+import browser.layout.ListMarkerGenerator;
+import browser.layout.TextDimensionCalculator;
+import browser.model.BoxNode;
+import browser.model.RenderNode;
+import browser.parser.RenderTreeGenerator;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * A page that has been run through the same stages as Pipeline.calculateLayout, once per trial. Benchmarks for later
+ * stages start from this state.
+ */
+@State(Scope.Benchmark)
+public class StyledPageState {
+
+    public RenderNode renderTree;
+    public BoxNode layoutBoxTree;
+    public TextDimensionCalculator textDimensionCalculator;
+
+    @Setup(Level.Trial)
+    public void setup(PageState pageState) {
+        RenderTreeGenerator renderTreeGenerator = new RenderTreeGenerator();
+        renderTree = renderTreeGenerator.generateRenderTree(pageState.dom);
+        new CSSLoader(pageState.dom, pageState.externalCSS, PageState.SCREEN_WIDTH, PageState.SCREEN_HEIGHT).applyAllCSS(renderTree);
+        renderTreeGenerator.removeDisplayNoneNodes(renderTree);
+        renderTreeGenerator.cleanupRenderNodeText(renderTree);
+        ListMarkerGenerator.addMarkers(renderTree);
+        ListMarkerGenerator.setMarkerStyles(renderTree);
+
+        textDimensionCalculator = new TextDimensionCalculator();
+        layoutBoxTree = new BoxTreeGenerator().generate(renderTree);
+        new BoxLayoutGenerator(textDimensionCalculator).calculateLayout(layoutBoxTree, PageState.SCREEN_WIDTH);
+    }
+
+}
@@ -0,0 +1,107 @@
+package browser.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import browser.model.CSSSelectorGroup;
+import browser.model.CSSToken;
+import browser.parser.CSSLexer;
+import browser.parser.CSSLexer.CSSTokenType;
+import browser.parser.CSSParser;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for parsing the real-world stylesheets saved with the offline pages.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StylesheetBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Stylesheet {
+        @Param({
+                "eytzinger/Eytzinger Binary Search - Algorithmica_files/pandoc.css",
+                "hn/Hacker News_files/news.css",
+                "spamhaus/About The Spamhaus Project_files/sh.css"
+        })
+        public String file;
+
+        public String css;
+        // The size of the stylesheet in bytes when encoded as UTF-8.
+        public int size;
+        // The text of every selector list in the stylesheet, such as "div.item > a, #id".
+        public List<String> selectors;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            css = new String(Files.readAllBytes(Paths.get(PageState.OFFLINE_PAGES + file)));
+            size = css.getBytes(StandardCharsets.UTF_8).length;
+            selectors = new ArrayList<>();
+            for (CSSToken token : CSSLexer.getTokens(css)) {
+                if (token.type == CSSTokenType.SELECTOR) {
+                    selectors.add(token.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts the bytes lexed in each iteration, which JMH reports as a rate alongside the lexer's throughput. Dividing
+     * the rate by 1,000,000 gives the lexer's speed in MB/s.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class LexedBytes {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public List<CSSToken> lexer(Stylesheet stylesheet, LexedBytes lexedBytes) {
+        lexedBytes.bytes += stylesheet.size;
+        return CSSLexer.getTokens(stylesheet.css, false);
+    }
+
+    @Benchmark
+    public List<List<CSSSelectorGroup>> selectorParser(Stylesheet stylesheet) {
+        List<List<CSSSelectorGroup>> selectorGroups = new ArrayList<>(stylesheet.selectors.size());
+        for (String selector : stylesheet.selectors) {
+            selectorGroups.add(CSSParser.parseSelectorsGroups(selector));
+        }
+        return selectorGroups;
+    }
+
+    @Benchmark
+    public Map<CSSSelectorGroup, Map<String, String>> cssParser(Stylesheet stylesheet) {
+        return CSSParser.parseRules(stylesheet.css);
+    }
+
+}
@@ -0,0 +1,51 @@
+package browser;
+
+import java.nio.file.Path;
+
+import browser.app.BatchRenderer;
+
+/**
+ * Headless entry point for measuring pipeline throughput over a directory of saved pages.
+ * Usage: BatchRenderApplication directory [--threads n] [--width px] [--height px] [--repeat n] [--png directory]
+ */
+public class BatchRenderApplication {
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            printUsage();
+            System.exit(1);
+        }
+
+        Path directory = Path.of(args[0]);
+        int threads = Runtime.getRuntime().availableProcessors();
+        float width = 1000;
+        float height = 800;
+        int repeat = 1;
+        Path pngDirectory = null;
+
+        try {
+            for (int i = 1; i < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--threads" -> threads = Integer.parseInt(value);
+                    case "--width" -> width = Float.parseFloat(value);
+                    case "--height" -> height = Float.parseFloat(value);
+                    case "--repeat" -> repeat = Integer.parseInt(value);
+                    case "--png" -> pngDirectory = Path.of(value);
+                    default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.printf("Invalid arguments: %s\n", e.getMessage());
+            printUsage();
+            System.exit(1);
+        }
+
+        BatchRenderer renderer = new BatchRenderer(directory, threads, width, height, repeat, pngDirectory);
+        int failures = renderer.run();
+        System.exit(failures == 0 ? 0 : 2);
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: BatchRenderApplication directory [--threads n] [--width px] [--height px] [--repeat n] [--png directory]");
+    }
+}
@@ -0,0 +1,245 @@
+package browser.app;
+
+import static browser.constants.ResourceConstants.FILE_PREFIX;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javafx.application.Platform;
+import javafx.embed.swing.SwingFXUtils;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.image.WritableImage;
+
+import browser.renderer.ImageCache;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Runs the pipeline over a directory of HTML files without a browser window, for measuring throughput. Each page is
+ * loaded and laid out on one of a fixed number of worker threads, and optionally rendered to a PNG file. Once all
+ * pages are complete, the pages per second, the median and 99th percentile time of each stage, and the peak heap
+ * usage are printed.
+ */
+public class BatchRenderer {
+
+    // Canvas snapshots are limited by the maximum texture size.
+    private static final int MAX_RENDER_HEIGHT = 8192;
+
+    private final Path directory;
+    private final int threads;
+    private final float width;
+    private final float height;
+    private final int repeat;
+    private final Path pngDirectory;
+    private boolean toolkitStarted;
+
+    public BatchRenderer(Path directory, int threads, float width, float height, int repeat, Path pngDirectory) {
+        this.directory = directory;
+        this.threads = threads;
+        this.width = width;
+        this.height = height;
+        this.repeat = repeat;
+        this.pngDirectory = pngDirectory;
+    }
+
+    /**
+     * Runs the batch and prints the results.
+     * @return The number of pages that failed to load or lay out.
+     */
+    public int run() throws IOException, InterruptedException {
+        List<Path> pages = findPages();
+        if (pages.isEmpty()) {
+            System.err.printf("BatchRenderer: no HTML files found in %s.\n", directory);
+            return 0;
+        }
+
+        startToolkit();
+        Pipeline.init();
+        if (pngDirectory != null) {
+            // Snapshots are taken as soon as a page is laid out, so images must be decoded by then.
+            ImageCache.setBackgroundLoading(false);
+            Files.createDirectories(pngDirectory);
+        }
+
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<PageResult>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < repeat; i++) {
+            for (Path page : pages) {
+                futures.add(executor.submit(() -> processPage(page)));
+            }
+        }
+
+        List<PageResult> results = new ArrayList<>();
+        for (Future<PageResult> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                System.err.printf("BatchRenderer: worker failed, %s\n", e.getCause());
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+
+        printResults(results, futures.size(), elapsed);
+        if (toolkitStarted) {
+            Platform.exit();
+        }
+        return futures.size() - (int) results.stream().filter(result -> result.succeeded).count();
+    }
+
+    /**
+     * Finds all HTML files in the directory. Files within the "_files" directories of saved pages are frames and other
+     * resources of a page rather than pages themselves, so they are skipped.
+     */
+    private List<Path> findPages() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(path -> Files.isRegularFile(path) && path.toString().endsWith(".html"))
+                    .filter(path -> !path.getParent().getFileName().toString().endsWith("_files"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Image decoding and canvas snapshots require the JavaFX toolkit. Layout can still run without it, so a failure
+     * to start is only fatal when rendering to PNG.
+     */
+    private void startToolkit() {
+        try {
+            Platform.startup(() -> {});
+            toolkitStarted = true;
+        } catch (IllegalStateException e) {
+            // The toolkit was already started.
+            toolkitStarted = true;
+        } catch (RuntimeException | UnsatisfiedLinkError e) {
+            System.err.printf("BatchRenderer: JavaFX toolkit unavailable (%s). Images will use default sizes.\n", e.getMessage());
+            if (pngDirectory != null) {
+                throw new IllegalStateException("Rendering to PNG requires the JavaFX toolkit.", e);
+            }
+        }
+    }
+
+    private PageResult processPage(Path page) {
+        PageResult result = new PageResult();
+        Pipeline pipeline = new Pipeline();
+        try {
+            long start = System.nanoTime();
+            pipeline.loadWebpage(FILE_PREFIX + page);
+            result.loadNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            pipeline.calculateLayout(width, height);
+            result.layoutNanos = System.nanoTime() - start;
+
+            if (pngDirectory != null) {
+                start = System.nanoTime();
+                renderToPNG(pipeline, page);
+                result.renderNanos = System.nanoTime() - start;
+            }
+            result.metrics = pipeline.getMetrics();
+            result.succeeded = true;
+        } catch (Exception e) {
+            System.err.printf("BatchRenderer: failed to process %s, %s\n", page, e);
+        }
+        return result;
+    }
+
+    /**
+     * Draws the page to an offscreen canvas and writes a snapshot. Snapshots must be taken on the JavaFX application
+     * thread, so this blocks until that thread is free.
+     */
+    private void renderToPNG(Pipeline pipeline, Path page) throws Exception {
+        int canvasHeight = (int) Math.min(Math.max(pipeline.getHeight(), height), MAX_RENDER_HEIGHT);
+        FutureTask<WritableImage> snapshotTask = new FutureTask<>(() -> {
+            Canvas canvas = new Canvas(width, canvasHeight);
+            pipeline.render(canvas.getGraphicsContext2D());
+            return canvas.snapshot(null, null);
+        });
+        Platform.runLater(snapshotTask);
+        WritableImage image = snapshotTask.get();
+
+        String name = directory.relativize(page).toString().replace(File.separatorChar, '_').replace(".html", ".png");
+        ImageIO.write(SwingFXUtils.fromFXImage(image, null), "png", pngDirectory.resolve(name).toFile());
+    }
+
+    private void printResults(List<PageResult> results, int totalPages, long elapsedNanos) {
+        List<PageResult> succeeded = results.stream().filter(result -> result.succeeded).collect(Collectors.toList());
+        double seconds = elapsedNanos / 1e9;
+
+        System.out.printf("Processed %d pages (%d failed) on %d threads in %.2f s.\n", totalPages, totalPages - succeeded.size(), threads, seconds);
+        System.out.printf("Throughput: %.2f pages/s\n", succeeded.size() / seconds);
+        System.out.printf("%-22s %10s %10s\n", "Stage", "p50 (ms)", "p99 (ms)");
+        printStage("load", succeeded.stream().mapToLong(result -> result.loadNanos).toArray());
+        printStage("layout", succeeded.stream().mapToLong(result -> result.layoutNanos).toArray());
+        if (pngDirectory != null) {
+            printStage("render", succeeded.stream().mapToLong(result -> result.renderNanos).toArray());
+        }
+        printStage("total", succeeded.stream().mapToLong(result -> result.loadNanos + result.layoutNanos + result.renderNanos).toArray());
+        for (PipelineMetrics.Stage stage : PipelineMetrics.Stage.values()) {
+            long[] stageNanos = succeeded.stream().mapToLong(result -> result.metrics.getStageNanos(stage)).toArray();
+            if (Arrays.stream(stageNanos).anyMatch(nanos -> nanos > 0)) {
+                printStage("  " + stage.name().toLowerCase(), stageNanos);
+            }
+        }
+        System.out.printf("Peak heap: %.1f MB\n", getPeakHeapBytes() / (1024.0 * 1024.0));
+    }
+
+    private void printStage(String name, long[] nanos) {
+        System.out.printf("%-22s %10.2f %10.2f\n", name, percentile(nanos, 0.5) / 1e6, percentile(nanos, 0.99) / 1e6);
+    }
+
+    /**
+     * Nearest-rank percentile.
+     */
+    private long percentile(long[] values, double percentile) {
+        if (values.length == 0) {
+            return 0;
+        }
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    /**
+     * Sums the peak usage of each heap pool. Pools peak at different times, so this is an upper bound of the true peak.
+     */
+    private long getPeakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static class PageResult {
+        private boolean succeeded;
+        private PipelineMetrics metrics;
+        private long loadNanos;
+        private long layoutNanos;
+        private long renderNanos;
+    }
+
+}
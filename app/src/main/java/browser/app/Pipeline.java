@@ -1,16 +1,20 @@
 package browser.app;
 
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
 
+import browser.app.PipelineMetrics.Stage;
 import browser.css.CSSLoader;
 import browser.css.DefaultColors;
 import browser.css.FontLoader;
+import browser.css.SelectorMatcher;
 import browser.exception.LayoutException;
 import browser.exception.PageLoadException;
 import browser.layout.BoxLayoutGenerator;
 import browser.layout.BoxTreeGenerator;
 import browser.layout.ListMarkerGenerator;
 import browser.layout.TextDimensionCalculator;
+import browser.model.Box;
 import browser.model.BoxNode;
 import browser.model.DOMNode;
 import browser.model.RenderNode;
@@ -18,11 +22,11 @@ import browser.network.ResourceLoader;
 import browser.parser.HTMLElements;
 import browser.parser.RenderTreeGenerator;
 import browser.parser.SpecialSymbolHandler;
+import browser.renderer.DisplayList;
 import browser.renderer.HTMLRenderer;
 import browser.renderer.ImageCache;
 
 import lombok.Getter;
-import lombok.Setter;
 
 public class Pipeline {
 
@@ -31,19 +35,26 @@ public class Pipeline {
     private final ResourceLoader resourceLoader;
     private final TextDimensionCalculator textDimensionCalculator;
     @Getter
-    @Setter
     private DOMNode domRoot;
     @Getter
     private RenderNode rootRenderNode;
     @Getter
     private BoxNode rootBoxNode;
+    @Getter
+    private DisplayList displayList;
     private boolean loaded;
+    // The stylesheets of the current page, and the screen size the render tree was last styled for.
+    private CSSLoader cssLoader;
+    private float styledWidth;
+    private float styledHeight;
 
     @Getter
     private String title;
     private float width;
     @Getter
     private float height;
+    @Getter
+    private PipelineMetrics metrics = new PipelineMetrics();
 
     public static void init() {
         if (initialized) {
@@ -69,50 +80,161 @@ public class Pipeline {
      * @param url        URL to visit.
      */
     public void loadWebpage(String url) throws PageLoadException {
-        resourceLoader.loadWebpage(url);
-        domRoot = resourceLoader.getDom();
+        metrics = new PipelineMetrics();
+        metrics.startStage(Stage.LOAD);
+        try {
+            resourceLoader.loadWebpage(url);
+        } finally {
+            metrics.endStage();
+        }
+        setDomRoot(resourceLoader.getDom());
+        metrics.countDOMNodes(domRoot);
         title = "no title";
         loaded = true;
     }
 
+    public void setDomRoot(DOMNode domRoot) {
+        this.domRoot = domRoot;
+        cssLoader = null;
+        rootRenderNode = null;
+    }
+
     /**
-     * Step 2 in the pipeline. Calculates the size and position of each render nodes.
+     * Step 2 in the pipeline. Calculates the size and position of each render nodes. The styled render tree of the
+     * previous layout is reused when the page is the same and no media query breakpoint lies between the previous and
+     * the new screen size.
      * @param screenWidth        Width in pixels of the screen.
      */
     public void calculateLayout(float screenWidth, float screenHeight) throws LayoutException {
+        textDimensionCalculator.getCacheStatistics().reset();
+        ImageCache.getDimensionCacheStatistics().reset();
         try {
-            RenderTreeGenerator renderTreeGenerator = new RenderTreeGenerator();
-            rootRenderNode = renderTreeGenerator.generateRenderTree(domRoot);
-            CSSLoader cssLoader = new CSSLoader(domRoot, resourceLoader.getExternalCSS(), screenWidth, screenHeight);
-            cssLoader.applyAllCSS(rootRenderNode);
-
-            renderTreeGenerator.removeDisplayNoneNodes(rootRenderNode);
-            renderTreeGenerator.cleanupRenderNodeText(rootRenderNode);
-
-            // Insert list markers, propagate any CSS to them, and update their content.
-            ListMarkerGenerator.addMarkers(rootRenderNode);
-            // TODO apply styles to marker nodes.
-            ListMarkerGenerator.setMarkerStyles(rootRenderNode);
-
+            if (needsStyling(screenWidth, screenHeight)) {
+                generateStyledRenderTree(screenWidth, screenHeight);
+            } else {
+                for (Stage stage : new Stage[] {Stage.RENDER_TREE, Stage.CSS, Stage.REMOVE_DISPLAY_NONE, Stage.TEXT_CLEANUP, Stage.LIST_MARKERS}) {
+                    metrics.clearStage(stage);
+                }
+            }
+
+            metrics.startStage(Stage.BOX_TREE);
             BoxTreeGenerator boxTreeGenerator = new BoxTreeGenerator();
             rootBoxNode = boxTreeGenerator.generate(rootRenderNode);
+
+            metrics.startStage(Stage.BOX_LAYOUT);
             BoxLayoutGenerator boxLayoutGenerator = new BoxLayoutGenerator(textDimensionCalculator);
             boxLayoutGenerator.calculateLayout(rootBoxNode, screenWidth);
 
+            metrics.startStage(Stage.DISPLAY_LIST);
+            displayList = HTMLRenderer.record(rootBoxNode);
+            displayList.setBackground(rootRenderNode.style.backgroundColor.toPaint());
+
             height = rootBoxNode.height;
             width = screenWidth;
         } catch (Exception e) {
             throw new LayoutException(e);
+        } finally {
+            metrics.endStage();
+        }
+
+        metrics.countRenderNodes(rootRenderNode);
+        metrics.countBoxNodes(rootBoxNode);
+        metrics.setCacheStatistics(PipelineMetrics.Cache.SELECTOR_MATCH, SelectorMatcher.getCacheStatistics());
+        metrics.setCacheStatistics(PipelineMetrics.Cache.INLINE_STYLE, cssLoader.getInlineStyleCacheStatistics());
+        metrics.setCacheStatistics(PipelineMetrics.Cache.TEXT_DIMENSION, textDimensionCalculator.getCacheStatistics());
+        metrics.setCacheStatistics(PipelineMetrics.Cache.IMAGE_DIMENSION, ImageCache.getDimensionCacheStatistics());
+    }
+
+    private boolean needsStyling(float screenWidth, float screenHeight) {
+        return rootRenderNode == null || cssLoader == null ||
+                !cssLoader.getMediaQueryIndex().matchesSameRules(styledWidth, styledHeight, screenWidth, screenHeight);
+    }
+
+    private void generateStyledRenderTree(float screenWidth, float screenHeight) {
+        metrics.startStage(Stage.RENDER_TREE);
+        RenderTreeGenerator renderTreeGenerator = new RenderTreeGenerator();
+        // The previous tree is dropped first, so that it is not reused if styling fails.
+        rootRenderNode = null;
+        RenderNode renderRoot = renderTreeGenerator.generateRenderTree(domRoot);
+
+        metrics.startStage(Stage.CSS);
+        if (cssLoader == null) {
+            cssLoader = new CSSLoader(domRoot, resourceLoader.getExternalCSS(), screenWidth, screenHeight);
+        } else {
+            cssLoader.setScreenDimensions(screenWidth, screenHeight);
         }
+        cssLoader.applyAllCSS(renderRoot);
+        styledWidth = screenWidth;
+        styledHeight = screenHeight;
+
+        metrics.startStage(Stage.REMOVE_DISPLAY_NONE);
+        renderTreeGenerator.removeDisplayNoneNodes(renderRoot);
+
+        metrics.startStage(Stage.TEXT_CLEANUP);
+        renderTreeGenerator.cleanupRenderNodeText(renderRoot);
+
+        // Insert list markers, propagate any CSS to them, and update their content.
+        metrics.startStage(Stage.LIST_MARKERS);
+        ListMarkerGenerator.addMarkers(renderRoot);
+        // TODO apply styles to marker nodes.
+        ListMarkerGenerator.setMarkerStyles(renderRoot);
+        rootRenderNode = renderRoot;
     }
 
     /**
-     * Step 3 in the pipeline. Draws the render tree to a JavaFX canvas.
+     * Step 3 in the pipeline. Draws the display list recorded by the last layout to a JavaFX canvas.
      * @param gc        An instance of GraphicsContext to render on.
      */
     public void render(GraphicsContext gc) {
+        metrics.startStage(Stage.PAINT);
         HTMLRenderer.setBackground(gc, rootRenderNode.style.backgroundColor);
-        HTMLRenderer.render(gc, rootBoxNode);
+        displayList.replay(gc);
+        metrics.endStage();
+    }
+
+    /**
+     * Repaints only the region of the canvas where the display list differs from one that was previously drawn to it.
+     * Falls back to a full render when the page background changed.
+     * @param gc            An instance of GraphicsContext holding the previous frame.
+     * @param previous      The display list the previous frame was drawn from.
+     */
+    public void renderChanges(GraphicsContext gc, DisplayList previous) {
+        if (previous == null || !displayList.getBackground().equals(previous.getBackground())) {
+            render(gc);
+            return;
+        }
+
+        metrics.startStage(Stage.PAINT);
+        Box damage = displayList.diff(previous);
+        if (damage != null) {
+            renderRegion(gc, displayList, damage);
+        }
+        metrics.endStage();
+    }
+
+    /**
+     * Repaints the region of the canvas where an image is drawn. Images decoded in the background are drawn blank
+     * until they finish, and the display list does not change when they do, so this is called once each one finishes.
+     * @param gc            An instance of GraphicsContext holding the frame drawn from the display list.
+     * @param rendered      The display list the frame was drawn from, which may be older than the current one.
+     * @param image         The image that finished decoding.
+     */
+    public void renderImage(GraphicsContext gc, DisplayList rendered, Image image) {
+        Box damage = rendered.getImageBounds(image);
+        if (damage != null) {
+            renderRegion(gc, rendered, damage);
+        }
+    }
+
+    private void renderRegion(GraphicsContext gc, DisplayList list, Box damage) {
+        gc.save();
+        gc.beginPath();
+        gc.rect(damage.x, damage.y, damage.width, damage.height);
+        gc.clip();
+        gc.setFill(list.getBackground());
+        gc.fillRect(damage.x, damage.y, damage.width, damage.height);
+        list.replay(gc, damage);
+        gc.restore();
     }
 
     public boolean loadedWebpage() {
@@ -0,0 +1,193 @@
+package browser.app;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import browser.model.BoxNode;
+import browser.model.CacheStatistics;
+import browser.model.DOMNode;
+import browser.model.RenderNode;
+
+/**
+ * Timing, allocation, node count and cache statistics recorded by the pipeline for a single page load. Each stage
+ * records the wall clock time and the bytes allocated by the thread that ran it. Stages that run again, such as
+ * layout after a resize, overwrite their previous values.
+ */
+public class PipelineMetrics {
+
+    public enum Stage {
+        LOAD,
+        RENDER_TREE,
+        CSS,
+        REMOVE_DISPLAY_NONE,
+        TEXT_CLEANUP,
+        LIST_MARKERS,
+        BOX_TREE,
+        BOX_LAYOUT,
+        DISPLAY_LIST,
+        PAINT
+    }
+
+    public enum Cache {
+        SELECTOR_MATCH,
+        INLINE_STYLE,
+        TEXT_DIMENSION,
+        IMAGE_DIMENSION
+    }
+
+    private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    private final Map<Stage, Long> stageNanos = new EnumMap<>(Stage.class);
+    private final Map<Stage, Long> stageAllocatedBytes = new EnumMap<>(Stage.class);
+    private final Map<Cache, CacheStatistics> cacheStatistics = new EnumMap<>(Cache.class);
+    private final Map<String, Integer> counts = new LinkedHashMap<>();
+
+    private Stage currentStage;
+    private long currentStageStartNanos;
+    private long currentStageStartBytes;
+
+    /**
+     * Starts timing a stage. Stages do not nest; starting a stage ends the previous one.
+     */
+    public void startStage(Stage stage) {
+        if (currentStage != null) {
+            endStage();
+        }
+        currentStage = stage;
+        currentStageStartBytes = getAllocatedBytes();
+        currentStageStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Ends the current stage, if any.
+     */
+    public void endStage() {
+        if (currentStage == null) {
+            return;
+        }
+        long nanos = System.nanoTime() - currentStageStartNanos;
+        long bytes = getAllocatedBytes() - currentStageStartBytes;
+        stageNanos.put(currentStage, nanos);
+        stageAllocatedBytes.put(currentStage, Math.max(0, bytes));
+        currentStage = null;
+    }
+
+    /**
+     * Removes the measurements of a stage that was skipped.
+     */
+    public void clearStage(Stage stage) {
+        stageNanos.remove(stage);
+        stageAllocatedBytes.remove(stage);
+    }
+
+    public long getStageNanos(Stage stage) {
+        return stageNanos.getOrDefault(stage, 0L);
+    }
+
+    /**
+     * @return The bytes allocated by the thread running the stage, or -1 if the JVM does not support measuring it.
+     */
+    public long getStageAllocatedBytes(Stage stage) {
+        if (!allocationMeasurementSupported()) {
+            return -1;
+        }
+        return stageAllocatedBytes.getOrDefault(stage, 0L);
+    }
+
+    public long getTotalNanos() {
+        return stageNanos.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public void setCacheStatistics(Cache cache, CacheStatistics statistics) {
+        cacheStatistics.put(cache, statistics.copy());
+    }
+
+    public CacheStatistics getCacheStatistics(Cache cache) {
+        return cacheStatistics.getOrDefault(cache, new CacheStatistics());
+    }
+
+    public void setCount(String name, int count) {
+        counts.put(name, count);
+    }
+
+    public Map<String, Integer> getCounts() {
+        return counts;
+    }
+
+    public void countDOMNodes(DOMNode root) {
+        setCount("DOM nodes", root == null ? 0 : countDOMNodesRecursive(root));
+    }
+
+    public void countRenderNodes(RenderNode root) {
+        setCount("Render nodes", root == null ? 0 : countRenderNodesRecursive(root));
+    }
+
+    public void countBoxNodes(BoxNode root) {
+        setCount("Box nodes", root == null ? 0 : countBoxNodesRecursive(root));
+    }
+
+    /**
+     * Formats the metrics as a multi-line table.
+     */
+    public String toReportString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%-20s %10s %12s\n", "Stage", "Time (ms)", "Alloc (KB)"));
+        for (Stage stage : Stage.values()) {
+            if (!stageNanos.containsKey(stage)) {
+                continue;
+            }
+            long bytes = getStageAllocatedBytes(stage);
+            builder.append(String.format("%-20s %10.2f %12s\n", stage.name().toLowerCase(), getStageNanos(stage) / 1e6,
+                    bytes < 0 ? "n/a" : String.format("%.1f", bytes / 1024.0)));
+        }
+        builder.append(String.format("%-20s %10.2f\n", "total", getTotalNanos() / 1e6));
+        for (Map.Entry<String, Integer> count : counts.entrySet()) {
+            builder.append(String.format("%s: %d\n", count.getKey(), count.getValue()));
+        }
+        for (Map.Entry<Cache, CacheStatistics> cache : cacheStatistics.entrySet()) {
+            builder.append(String.format("%s cache: %s\n", cache.getKey().name().toLowerCase().replace('_', ' '), cache.getValue()));
+        }
+        return builder.toString();
+    }
+
+    private static boolean allocationMeasurementSupported() {
+        return threadMXBean instanceof com.sun.management.ThreadMXBean sunThreadMXBean &&
+                sunThreadMXBean.isThreadAllocatedMemorySupported() &&
+                sunThreadMXBean.isThreadAllocatedMemoryEnabled();
+    }
+
+    private static long getAllocatedBytes() {
+        if (allocationMeasurementSupported()) {
+            return ((com.sun.management.ThreadMXBean) threadMXBean).getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+
+    private int countDOMNodesRecursive(DOMNode node) {
+        int count = 1;
+        for (DOMNode child : node.children) {
+            count += countDOMNodesRecursive(child);
+        }
+        return count;
+    }
+
+    private int countRenderNodesRecursive(RenderNode node) {
+        int count = 1;
+        for (RenderNode child : node.children) {
+            count += countRenderNodesRecursive(child);
+        }
+        return count;
+    }
+
+    private int countBoxNodesRecursive(BoxNode node) {
+        int count = 1;
+        for (BoxNode child : node.children) {
+            count += countBoxNodesRecursive(child);
+        }
+        return count;
+    }
+
+}
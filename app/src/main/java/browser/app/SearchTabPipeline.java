@@ -1,11 +1,17 @@
 package browser.app;
 
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.Tab;
+import javafx.scene.image.Image;
 
 import browser.interaction.InteractionHandler;
+import browser.model.BoxNode;
 import browser.model.RenderNode;
+import browser.renderer.DisplayList;
+import browser.renderer.HTMLRenderer;
 import browser.tasks.LoadWebpageTask;
 import browser.tasks.RedrawWebpageTask;
 import browser.tasks.RenderCompleteCallback;
@@ -21,14 +27,28 @@ public class SearchTabPipeline {
     private float height;
     private final Canvas canvas;
     private final GraphicsContext gc;
+    private final Canvas overlayCanvas;
     private RedrawWebpageTask currentRedrawTask;
+    // The box tree that is currently drawn on the canvas. A redraw replaces the pipeline's box tree in the background,
+    // so overlays are drawn from this tree until the new layout is rendered.
+    private BoxNode renderedRootBoxNode;
+    // The display list and canvas size of the last frame, so a redraw of the same page only repaints what changed.
+    private DisplayList renderedDisplayList;
+    private double renderedWidth;
+    private double renderedHeight;
 
-    public SearchTabPipeline(int id, Canvas canvas, Tab tab, InteractionHandler interactionHandler, RenderCompleteCallback renderCompleteCallback) {
+    /**
+     * @param canvas            The canvas the page is rendered to.
+     * @param overlayCanvas     A transparent canvas above the page canvas, used for the inspector highlight and debug
+     *                          overlays.
+     */
+    public SearchTabPipeline(int id, Canvas canvas, Canvas overlayCanvas, Tab tab, InteractionHandler interactionHandler, RenderCompleteCallback renderCompleteCallback) {
         tabID = id;
         pipeline = new Pipeline();
         this.canvas = canvas;
         this.width = (float) canvas.getWidth();
         this.gc = canvas.getGraphicsContext2D();
+        this.overlayCanvas = overlayCanvas;
         this.tab = tab;
         this.interactionHandler = interactionHandler;
         this.renderCompleteCallback = renderCompleteCallback;
@@ -51,7 +71,9 @@ public class SearchTabPipeline {
             tab.setText(pipeline.getTitle() == null ? url : pipeline.getTitle());
             synchronized (pipeline) {
                 pipeline.render(gc);
+                onFrameRendered();
             }
+            repaintOverlay();
             renderCompleteCallback.onRenderCompleted(pipeline.getRootRenderNode(), RenderCompleteCallback.RenderType.NewLayout);
             interactionHandler.setRootBoxNode(pipeline.getRootBoxNode());
         });
@@ -73,8 +95,14 @@ public class SearchTabPipeline {
         crt.setOnSucceeded(event -> {
             canvas.setHeight(Math.max(pipeline.getHeight(), (float) gc.getCanvas().getHeight()));
             synchronized (pipeline) {
-                pipeline.render(gc);
+                if (canvas.getWidth() == renderedWidth && canvas.getHeight() == renderedHeight) {
+                    pipeline.renderChanges(gc, renderedDisplayList);
+                } else {
+                    pipeline.render(gc);
+                }
+                onFrameRendered();
             }
+            repaintOverlay();
             renderCompleteCallback.onRenderCompleted(pipeline.getRootRenderNode(), renderType);
             interactionHandler.setRootBoxNode(pipeline.getRootBoxNode());
             currentRedrawTask = null;
@@ -88,8 +116,57 @@ public class SearchTabPipeline {
         thread.start();
     }
 
+    private void onFrameRendered() {
+        renderedRootBoxNode = pipeline.getRootBoxNode();
+        renderedDisplayList = pipeline.getDisplayList();
+        renderedWidth = canvas.getWidth();
+        renderedHeight = canvas.getHeight();
+        for (Image image : renderedDisplayList.getLoadingImages()) {
+            repaintWhenLoaded(renderedDisplayList, image);
+        }
+    }
+
+    /**
+     * Repaints an image that was still decoding when the frame was drawn, once it finishes. Image loading updates its
+     * progress on the JavaFX application thread, so the repaint happens on that thread like the other frames. If a
+     * newer frame was drawn in the meantime, that frame has its own listener and this one does nothing.
+     */
+    private void repaintWhenLoaded(DisplayList displayList, Image image) {
+        InvalidationListener listener = new InvalidationListener() {
+            @Override
+            public void invalidated(Observable observable) {
+                if (image.getProgress() < 1 && !image.isError()) {
+                    return;
+                }
+                image.progressProperty().removeListener(this);
+                image.errorProperty().removeListener(this);
+                if (displayList == renderedDisplayList) {
+                    synchronized (pipeline) {
+                        pipeline.renderImage(gc, displayList, image);
+                    }
+                }
+            }
+        };
+        image.progressProperty().addListener(listener);
+        image.errorProperty().addListener(listener);
+    }
+
+    /**
+     * Redraws the inspector highlight and debug overlays from the current layout. The page itself is not repainted and
+     * the layout is not recalculated, so this is cheap enough to call on every mouse movement.
+     */
+    public void repaintOverlay() {
+        GraphicsContext overlayGC = overlayCanvas.getGraphicsContext2D();
+        overlayGC.clearRect(0, 0, overlayCanvas.getWidth(), overlayCanvas.getHeight());
+        HTMLRenderer.renderOverlay(overlayGC, renderedRootBoxNode);
+    }
+
     public RenderNode getRootRenderNode() {
         return pipeline.getRootRenderNode();
     }
 
+    public PipelineMetrics getMetrics() {
+        return pipeline.getMetrics();
+    }
+
 }
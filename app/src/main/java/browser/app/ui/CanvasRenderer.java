@@ -5,6 +5,7 @@ import javafx.scene.canvas.GraphicsContext;
 
 import browser.app.Pipeline;
 import browser.interaction.InteractionHandler;
+import browser.renderer.HTMLRenderer;
 import browser.tasks.LoadWebpageTask;
 import browser.tasks.RedrawWebpageTask;
 import browser.tasks.RenderCompleteCallback;
@@ -55,6 +56,7 @@ public class CanvasRenderer {
 //            tab.setText(pipeline.getTitle() == null ? url : pipeline.getTitle());
             synchronized (pipeline) {
                 pipeline.render(graphicsContext);
+                HTMLRenderer.renderOverlay(graphicsContext, pipeline.getRootBoxNode());
             }
             renderCompleteCallback.onRenderCompleted(pipeline.getRootRenderNode(), RenderCompleteCallback.RenderType.NewLayout);
             interactionHandler.setRootBoxNode(pipeline.getRootBoxNode());
@@ -77,6 +79,7 @@ public class CanvasRenderer {
             canvas.setHeight(Math.max(pipeline.getHeight(), canvas.getScene().getHeight() - heightOffset));
             synchronized (pipeline) {
                 pipeline.render(graphicsContext);
+                HTMLRenderer.renderOverlay(graphicsContext, pipeline.getRootBoxNode());
             }
             renderCompleteCallback.onRenderCompleted(pipeline.getRootRenderNode(), renderType);
             interactionHandler.setRootBoxNode(pipeline.getRootBoxNode());
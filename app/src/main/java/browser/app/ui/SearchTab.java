@@ -6,6 +6,7 @@ import javafx.scene.control.*;
 import javafx.scene.control.ScrollPane.ScrollBarPolicy;
 import javafx.scene.input.KeyCode;
 import javafx.scene.layout.GridPane;
+import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
 
 import browser.app.SearchTabPipeline;
@@ -27,6 +28,7 @@ public class SearchTab extends BrowserTab {
     private SplitPane splitPane;
     private ScrollPane scroll;
     private Canvas canvas;
+    private Canvas overlayCanvas;
     private InspectorPanel inspectorPanel;
     private double splitPaneDividerPosition = -1;
 
@@ -34,7 +36,7 @@ public class SearchTab extends BrowserTab {
         super(TabType.SEARCH, stage);
         setupUI();
         interactionHandler = new InteractionHandler(interactionCallback);
-        pipeline = new SearchTabPipeline(this.id, canvas, tab, interactionHandler, getRenderCompleteCallback());
+        pipeline = new SearchTabPipeline(this.id, canvas, overlayCanvas, tab, interactionHandler, getRenderCompleteCallback());
         inspectorPanel.setPipeline(pipeline);
     }
 
@@ -51,10 +53,17 @@ public class SearchTab extends BrowserTab {
 
         canvas = new Canvas();
 
+        // Inspector highlights are drawn on a separate canvas above the page, so they can change without repainting it.
+        overlayCanvas = new Canvas();
+        overlayCanvas.widthProperty().bind(canvas.widthProperty());
+        overlayCanvas.heightProperty().bind(canvas.heightProperty());
+        overlayCanvas.setMouseTransparent(true);
+        StackPane canvasStack = new StackPane(canvas, overlayCanvas);
+
         scroll = new ScrollPane();
         scroll.setVbarPolicy(ScrollBarPolicy.ALWAYS);
         scroll.setHbarPolicy(ScrollBarPolicy.NEVER);
-        scroll.setContent(canvas);
+        scroll.setContent(canvasStack);
         scroll.setFitToWidth(true);
 
         inspectorPanel = new InspectorPanel();
@@ -121,6 +130,7 @@ public class SearchTab extends BrowserTab {
         if (splitPane.getItems().size() == 1) {
             splitPane.getItems().add(inspectorPanel);
             inspectorPanel.updateRenderTree(pipeline.getRootRenderNode());
+            inspectorPanel.updatePerformance(pipeline.getMetrics());
 
             if (splitPaneDividerPosition == -1) {
                 splitPaneDividerPosition = getInitialSplitPanePosition();
@@ -188,6 +198,7 @@ public class SearchTab extends BrowserTab {
         return (root, renderType) -> {
             if (renderType == RenderCompleteCallback.RenderType.NewLayout && splitPane.getItems().size() == 2) {
                 inspectorPanel.updateRenderTree(root);
+                inspectorPanel.updatePerformance(pipeline.getMetrics());
             }
         };
     }
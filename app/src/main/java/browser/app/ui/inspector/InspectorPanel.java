@@ -6,10 +6,11 @@ import javafx.geometry.Orientation;
 import javafx.scene.control.SplitPane;
 import javafx.scene.control.Tab;
 import javafx.scene.control.TabPane;
-import javafx.scene.text.Text;
 
+import browser.app.PipelineMetrics;
 import browser.app.SearchTabPipeline;
 import browser.app.ui.inspector.elements.RenderTree;
+import browser.app.ui.inspector.performance.PerformancePanel;
 import browser.app.ui.inspector.settings.SettingsPanel;
 import browser.model.RenderNode;
 
@@ -18,6 +19,7 @@ public class InspectorPanel extends TabPane {
     private final RenderTree renderTree;
     private final RenderNodeDetailsPanel renderNodeDetailsPanel;
     private final SettingsPanel settingsPanel;
+    private final PerformancePanel performancePanel;
     private RenderNode selectedRenderNode = null;
 
     public InspectorPanel() {
@@ -42,7 +44,8 @@ public class InspectorPanel extends TabPane {
         Tab performanceTab = new Tab();
         performanceTab.getStyleClass().add("inspector_tab");
         performanceTab.setText("Performance");
-        performanceTab.setContent(new Text("Not implemented"));
+        performancePanel = new PerformancePanel();
+        performanceTab.setContent(performancePanel);
 
         Tab settingsTab = new Tab();
         settingsTab.getStyleClass().add("inspector_tab");
@@ -65,6 +68,10 @@ public class InspectorPanel extends TabPane {
         requestLayout();
     }
 
+    public void updatePerformance(PipelineMetrics metrics) {
+        performancePanel.update(metrics);
+    }
+
     /**
      * Called before the inspector panel is removed from view.
      */
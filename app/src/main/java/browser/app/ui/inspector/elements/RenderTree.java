@@ -12,7 +12,6 @@ import browser.app.SearchTabPipeline;
 import browser.model.RenderNode;
 import browser.parser.HTMLElements;
 import browser.renderer.RenderSettings;
-import browser.tasks.RenderCompleteCallback;
 
 public class RenderTree extends ScrollPane {
 
@@ -163,7 +162,7 @@ public class RenderTree extends ScrollPane {
 
             if (RenderSettings.hoveredElementID != row.getRenderNode().id) {
                 RenderSettings.hoveredElementID = row.getRenderNode().id;
-                pipeline.redrawWebpage(RenderCompleteCallback.RenderType.InspectorUpdate);
+                pipeline.repaintOverlay();
             }
         });
 
@@ -181,7 +180,7 @@ public class RenderTree extends ScrollPane {
 
             if (RenderSettings.hoveredElementID == row.getRenderNode().id) {
                 RenderSettings.hoveredElementID = -1;
-                pipeline.redrawWebpage(RenderCompleteCallback.RenderType.InspectorUpdate);
+                pipeline.repaintOverlay();
             }
         });
     }
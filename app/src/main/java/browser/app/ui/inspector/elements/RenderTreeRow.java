@@ -131,7 +131,7 @@ public class RenderTreeRow extends HBox {
         tagStart.getStyleClass().add("render_tree_row_html");
         Text tagStartEnd = new Text(">");
         tagStartEnd.getStyleClass().add("render_tree_row_html");
-        Text ellipses = new Text(node.text == null ? "..." : node.text);
+        Text ellipses = new Text(node.text == null ? "..." : node.text.toString());
         ellipses.getStyleClass().add("render_tree_row_ellipses");
         Text tagEnd = new Text(String.format("</%s>", node.type));
         tagEnd.getStyleClass().add("render_tree_row_html");
@@ -175,7 +175,7 @@ public class RenderTreeRow extends HBox {
     private void addRowPlainText() {
         Text tagStart = new Text(String.format("<%s>", node.type));
         tagStart.getStyleClass().add("render_tree_row_html");
-        Text text = new Text(node.text);
+        Text text = new Text(node.text == null ? null : node.text.toString());
         text.getStyleClass().add("render_tree_row_ellipses");
         Text tagEnd = new Text(String.format("</%s>", node.type));
         tagEnd.getStyleClass().add("render_tree_row_html");
@@ -0,0 +1,29 @@
+package browser.app.ui.inspector.performance;
+
+import javafx.scene.control.Label;
+import javafx.scene.control.ScrollPane;
+
+import browser.app.PipelineMetrics;
+
+public class PerformancePanel extends ScrollPane {
+
+    private final Label label;
+
+    public PerformancePanel() {
+        getStyleClass().add("performance_panel");
+        setVbarPolicy(ScrollBarPolicy.AS_NEEDED);
+        setHbarPolicy(ScrollBarPolicy.AS_NEEDED);
+        label = new Label("No page loaded.");
+        label.getStyleClass().add("performance_panel_text");
+        setContent(label);
+    }
+
+    /**
+     * Shows the metrics of the most recent page load or layout.
+     * @param metrics       The metrics recorded by the pipeline, or null if no page has been loaded.
+     */
+    public void update(PipelineMetrics metrics) {
+        label.setText(metrics == null ? "No page loaded." : metrics.toReportString());
+    }
+
+}
@@ -24,21 +24,21 @@ public class SettingsPanel extends VBox {
         outlinesToggle.getButton().addEventHandler(MouseEvent.MOUSE_CLICKED, event -> {
             RenderSettings.renderOutlines = !RenderSettings.renderOutlines;
             outlinesToggle.setValue(RenderSettings.renderOutlines);
-            pipeline.redrawWebpage();
+            pipeline.repaintOverlay();
         });
 
         SettingsPanelToggle marginsToggle = new SettingsPanelToggle("Show margins");
         marginsToggle.getButton().addEventHandler(MouseEvent.MOUSE_CLICKED, event -> {
             RenderSettings.renderMargins = !RenderSettings.renderMargins;
             marginsToggle.setValue(RenderSettings.renderMargins);
-            pipeline.redrawWebpage();
+            pipeline.repaintOverlay();
         });
 
         SettingsPanelToggle paddingToggle = new SettingsPanelToggle("Show padding");
         paddingToggle.getButton().addEventHandler(MouseEvent.MOUSE_CLICKED, event -> {
             RenderSettings.renderPadding = !RenderSettings.renderPadding;
             paddingToggle.setValue(RenderSettings.renderPadding);
-            pipeline.redrawWebpage();
+            pipeline.repaintOverlay();
         });
 
         vbox.getChildren().addAll(outlinesToggle, marginsToggle, paddingToggle);
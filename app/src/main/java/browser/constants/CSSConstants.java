@@ -74,8 +74,6 @@ public class CSSConstants {
 
     public static final Pattern CSS_MEDIA_KEY_VALUE_PATTERN = Pattern.compile("^\\(([^\s]+)\s*:\s*([^\s]+)\\)$");
 
-    public static final Pattern CSS_IDENTIFIER_PATTERN = Pattern.compile("[0-9a-zA-Z\\-_]+");
-
     public static final Pattern CSS_LENGTH_PATTERN = Pattern.compile("^([0-9.]+)([a-zA-Z]{1,5})$");
 
     public static final Set<Character> CSS_COMBINATOR_CHARACTERS = Set.of('>', '~', '+');
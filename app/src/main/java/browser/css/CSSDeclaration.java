@@ -0,0 +1,112 @@
+package browser.css;
+
+import static browser.constants.CSSConstants.IMPORTANT;
+import static browser.constants.CSSConstants.INHERIT;
+
+import java.util.List;
+import java.util.Map;
+
+import browser.constants.CSSConstants;
+
+/**
+ * A single declaration of a rule or style attribute. Its value is parsed once into the computed properties it sets
+ * (see {@link CSSValueParser}), so that computing the style of each node the declaration applies to only resolves
+ * lengths relative to the font size.
+ */
+public class CSSDeclaration {
+
+    private static final String[] NO_PROPERTIES = new String[0];
+    private static final Object[] NO_VALUES = new Object[0];
+
+    public final String property;
+    // The declared value, without any !important annotation.
+    public final String value;
+    public final boolean important;
+
+    private String[] computedProperties;
+    private Object[] computedValues;
+    // The fields inherited from the parent when the value is the inherit keyword.
+    private List<String> inheritedFields;
+
+    public CSSDeclaration(String property, String value) {
+        this.property = property;
+        if (value.endsWith(IMPORTANT)) {
+            this.value = value.substring(0, value.length() - IMPORTANT.length()).trim();
+            important = true;
+        } else {
+            this.value = value;
+            important = false;
+        }
+    }
+
+    /**
+     * Creates and parses the declarations of a rule.
+     */
+    public static CSSDeclaration[] parseAll(Map<String, String> declarations) {
+        CSSDeclaration[] parsed = new CSSDeclaration[declarations.size()];
+        int i = 0;
+        for (Map.Entry<String, String> declaration : declarations.entrySet()) {
+            parsed[i] = new CSSDeclaration(declaration.getKey(), declaration.getValue());
+            parsed[i].parseValue();
+            i++;
+        }
+        return parsed;
+    }
+
+    /**
+     * Parses the value, if it has not been parsed already.
+     */
+    public void parseValue() {
+        if (computedProperties != null) {
+            return;
+        }
+        computedProperties = NO_PROPERTIES;
+        computedValues = NO_VALUES;
+
+        String trimmedValue = value.trim();
+        // Some CSS values are keywords that require special handling regardless of the property.
+        switch (trimmedValue.toLowerCase()) {
+            case INHERIT -> {
+                inheritedFields = CSSConstants.propertyNameToSetFields.get(property);
+                if (inheritedFields == null) {
+                    System.err.printf("Failed to handle inherit for property %s.\n", property);
+                }
+            }
+            case "initial", "revert", "revert-layer", "unset" -> {
+                System.err.printf("Unsupported CSS property keyword %s, ignoring.\n", trimmedValue);
+            }
+            default -> {
+                try {
+                    Map<String, Object> values = CSSValueParser.parse(property, trimmedValue);
+                    computedProperties = values.keySet().toArray(NO_PROPERTIES);
+                    computedValues = values.values().toArray();
+                } catch (RuntimeException e) {
+                    System.err.printf("CSSDeclaration: failed to parse \"%s\", %s\n", this, e.getLocalizedMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the computed properties of this declaration on a style, resolving font relative lengths for its node.
+     */
+    void applyTo(CSSStyle style) {
+        parseValue();
+        if (inheritedFields != null) {
+            style.inheritFields(inheritedFields);
+        }
+        for (int i = 0; i < computedProperties.length; i++) {
+            Object computedValue = computedValues[i];
+            if (computedValue instanceof CSSValueParser.FontRelativeLength length) {
+                computedValue = length.resolve(style);
+            }
+            style.properties.put(computedProperties[i], computedValue);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %s%s", property, value, important ? " " + IMPORTANT : "");
+    }
+
+}
@@ -4,44 +4,120 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import browser.constants.CSSConstants;
+import browser.css.CSSSpecificity.Origin;
 import browser.model.*;
+import browser.parser.AtomTable;
+import browser.parser.Atoms;
 import browser.parser.CSSParser;
 import browser.parser.HTMLElements;
 
 public class CSSLoader {
 
-    private final List<String> externalCSS;
+    private static final String DEFAULT_CSS_PATH = "./src/main/resources/css/default.css";
+    // The user agent stylesheet is the same for every page, so it is parsed once.
+    private static Map<CSSSelectorGroup, Map<String, String>> defaultRules;
+    // Inline declarations have no selector, and win over declarations from any selector.
+    private static final CSSSpecificity INLINE_SPECIFICITY = new CSSSpecificity(1, 0, 0, 0);
+
     private final List<String> styleTagCSS;
-    private final float screenWidth;
-    private final float screenHeight;
+    // The atoms of the classes, ids and custom elements used by the page's selectors.
+    private final AtomTable atoms = new AtomTable();
+    // The default, external and style tag stylesheets, in the order they are applied.
+    private final List<StyleSheet> styleSheets = new ArrayList<>();
+    private final MediaQueryIndex mediaQueryIndex;
+    // The declarations matched to the node being styled. Nodes are styled one at a time, so it is reused for each.
+    private final DeclarationCascade cascade = new DeclarationCascade();
+    // The result of each distinct media expression for the current screen size.
+    private final Map<CSSMediaExpression, Boolean> mediaExpressionResults = new HashMap<>();
+    // The parsed declarations of each distinct style attribute.
+    private final Map<String, CSSDeclaration[]> inlineStyleCache = new HashMap<>();
+    private final CacheStatistics inlineStyleCacheStatistics = new CacheStatistics();
+    private float screenWidth;
+    private float screenHeight;
+    // The source order of the next rule. Rules are numbered in the order their stylesheets are applied.
+    private int nextSourceOrder = 0;
+    private int inlineSourceOrder;
 
+    /**
+     * Parses the stylesheets of a page. The loader can be kept for as long as the page is displayed, and used to apply
+     * the CSS again after the screen size changes.
+     */
     public CSSLoader(DOMNode dom, List<String> externalCSS, float screenWidth, float screenHeight) {
-        this.externalCSS = externalCSS;
         styleTagCSS = new ArrayList<>();
         extractStyleTagsCSS(dom);
+        List<Map<CSSSelectorGroup, Map<String, String>>> allRules = new ArrayList<>();
+        Map<CSSSelectorGroup, Map<String, String>> defaultRules = getDefaultRules();
+        allRules.add(defaultRules);
+        styleSheets.add(new StyleSheet(defaultRules, Origin.USER_AGENT, false));
+        for (String cssString : externalCSS) {
+            Map<CSSSelectorGroup, Map<String, String>> rules = CSSParser.parseRules(cssString, atoms);
+            allRules.add(rules);
+            styleSheets.add(new StyleSheet(rules, Origin.AUTHOR, false));
+        }
+        for (String cssString : styleTagCSS) {
+            try {
+                Map<CSSSelectorGroup, Map<String, String>> rules = CSSParser.parseRules(cssString, atoms);
+                styleSheets.add(new StyleSheet(rules, Origin.AUTHOR, true));
+                allRules.add(rules);
+            } catch (Exception e) {
+                System.out.printf("Failed to parse css:\n\"%s\"\n", cssString);
+                e.printStackTrace();
+            }
+        }
+        mediaQueryIndex = new MediaQueryIndex(allRules);
+
         this.screenWidth = screenWidth;
         this.screenHeight = screenHeight;
     }
 
     // Public methods
 
+    /**
+     * Changes the screen size used to evaluate media queries by the next call to {@link #applyAllCSS(RenderNode)}.
+     */
+    public void setScreenDimensions(float screenWidth, float screenHeight) {
+        if (screenWidth != this.screenWidth || screenHeight != this.screenHeight) {
+            this.screenWidth = screenWidth;
+            this.screenHeight = screenHeight;
+            mediaExpressionResults.clear();
+        }
+    }
+
+    /**
+     * @return The breakpoints of every media query in the page's stylesheets.
+     */
+    public MediaQueryIndex getMediaQueryIndex() {
+        return mediaQueryIndex;
+    }
+
+    /**
+     * @return The style attribute cache statistics since CSS was last applied.
+     */
+    public CacheStatistics getInlineStyleCacheStatistics() {
+        return inlineStyleCacheStatistics;
+    }
+
     public void applyAllCSS(RenderNode root) {
         SelectorMatcher.clearCache();
-        // Apply all available CSS rules.
-        loadDefaults(root);
-        loadExternalCSS(root);
-        loadStyleTags(root);
-        applyInline(root);
-        // Compute CSS values for each applied rule.
-        computeCSSProperties(root);
-        // Propagate inherited values.
-        propagateInheritedProperties(root);
-        // Set the class fields for each property.
-        setClassProperties(root);
+        inlineStyleCacheStatistics.reset();
+        // Drop any declarations left by a previous styling that failed part way through a node.
+        cascade.clear();
+        // Select the rules that match the screen size, numbering them in the order their stylesheets are applied.
+        nextSourceOrder = 0;
+        List<MatchingStyleSheet> matchingStyleSheets = new ArrayList<>();
+        for (StyleSheet styleSheet : styleSheets) {
+            matchingStyleSheets.add(getMatchingStyleSheet(styleSheet));
+        }
+        inlineSourceOrder = nextSourceOrder;
+        // Style every node in a single top-down pass.
+        applyStyles(root, matchingStyleSheets);
     }
 
     // Private methods
@@ -66,136 +142,192 @@ public class CSSLoader {
         }
     }
 
-    private void loadDefaults(RenderNode root) {
-        try {
-            String cssString = new String(Files.readAllBytes(Paths.get("./src/main/resources/css/default.css")));
-            Map<CSSSelectorGroup, Map<String, String>> rules = CSSParser.parseRules(cssString);
-            filterSelectorsByMediaQuery(rules);
-            applyRules(root, rules, true, false);
-        } catch (IOException e) {
-            System.err.println("CSSLoader: failed to load default.css, " + e.getLocalizedMessage());
-        }
-    }
-
-    private void loadExternalCSS(RenderNode root) {
-        for (String cssString : externalCSS) {
-            Map<CSSSelectorGroup, Map<String, String>> rules = CSSParser.parseRules(cssString);
-            filterSelectorsByMediaQuery(rules);
-            applyRules(root, rules, true, false);
-        }
-    }
-
-    private void loadStyleTags(RenderNode root) {
-        for (String cssString : styleTagCSS) {
+    private static synchronized Map<CSSSelectorGroup, Map<String, String>> getDefaultRules() {
+        if (defaultRules == null) {
             try {
-                Map<CSSSelectorGroup, Map<String, String>> rules = CSSParser.parseRules(cssString);
-                filterSelectorsByMediaQuery(rules);
-                applyRules(root, rules, true, false);
-            } catch (Exception e) {
-                System.out.printf("Failed to parse and apply css:\n\"%s\"\n", cssString);
-                e.printStackTrace();
+                String cssString = new String(Files.readAllBytes(Paths.get(DEFAULT_CSS_PATH)));
+                defaultRules = CSSParser.parseRules(cssString);
+            } catch (IOException e) {
+                System.err.println("CSSLoader: failed to load default.css, " + e.getLocalizedMessage());
+                return new LinkedHashMap<>();
             }
         }
+        return defaultRules;
     }
 
     /**
-     * Parse the inline style attribute and apply that style.
-     * @param root
+     * Matches every stylesheet and the inline style against a node, resolves the cascade, computes the values and
+     * inherits from the parent. Nodes are styled top-down, so the parent's style is already complete when a node
+     * inherits from it.
+     * @param node      The render node to style, along with its descendants.
+     * @param styleSheets       The matching rules of each stylesheet, in the order they are applied.
      */
-    private void applyInline(RenderNode root) {
-        if (root.attributes.containsKey("style")) {
-            String style = root.attributes.get("style");
-            if (style != null && !style.isBlank()) {
-                String cssString = String.format("%s { %s }", root.type, style);
-                Map<CSSSelectorGroup, Map<String, String>> rules = CSSParser.parseRules(cssString);
-                filterSelectorsByMediaQuery(rules);
-                applyRules(root, rules, false, true);
-            }
+    private void applyStyles(RenderNode node, List<MatchingStyleSheet> styleSheets) {
+        setAtoms(node);
+        for (MatchingStyleSheet styleSheet : styleSheets) {
+            applyRules(node, styleSheet);
         }
+        applyInline(node);
+        cascade.applyTo(node.style);
+        inheritProperties(node);
+        node.style.setClassProperties();
 
-        String legacyAttributesCSS = LegacyCSSLoader.getCSSFromAttributes(root);
-        if (legacyAttributesCSS != null) {
-            Map<CSSSelectorGroup, Map<String, String>> rules = CSSParser.parseRules(legacyAttributesCSS);
-            filterSelectorsByMediaQuery(rules);
-            applyRules(root, rules, false, true);
+        for (RenderNode child : node.children) {
+            applyStyles(child, styleSheets);
         }
+    }
 
-        for (RenderNode child : root.children) {
-            applyInline(child);
-        }
+    /**
+     * Sets the atoms the node is matched on from its current type and attributes. Classes that no selector in the page
+     * uses are left out.
+     */
+    private void setAtoms(RenderNode node) {
+        node.typeAtom = atoms.find(node.type);
+        String id = node.attributes.get("id");
+        node.idAtom = id == null ? Atoms.NONE : atoms.find(id.toLowerCase());
+        node.classAtoms = atoms.findAllLowercase(node.attributes.get("class"));
     }
 
     /**
-     * Applies a set of CSS declarations to the provided render node, given the selector group matches. The global
-     * application flag enables recursively applying the rules to child render nodes.
-     * @param node      The render node to apply the CSS to.
-     * @param rules     The set of CSS declarations to apply.
-     * @param globalApplication     True if the rules should be recursively applied to the node's children.
+     * Adds the declarations of every rule in a stylesheet that matches the node. The declarations take effect once the
+     * cascade is resolved.
      */
-    private void applyRules(RenderNode node, Map<CSSSelectorGroup, Map<String, String>> rules, boolean globalApplication, boolean inline) {
-        for (CSSSelectorGroup selectorGroup : rules.keySet()) {
-            if (SelectorMatcher.selectorGroupMatchesNode(selectorGroup, node)) {
-                CSSSpecificity specificity = CSSSpecificity.fromSelectorGroup(selectorGroup);
-                if (inline) {
-                    specificity.incrementInlineValue();
+    private void applyRules(RenderNode node, MatchingStyleSheet matchingStyleSheet) {
+        StyleSheet styleSheet = matchingStyleSheet.styleSheet;
+        if (matchingStyleSheet.failed) {
+            return;
+        }
+        try {
+            for (int i = 0; i < matchingStyleSheet.ruleIndices.length; i++) {
+                int rule = matchingStyleSheet.ruleIndices[i];
+                if (SelectorMatcher.selectorGroupMatchesNode(styleSheet.selectorGroups[rule], node)) {
+                    cascade.add(styleSheet.declarations[rule], styleSheet.specificities[rule], styleSheet.origin, matchingStyleSheet.sourceOrders[i]);
                 }
-                node.style.apply(rules.get(selectorGroup), specificity);
             }
-        }
-
-        if (globalApplication) {
-            for (RenderNode child : node.children) {
-                applyRules(child, rules, true, false);
+        } catch (Exception e) {
+            if (!styleSheet.isStyleTag) {
+                throw e;
             }
+            // A style tag that fails to apply is skipped for the rest of the page.
+            matchingStyleSheet.failed = true;
+            System.out.println("Failed to apply css from style tag.");
+            e.printStackTrace();
         }
     }
 
-    private void filterSelectorsByMediaQuery(Map<CSSSelectorGroup, Map<String, String>> rules) {
-        List<CSSSelectorGroup> toRemove = new ArrayList<>();
-        for (CSSSelectorGroup selectorGroup : rules.keySet()) {
-            if (!MediaQueryMatcher.matches(selectorGroup.mediaExpression, screenWidth, screenHeight)) {
-                toRemove.add(selectorGroup);
+    /**
+     * Adds the declarations of the node's style attribute and legacy styling attributes. Style attributes are parsed
+     * once per distinct string, since many nodes share identical inline styles.
+     * @param node
+     */
+    private void applyInline(RenderNode node) {
+        String style = node.attributes.get("style");
+        if (style != null && !style.isBlank()) {
+            CSSDeclaration[] declarations = inlineStyleCache.get(style);
+            if (declarations == null) {
+                inlineStyleCacheStatistics.recordMiss();
+                declarations = CSSDeclaration.parseAll(CSSParser.parseDeclarations(style));
+                inlineStyleCache.put(style, declarations);
+            } else {
+                inlineStyleCacheStatistics.recordHit();
             }
+            cascade.add(declarations, INLINE_SPECIFICITY, Origin.AUTHOR, inlineSourceOrder);
         }
 
-        for (CSSSelectorGroup group : toRemove) {
-            rules.remove(group);
+        Map<String, String> legacyDeclarations = LegacyCSSLoader.getDeclarationsFromAttributes(node);
+        if (legacyDeclarations != null) {
+            // Legacy attributes are applied after the style attribute, and win when both set a property.
+            cascade.add(legacyDeclarations, INLINE_SPECIFICITY, Origin.AUTHOR, inlineSourceOrder + 1);
         }
     }
 
-    private void propagateInheritedProperties(RenderNode root) {
-        if (root.parent != null) {
-            if (root.type.equals(HTMLElements.TEXT)) {
-                // Text nodes always inherit a subset of the parent's properties specific to text.
-                for (String property : CSSConstants.textNodeInheritedProperties) {
-                    root.style.applyInheritedComputed(property, root.parent.style.properties.get(property), true);
-                }
-            } else {
-                for (String property : root.parent.style.properties.keySet()) {
-                    if (root.style.shouldInheritProperty(property)) {
-                        Object computedValue = root.parent.style.properties.get(property);
-                        root.style.applyInheritedComputed(property, computedValue, false);
-                    }
+    private void inheritProperties(RenderNode node) {
+        if (node.parent == null) {
+            return;
+        }
+        if (node.type.equals(HTMLElements.TEXT)) {
+            // Text nodes always inherit a subset of the parent's properties specific to text.
+            for (String property : CSSConstants.textNodeInheritedProperties) {
+                node.style.applyInheritedComputed(property, node.parent.style.properties.get(property), true);
+            }
+        } else {
+            for (String property : node.parent.style.properties.keySet()) {
+                if (node.style.shouldInheritProperty(property)) {
+                    Object computedValue = node.parent.style.properties.get(property);
+                    node.style.applyInheritedComputed(property, computedValue, false);
                 }
             }
         }
+    }
 
-        for (RenderNode child : root.children) {
-            propagateInheritedProperties(child);
+    /**
+     * Selects the rules of a stylesheet whose media expression matches the screen size, and numbers them in source
+     * order.
+     */
+    private MatchingStyleSheet getMatchingStyleSheet(StyleSheet styleSheet) {
+        int[] ruleIndices = new int[styleSheet.selectorGroups.length];
+        int count = 0;
+        for (int i = 0; i < styleSheet.selectorGroups.length; i++) {
+            if (mediaExpressionMatches(styleSheet.selectorGroups[i].mediaExpression)) {
+                ruleIndices[count++] = i;
+            }
         }
+        int[] sourceOrders = new int[count];
+        for (int i = 0; i < count; i++) {
+            sourceOrders[i] = nextSourceOrder++;
+        }
+        return new MatchingStyleSheet(styleSheet, Arrays.copyOf(ruleIndices, count), sourceOrders);
     }
 
-    private void computeCSSProperties(RenderNode root) {
-        root.style.setComputedValues();
-        for (RenderNode child : root.children) {
-            computeCSSProperties(child);
+    private boolean mediaExpressionMatches(CSSMediaExpression expression) {
+        if (expression == null) {
+            return true;
+        }
+        Boolean result = mediaExpressionResults.get(expression);
+        if (result == null) {
+            result = MediaQueryMatcher.matches(expression, screenWidth, screenHeight);
+            mediaExpressionResults.put(expression, result);
         }
+        return result;
     }
 
-    private void setClassProperties(RenderNode root) {
-        root.style.setClassProperties();
-        for (RenderNode child : root.children) {
-            setClassProperties(child);
+    /**
+     * The rules of a parsed stylesheet, stored in arrays in source order. The specificity of each rule and the values of
+     * its declarations are parsed once, when the page's stylesheets are loaded.
+     */
+    private static class StyleSheet {
+        private final CSSSelectorGroup[] selectorGroups;
+        private final CSSDeclaration[][] declarations;
+        private final CSSSpecificity[] specificities;
+        private final Origin origin;
+        private final boolean isStyleTag;
+
+        private StyleSheet(Map<CSSSelectorGroup, Map<String, String>> rules, Origin origin, boolean isStyleTag) {
+            selectorGroups = rules.keySet().toArray(new CSSSelectorGroup[0]);
+            declarations = new CSSDeclaration[selectorGroups.length][];
+            specificities = new CSSSpecificity[selectorGroups.length];
+            for (int i = 0; i < selectorGroups.length; i++) {
+                declarations[i] = CSSDeclaration.parseAll(rules.get(selectorGroups[i]));
+                specificities[i] = CSSSpecificity.fromSelectorGroup(selectorGroups[i]);
+            }
+            this.origin = origin;
+            this.isStyleTag = isStyleTag;
+        }
+    }
+
+    /**
+     * The rules of a stylesheet that match the current screen size, with the source order of each.
+     */
+    private static class MatchingStyleSheet {
+        private final StyleSheet styleSheet;
+        private final int[] ruleIndices;
+        private final int[] sourceOrders;
+        private boolean failed = false;
+
+        private MatchingStyleSheet(StyleSheet styleSheet, int[] ruleIndices, int[] sourceOrders) {
+            this.styleSheet = styleSheet;
+            this.ruleIndices = ruleIndices;
+            this.sourceOrders = sourceOrders;
         }
     }
 
@@ -7,10 +7,36 @@ import browser.model.CSSUnitSelector;
 import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
 
+/**
+ * The specificity of a selector group. For the cascade, specificity is packed into a single long along with the origin
+ * and importance of the declaration and the source order of its rule, so that declarations can be ordered by comparing
+ * one number. From the most to least significant bits, the packed value holds:
+ * <ul>
+ *     <li>2 bits: the cascade level, from user agent normal, author normal, author important to user agent important.</li>
+ *     <li>1 bit: whether the declaration is inline.</li>
+ *     <li>8 bits each: the id, class and type counts, saturating at 255.</li>
+ *     <li>20 bits: the source order of the rule, saturating at about a million rules.</li>
+ * </ul>
+ * The packed value uses the low 47 bits, leaving room for the cascade to append an index when sorting.
+ */
 @NoArgsConstructor
 @AllArgsConstructor
 public class CSSSpecificity {
 
+    public enum Origin { USER_AGENT, AUTHOR }
+
+    public static final int PACKED_BITS = 47;
+
+    private static final int COUNT_BITS = 8;
+    private static final int SOURCE_ORDER_BITS = 20;
+    private static final int TYPE_SHIFT = SOURCE_ORDER_BITS;
+    private static final int CLASS_SHIFT = TYPE_SHIFT + COUNT_BITS;
+    private static final int ID_SHIFT = CLASS_SHIFT + COUNT_BITS;
+    private static final int INLINE_SHIFT = ID_SHIFT + COUNT_BITS;
+    private static final int LEVEL_SHIFT = INLINE_SHIFT + 1;
+    private static final int MAX_COUNT = (1 << COUNT_BITS) - 1;
+    private static final int MAX_SOURCE_ORDER = (1 << SOURCE_ORDER_BITS) - 1;
+
     private int inlineValue = 0;
     private int idValue = 0;
     private int classValue = 0;
@@ -39,7 +65,35 @@ public class CSSSpecificity {
     }
 
     public boolean hasEqualOrGreaterSpecificityThan(CSSSpecificity other) {
-        return toString().compareTo(other.toString()) >= 0;
+        return toPackedValue() >= other.toPackedValue();
+    }
+
+    /**
+     * @return The inline, id, class and type values packed in their positions of the cascade order, with no origin,
+     * importance or source order.
+     */
+    public long toPackedValue() {
+        return ((long) Math.min(inlineValue, 1) << INLINE_SHIFT) |
+                ((long) Math.min(idValue, MAX_COUNT) << ID_SHIFT) |
+                ((long) Math.min(classValue, MAX_COUNT) << CLASS_SHIFT) |
+                ((long) Math.min(typeValue, MAX_COUNT) << TYPE_SHIFT);
+    }
+
+    /**
+     * Packs this specificity with the remaining parts of the cascade order. A declaration with a greater value wins.
+     * @param origin        The origin of the stylesheet containing the declaration.
+     * @param important     True if the declaration is marked !important.
+     * @param sourceOrder   The position of the rule among all rules applied to the page.
+     * @return The packed cascade order.
+     */
+    public long toCascadeOrder(Origin origin, boolean important, int sourceOrder) {
+        int level;
+        if (important) {
+            level = origin == Origin.USER_AGENT ? 3 : 2;
+        } else {
+            level = origin == Origin.USER_AGENT ? 0 : 1;
+        }
+        return ((long) level << LEVEL_SHIFT) | toPackedValue() | Math.min(Math.max(sourceOrder, 0), MAX_SOURCE_ORDER);
     }
 
     public String toString() {
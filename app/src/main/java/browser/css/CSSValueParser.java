@@ -0,0 +1,598 @@
+package browser.css;
+
+import static browser.constants.CSSConstants.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+
+import browser.constants.CSSConstants;
+import browser.css.CSSStyle.*;
+import browser.model.CSSColor;
+import browser.model.Dimension;
+import browser.parser.StringUtils;
+
+/**
+ * Parses the value of a declaration into the computed properties it sets, such as the four margin properties set by
+ * the margin shorthand. Values are parsed once per declaration rather than once per node. Lengths relative to the font
+ * size depend on the node, and are left as a {@link FontRelativeLength} to be resolved for each node.
+ */
+public class CSSValueParser {
+
+    private final Map<String, Object> values = new LinkedHashMap<>();
+
+    private CSSValueParser() {}
+
+    /**
+     * @param property      The property name.
+     * @param value     The trimmed value, which must not be a keyword such as inherit.
+     * @return      The computed properties set by the value, in the order they are set.
+     */
+    public static Map<String, Object> parse(String property, String value) {
+        CSSValueParser parser = new CSSValueParser();
+        parser.parseValue(property, value);
+        return parser.values;
+    }
+
+    private void parseValue(String property, String value) {
+        switch (property) {
+        case "background":
+        case "background-color":    parseBackground(value); break;
+        case "border":
+        case "border-color":
+        case "border-width":        parseBorder(value, "all"); break;
+        case "border-top":
+        case "border-top-color":
+        case "border-top-width":    parseBorder(value, "top"); break;
+        case "border-bottom":
+        case "border-bottom-color":
+        case "border-bottom-width": parseBorder(value, "bottom"); break;
+        case "border-left":
+        case "border-left-color":
+        case "border-left-width":   parseBorder(value, "left"); break;
+        case "border-right":
+        case "border-right-color":
+        case "border-right-width":  parseBorder(value, "right"); break;
+        case "box-sizing":          values.put("box-sizing", parseBoxSizingType(value)); break;
+        case "border-spacing":      parseBorderSpacing(value); break;
+        case "color":               values.put("color", new CSSColor(value)); break;
+        case "display":             parseDisplayType(value); break;
+        case "font-family":         values.put("font-family", FontLoader.getValidFont(value.split(","))); break;
+        case "font-size":           parseFontSizeValue(value.toLowerCase()); break;
+        case "font-style":          fontStyleType fontStyleTypeCandidate = StringUtils.toEnum(fontStyleType.class, value.toUpperCase());
+                                    if (fontStyleTypeCandidate != null) {
+                                        values.put("font-style", fontStyleTypeCandidate);
+                                    }
+                                    break;
+        case "font-weight":         fontWeightType fontWeightTypeCandidate = StringUtils.toEnum(fontWeightType.class, value.toUpperCase());
+                                    if (fontWeightTypeCandidate != null) {
+                                        values.put("font-weight", fontWeightTypeCandidate);
+                                    }
+                                    break;
+        case "height":              Dimension heightDimension = parseSingleDimension(value);
+                                    values.put("height", lengthValue(heightDimension, false));
+                                    values.put("height-type", heightDimension.type); break;
+        case "margin":              parseMargin(value, null); break;
+        case "margin-top":          parseMargin(value, "top");  break;
+        case "margin-right":        parseMargin(value, "right");  break;
+        case "margin-bottom":       parseMargin(value, "bottom");  break;
+        case "margin-left":         parseMargin(value, "left");  break;
+        case "max-width":           Dimension maxWidthDimension = parseSingleDimension(value);
+                                    values.put("max-width", lengthValue(maxWidthDimension, false));
+                                    values.put("max-width-type", maxWidthDimension.type); break;
+        case "max-height":          Dimension maxHeightDimension = parseSingleDimension(value);
+                                    values.put("max-height", lengthValue(maxHeightDimension, false));
+                                    values.put("max-height-type", maxHeightDimension.type); break;
+        case "padding":             parsePadding(value, null); break;
+        case "padding-top":         parsePadding(value, "top"); break;
+        case "padding-right":       parsePadding(value, "right"); break;
+        case "padding-bottom":      parsePadding(value, "bottom"); break;
+        case "padding-left":        parsePadding(value, "left"); break;
+        case "position":            parsePosition(value); break;
+        case "text-align":          parseTextAlign(value); break;
+        case "width":               Dimension widthDimension = parseSingleDimension(value);
+                                    values.put("width", lengthValue(widthDimension, false));
+                                    values.put("width-type", widthDimension.type); break;
+        }
+    }
+
+    /**
+     * @return      The length, or a font relative length to resolve for each node.
+     */
+    private static Object lengthValue(Dimension dimension, boolean integer) {
+        if (dimension.fontRelative) {
+            return new FontRelativeLength(dimension.value, false, integer);
+        }
+        return integer ? (Object) dimension.value.intValue() : dimension.value;
+    }
+
+    private static Dimension parseSingleDimension(String text) {
+        Dimension dimension = new Dimension();
+        if (text.equalsIgnoreCase("none")) {
+            dimension.value = null;
+        } else if (text.endsWith("%") && text.length() > 1) {
+            String percentageText = text.substring(0, text.length() - 1);
+            if (percentageText.matches("[0-9]+")) {
+                dimension.value = Float.parseFloat(percentageText);
+                dimension.type = DimensionType.PERCENTAGE;
+            }
+        } else if (text.matches("[0-9]+")) {
+            dimension.value = Float.parseFloat(text);
+            dimension.type = DimensionType.PIXEL;
+        } else {
+            Matcher lengthMatcher = CSS_LENGTH_PATTERN.matcher(text);
+            if (lengthMatcher.find()) {
+                float length = Float.parseFloat(lengthMatcher.group(1));
+                String unitString = lengthMatcher.group(2);
+                LengthUnit unitCandidate = parseLengthUnit(unitString);
+                if (unitCandidate != null) {
+                    switch (unitCandidate) {
+                        case PX -> dimension.value = length;
+                        case EM -> {
+                            dimension.value = length;
+                            dimension.fontRelative = true;
+                        }
+                        case REM -> {
+                            // TODO use the root font size, not the parent's.
+                            dimension.value = length;
+                            dimension.fontRelative = true;
+                        }
+                        default -> {
+                            System.err.printf("Unsupported dimension type %s. Defaulting to pixel.\n", unitCandidate.name());
+                            dimension.value = length;
+                        }
+                    }
+                    dimension.type = DimensionType.PIXEL;
+                }
+            }
+        }
+
+        return dimension;
+    }
+    
+    private void parseFontSizeValue(String value) {
+        Float length = null;
+        LengthUnit unit = null;
+        if (value.endsWith("%")) {
+            String lengthString = value.substring(0, value.length() - 1);
+            if (lengthString.matches("[\\d.]+")) {
+                length = Float.parseFloat(lengthString) / 100 * BASE_FONT_SIZE;
+                unit = LengthUnit.PX;
+            }
+        } else {
+            Matcher lengthMatcher = CSS_LENGTH_PATTERN.matcher(value);
+            if (lengthMatcher.find()) {
+                length = Float.parseFloat(lengthMatcher.group(1));
+                String unitString = lengthMatcher.group(2);
+                unit = parseLengthUnit(unitString);
+                if (unit == null) {
+                    unit = LengthUnit.PX;
+                }
+            }
+        }
+
+        if (length == null) {
+            return;
+        }
+
+        switch (unit) {
+            case PX -> values.put("font-size", length);
+            case PT -> values.put("font-size", length * (1 + 1.0f / 3.0f));
+            case EM -> values.put("font-size", new FontRelativeLength(length, true, false));
+            case REM -> values.put("font-size", BASE_FONT_SIZE * length);
+        }
+    }
+
+    /**
+     * The border property can contain up to 3 values, in any order: line width, line style, and line color.
+     * @param value The CSS value string to parse
+     */
+    private void parseBorder(String value, String direction) {
+        value = value.trim();
+        if (value.endsWith(";")) {
+            value = value.substring(0, value.length() - 1);
+        }
+        String[] items = value.split("\s");
+        for (int i = 0; i < items.length; i++) {
+            if (CSSConstants.borderLineStyles.contains(items[i])) {
+                BorderStyle borderStyle;
+                try {
+                    borderStyle = BorderStyle.valueOf(items[i].toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    System.out.printf("Unsupported border style \"%s\". Reverting to \"solid\".\n", items[i]);
+                    borderStyle = BorderStyle.SOLID;
+                }
+                switch (direction) {
+                    case "top" -> {
+                        values.put("border-style-top", borderStyle);
+                    }
+                    case "right" -> {
+                        values.put("border-style-right", borderStyle);
+                    }
+                    case "bottom" -> {
+                        values.put("border-style-bottom", borderStyle);
+                    }
+                    case "left" -> {
+                        values.put("border-style-left", borderStyle);
+                    }
+                    default -> {
+                        values.put("border-style-top", borderStyle);
+                        values.put("border-style-right", borderStyle);
+                        values.put("border-style-bottom", borderStyle);
+                        values.put("border-style-left", borderStyle);
+                    }
+                }
+            } else {
+                // Check if the value is a length
+                if (items[i].equals("0")) {
+                    // Zero is a special case that does not require a unit.
+                    switch (direction) {
+                        case "top" -> {
+                            values.put("border-width-top", 0);
+                        }
+                        case "right" -> {
+                            values.put("border-width-right", 0);
+                        }
+                        case "bottom" -> {
+                            values.put("border-width-bottom", 0);
+                        }
+                        case "left" -> {
+                            values.put("border-width-left", 0);
+                        }
+                        default -> {
+                            values.put("border-width-top", 0);
+                            values.put("border-width-right", 0);
+                            values.put("border-width-bottom", 0);
+                            values.put("border-width-left", 0);
+                        }
+                    }
+                } else {
+                    Matcher lengthMatcher = CSS_LENGTH_PATTERN.matcher(items[i]);
+                    if (lengthMatcher.find()) {
+                        float length = Float.parseFloat(lengthMatcher.group(1));
+                        String unitString = lengthMatcher.group(2);
+                        LengthUnit unit = parseLengthUnit(unitString);
+                        if (unit != null) {
+                            if (!unit.equals(LengthUnit.PX)) {
+                                System.out.printf("Unsupported border width unit %s, defaulting to 1px.\n", unitString);
+                                length = 1;
+                            }
+                            switch (direction) {
+                                case "top" -> {
+                                    values.put("border-width-top", length);
+                                }
+                                case "right" -> {
+                                    values.put("border-width-right", length);
+                                }
+                                case "bottom" -> {
+                                    values.put("border-width-bottom", length);
+                                }
+                                case "left" -> {
+                                    values.put("border-width-left", length);
+                                }
+                                default -> {
+                                    values.put("border-width-top", length);
+                                    values.put("border-width-right", length);
+                                    values.put("border-width-bottom", length);
+                                    values.put("border-width-left", length);
+                                }
+                            }
+                            continue;
+                        }
+                    }
+
+                    // Check if the value is a color
+                    CSSColor color = CSSColor.getColor(items[i]);
+                    if (color != null) {
+                        switch (direction) {
+                            case "top" -> {
+                                values.put("border-color-top", color);
+                            }
+                            case "right" -> {
+                                values.put("border-color-right", color);
+                            }
+                            case "bottom" -> {
+                                values.put("border-color-bottom", color);
+                            }
+                            case "left" -> {
+                                values.put("border-color-left", color);
+                            }
+                            default -> {
+                                values.put("border-color-top", color);
+                                values.put("border-color-right", color);
+                                values.put("border-color-bottom", color);
+                                values.put("border-color-left", color);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static LengthUnit parseLengthUnit(String value) {
+        value = value.toUpperCase();
+        try {
+            return LengthUnit.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Populates the inner and outer display types based on a display CSS string. There are a few configurations
+     * for this property.
+     *   - Single value: This can be an inner or outer value. Depending on which it is, the remaining display type is
+     *     set to a default value (block for outer, and flow for inner).
+     *   - Hyphenated values: The first is the inner, second is the outer.
+     *   - Spaced values: The first is the inner, second is the outer.
+     * @param text      The CSS display property text to parse.
+     */
+    private void parseDisplayType(String text) {
+        if (CSSConstants.getDisplayType(text) != null) {
+            DisplayType singleType = CSSConstants.getDisplayType(text);
+            if (singleType.equals(DisplayType.NONE)) {
+                values.put("outer-display", DisplayType.NONE);
+                values.put("inner-display", DisplayType.NONE);
+                values.put("auxiliary-display", DisplayType.NONE);
+            } else if (CSSConstants.getDisplayTypeOverride(singleType) != null) {
+                // Some display types have mappings to inner/outer display types that are not evident from their names.
+                // For example, inline-block maps to inline flow-root.
+                List<DisplayType> types = CSSConstants.getDisplayTypeOverride(singleType);
+                values.put("outer-display", types.get(0));
+                values.put("inner-display", types.get(1));
+                if (types.size() == 3) {
+                    values.put("auxiliary-display", types.get(2));
+                }
+            } else if (CSSConstants.outerDisplayTypes.contains(singleType)) {
+                values.put("outer-display", singleType);
+                values.put("inner-display", DisplayType.FLOW);
+            } else {
+                values.put("outer-display", DisplayType.BLOCK);
+                values.put("inner-display", singleType);
+            }
+        } else if (text.contains("-")) {
+            values.put("outer-display", CSSConstants.getDisplayType(text.substring(0, text.indexOf("-"))));
+            values.put("inner-display", CSSConstants.getDisplayType(text.substring(text.indexOf("-") + 1)));
+        } else if (text.contains(" ")) {
+            values.put("outer-display", CSSConstants.getDisplayType(text.substring(0, text.indexOf(" "))));
+            values.put("inner-display", CSSConstants.getDisplayType(text.substring(text.indexOf(" ") + 1)));
+        } else {
+            values.put("outer-display", DisplayType.BLOCK);
+            values.put("inner-display", DisplayType.FLOW);
+            System.out.printf("CSSStyle.parseDisplayType: unknown display type %s, reverting to block.\n", text);
+        }
+
+        // TODO: should the basic display even be used anymore?
+        // TODO: how to set the default inner. not sure if "flow" is the correct choice here.
+    }
+
+    private BoxSizingType parseBoxSizingType(String text) {
+        switch (text) {
+            case "content-box": return BoxSizingType.CONTENT_BOX;
+            case "border-box": return BoxSizingType.BORDER_BOX;
+            default: return BoxSizingType.CONTENT_BOX;
+        }
+    }
+
+    private void parseIndividualMargin(String text, String direction) {
+        Object value = 0;
+        MarginType type;
+        LengthUnit unit = LengthUnit.PX;
+
+        if (text.equalsIgnoreCase("auto")) {
+            type = MarginType.AUTO;
+        } else {
+            Dimension dimension = parseSingleDimension(text);
+            if (dimension.value == null) {
+                return;
+            }
+            value = lengthValue(dimension, true);
+            type = dimension.type.equals(DimensionType.PIXEL) ? MarginType.LENGTH : MarginType.PERCENTAGE;
+        }
+
+        switch (direction) {
+            case "top" -> {
+                values.put("margin-top", value);
+                values.put("margin-top-type", type);
+                values.put("margin-top-unit", unit);
+            }
+            case "right" -> {
+                values.put("margin-right", value);
+                values.put("margin-right-type", type);
+                values.put("margin-right-unit", unit);
+            }
+            case "bottom" -> {
+                values.put("margin-bottom", value);
+                values.put("margin-bottom-type", type);
+                values.put("margin-bottom-unit", unit);
+            }
+            case "left" -> {
+                values.put("margin-left", value);
+                values.put("margin-left-type", type);
+                values.put("margin-left-unit", unit);
+            }
+        }
+    }
+
+    private void parseMargin(String text, String direction) {
+        if (direction != null) {
+            parseIndividualMargin(text, direction);
+        } else {
+            String[] items = text.split("\\s");
+            switch (items.length) {
+                case 1 -> {
+                    parseIndividualMargin(text, "top");
+                    parseIndividualMargin(text, "bottom");
+                    parseIndividualMargin(text, "left");
+                    parseIndividualMargin(text, "right");
+                }
+                case 2 -> {
+                    parseIndividualMargin(items[0], "top");
+                    parseIndividualMargin(items[0], "bottom");
+                    parseIndividualMargin(items[1], "left");
+                    parseIndividualMargin(items[1], "right");
+                }
+                case 3 -> {
+                    parseIndividualMargin(items[0], "top");
+                    parseIndividualMargin(items[2], "bottom");
+                    parseIndividualMargin(items[1], "left");
+                    parseIndividualMargin(items[1], "right");
+                }
+                case 4 -> {
+                    parseIndividualMargin(items[0], "top");
+                    parseIndividualMargin(items[2], "bottom");
+                    parseIndividualMargin(items[3], "left");
+                    parseIndividualMargin(items[1], "right");
+                }
+            }
+        }
+    }
+
+    private void parseIndividualPadding(String text, String direction) {
+        Object value;
+        PaddingType type;
+        LengthUnit unit = LengthUnit.PX;
+
+        Dimension dimension = parseSingleDimension(text);
+        if (dimension.value == null) {
+            return;
+        }
+        value = lengthValue(dimension, true);
+        type =  dimension.type.equals(DimensionType.PIXEL) ? PaddingType.LENGTH : PaddingType.PERCENTAGE;
+
+        switch (direction) {
+            case "top" -> {
+                values.put("padding-top", value);
+                values.put("padding-top-type", type);
+                values.put("padding-top-unit", unit);
+            }
+            case "right" -> {
+                values.put("padding-right", value);
+                values.put("padding-right-type", type);
+                values.put("padding-right-unit", unit);
+            }
+            case "bottom" -> {
+                values.put("padding-bottom", value);
+                values.put("padding-bottom-type", type);
+                values.put("padding-bottom-unit", unit);
+            }
+            case "left" -> {
+                values.put("padding-left", value);
+                values.put("padding-left-type", type);
+                values.put("padding-left-unit", unit);
+            }
+        }
+    }
+
+    private void parsePadding(String text, String direction) {
+        if (direction != null) {
+            parseIndividualPadding(text, direction);
+        } else {
+            String[] items = text.split("\\s");
+            switch (items.length) {
+                case 1 -> {
+                    parseIndividualPadding(text, "top");
+                    parseIndividualPadding(text, "bottom");
+                    parseIndividualPadding(text, "left");
+                    parseIndividualPadding(text, "right");
+                }
+                case 2 -> {
+                    parseIndividualPadding(items[0], "top");
+                    parseIndividualPadding(items[0], "bottom");
+                    parseIndividualPadding(items[1], "left");
+                    parseIndividualPadding(items[1], "right");
+                }
+                case 3 -> {
+                    parseIndividualPadding(items[0], "top");
+                    parseIndividualPadding(items[2], "bottom");
+                    parseIndividualPadding(items[1], "left");
+                    parseIndividualPadding(items[1], "right");
+                }
+                case 4 -> {
+                    parseIndividualPadding(items[0], "top");
+                    parseIndividualPadding(items[2], "bottom");
+                    parseIndividualPadding(items[3], "left");
+                    parseIndividualPadding(items[1], "right");
+                }
+            }
+        }
+    }
+
+    private void parsePosition(String text) {
+        try {
+            values.put("position", PositionType.valueOf(text.trim().toUpperCase()));
+        } catch (IllegalArgumentException e) {
+            System.err.printf("Invalid position %s, defaulting to relative.\n", text);
+            values.put("position", PositionType.RELATIVE);
+        }
+    }
+
+    private void parseBorderSpacing(String text) {
+        if (text == null || text.isBlank()) {
+            return;
+        }
+
+        String[] items = text.split("\\s");
+        Dimension dimension = parseSingleDimension(items[0]);
+        if (dimension.value != null) {
+            values.put("border-spacing", lengthValue(dimension, true));
+        }
+
+        if (items.length > 1) {
+            System.err.printf("Ignoring multiple border spacing values in \"%s\".\n", text);
+        }
+    }
+
+    private void parseTextAlign(String text) {
+        TextAlign textAlignCandidate = StringUtils.toEnum(TextAlign.class, text.toUpperCase());
+        if (textAlignCandidate != null) {
+            values.put("text-align", textAlignCandidate);
+        } else if (CSSConstants.stringToNonStandardTextAlign.containsKey(text.toLowerCase())) {
+            values.put("text-align", CSSConstants.stringToNonStandardTextAlign.get(text.toLowerCase()));
+        }
+    }
+
+    private void parseBackground(String text) {
+        text = text.trim();
+        CSSColor color = CSSColor.getColor(text);
+        if (color != null) {
+            values.put("background-color", color);
+        } else {
+            System.err.printf("Unsupported background type \"%s\".\n", text);
+        }
+    }
+
+    /**
+     * A length in em or rem units. The font size it is relative to is only known once the parent's style is computed.
+     */
+    public static class FontRelativeLength {
+
+        private final float length;
+        // Font sizes are relative to the parent's computed font-size property, other lengths to its font size field.
+        private final boolean fontSize;
+        private final boolean integer;
+
+        FontRelativeLength(float length, boolean fontSize, boolean integer) {
+            this.length = length;
+            this.fontSize = fontSize;
+            this.integer = integer;
+        }
+
+        /**
+         * @return      The length in pixels, for the node with the given style.
+         */
+        public Object resolve(CSSStyle style) {
+            if (fontSize) {
+                CSSStyle relativeTo = style.parentStyle == null ? style : style.parentStyle;
+                return (float) relativeTo.properties.get("font-size") * length;
+            }
+            float parentFontSize = style.parentStyle == null ? style.fontSize : style.parentStyle.fontSize;
+            float value = length * parentFontSize;
+            return integer ? (Object) (int) value : (Object) value;
+        }
+
+    }
+
+}
@@ -0,0 +1,126 @@
+package browser.css;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import browser.css.CSSSpecificity.Origin;
+
+/**
+ * Collects every declaration matched to a single node, then resolves the cascade in one step. Declarations are ordered
+ * by their packed cascade order (see {@link CSSSpecificity}), sorted once, and the winning value of each property is
+ * written to the style exactly once.
+ * <p>
+ * A CSSLoader styles one node at a time, so it keeps a single cascade and reuses it for every node. The buffers only
+ * grow, so after the first few nodes resolving a cascade allocates nothing.
+ */
+public class DeclarationCascade {
+
+    private static final int INDEX_BITS = 63 - CSSSpecificity.PACKED_BITS;
+    private static final int MAX_SORTABLE_SIZE = 1 << INDEX_BITS;
+
+    private long[] orders = new long[16];
+    private CSSDeclaration[] declarations = new CSSDeclaration[16];
+    private int size = 0;
+    // Scratch buffers for resolving the cascade, kept between nodes.
+    private long[] sortKeys = new long[16];
+    private int[] sortedIndices = new int[16];
+    private int[] winners = new int[16];
+    private final Set<String> written = new HashSet<>();
+
+    public void add(Map<String, String> declarations, CSSSpecificity specificity, Origin origin, int sourceOrder) {
+        for (Map.Entry<String, String> declaration : declarations.entrySet()) {
+            add(declaration.getKey(), declaration.getValue(), specificity, origin, sourceOrder);
+        }
+    }
+
+    public void add(CSSDeclaration[] declarations, CSSSpecificity specificity, Origin origin, int sourceOrder) {
+        for (CSSDeclaration declaration : declarations) {
+            add(declaration, specificity, origin, sourceOrder);
+        }
+    }
+
+    public void add(String property, String value, CSSSpecificity specificity, Origin origin, int sourceOrder) {
+        add(new CSSDeclaration(property, value), specificity, origin, sourceOrder);
+    }
+
+    public void add(CSSDeclaration declaration, CSSSpecificity specificity, Origin origin, int sourceOrder) {
+        if (size == orders.length) {
+            orders = Arrays.copyOf(orders, size * 2);
+            declarations = Arrays.copyOf(declarations, size * 2);
+        }
+        orders[size] = specificity.toCascadeOrder(origin, declaration.important, sourceOrder);
+        declarations[size] = declaration;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Writes the winning declaration of each property to the style and computes its value, then clears the collected
+     * declarations. Winners are written in ascending cascade order, so that shorthand and longhand properties are
+     * applied in the order the cascade decided between them.
+     * @param style     The style of the node the declarations were matched to.
+     */
+    public void applyTo(CSSStyle style) {
+        sortIndices();
+        written.clear();
+        // Walk from the highest cascade order down, so the first declaration seen for a property wins.
+        int winnerCount = 0;
+        for (int i = size - 1; i >= 0; i--) {
+            int index = sortedIndices[i];
+            if (written.add(declarations[index].property)) {
+                winners[winnerCount++] = index;
+            }
+        }
+        for (int i = winnerCount - 1; i >= 0; i--) {
+            style.setCascadedValue(declarations[winners[i]]);
+        }
+        // The values were parsed when their stylesheet was loaded, so they are applied without parsing them again.
+        for (int i = winnerCount - 1; i >= 0; i--) {
+            declarations[winners[i]].applyTo(style);
+        }
+        clear();
+    }
+
+    public void clear() {
+        Arrays.fill(declarations, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Sorts the indices of the declarations by cascade order into sortedIndices. Declarations with equal order keep the
+     * order they were added in. The index is packed below the cascade order so that a primitive sort can be used.
+     */
+    private void sortIndices() {
+        if (sortedIndices.length < size) {
+            sortedIndices = new int[orders.length];
+            winners = new int[orders.length];
+        }
+        if (size <= MAX_SORTABLE_SIZE) {
+            if (sortKeys.length < size) {
+                sortKeys = new long[orders.length];
+            }
+            for (int i = 0; i < size; i++) {
+                sortKeys[i] = (orders[i] << INDEX_BITS) | i;
+            }
+            Arrays.sort(sortKeys, 0, size);
+            for (int i = 0; i < size; i++) {
+                sortedIndices[i] = (int) (sortKeys[i] & (MAX_SORTABLE_SIZE - 1));
+            }
+        } else {
+            Integer[] boxedIndices = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                boxedIndices[i] = i;
+            }
+            Arrays.sort(boxedIndices, (a, b) -> Long.compare(orders[a], orders[b]));
+            for (int i = 0; i < size; i++) {
+                sortedIndices[i] = boxedIndices[i];
+            }
+        }
+    }
+
+}
@@ -14,27 +14,22 @@ public class LegacyCSSLoader {
 
     /**
      * In HTML4 and earlier, some styling was done through element attributes. A small set of these attributes are
-     * supported by this engine and are converted into normal CSS strings here.
+     * supported by this engine and are converted into CSS declarations here.
      * @param node      The render node to extract styling from.
-     * @return      A CSS string.
+     * @return      The CSS declarations, or null if the node has none of the supported attributes.
      */
-    public static String getCSSFromAttributes(RenderNode node) {
-        Map<String, String> properties = new HashMap<>();
+    public static Map<String, String> getDeclarationsFromAttributes(RenderNode node) {
+        Map<String, String> declarations = null;
         for (Map.Entry<String, String> e : node.attributes.entrySet()) {
-            if (styleAttributes.containsKey(e.getKey())) {
-                properties.put(styleAttributes.get(e.getKey()), e.getValue());
+            String property = styleAttributes.get(e.getKey());
+            if (property != null && e.getValue() != null && !e.getValue().isBlank()) {
+                if (declarations == null) {
+                    declarations = new HashMap<>();
+                }
+                declarations.put(property, e.getValue().trim());
             }
         }
-
-        if (properties.size() == 0) {
-            return null;
-        } else {
-            StringBuilder css = new StringBuilder();
-            for (Map.Entry<String, String> e : properties.entrySet()) {
-                css.append(String.format("%s: %s;", e.getKey(), e.getValue()));
-            }
-            return String.format("%s { %s }", node.type, css);
-        }
+        return declarations;
     }
 
 }
@@ -0,0 +1,132 @@
+package browser.css;
+
+import static browser.constants.MathConstants.DELTA;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeSet;
+
+import browser.model.CSSMediaExpression;
+import browser.model.CSSSelectorGroup;
+
+/**
+ * The viewport widths and heights at which any media expression in a set of stylesheets can change its result. Every
+ * supported media feature compares the viewport against a fixed length, so two viewports that compare the same way
+ * against every one of those lengths match exactly the same rules. This makes it possible to tell whether a resize
+ * requires the cascade to run again with two binary searches per axis.
+ */
+public class MediaQueryIndex {
+
+    private final float[] widthThresholds;
+    private final float[] heightThresholds;
+
+    public MediaQueryIndex(Collection<Map<CSSSelectorGroup, Map<String, String>>> styleSheets) {
+        TreeSet<Float> widths = new TreeSet<>();
+        TreeSet<Float> heights = new TreeSet<>();
+        for (Map<CSSSelectorGroup, Map<String, String>> rules : styleSheets) {
+            CSSMediaExpression previousExpression = null;
+            for (CSSSelectorGroup selectorGroup : rules.keySet()) {
+                // The selector groups within one @media rule share an expression.
+                if (selectorGroup.mediaExpression != null && selectorGroup.mediaExpression != previousExpression) {
+                    addThresholds(selectorGroup.mediaExpression, widths, heights);
+                }
+                previousExpression = selectorGroup.mediaExpression;
+            }
+        }
+        widthThresholds = toArray(widths);
+        heightThresholds = toArray(heights);
+    }
+
+    /**
+     * @return True if every media expression has the same result for both viewports.
+     */
+    public boolean matchesSameRules(float width1, float height1, float width2, float height2) {
+        return sameRange(widthThresholds, width1, width2) && sameRange(heightThresholds, height1, height2);
+    }
+
+    public int getThresholdCount() {
+        return widthThresholds.length + heightThresholds.length;
+    }
+
+    private void addThresholds(CSSMediaExpression expression, TreeSet<Float> widths, TreeSet<Float> heights) {
+        if (expression.feature != null) {
+            Float length = MediaQueryMatcher.parsePixelSize(expression.featureValue);
+            if (length == null) {
+                return;
+            }
+            switch (expression.feature) {
+                case MIN_WIDTH, MAX_WIDTH -> widths.add(length);
+                case WIDTH -> {
+                    widths.add(length - DELTA);
+                    widths.add(length + DELTA);
+                }
+                case HEIGHT -> {
+                    heights.add(length - DELTA);
+                    heights.add(length + DELTA);
+                }
+            }
+        }
+        if (expression.leftHandExpression != null) {
+            addThresholds(expression.leftHandExpression, widths, heights);
+        }
+        if (expression.rightHandExpression != null) {
+            addThresholds(expression.rightHandExpression, widths, heights);
+        }
+    }
+
+    /**
+     * Two values fall in the same range if the same number of thresholds are below each of them, and the same number
+     * are equal to each of them. Features compare with both strict and inclusive bounds, so both counts are needed.
+     */
+    private static boolean sameRange(float[] thresholds, float value1, float value2) {
+        if (value1 == value2) {
+            return true;
+        }
+        return countBelow(thresholds, value1) == countBelow(thresholds, value2) &&
+                countAtMost(thresholds, value1) == countAtMost(thresholds, value2);
+    }
+
+    private static int countBelow(float[] thresholds, float value) {
+        int low = 0;
+        int high = thresholds.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (thresholds[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int countAtMost(float[] thresholds, float value) {
+        int low = 0;
+        int high = thresholds.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (thresholds[middle] <= value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static float[] toArray(TreeSet<Float> values) {
+        float[] array = new float[values.size()];
+        int i = 0;
+        for (float value : values) {
+            array[i++] = value;
+        }
+        return array;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MediaQueryIndex(widths=%s, heights=%s)", Arrays.toString(widthThresholds), Arrays.toString(heightThresholds));
+    }
+
+}
@@ -66,7 +66,7 @@ public class MediaQueryMatcher {
         return false;
     }
 
-    private static Float parsePixelSize(String text) {
+    static Float parsePixelSize(String text) {
         Matcher matcher = CSS_LENGTH_PATTERN.matcher(text);
         if (matcher.find()) {
             float value = Float.parseFloat(matcher.group(1));
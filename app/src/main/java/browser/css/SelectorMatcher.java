@@ -4,36 +4,53 @@ import java.util.*;
 
 import browser.constants.CSSConstants.SelectorCombinator;
 import browser.model.*;
+import browser.parser.Atoms;
 import browser.parser.HTMLElements;
 
+import lombok.EqualsAndHashCode;
+
 public class SelectorMatcher {
 
-    private static final Map<Integer, Boolean> matchCache = new HashMap<>();
+    // Each thread lays out one page at a time, so match results are cached per thread.
+    private static final ThreadLocal<Map<MatchKey, Boolean>> matchCache = ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<CacheStatistics> cacheStatistics = ThreadLocal.withInitial(CacheStatistics::new);
 
     public static boolean selectorGroupMatchesNode(CSSSelectorGroup selectorGroup, RenderNode node) {
         return selectorGroupMatchesNode(selectorGroup, node, selectorGroup.selectors.size() - 1);
     }
 
     public static void clearCache() {
-        matchCache.clear();
+        matchCache.get().clear();
+        cacheStatistics.get().reset();
+    }
+
+    /**
+     * @return The match cache statistics for the current thread since the cache was last cleared.
+     */
+    public static CacheStatistics getCacheStatistics() {
+        return cacheStatistics.get();
     }
 
     private static boolean selectorGroupMatchesNode(CSSSelectorGroup selectorGroup, RenderNode node, int selectorIndex) {
-        int hash = String.format("%s %s %s", selectorGroup, node.id, selectorIndex).hashCode();
-        if (matchCache.containsKey(hash)) {
-            return matchCache.get(hash);
+        Map<MatchKey, Boolean> matchCache = SelectorMatcher.matchCache.get();
+        MatchKey key = new MatchKey(selectorGroup.id, node.id, selectorIndex);
+        Boolean cachedResult = matchCache.get(key);
+        if (cachedResult != null) {
+            cacheStatistics.get().recordHit();
+            return cachedResult;
         }
+        cacheStatistics.get().recordMiss();
 
         // check if current selector matches node
         CSSSelector currentSelector = selectorGroup.selectors.get(selectorIndex);
         if (!selectorMatchesNode(currentSelector, node)) {
-            matchCache.put(hash, false);
+            matchCache.put(key, false);
             return false;
         }
 
         // if this is the first selector, return true
         if (selectorIndex == 0) {
-            matchCache.put(hash, true);
+            matchCache.put(key, true);
             return true;
         }
 
@@ -43,18 +60,17 @@ public class SelectorMatcher {
         // recurse on each candidate
         for (RenderNode candidate : candidates) {
             if (selectorGroupMatchesNode(selectorGroup, candidate, selectorIndex - 1)) {
-                matchCache.put(hash, true);
+                matchCache.put(key, true);
                 return true;
             }
         }
 
-        matchCache.put(hash, false);
+        matchCache.put(key, false);
         return false;
     }
 
     private static boolean selectorMatchesNode(CSSSelector selector, RenderNode node) {
         for (CSSUnitSelector unitSelector : selector.unitSelectors) {
-            String value = unitSelector.value;
             switch (unitSelector.type) {
                 case ATTRIBUTE -> {
                     if (!attributesMatch((CSSUnitAttributeSelector) unitSelector, node)) {
@@ -62,29 +78,12 @@ public class SelectorMatcher {
                     }
                 }
                 case CLASS -> {
-                    if (node.attributes.containsKey("class")) {
-                        String classAttribute = node.attributes.get("class");
-                        boolean containsClass = false;
-                        for (String classString : classAttribute.split("\\s")) {
-                            if (classString.equalsIgnoreCase(value)) {
-                                containsClass = true;
-                                break;
-                            }
-                        }
-
-                        if (!containsClass) {
-                            return false;
-                        }
-                    } else {
+                    if (!containsAtom(node.classAtoms, unitSelector.atom)) {
                         return false;
                     }
                 }
                 case ID -> {
-                    if (node.attributes.containsKey("id")) {
-                        if (!node.attributes.get("id").equalsIgnoreCase(value)) {
-                            return false;
-                        }
-                    } else {
+                    if (unitSelector.atom == Atoms.NONE || node.idAtom != unitSelector.atom) {
                         return false;
                     }
                 }
@@ -95,7 +94,7 @@ public class SelectorMatcher {
                     }
                 }
                 case TYPE -> {
-                    if (!node.type.equals(value)) {
+                    if (unitSelector.atom == Atoms.NONE || node.typeAtom != unitSelector.atom) {
                         return false;
                     }
                 }
@@ -107,16 +106,23 @@ public class SelectorMatcher {
         return true;
     }
 
+    private static boolean containsAtom(int[] atoms, int atom) {
+        for (int candidate : atoms) {
+            if (candidate == atom) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private static List<RenderNode> getCandidateNodes(SelectorCombinator combinator, RenderNode node) {
         List<RenderNode> candidates = new ArrayList<>();
 
         switch (combinator) {
             case ADJACENT_SIBLING -> {
-                if (node.parent != null) {
-                    int indexInParent = node.parent.children.indexOf(node);
-                    if (indexInParent > 0) {
-                        candidates.add(node.parent.children.get(indexInParent - 1));
-                    }
+                int indexInParent = node.getIndexInParent();
+                if (indexInParent > 0) {
+                    candidates.add(node.parent.children.get(indexInParent - 1));
                 }
             }
             case CHILD -> {
@@ -132,13 +138,10 @@ public class SelectorMatcher {
                 }
             }
             case SIBLING -> {
-                if (node.parent != null) {
-                    int indexInParent = node.parent.children.indexOf(node);
-                    for (int i = 0; i < node.parent.children.size(); i++) {
-                        if (i != indexInParent) {
-                            candidates.add(node.parent.children.get(i));
-                        }
-                    }
+                // Only the siblings before the node can match, nearest first.
+                int indexInParent = node.getIndexInParent();
+                for (int i = indexInParent - 1; i >= 0; i--) {
+                    candidates.add(node.parent.children.get(i));
                 }
             }
         }
@@ -200,4 +203,20 @@ public class SelectorMatcher {
         return false;
     }
 
+    /**
+     * Identifies the result of matching a selector group, up to and including the selector at an index, against a node.
+     */
+    @EqualsAndHashCode
+    private static class MatchKey {
+        private final int selectorGroupId;
+        private final int nodeId;
+        private final int selectorIndex;
+
+        private MatchKey(int selectorGroupId, int nodeId, int selectorIndex) {
+            this.selectorGroupId = selectorGroupId;
+            this.nodeId = nodeId;
+            this.selectorIndex = selectorIndex;
+        }
+    }
+
 }
@@ -1,13 +1,10 @@
 package browser.layout;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import browser.model.BoxNode;
 
 public class BlockFormattingContext {
 
-    Map<Integer, BoxNode> lastAddedBox = new HashMap<>();
+    IntObjectMap<BoxNode> lastAddedBox = new IntObjectMap<>();
 
     public void setLastPlacedBoxForId(int id, BoxNode boxNode) {
         lastAddedBox.put(id, boxNode);
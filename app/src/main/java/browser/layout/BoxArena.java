@@ -0,0 +1,131 @@
+package browser.layout;
+
+import java.util.Arrays;
+
+import browser.model.BoxNode;
+
+/**
+ * The pending moves of a laid out box tree. Moving a box moves all its descendants, so rather than updating each of
+ * them, a move adds to an offset kept for the box relative to its parent. The position of a box is its laid out
+ * position plus the offsets of the box and its ancestors.
+ * Boxes are numbered in pre-order, so parents come before their children, and the offsets of the whole tree are applied
+ * to the box nodes in a single pass by {@link #writeBack()}. The box nodes keep their geometry and style, so the arena
+ * only stores the order of the boxes, their parents and their offsets. It does not change the shape of the tree.
+ */
+public class BoxArena {
+
+    public static final int NONE = -1;
+
+    private final BoxNode[] nodes;
+    private final int[] parent;
+    private final float[] offsetX;
+    private final float[] offsetY;
+
+    private int size = 0;
+
+    public BoxArena(BoxNode root) {
+        int count = countBoxes(root);
+        nodes = new BoxNode[count];
+        parent = new int[count];
+        offsetX = new float[count];
+        offsetY = new float[count];
+        addBox(root, NONE);
+    }
+
+    // Public methods
+
+    public int size() {
+        return size;
+    }
+
+    public BoxNode getBoxNode(int index) {
+        return nodes[index];
+    }
+
+    /**
+     * @param node  A box node.
+     * @return The index of the box node in the arena, or NONE if it is not part of the tree.
+     */
+    public int indexOf(BoxNode node) {
+        int index = node.arenaIndex;
+        return index >= 0 && index < size && nodes[index] == node ? index : NONE;
+    }
+
+    public int getParent(int index) {
+        return parent[index];
+    }
+
+    /**
+     * @param index     The box.
+     * @return The x position of the box, including the moves of the box and its ancestors so far.
+     */
+    public float getX(int index) {
+        float offset = 0;
+        for (int i = index; i != NONE; i = parent[i]) {
+            offset += offsetX[i];
+        }
+        return nodes[index].x + offset;
+    }
+
+    /**
+     * @param index     The box.
+     * @return The y position of the box, including the moves of the box and its ancestors so far.
+     */
+    public float getY(int index) {
+        float offset = 0;
+        for (int i = index; i != NONE; i = parent[i]) {
+            offset += offsetY[i];
+        }
+        return nodes[index].y + offset;
+    }
+
+    /**
+     * Moves a box and all its descendants by the given offset. This takes constant time, since the descendants are
+     * only moved when the moves are written back.
+     * @param index     The box to move.
+     * @param dx        The horizontal offset.
+     * @param dy        The vertical offset.
+     */
+    public void moveSubtree(int index, float dx, float dy) {
+        offsetX[index] += dx;
+        offsetY[index] += dy;
+    }
+
+    /**
+     * Applies the moves to the position of every box node.
+     */
+    public void writeBack() {
+        for (int i = 0; i < size; i++) {
+            // The parent comes first in pre-order, so its offset already includes those of its own ancestors.
+            if (parent[i] != NONE) {
+                offsetX[i] += offsetX[parent[i]];
+                offsetY[i] += offsetY[parent[i]];
+            }
+            nodes[i].x += offsetX[i];
+            nodes[i].y += offsetY[i];
+        }
+        Arrays.fill(offsetX, 0);
+        Arrays.fill(offsetY, 0);
+    }
+
+    // Private methods
+
+    private int countBoxes(BoxNode node) {
+        int count = 1;
+        for (BoxNode child : node.children) {
+            count += countBoxes(child);
+        }
+        return count;
+    }
+
+    private void addBox(BoxNode node, int parentIndex) {
+        int index = size++;
+        nodes[index] = node;
+        node.arenaIndex = index;
+        parent[index] = parentIndex;
+        for (BoxNode child : node.children) {
+            addBox(child, index);
+        }
+    }
+
+}
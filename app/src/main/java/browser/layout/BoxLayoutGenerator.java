@@ -3,7 +3,7 @@ package browser.layout;
 import static browser.css.CSSStyle.DisplayType;
 import static browser.css.CSSStyle.PositionType;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -19,9 +19,10 @@ public class BoxLayoutGenerator {
 
     private float baseScreenWidth;
     private float screenWidth;
-    private final Map<Integer, InlineFormattingContext> inlineFormattingContexts = new HashMap<>();
-    private final Map<Integer, BlockFormattingContext> blockFormattingContexts = new HashMap<>();
-    private final Map<Integer, TableFormattingContext> tableFormattingContexts = new HashMap<>();
+    // Formatting contexts are numbered in the order they are created, so each context is stored at its id.
+    private final List<InlineFormattingContext> inlineFormattingContexts = new ArrayList<>();
+    private final List<BlockFormattingContext> blockFormattingContexts = new ArrayList<>();
+    private final List<TableFormattingContext> tableFormattingContexts = new ArrayList<>();
     private final InlineLayoutFormatter inlineLayoutFormatter;
     private final InlineBlockWidthCalculator inlineBlockWidthCalculator;
     private final TableLayoutFormatter tableLayoutFormatter;
@@ -56,8 +57,12 @@ public class BoxLayoutGenerator {
         // Layout all box nodes within the root.
         setBoxLayout(rootBoxNode);
 
-        applyTextJustifications(rootBoxNode);
-        applyAutoMargins(rootBoxNode);
+        // The remaining passes only move boxes, so they run over an arena of the laid out tree, and the new
+        // positions are written back to the box nodes at the end.
+        BoxArena arena = new BoxArena(rootBoxNode);
+        applyTextJustifications(arena, 0);
+        applyAutoMargins(arena, 0);
+        arena.writeBack();
     }
 
     // Private methods
@@ -127,7 +132,7 @@ public class BoxLayoutGenerator {
             // The max-width property overrides the width property.
             if (style.maxWidth != null) {
                 if (style.maxWidthType.equals(CSSStyle.DimensionType.PERCENTAGE)) {
-                    if (boxNode.parent == null || boxNode.parent.width != null) {
+                    if (boxNode.parent == null || boxNode.parent.hasWidth()) {
                         float parentWidth = boxNode.parent == null ? screenWidth : boxNode.parent.width;
                         float maxWidthValue = parentWidth * style.maxWidth / 100;
                         boxNode.width = Math.min(boxNode.width, maxWidthValue);
@@ -138,10 +143,10 @@ public class BoxLayoutGenerator {
             }
 
             if (style.height != null) {
-                Float height;
+                float height;
                 if (style.heightType.equals(CSSStyle.DimensionType.PERCENTAGE)) {
-                    if (boxNode.parent == null || boxNode.parent.height == null) {
-                        height = null;
+                    if (boxNode.parent == null || !boxNode.parent.hasHeight()) {
+                        height = Float.NaN;
                     } else {
                         float heightSpacing = boxNode.parent.style.paddingTop + boxNode.parent.style.paddingBottom +
                                 boxNode.style.marginTop + boxNode.style.marginBottom;
@@ -156,7 +161,7 @@ public class BoxLayoutGenerator {
             // The max-height property overrides the height property.
             if (style.maxHeight != null) {
                 if (style.maxHeightType.equals(CSSStyle.DimensionType.PERCENTAGE)) {
-                    if (boxNode.parent != null && boxNode.parent.height != null) {
+                    if (boxNode.parent != null && boxNode.parent.hasHeight()) {
                         float maxHeightValue = boxNode.parent.height * style.maxHeight / 100;
                         boxNode.height = Math.min(boxNode.height, maxHeightValue);
                     }
@@ -171,22 +176,22 @@ public class BoxLayoutGenerator {
             // box sizing, the box should not extend past the bounds of its parent, so the padding/border addition is
             // skipped.
             if (boxNode.style.boxSizing.equals(CSSStyle.BoxSizingType.CONTENT_BOX)) {
-                if (boxNode.width != null && !noSetWidth) {
+                if (boxNode.hasWidth() && !noSetWidth) {
                     boxNode.width += style.paddingLeft + style.paddingRight + style.borderWidthLeft + style.borderWidthRight;
                 }
 
-                if (boxNode.height != null) {
+                if (boxNode.hasHeight()) {
                     boxNode.height += style.paddingTop + style.paddingBottom + style.borderWidthTop + style.borderWidthBottom;
                 }
             }
         }
 
         boolean isInlineBlock = boxNode.outerDisplayType.equals(DisplayType.INLINE) && boxNode.innerDisplayType.equals(DisplayType.FLOW_ROOT);
-        if (isInlineBlock && boxNode.width == null) {
+        if (isInlineBlock && !boxNode.hasWidth()) {
             float availableWidth = screenWidth;
             if (boxNode.parent != null) {
                 BoxNode currentParent = boxNode.parent;
-                while (currentParent != null && currentParent.width == null) {
+                while (currentParent != null && !currentParent.hasWidth()) {
                     currentParent = currentParent.parent;
                 }
                 availableWidth = currentParent.width -
@@ -266,11 +271,11 @@ public class BoxLayoutGenerator {
      */
     private void setEmptyBoxSizes(BoxNode boxNode) {
         if (boxNode.children.size() == 0 && !boxNode.isTextNode) {
-            if (boxNode.width == null) {
+            if (!boxNode.hasWidth()) {
                 boxNode.width = 0.0f;
             }
 
-            if (boxNode.height == null) {
+            if (!boxNode.hasHeight()) {
                 boxNode.height = 0.0f;
             }
         }
@@ -304,7 +309,7 @@ public class BoxLayoutGenerator {
                     id = boxNode.parent.inlineFormattingContextId;
                 } else {
                     id = inlineFormattingContexts.size();
-                    inlineFormattingContexts.put(id, new InlineFormattingContext(id, boxNode.id));
+                    inlineFormattingContexts.add(new InlineFormattingContext(id, boxNode.id));
                 }
                 boxNode.inlineFormattingContextId = id;
             }
@@ -331,7 +336,7 @@ public class BoxLayoutGenerator {
         // TODO: add in all other cases of new BFCs.
         if (boxNode.innerDisplayType.equals(DisplayType.FLOW_ROOT) || boxNode.parent == null) {
             id = blockFormattingContexts.size();
-            blockFormattingContexts.put(id, new BlockFormattingContext());
+            blockFormattingContexts.add(new BlockFormattingContext());
         } else {
             id = boxNode.parent.blockFormattingContextId;
         }
@@ -353,7 +358,7 @@ public class BoxLayoutGenerator {
                 boxNode.tableFormattingContextId = tableFormattingContexts.size();
                 TableFormattingContext context = new TableFormattingContext();
                 context.tableBoxNode = boxNode;
-                tableFormattingContexts.put(boxNode.tableFormattingContextId, context);
+                tableFormattingContexts.add(context);
             } else {
                 boxNode.tableFormattingContextId = boxNode.parent.tableFormattingContextId;
             }
@@ -431,7 +436,7 @@ public class BoxLayoutGenerator {
 
         // The height should be set based on the box's content if the width was not defined in the style, or if the
         // box is an inline-block box.
-        if (parentBox.outerDisplayType.equals(DisplayType.INLINE) || parentBox.height == null) {
+        if (parentBox.outerDisplayType.equals(DisplayType.INLINE) || !parentBox.hasHeight()) {
             parentBox.height = getHeightFromChildren(parentBox);
         }
     }
@@ -484,7 +489,7 @@ public class BoxLayoutGenerator {
         // Inline boxes will have their height derived from their children. If this was a block box containing inline
         // boxes, then it will either have a predefined height or will need to derive the height from its children as
         // well.
-        if ((parentBox.outerDisplayType.equals(DisplayType.INLINE) && !parentBox.innerDisplayType.equals(DisplayType.FLOW_ROOT)) || parentBox.height == null) {
+        if ((parentBox.outerDisplayType.equals(DisplayType.INLINE) && !parentBox.innerDisplayType.equals(DisplayType.FLOW_ROOT)) || !parentBox.hasHeight()) {
             parentBox.height = getHeightFromChildren(parentBox);
         }
 
@@ -517,7 +522,7 @@ public class BoxLayoutGenerator {
             parentBox.width = getWidthFromChildren(parentBox);
         }
 
-        if (parentBox.outerDisplayType.equals(DisplayType.INLINE) || parentBox.height == null) {
+        if (parentBox.outerDisplayType.equals(DisplayType.INLINE) || !parentBox.hasHeight()) {
             parentBox.height = getHeightFromChildren(parentBox);
         }
     }
@@ -534,12 +539,12 @@ public class BoxLayoutGenerator {
 
     private float getHeightFromChildren(BoxNode boxNode) {
         if (boxNode.children.size() == 0) {
-            return boxNode.height == null ? 0 : boxNode.height;
+            return boxNode.hasHeight() ? boxNode.height : 0;
         }
 
         float maxY = 0;
         for (BoxNode childBox : boxNode.children) {
-            float childHeight = childBox.height == null ? 0 : childBox.height;
+            float childHeight = childBox.hasHeight() ? childBox.height : 0;
             float newY = childBox.y + childHeight + childBox.style.marginBottom;
             maxY = Math.max(maxY, newY);
         }
@@ -554,12 +559,12 @@ public class BoxLayoutGenerator {
     private float getWidthFromChildren(BoxNode boxNode) {
         if (boxNode.children.size() == 0) {
             float width = boxNode.style.borderWidthLeft + boxNode.style.paddingLeft + boxNode.style.paddingRight + boxNode.style.borderWidthRight;
-            return boxNode.width == null ? width : boxNode.width;
+            return boxNode.hasWidth() ? boxNode.width : width;
         }
 
         float maxX = 0;
         for (BoxNode childBox : boxNode.children) {
-            float childWidth = childBox.width == null ? 0 : childBox.width;
+            float childWidth = childBox.hasWidth() ? childBox.width : 0;
             float newX = childBox.x + childWidth + childBox.style.marginRight;
             maxX = Math.max(maxX, newX);
         }
@@ -570,9 +575,12 @@ public class BoxLayoutGenerator {
 
     /**
      * Applies the text-align property to inline boxes. Block boxes are not impacted.
-     * @param boxNode       The box to adjust.
+     * @param arena     The laid out box tree.
+     * @param index     The box to adjust.
      */
-    private void applyTextJustifications(BoxNode boxNode) {
+    private void applyTextJustifications(BoxArena arena, int index) {
+        BoxNode boxNode = arena.getBoxNode(index);
+        CSSStyle style = boxNode.style;
         boolean inlineBox = getLayoutAlgorithm(boxNode).equals(LayoutAlgorithmType.Inline);
         boolean isRootInlineBox = false;
         InlineFormattingContext context = null;
@@ -582,28 +590,29 @@ public class BoxLayoutGenerator {
         }
 
         // Only apply an offset for inline boxes that are not left aligned.
-        if (isRootInlineBox && !(boxNode.style.textAlign.equals(CSSStyle.TextAlign.LEFT) || boxNode.style.textAlign.equals(CSSStyle.TextAlign.WEBKIT_LEFT))) {
+        if (isRootInlineBox && !(style.textAlign.equals(CSSStyle.TextAlign.LEFT) || style.textAlign.equals(CSSStyle.TextAlign.WEBKIT_LEFT))) {
             for (int lineBoxIndex = 0; lineBoxIndex < context.lineBoxes.size(); lineBoxIndex++) {
                 // Find the actual width used by boxes in the line.
-                BoxNode firstBoxInLine = context.getFirstTopLevelBoxInLine(lineBoxIndex);
-                BoxNode lastBoxInLine = context.getLastTopLevelBoxInLine(lineBoxIndex);
-                float minX = firstBoxInLine.x - firstBoxInLine.style.marginLeft;
-                float maxX = lastBoxInLine.x + lastBoxInLine.width + lastBoxInLine.style.marginRight;
+                int firstBoxInLine = arena.indexOf(context.getFirstTopLevelBoxInLine(lineBoxIndex));
+                int lastBoxInLine = arena.indexOf(context.getLastTopLevelBoxInLine(lineBoxIndex));
+                float minX = arena.getX(firstBoxInLine) - arena.getBoxNode(firstBoxInLine).style.marginLeft;
+                BoxNode lastBox = arena.getBoxNode(lastBoxInLine);
+                float maxX = arena.getX(lastBoxInLine) + lastBox.width + lastBox.style.marginRight;
                 float usedLineWidth = maxX - minX;
 
                 // Find the remaining space in the line.
-                float availableWidth = boxNode.width - boxNode.style.borderWidthLeft - boxNode.style.paddingLeft -
-                        boxNode.style.paddingRight - boxNode.style.borderWidthRight;
+                float availableWidth = boxNode.width - style.borderWidthLeft - style.paddingLeft -
+                        style.paddingRight - style.borderWidthRight;
                 float diff = availableWidth - usedLineWidth;
                 if (diff > 0) {
-                    float xOffset = boxNode.style.textAlign.equals(CSSStyle.TextAlign.RIGHT) ?
+                    float xOffset = style.textAlign.equals(CSSStyle.TextAlign.RIGHT) ?
                             diff :
                             diff / 2;
 
                     // Move each top level box in this line by the x offset.
                     for (BoxNode child : context.lineBoxes.get(lineBoxIndex).boxes) {
                         if (child.parent.id == context.contextRootId) {
-                            moveBoxAndDescendants(child, new Vector2(xOffset, 0));
+                            arena.moveSubtree(arena.indexOf(child), xOffset, 0);
                         }
                     }
                 }
@@ -612,57 +621,53 @@ public class BoxLayoutGenerator {
 
         // HTML4 style text alignment applies to block boxes as well, whereas normal text align left/right/center only
         // applies to inline content.
-        boolean hasBlockChildren = boxNode.children.size() > 0 && boxNode.children.get(0).outerDisplayType.equals(DisplayType.BLOCK);
-        if (hasBlockChildren && (boxNode.style.textAlign.equals(CSSStyle.TextAlign.WEBKIT_CENTER) || boxNode.style.textAlign.equals(CSSStyle.TextAlign.WEBKIT_RIGHT))) {
-            float availableWidth = boxNode.width - boxNode.style.borderWidthLeft - boxNode.style.paddingLeft -
-                    boxNode.style.paddingRight - boxNode.style.borderWidthRight;
+        boolean hasBlockChildren = !boxNode.children.isEmpty() && boxNode.children.get(0).outerDisplayType.equals(DisplayType.BLOCK);
+        if (hasBlockChildren && (style.textAlign.equals(CSSStyle.TextAlign.WEBKIT_CENTER) || style.textAlign.equals(CSSStyle.TextAlign.WEBKIT_RIGHT))) {
+            float availableWidth = boxNode.width - style.borderWidthLeft - style.paddingLeft -
+                    style.paddingRight - style.borderWidthRight;
             for (BoxNode child : boxNode.children) {
                 float diff = availableWidth - child.width;
                 if (diff > 0) {
-                    float xOffset = boxNode.style.textAlign.equals(CSSStyle.TextAlign.WEBKIT_RIGHT) ? diff : diff / 2;
-                    moveBoxAndDescendants(child, new Vector2(xOffset, 0));
+                    float xOffset = style.textAlign.equals(CSSStyle.TextAlign.WEBKIT_RIGHT) ? diff : diff / 2;
+                    arena.moveSubtree(arena.indexOf(child), xOffset, 0);
                 }
             }
         }
 
         for (BoxNode child : boxNode.children) {
-            applyTextJustifications(child);
+            applyTextJustifications(arena, arena.indexOf(child));
         }
     }
 
     /**
      * Applies margin auto adjustment to block boxes. Only horizontal margins being set to auto impacts layout.
-     * @param boxNode       The box to adjust.
+     * @param arena     The laid out box tree.
+     * @param index     The box to adjust.
      */
-    private void applyAutoMargins(BoxNode boxNode) {
+    private void applyAutoMargins(BoxArena arena, int index) {
+        BoxNode boxNode = arena.getBoxNode(index);
         boolean isBlock = boxNode.outerDisplayType.equals(DisplayType.BLOCK);
         if (isBlock) {
+          CSSStyle style = boxNode.style;
           float availableWidth = screenWidth;
-          if (boxNode.parent != null) {
-              CSSStyle parentStyle = boxNode.parent.style;
-              availableWidth = boxNode.parent.width - parentStyle.borderWidthLeft - parentStyle.paddingLeft - parentStyle.borderWidthRight - parentStyle.paddingRight;
+          int parent = arena.getParent(index);
+          if (parent != BoxArena.NONE) {
+              BoxNode parentBox = arena.getBoxNode(parent);
+              CSSStyle parentStyle = parentBox.style;
+              availableWidth = parentBox.width - parentStyle.borderWidthLeft - parentStyle.paddingLeft - parentStyle.borderWidthRight - parentStyle.paddingRight;
           }
 
-          if (boxNode.style.marginLeftType.equals(CSSStyle.MarginType.AUTO) && boxNode.style.marginRightType.equals(CSSStyle.MarginType.AUTO)) {
+          if (style.marginLeftType.equals(CSSStyle.MarginType.AUTO) && style.marginRightType.equals(CSSStyle.MarginType.AUTO)) {
               float diff = availableWidth - boxNode.width;
-              moveBoxAndDescendants(boxNode, new Vector2(diff / 2, 0));
-          } else if (boxNode.style.marginLeftType.equals(CSSStyle.MarginType.AUTO)) {
-              float diff = availableWidth - boxNode.width - boxNode.style.marginRight;
-              moveBoxAndDescendants(boxNode, new Vector2(diff, 0));
+              arena.moveSubtree(index, diff / 2, 0);
+          } else if (style.marginLeftType.equals(CSSStyle.MarginType.AUTO)) {
+              float diff = availableWidth - boxNode.width - style.marginRight;
+              arena.moveSubtree(index, diff, 0);
           }
         }
 
         for (BoxNode child : boxNode.children) {
-            applyAutoMargins(child);
-        }
-    }
-
-    private void moveBoxAndDescendants(BoxNode boxNode, Vector2 delta) {
-        boxNode.x += delta.x;
-        boxNode.y += delta.y;
-
-        for (BoxNode child : boxNode.children) {
-            moveBoxAndDescendants(child, delta);
+            applyAutoMargins(arena, arena.indexOf(child));
         }
     }
 
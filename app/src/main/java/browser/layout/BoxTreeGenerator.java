@@ -14,38 +14,34 @@ import browser.parser.StringUtils;
 public class BoxTreeGenerator {
 
     private final Map<Integer, BoxNode> renderNodeIdToBoxNode = new HashMap<>();
-    private BoxNode rootBoxNode;
+    private final TableAnonymousBoxAdder tableAnonymousBoxAdder = new TableAnonymousBoxAdder();
 
     // Public methods
 
+    /**
+     * Generates the box tree for a render tree. A box is first created for each render node, in breadth first order so
+     * that the ids of the boxes follow that order. The tree is then completed in a single pass from the leaves up,
+     * which adds the anonymous block and table boxes needed around the children of each box as it goes.
+     * @param rootRenderNode    The root of the render tree.
+     * @return The root of the box tree.
+     */
     public BoxNode generate(RenderNode rootRenderNode) {
         renderNodeIdToBoxNode.clear();
 
-        List<RenderNode> renderNodeList = new ArrayList<>();
-        List<BoxNode> parentBoxNodeList = new ArrayList<>();
-        renderNodeList.add(rootRenderNode);
-        parentBoxNodeList.add(null);
-
-        while (!renderNodeList.isEmpty()) {
-            RenderNode renderNode = renderNodeList.remove(0);
-            BoxNode parentBoxNode = parentBoxNodeList.remove(0);
-            BoxNode boxNode = createBoxNode(renderNode, parentBoxNode);
-            renderNodeIdToBoxNode.put(renderNode.id, boxNode);
-
-            if (parentBoxNode == null) {
-                rootBoxNode = boxNode;
-            }
+        BoxNode rootBoxNode = createBoxNode(rootRenderNode, null);
+        Deque<BoxNode> queue = new ArrayDeque<>();
+        queue.add(rootBoxNode);
 
-            for (RenderNode childRenderNode : renderNode.children) {
-                renderNodeList.add(childRenderNode);
-                parentBoxNodeList.add(boxNode);
+        while (!queue.isEmpty()) {
+            BoxNode boxNode = queue.poll();
+            for (RenderNode childRenderNode : boxNode.correspondingRenderNode.children) {
+                queue.add(createBoxNode(childRenderNode, boxNode));
             }
         }
 
-        separatePreformattedTextLines(rootBoxNode, false);
         setDisplaysForUnknownElements(rootBoxNode);
-        addAnonymousFlowBoxes(rootBoxNode);
-        addAnonymousTableBoxes(rootBoxNode);
+        rootBoxNode = completeBox(rootBoxNode, false);
+        tableAnonymousBoxAdder.addAnonymousRootBoxes(rootBoxNode);
 
         return rootBoxNode;
     }
@@ -57,12 +53,12 @@ public class BoxTreeGenerator {
     // Private methods
 
     private BoxNode createBoxNode(RenderNode renderNode, BoxNode parentBoxNode) {
-        BoxNode boxNode = new BoxNode();
-        boxNode.id = BoxNode.nextId++;
+        BoxNode boxNode = new BoxNode(renderNode.style.deepCopy());
+        boxNode.id = BoxNode.nextId.getAndIncrement();
         boxNode.renderNodeId = renderNode.id;
+        renderNodeIdToBoxNode.put(renderNode.id, boxNode);
         renderNode.boxNode = boxNode;
         boxNode.correspondingRenderNode = renderNode;
-        boxNode.style = renderNode.style.deepCopy();
         boxNode.parent = parentBoxNode;
         if (parentBoxNode != null) {
             parentBoxNode.children.add(boxNode);
@@ -75,7 +71,7 @@ public class BoxTreeGenerator {
         boxNode.whiteSpaceAfter = renderNode.whiteSpaceAfter;
 
         if (boxNode.isTextNode) {
-            String text = boxNode.correspondingRenderNode.text;
+            CharSequence text = boxNode.correspondingRenderNode.text;
             boxNode.isAnonymous = true;
             boxNode.textStartIndex = 0;
             boxNode.textEndIndex = text == null ? 0 : text.length();
@@ -84,67 +80,123 @@ public class BoxTreeGenerator {
         return boxNode;
     }
 
-    private void addAnonymousFlowBoxes(BoxNode rootBoxNode) {
-        if (rootBoxNode.children.size() == 0) {
-            return;
+    /**
+     * Completes the subtree of a box. The children are completed first, and each box is only checked once. Text within
+     * preformatted elements is split into lines, boxes without a display are given the default one, and anonymous block
+     * and table boxes are added where the children do not fit the display of the box.
+     * An inline child that contains block boxes is replaced by an anonymous block box when it is completed. The inline
+     * children of a box are grouped by the displays they had before any such replacement, so a replaced child is grouped
+     * as the inline box it was, and the groups holding one are then split around it. The exception is the first replaced
+     * child of a box that was valid until then, since it is that block box which makes the box need groups.
+     * @param boxNode       The box to complete.
+     * @param inPre         Whether the box is within a preformatted element.
+     * @return The box that takes the place of the given box in its parent. This is an anonymous block box if the box is
+     * an inline box containing block boxes, and otherwise the box itself.
+     */
+    private BoxNode completeBox(BoxNode boxNode, boolean inPre) {
+        boolean childrenInPre = inPre || boxNode.correspondingRenderNode.type.equals(HTMLElements.PRE);
+        if (childrenInPre) {
+            separatePreformattedTextLines(boxNode);
         }
+        for (BoxNode child : boxNode.children) {
+            setDisplaysForUnknownElements(child);
+        }
+        boolean validBeforeChildren = boxHasValidDisplayConfiguration(boxNode, null);
 
-        List<BoxNode> queue = new ArrayList<>();
-        queue.add(rootBoxNode);
-
-        while (!queue.isEmpty()) {
-            BoxNode boxNode = queue.remove(0);
-            boolean validDisplayConfiguration = boxHasValidDisplayConfiguration(boxNode);
-            if (!validDisplayConfiguration) {
-                addAnonymousBlockBoxes(boxNode);
-
-                // Adding anonymous boxes may have invalidated the box consistency in the parent box. Reset the queue
-                // so that the parent is reprocessed.
-                if (boxNode.parent != null) {
-                    List<BoxNode> newQueueContent = queue.stream()
-                            .filter(b -> !b.isDescendantOf(boxNode.parent.id)).toList();
-                    queue.clear();
-                    queue.add(0, boxNode.parent);
-                    queue.addAll(newQueueContent);
+        boolean[] replacedChildren = null;
+        for (int i = 0; i < boxNode.children.size(); i++) {
+            BoxNode child = boxNode.children.get(i);
+            BoxNode completedChild = completeBox(child, childrenInPre);
+            if (completedChild != child) {
+                if (replacedChildren == null) {
+                    replacedChildren = new boolean[boxNode.children.size()];
                 }
+                replacedChildren[i] = true;
+                boxNode.children.set(i, completedChild);
             }
-            queue.addAll(boxNode.children);
         }
-    }
 
-    private void addAnonymousTableBoxes(BoxNode rootBoxNode) {
-        TableAnonymousBoxAdder anonymousBoxAdder = new TableAnonymousBoxAdder();
-        anonymousBoxAdder.addAnonymousBoxes(rootBoxNode);
+        BoxNode completedBoxNode = boxNode;
+        if (!validBeforeChildren) {
+            completedBoxNode = addAnonymousBlockBoxes(boxNode, replacedChildren);
+        } else if (replacedChildren != null) {
+            int firstReplacedChild = 0;
+            while (!replacedChildren[firstReplacedChild]) {
+                firstReplacedChild++;
+            }
+            replacedChildren[firstReplacedChild] = false;
+            if (!boxHasValidDisplayConfiguration(boxNode, replacedChildren)) {
+                completedBoxNode = addAnonymousBlockBoxes(boxNode, replacedChildren);
+            }
+        }
+        tableAnonymousBoxAdder.addAnonymousChildBoxes(completedBoxNode);
+
+        return completedBoxNode;
     }
 
-    private void addAnonymousBlockBoxes(BoxNode boxNode) {
+    /**
+     * Adds anonymous block boxes around the runs of inline children of a box that mixes inline and block children. An
+     * inline box containing block boxes is itself replaced by an anonymous block box.
+     * @param boxNode           The box with an invalid display configuration.
+     * @param replacedChildren  Marks the children that replaced an inline box, which are grouped as inline boxes and
+     *                          then split out of their group. May be null.
+     * @return The box that now holds the children, which replaces the given box in its parent.
+     */
+    private BoxNode addAnonymousBlockBoxes(BoxNode boxNode, boolean[] replacedChildren) {
         BoxNode baseBoxNode = boxNode;
 
-        // If the root box is inline, it needs to be wrapped in an anonymous block box.
+        // If the box is inline, it needs to be replaced by an anonymous block box.
         if (boxNode.outerDisplayType.equals(DisplayType.INLINE)) {
             baseBoxNode = wrapInlineElementWithAnonymousBlockBox(boxNode);
         }
 
+        List<BoxNode> anonymousBoxes = new ArrayList<>();
+        groupInlineChildren(baseBoxNode, replacedChildren, anonymousBoxes);
+
+        if (replacedChildren != null) {
+            // Split the groups holding a replaced child, which takes the style of its group as it would of a parent.
+            int groupCount = anonymousBoxes.size();
+            for (int i = 0; i < groupCount; i++) {
+                BoxNode anonymousBox = anonymousBoxes.get(i);
+                for (BoxNode child : anonymousBox.children) {
+                    if (child.outerDisplayType.equals(DisplayType.BLOCK)) {
+                        child.style = anonymousBox.style.deepCopy();
+                    }
+                }
+                if (!boxHasValidDisplayConfiguration(anonymousBox, null)) {
+                    groupInlineChildren(anonymousBox, null, anonymousBoxes);
+                }
+            }
+        }
+
+        for (BoxNode anonymousBox : anonymousBoxes) {
+            tableAnonymousBoxAdder.addAnonymousChildBoxes(anonymousBox);
+        }
+
+        return baseBoxNode;
+    }
+
+    private void groupInlineChildren(BoxNode baseBoxNode, boolean[] inlineChildren, List<BoxNode> anonymousBoxes) {
         List<BoxNode> currentInlineBoxes = new ArrayList<>();
         List<BoxNode> newChildren = new ArrayList<>();
 
         for (int i = 0; i < baseBoxNode.children.size(); i++) {
             BoxNode childNode = baseBoxNode.children.get(i);
+            DisplayType childDisplayType = getGroupingDisplayType(childNode, i, inlineChildren);
             if (childNode.isPseudo) {
                 newChildren.add(childNode);
-            } else if (childNode.outerDisplayType.equals(DisplayType.BLOCK) || i == baseBoxNode.children.size() - 1) {
+            } else if (childDisplayType.equals(DisplayType.BLOCK) || i == baseBoxNode.children.size() - 1) {
                 // On the last iteration, add an inline child node to the list, so it can be wrapped in an anonymous block.
-                if (i == baseBoxNode.children.size() - 1 && childNode.outerDisplayType.equals(DisplayType.INLINE)) {
+                if (i == baseBoxNode.children.size() - 1 && childDisplayType.equals(DisplayType.INLINE)) {
                     currentInlineBoxes.add(childNode);
                 }
 
                 if (currentInlineBoxes.size() > 0) {
-                    BoxNode anonymousBox = new BoxNode();
-                    anonymousBox.id = BoxNode.nextId++;
+                    BoxNode anonymousBox = new BoxNode(baseBoxNode.style.inheritedOnlyDeepCopy());
+                    anonymousBox.id = BoxNode.nextId.getAndIncrement();
                     anonymousBox.outerDisplayType = DisplayType.BLOCK;
                     anonymousBox.innerDisplayType = DisplayType.FLOW;
                     anonymousBox.isAnonymous = true;
-                    anonymousBox.style = baseBoxNode.style.inheritedOnlyDeepCopy();
 
                     for (BoxNode inlineBox : currentInlineBoxes) {
                         inlineBox.parent = anonymousBox;
@@ -152,12 +204,13 @@ public class BoxTreeGenerator {
                     }
                     currentInlineBoxes.clear();
                     newChildren.add(anonymousBox);
+                    anonymousBoxes.add(anonymousBox);
                 }
 
-                if (childNode.outerDisplayType.equals(DisplayType.BLOCK)) {
+                if (childDisplayType.equals(DisplayType.BLOCK)) {
                     newChildren.add(childNode);
                 }
-            } else if (childNode.outerDisplayType.equals(DisplayType.INLINE)) {
+            } else if (childDisplayType.equals(DisplayType.INLINE)) {
                 currentInlineBoxes.add(childNode);
             } else {
                 // TODO: what if its neither inline nor block?
@@ -171,30 +224,23 @@ public class BoxTreeGenerator {
         baseBoxNode.children = newChildren;
     }
 
+    /**
+     * Creates an anonymous block box to take the place of an inline box, cutting the inline box out of the box tree.
+     * The caller puts the anonymous box in the inline box's place in its parent.
+     * @param inlineBox     The inline box to replace.
+     * @return The anonymous block box, which holds the children of the inline box.
+     */
     private BoxNode wrapInlineElementWithAnonymousBlockBox(BoxNode inlineBox) {
-        BoxNode containingAnonymousBox = new BoxNode();
-        containingAnonymousBox.id = BoxNode.nextId++;
+        // TODO should this actually be the inline box's style? Is that style lost?
+        CSSStyle style = inlineBox.parent == null ? new CSSStyle() : inlineBox.parent.style.deepCopy();
+        BoxNode containingAnonymousBox = new BoxNode(style);
+        containingAnonymousBox.id = BoxNode.nextId.getAndIncrement();
         containingAnonymousBox.outerDisplayType = DisplayType.BLOCK;
         containingAnonymousBox.innerDisplayType = DisplayType.FLOW;
         containingAnonymousBox.parent = inlineBox.parent;
         containingAnonymousBox.isAnonymous = true;
-        // TODO should this actually be the inline box's style? Is that style lost?
-        containingAnonymousBox.style = inlineBox.parent == null ? new CSSStyle() : inlineBox.parent.style.deepCopy();
-
-        // Add the anonymous containing box to the parent's children, and remove the inline box.
-        BoxNode parent = inlineBox.parent;
-        if (parent == null) {
-            // If the parent is null, then the base box node is the root box node. Since the parent of this node
-            // is being changed, the root itself is updated to the containing anonymous box, since this now
-            // contains the previous root box node.
-            rootBoxNode = containingAnonymousBox;
-        } else {
-            int indexInParent = parent.children.indexOf(inlineBox);
-            parent.children.add(indexInParent, containingAnonymousBox);
-            parent.children.remove(inlineBox);
-        }
 
-        // Add the inline box's children to the new containing box, cutting the inline box out of the box tree.
+        // Add the inline box's children to the new containing box.
         containingAnonymousBox.children.addAll(inlineBox.children);
         for (BoxNode child : inlineBox.children) {
             child.parent = containingAnonymousBox;
@@ -203,31 +249,46 @@ public class BoxTreeGenerator {
         return containingAnonymousBox;
     }
 
-    private boolean boxHasValidDisplayConfiguration(BoxNode boxNode) {
+    /**
+     * @param boxNode           The box to check.
+     * @param inlineChildren    Marks the children to treat as inline boxes, whatever their display. May be null.
+     * @return True iff the box does not mix inline and block children, or is an inline box without block children.
+     */
+    private boolean boxHasValidDisplayConfiguration(BoxNode boxNode, boolean[] inlineChildren) {
         if (CSSConstants.tableInnerDisplayTypes.contains(boxNode.innerDisplayType) && !boxNode.innerDisplayType.equals(DisplayType.TABLE_CELL)) {
             // Table boxes do not abide by the flow display types. Only table cells may use flow layout children.
             return true;
         }
 
-        List<BoxNode> blockChildren = boxNode.children.stream().filter(node -> !node.isTextNode && !node.isPseudo).filter(node -> node.outerDisplayType.equals(DisplayType.BLOCK)).toList();
-        List<BoxNode> inlineChildren = boxNode.children.stream().filter(node -> !node.isTextNode && !node.isPseudo).filter(node -> node.outerDisplayType != null && node.outerDisplayType.equals(DisplayType.INLINE)).toList();
-        List<BoxNode> textChildren = boxNode.children.stream().filter(node -> node.isTextNode).toList();
-
-        if (boxNode.outerDisplayType != null && boxNode.outerDisplayType.equals(DisplayType.BLOCK)) {
-            if (blockChildren.size() > 0 && (inlineChildren.size() > 0 || textChildren.size() > 0)) {
-                // The block level element contains both inline (or text) and block elements.
-                return false;
-            }
-        } else if (boxNode.outerDisplayType != null && boxNode.outerDisplayType.equals(DisplayType.INLINE) && !boxNode.innerDisplayType.equals(DisplayType.FLOW_ROOT)) {
-            if (blockChildren.size() > 0) {
-                // The inline level element contains block level elements.
-                return false;
+        boolean hasBlockChildren = false;
+        boolean hasInlineChildren = false;
+        for (int i = 0; i < boxNode.children.size(); i++) {
+            BoxNode child = boxNode.children.get(i);
+            DisplayType childDisplayType = getGroupingDisplayType(child, i, inlineChildren);
+            if (child.isTextNode) {
+                hasInlineChildren = true;
+            } else if (!child.isPseudo && childDisplayType.equals(DisplayType.BLOCK)) {
+                hasBlockChildren = true;
+            } else if (!child.isPseudo && childDisplayType.equals(DisplayType.INLINE)) {
+                hasInlineChildren = true;
             }
         }
 
+        if (boxNode.outerDisplayType.equals(DisplayType.BLOCK)) {
+            // The block level element must not contain both inline (or text) and block elements.
+            return !hasBlockChildren || !hasInlineChildren;
+        } else if (boxNode.outerDisplayType.equals(DisplayType.INLINE) && !boxNode.innerDisplayType.equals(DisplayType.FLOW_ROOT)) {
+            // The inline level element must not contain block level elements.
+            return !hasBlockChildren;
+        }
+
         return true;
     }
 
+    private DisplayType getGroupingDisplayType(BoxNode child, int index, boolean[] inlineChildren) {
+        return inlineChildren != null && inlineChildren[index] ? DisplayType.INLINE : child.outerDisplayType;
+    }
+
     /**
      * Inner and outer displays are required for adding anonymous boxes and for later computing layouts. If a box did
      * not have any display information from the page's styling, it will default to a block box.
@@ -243,64 +304,66 @@ public class BoxTreeGenerator {
             boxNode.outerDisplayType = DisplayType.BLOCK;
             System.out.printf("Setting default outer display for [%s] %s\n", boxNode.correspondingRenderNode.type, boxNode);
         }
+    }
 
+    /**
+     * Replaces each text child of a box within a preformatted element with a text box per line, separated by line
+     * break boxes.
+     * @param boxNode       The box within a preformatted element.
+     */
+    private void separatePreformattedTextLines(BoxNode boxNode) {
+        List<BoxNode> newChildren = new ArrayList<>(boxNode.children.size());
         for (BoxNode child : boxNode.children) {
-            setDisplaysForUnknownElements(child);
+            if (child.isTextNode) {
+                addPreformattedTextLines(child, newChildren);
+            } else {
+                newChildren.add(child);
+            }
         }
+        boxNode.children = newChildren;
     }
 
-    private void separatePreformattedTextLines(BoxNode boxNode, boolean inPre) {
-        if (inPre && boxNode.isTextNode) {
-            List<BoxNode> newTextBoxes = new ArrayList<>();
-            String text = boxNode.correspondingRenderNode.text.substring(boxNode.textStartIndex, boxNode.textEndIndex);
-            List<String> lines = StringUtils.splitStringIncludeEmpty(text, List.of("\r\n", "\n"));
-            if (lines.size() > 1) {
-                int index = 0;
-                for (int i = 0; i < lines.size(); i++) {
-                    String line = lines.get(i);
-                    if (!line.isEmpty()) {
-                        BoxNode textLineBox = new BoxNode(boxNode);
-                        textLineBox.isAnonymous = true;
-                        textLineBox.isTextNode = true;
-                        textLineBox.textStartIndex = index;
-                        textLineBox.textEndIndex = index + line.length();
-                        newTextBoxes.add(textLineBox);
-                    }
-
-                    if (i < lines.size() - 1) {
-                        RenderNode lineBreakRenderNode = new RenderNode(HTMLElements.BR);
-                        lineBreakRenderNode.id = RenderNode.nextId++;
+    private void addPreformattedTextLines(BoxNode boxNode, List<BoxNode> newTextBoxes) {
+        String text = boxNode.correspondingRenderNode.text.subSequence(boxNode.textStartIndex, boxNode.textEndIndex).toString();
+        List<String> lines = StringUtils.splitStringIncludeEmpty(text, List.of("\r\n", "\n"));
+        if (lines.size() <= 1) {
+            newTextBoxes.add(boxNode);
+            return;
+        }
 
-                        BoxNode lineBreakBox = new BoxNode(boxNode);
-                        lineBreakBox.isAnonymous = true;
-                        lineBreakBox.isTextNode = false;
-                        lineBreakBox.textStartIndex = 0;
-                        lineBreakBox.textEndIndex = 0;
-                        lineBreakBox.correspondingRenderNode = lineBreakRenderNode;
-                        lineBreakBox.renderNodeId = lineBreakRenderNode.id;
+        int index = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (!line.isEmpty()) {
+                BoxNode textLineBox = new BoxNode(boxNode);
+                textLineBox.isAnonymous = true;
+                textLineBox.isTextNode = true;
+                textLineBox.textStartIndex = index;
+                textLineBox.textEndIndex = index + line.length();
+                newTextBoxes.add(textLineBox);
+            }
 
-                        newTextBoxes.add(lineBreakBox);
-                    }
+            if (i < lines.size() - 1) {
+                RenderNode lineBreakRenderNode = new RenderNode(HTMLElements.BR);
+                lineBreakRenderNode.id = RenderNode.nextId.getAndIncrement();
 
-                    int newlineLength = 1;
-                    if (StringUtils.substringMatch(text, "\r\n", index + line.length())) {
-                        newlineLength = 2;
-                    }
+                BoxNode lineBreakBox = new BoxNode(boxNode);
+                lineBreakBox.isAnonymous = true;
+                lineBreakBox.isTextNode = false;
+                lineBreakBox.textStartIndex = 0;
+                lineBreakBox.textEndIndex = 0;
+                lineBreakBox.correspondingRenderNode = lineBreakRenderNode;
+                lineBreakBox.renderNodeId = lineBreakRenderNode.id;
 
-                    index += line.length() + newlineLength;
-                }
+                newTextBoxes.add(lineBreakBox);
+            }
 
-                // Remove the previous text box, and insert the new lines instead.
-                int indexInParent = boxNode.parent.children.indexOf(boxNode);
-                boxNode.parent.children.remove(indexInParent);
-                boxNode.parent.children.addAll(indexInParent, newTextBoxes);
+            int newlineLength = 1;
+            if (StringUtils.substringMatch(text, "\r\n", index + line.length())) {
+                newlineLength = 2;
             }
-        } else if (boxNode.correspondingRenderNode.type.equals(HTMLElements.PRE)) {
-            inPre = true;
-        }
 
-        for (int i = 0; i < boxNode.children.size(); i++) {
-            separatePreformattedTextLines(boxNode.children.get(i), inPre);
+            index += line.length() + newlineLength;
         }
     }
 }
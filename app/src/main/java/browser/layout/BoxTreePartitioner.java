@@ -20,7 +20,7 @@ public class BoxTreePartitioner {
         BoxNode currentBox = boxNode;
 
         while (currentBox.parent.id != context.contextRootId) {
-            int indexInParent = currentBox.parent.children.indexOf(currentBox);
+            int indexInParent = currentBox.getIndexInParent();
             boolean previousSiblings = indexInParent > 0;
             if (previousSiblings && currentBox.parent.id != context.contextRootId) {
                 // Since a new branch is being added within this formatting context, set the newly partitioned box flag.
@@ -32,7 +32,7 @@ public class BoxTreePartitioner {
                 List<List<BoxNode>> partitions = partitionChildren(currentBox.parent, indexInParent);
                 currentBox.parent.children = partitions.get(0);
 
-                int parentIndex = currentBox.parent.parent.children.indexOf(currentBox.parent);
+                int parentIndex = currentBox.parent.getIndexInParent();
                 BoxNode newBoxNode = new BoxNode(currentBox.parent);
                 BoxNode originalParent = currentBox.parent;
                 newBoxNode.children = partitions.get(1);
@@ -40,10 +40,8 @@ public class BoxTreePartitioner {
                     childBoxNode.parent = newBoxNode;
                 }
                 newBoxNode.parent = currentBox.parent.parent;
-                newBoxNode.x = null;
-                newBoxNode.y = null;
-                newBoxNode.width = null;
-                newBoxNode.height = null;
+                newBoxNode.clearPosition();
+                newBoxNode.clearSize();
 
                 // Since the original box has left and right spacing, these values are divided between the resulting
                 // two boxes; neither should not have the spacing on both sides.
@@ -75,7 +73,7 @@ public class BoxTreePartitioner {
 
         BoxNode currentBox = boxNode;
         while (currentBox.parent.id != context.contextRootId) {
-            int indexInParent = currentBox.parent.children.indexOf(currentBox);
+            int indexInParent = currentBox.getIndexInParent();
             boolean previousSiblings = indexInParent > 0;
             if (previousSiblings) {
                 return true;
@@ -27,7 +27,7 @@ public class InlineBlockWidthCalculator {
      * @return      The width of the inline-block box.
      */
     public float getWidth(BoxNode boxNode, float availableWidth) {
-        if (boxNode.width != null) {
+        if (boxNode.hasWidth()) {
             return boxNode.width;
         }
 
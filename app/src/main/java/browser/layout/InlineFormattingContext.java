@@ -1,9 +1,7 @@
 package browser.layout;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import browser.css.CSSStyle;
 import browser.model.BoxNode;
@@ -21,22 +19,16 @@ public class InlineFormattingContext {
     public int topLevelPartitionedBoxId = -1;
 
     private final List<BoxNode> tentativeBoxesForLine;
-    private final List<Float> maxHeightPerLine;
-    private final List<Float> yStartPerLine;
-    private final List<Boolean> terminalBoxInLine;
-    private final Map<Integer, Float> rightSpacingPerBox;
-    private final Map<Integer, Float> leftSpacingPerBox;
+    private final IntFloatMap rightSpacingPerBox;
+    private final IntFloatMap leftSpacingPerBox;
 
     public InlineFormattingContext(int id, int rootId) {
         this.id = id;
         this.contextRootId = rootId;
         lineBoxes = new ArrayList<>();
-        maxHeightPerLine = new ArrayList<>();
-        yStartPerLine = new ArrayList<>();
-        terminalBoxInLine = new ArrayList<>();
         tentativeBoxesForLine = new ArrayList<>();
-        rightSpacingPerBox = new HashMap<>();
-        leftSpacingPerBox = new HashMap<>();
+        rightSpacingPerBox = new IntFloatMap();
+        leftSpacingPerBox = new IntFloatMap();
     }
 
     // Public methods
@@ -45,28 +37,26 @@ public class InlineFormattingContext {
         this.rootBox = rootBox;
         startX = rootBox.x + rootBox.style.borderWidthLeft + rootBox.style.paddingLeft;
         endX = startX + rootBox.width - rootBox.style.paddingLeft - rootBox.style.paddingRight - rootBox.style.borderWidthLeft - rootBox.style.borderWidthRight;
-        yStartPerLine.add(rootBox.y + rootBox.style.borderWidthTop + rootBox.style.paddingTop);
-        maxHeightPerLine.add(0f);
-        lineBoxes.add(new LineBox());
-        terminalBoxInLine.add(false);
+        lineBoxes.add(new LineBox(rootBox.y + rootBox.style.borderWidthTop + rootBox.style.paddingTop));
 
         initializeSpacingValues(rootBox);
     }
 
     public float getCurrentLineYStart() {
-        return yStartPerLine.get(yStartPerLine.size() - 1);
+        return lastLineBox().yStart;
     }
 
     public void addBoxToCurrentLine(BoxNode boxNode) {
         tentativeBoxesForLine.add(boxNode);
 
         if (isTerminalInContext(boxNode)) {
-            terminalBoxInLine.set(terminalBoxInLine.size() - 1, true);
+            LineBox lineBox = lastLineBox();
+            lineBox.hasTerminalBox = true;
             for (BoxNode tentativeBoxNode : tentativeBoxesForLine) {
-                lastLineBox().boxes.add(tentativeBoxNode);
-                float tentativeBoxHeight = tentativeBoxNode.height == null ? 0 : tentativeBoxNode.height;
-                if (maxHeightPerLine.get(maxHeightPerLine.size() - 1) < tentativeBoxHeight) {
-                    maxHeightPerLine.set(maxHeightPerLine.size() - 1, tentativeBoxNode.height);
+                lineBox.boxes.add(tentativeBoxNode);
+                float tentativeBoxHeight = tentativeBoxNode.hasHeight() ? tentativeBoxNode.height : 0;
+                if (lineBox.maxHeight < tentativeBoxHeight) {
+                    lineBox.maxHeight = tentativeBoxHeight;
                 }
             }
             tentativeBoxesForLine.clear();
@@ -74,12 +64,8 @@ public class InlineFormattingContext {
     }
 
     public void moveToNextLine() {
-        float lastYStart = yStartPerLine.get(yStartPerLine.size() - 1);
-        float lastMaxHeight = maxHeightPerLine.get(maxHeightPerLine.size() - 1);
-        yStartPerLine.add(lastYStart + lastMaxHeight);
-        maxHeightPerLine.add(0f);
-        lineBoxes.add(new LineBox());
-        terminalBoxInLine.add(false);
+        LineBox lastLineBox = lastLineBox();
+        lineBoxes.add(new LineBox(lastLineBox.yStart + lastLineBox.maxHeight));
 
         // If there are current tentative boxes, they need to be moved to the next line by updating their positions.
         if (tentativeBoxesForLine.size() > 0) {
@@ -87,7 +73,7 @@ public class InlineFormattingContext {
             float parentLeftPadding = tentativeBoxesForLine.get(0).parent.style.paddingLeft;
             float parentLeftBorder = tentativeBoxesForLine.get(0).parent.style.borderWidthLeft;
             float previousX = parentX + (tentativeBoxesForLine.get(0).id == contextRootId ? parentLeftBorder + parentLeftPadding : 0);
-            float y = yStartPerLine.get(yStartPerLine.size() - 1);
+            float y = lastLineBox().yStart;
             for (BoxNode box : tentativeBoxesForLine) {
                 float marginLeft = box.style.marginLeft;
                 box.x = previousX + marginLeft;
@@ -113,14 +99,13 @@ public class InlineFormattingContext {
 
     public void clearTentativeBoxes() {
         for (BoxNode tentativeBox : tentativeBoxesForLine) {
-            tentativeBox.x = null;
-            tentativeBox.y = null;
+            tentativeBox.clearPosition();
         }
         tentativeBoxesForLine.clear();
     }
 
     public boolean currentRowHasTerminalBox() {
-        return terminalBoxInLine.get(terminalBoxInLine.size() - 1);
+        return lastLineBox().hasTerminalBox;
     }
 
     public void setRightSpacingForBox(int id, float value) {
@@ -137,10 +122,7 @@ public class InlineFormattingContext {
      * @return      The right spacing value.
      */
     public float getRightSpacingForBox(int id) {
-        if (!rightSpacingPerBox.containsKey(id)) {
-            return 0;
-        }
-        return rightSpacingPerBox.get(id);
+        return rightSpacingPerBox.get(id, 0);
     }
 
     /**
@@ -149,10 +131,7 @@ public class InlineFormattingContext {
      * @return      The right spacing value.
      */
     public float getLeftSpacingForBox(int id) {
-        if (!leftSpacingPerBox.containsKey(id)) {
-            return 0;
-        }
-        return leftSpacingPerBox.get(id);
+        return leftSpacingPerBox.get(id, 0);
     }
 
     public BoxNode getFirstTopLevelBoxInLine(int lineIndex) {
@@ -219,25 +198,22 @@ public class InlineFormattingContext {
             float inheritedRightSpacing = 0;
             float inheritedLeftSpacing = 0;
 
-            boolean firstInParent = rootBox.parent.children.indexOf(rootBox) == 0;
-            boolean lastInParent = rootBox.parent.children.indexOf(rootBox) == rootBox.parent.children.size() - 1;
+            int indexInParent = rootBox.getIndexInParent();
+            boolean firstInParent = indexInParent == 0;
+            boolean lastInParent = indexInParent == rootBox.parent.children.size() - 1;
 
             if (firstInParent) {
                 parentLeftPadding = rootBox.parent.id == contextRootId ? 0 : rootBox.parent.style.paddingLeft;
                 parentLeftBorder = rootBox.parent.id == contextRootId ? 0 : rootBox.parent.style.borderWidthLeft;
 
-                if (leftSpacingPerBox.containsKey(rootBox.parent.id)) {
-                    inheritedLeftSpacing = leftSpacingPerBox.get(rootBox.parent.id);
-                }
+                inheritedLeftSpacing = leftSpacingPerBox.get(rootBox.parent.id, 0);
             }
 
             if (lastInParent) {
                 parentRightPadding = rootBox.parent.id == contextRootId ? 0 : rootBox.parent.style.paddingRight;
                 parentRightBorder = rootBox.parent.id == contextRootId ? 0 : rootBox.parent.style.borderWidthRight;
 
-                if (rightSpacingPerBox.containsKey(rootBox.parent.id)) {
-                    inheritedRightSpacing = rightSpacingPerBox.get(rootBox.parent.id);
-                }
+                inheritedRightSpacing = rightSpacingPerBox.get(rootBox.parent.id, 0);
             }
 
             rightSpacingPerBox.put(rootBox.id, parentRightBorder + parentRightPadding + rightMargin + inheritedRightSpacing);
@@ -251,6 +227,13 @@ public class InlineFormattingContext {
 
     public static class LineBox {
         public final List<BoxNode> boxes = new ArrayList<>();
+        public final float yStart;
+        public float maxHeight = 0;
+        public boolean hasTerminalBox = false;
+
+        public LineBox(float yStart) {
+            this.yStart = yStart;
+        }
     }
 
 }
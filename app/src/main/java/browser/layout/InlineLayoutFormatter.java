@@ -6,6 +6,7 @@ import browser.css.CSSStyle;
 import browser.model.BoxNode;
 import browser.model.Vector2;
 import browser.parser.HTMLElements;
+import browser.parser.StringUtils;
 
 public class InlineLayoutFormatter {
 
@@ -125,7 +126,7 @@ public class InlineLayoutFormatter {
         BoxNode current = previousBoxInLine;
         while (current != null) {
             boolean sameParent = current.parent.id == boxNode.parent.id;
-            boolean siblings = current.parent.children.indexOf(current) == boxNode.parent.children.indexOf(boxNode) - 1;
+            boolean siblings = current.getIndexInParent() == boxNode.getIndexInParent() - 1;
             if (current.parent != null && sameParent && siblings) {
                 return current;
             }
@@ -137,9 +138,9 @@ public class InlineLayoutFormatter {
     private Vector2 getInlineBoxPreferredSize(BoxNode boxNode) {
         float widthDueToSpacing = boxNode.style.paddingLeft + boxNode.style.paddingRight;
         if (boxNode.isTextNode) {
-            String text = boxNode.correspondingRenderNode.text;
+            CharSequence text = boxNode.correspondingRenderNode.text;
             if (boxNode.textEndIndex > 0) {
-                text = text.substring(boxNode.textStartIndex, boxNode.textEndIndex);
+                text = text.subSequence(boxNode.textStartIndex, boxNode.textEndIndex);
             }
             Vector2 size = textDimensionCalculator.getDimension(text, boxNode.style);
             return new Vector2(size.x + widthDueToSpacing, size.y);
@@ -149,8 +150,8 @@ public class InlineLayoutFormatter {
             Vector2 size = textDimensionCalculator.getDimension(" ", boxNode.style);
             return new Vector2(0, size.y);
         } else if (boxNode.innerDisplayType.equals(CSSStyle.DisplayType.FLOW_ROOT)) {
-            float width = boxNode.width == null ? 0 : boxNode.width;
-            float height = boxNode.height == null ? 0 : boxNode.height;
+            float width = boxNode.hasWidth() ? boxNode.width : 0;
+            float height = boxNode.hasHeight() ? boxNode.height : 0;
             return new Vector2(width, height);
         } else if (boxNode.innerDisplayType.equals(CSSStyle.DisplayType.TABLE)) {
             return new Vector2(boxNode.width, 0);
@@ -181,7 +182,7 @@ public class InlineLayoutFormatter {
             Vector2 preferredSize = getInlineBoxPreferredSize(boxNode);
             placeBoxFullyOnCurrentLine(boxNode, context, x, preferredSize);
         } else {
-            int indexInParent = boxNode.parent.children.indexOf(boxNode);
+            int indexInParent = boxNode.getIndexInParent();
             boxNode.parent.children.add(indexInParent + 1, remainingBox);
             boxTreePartitioner.partition(remainingBox, context);
 
@@ -189,8 +190,8 @@ public class InlineLayoutFormatter {
             context.setRightSpacingForBox(remainingBox.id, context.getRightSpacingForBox(boxNode.id));
             context.setRightSpacingForBox(boxNode.id, 0);
 
-            String substring = boxNode.correspondingRenderNode.text.substring(boxNode.textStartIndex, boxNode.textEndIndex);
-            Vector2 newDimensions = textDimensionCalculator.getDimension(substring, boxNode.style);
+            CharSequence text = boxNode.correspondingRenderNode.text.subSequence(boxNode.textStartIndex, boxNode.textEndIndex);
+            Vector2 newDimensions = textDimensionCalculator.getDimension(text, boxNode.style);
             boxNode.x = x;
             boxNode.y = context.getCurrentLineYStart();
             boxNode.width = newDimensions.x;
@@ -211,9 +212,9 @@ public class InlineLayoutFormatter {
 
         BoxNode finalBox = previousLineBoxes.get(previousLineBoxes.size() - 1);
         if (finalBox.isTextNode) {
-            String text = finalBox.correspondingRenderNode == null ? null : finalBox.correspondingRenderNode.text.substring(finalBox.textStartIndex, finalBox.textEndIndex);
+            CharSequence text = finalBox.correspondingRenderNode == null ? null : finalBox.correspondingRenderNode.text.subSequence(finalBox.textStartIndex, finalBox.textEndIndex);
             if (text != null && Character.isWhitespace(text.charAt(text.length() - 1))) {
-                text = text.stripTrailing();
+                text = StringUtils.stripTrailing(text);
                 finalBox.textEndIndex = text.length();
                 finalBox.width = textDimensionCalculator.getDimension(text, finalBox.style).x;
             }
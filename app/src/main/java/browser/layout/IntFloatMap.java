@@ -0,0 +1,88 @@
+package browser.layout;
+
+/**
+ * A hash map from int keys to float values, stored in open addressed arrays so that neither keys nor values are boxed.
+ * Layout keeps values per box id, which are looked up for every box placed.
+ */
+class IntFloatMap {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] keys;
+    private float[] values;
+    private boolean[] used;
+    private int size = 0;
+
+    IntFloatMap() {
+        keys = new int[INITIAL_CAPACITY];
+        values = new float[INITIAL_CAPACITY];
+        used = new boolean[INITIAL_CAPACITY];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean containsKey(int key) {
+        return used[slot(key)];
+    }
+
+    /**
+     * @param key           The key to look up.
+     * @param defaultValue  The value to return if the key is not in the map.
+     * @return The value of the key, or the default value.
+     */
+    float get(int key, float defaultValue) {
+        int slot = slot(key);
+        return used[slot] ? values[slot] : defaultValue;
+    }
+
+    void put(int key, float value) {
+        int slot = slot(key);
+        if (!used[slot]) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+                slot = slot(key);
+            }
+            used[slot] = true;
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value;
+    }
+
+    /**
+     * @return The slot holding the key, or the empty slot where it would be added.
+     */
+    private int slot(int key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        float[] oldValues = values;
+        boolean[] oldUsed = used;
+        keys = new int[oldKeys.length * 2];
+        values = new float[oldKeys.length * 2];
+        used = new boolean[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = slot(oldKeys[i]);
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    static int mix(int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+}
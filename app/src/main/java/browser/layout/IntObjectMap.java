@@ -0,0 +1,72 @@
+package browser.layout;
+
+/**
+ * A hash map from int keys to objects, stored in open addressed arrays so that the keys are not boxed. Null values
+ * are not stored, so a missing key and a null value are the same.
+ * @param <V>   The type of the values.
+ */
+class IntObjectMap<V> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int size = 0;
+
+    IntObjectMap() {
+        keys = new int[INITIAL_CAPACITY];
+        values = new Object[INITIAL_CAPACITY];
+    }
+
+    int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        return (V) values[slot(key)];
+    }
+
+    void put(int key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("IntObjectMap does not store null values");
+        }
+        int slot = slot(key);
+        if (values[slot] == null) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+                slot = slot(key);
+            }
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value;
+    }
+
+    /**
+     * @return The slot holding the key, or the empty slot where it would be added.
+     */
+    private int slot(int key) {
+        int mask = keys.length - 1;
+        int slot = IntFloatMap.mix(key) & mask;
+        while (values[slot] != null && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new Object[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+}
@@ -1,7 +1,5 @@
 package browser.layout;
 
-import java.util.List;
-
 import browser.constants.PseudoElementConstants;
 import browser.css.CSSStyle;
 import browser.model.BoxNode;
@@ -21,6 +19,15 @@ public class ListMarkerGenerator {
      * @param renderNode        The render node to add markers to.
      */
     public static void addMarkers(RenderNode renderNode) {
+        addMarkers(renderNode, renderNode.getIndexInParent(), 0);
+    }
+
+    /**
+     * @param indexInParent     The index of the render node in its parent's children.
+     * @param itemIndex         The index of the render node among its parent's children that are not markers, used to
+     *                          number the items of ordered lists.
+     */
+    private static void addMarkers(RenderNode renderNode, int indexInParent, int itemIndex) {
         if (renderNode.style.auxiliaryDisplay != null && renderNode.style.auxiliaryDisplay.equals(CSSStyle.DisplayType.LIST_ITEM)) {
             RenderNode marker = new RenderNode(HTMLElements.PSEUDO_MARKER);
             marker.style = renderNode.style.deepCopy();
@@ -33,19 +40,18 @@ public class ListMarkerGenerator {
             // value correctly so that the property is not inherited later.
 //            marker.style.apply("font-size", String.valueOf(renderNode.style.fontSize), CSSRulePrecedent.ID());
             if (renderNode.parent.type.equals(HTMLElements.OL)) {
-                List<RenderNode> nonMarkerChildren = renderNode.parent.children.stream().filter(node -> !node.type.equals(HTMLElements.PSEUDO_MARKER)).toList();
-                int indexInParent = nonMarkerChildren.indexOf(renderNode);
-                marker.properties.put(PseudoElementConstants.MARKER_INDEX_KEY, indexInParent);
+                marker.setProperty(PseudoElementConstants.MARKER_INDEX_KEY, itemIndex);
             }
-            int indexInParent = renderNode.parent.children.indexOf(renderNode);
             renderNode.parent.children.add(indexInParent + 1, marker);
             marker.parent = renderNode.parent;
         }
 
+        int childItemIndex = 0;
         for (int i = 0; i < renderNode.children.size(); i++) {
             RenderNode child = renderNode.children.get(i);
             if (!HTMLElements.isPseudoElement(child.type)) {
-                addMarkers(child);
+                addMarkers(child, i, childItemIndex);
+                childItemIndex++;
             }
         }
     }
@@ -59,8 +65,9 @@ public class ListMarkerGenerator {
         if (renderNode.type.equals(HTMLElements.PSEUDO_MARKER)) {
             boolean insideOrderedList = renderNode.parent.type.equals(HTMLElements.OL);
             String markerText = bulletPointUnicode;
-            if (insideOrderedList && renderNode.properties.containsKey(PseudoElementConstants.MARKER_INDEX_KEY)) {
-                markerText = String.format("%d.", (int) renderNode.properties.get(PseudoElementConstants.MARKER_INDEX_KEY) + 1);
+            Object markerIndex = renderNode.getProperty(PseudoElementConstants.MARKER_INDEX_KEY);
+            if (insideOrderedList && markerIndex != null) {
+                markerText = String.format("%d.", (int) markerIndex + 1);
             }
             // TODO marker should have same font styling as its corresponding list item.
             // TODO support marker style types, as set by the list-style-type CSS property.
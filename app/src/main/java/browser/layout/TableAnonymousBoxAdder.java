@@ -53,77 +53,130 @@ public class TableAnonymousBoxAdder {
      * @param boxNode       The box node to add anonymous boxes to.
      */
     public void addAnonymousBoxes(BoxNode boxNode) {
-        List<BoxNode> queue = new ArrayList<>();
-        queue.add(boxNode);
-
-        while (!queue.isEmpty()) {
-            BoxNode currentBoxNode = queue.remove(0);
-            boolean isTableBox = CSSConstants.tableInnerDisplayTypes.contains(currentBoxNode.innerDisplayType);
-            boolean validParentType = hasValidParentType(currentBoxNode);
-            boolean validChildType = isValidChildType(currentBoxNode);
-
-            if (isTableBox && (!validParentType || !validChildType)) {
-                Map.Entry<Set<DisplayType>, DisplayType> addedParentEntry =
-                        (!validParentType ? addedAnonymousParentType : addedAnonymousChildType).entrySet().stream()
-                        .filter(e -> e.getKey().contains(currentBoxNode.innerDisplayType)).toList().get(0);
-                DisplayType anonymousParentType = addedParentEntry.getValue();
-                // If an anonymous table box is being added within an inline box, the added box should be an inline table.
-                if (anonymousParentType.equals(DisplayType.TABLE) && currentBoxNode.parent != null && currentBoxNode.parent.outerDisplayType.equals(DisplayType.INLINE)) {
-                    anonymousParentType = DisplayType.INLINE_TABLE;
+        addAnonymousSubtreeBoxes(boxNode);
+        addAnonymousRootBoxes(boxNode);
+    }
+
+    // Package-private methods
+
+    /**
+     * Adds the anonymous boxes needed between a box and its children. Each run of consecutive children that are not
+     * valid in the box, and need the same type of anonymous parent, is moved into one anonymous box. The anonymous boxes
+     * may not be valid in the box either, so the children are checked again until they all are. Since the anonymous
+     * boxes go up the table hierarchy, this takes a few passes over the children at most.
+     * @param boxNode       The box whose children to check.
+     */
+    void addAnonymousChildBoxes(BoxNode boxNode) {
+        boolean addedBoxes;
+        do {
+            addedBoxes = addAnonymousParentsToChildren(boxNode);
+        } while (addedBoxes);
+    }
+
+    /**
+     * Adds anonymous parents above the root of a box tree, if the root has a table display that is not valid for a
+     * root. The given box remains the root that is laid out.
+     * @param rootBoxNode       The root box.
+     */
+    void addAnonymousRootBoxes(BoxNode rootBoxNode) {
+        BoxNode boxNode = rootBoxNode;
+        Map.Entry<Set<DisplayType>, DisplayType> addedParentEntry = getAddedParentEntry(boxNode);
+        while (addedParentEntry != null) {
+            BoxNode anonymousBox = createAnonymousBox(boxNode, addedParentEntry.getValue());
+            anonymousBox.children.add(boxNode);
+            boxNode.parent = anonymousBox;
+            boxNode = anonymousBox;
+            addedParentEntry = getAddedParentEntry(boxNode);
+        }
+    }
+
+    // Private methods
+
+    private void addAnonymousSubtreeBoxes(BoxNode boxNode) {
+        for (BoxNode child : boxNode.children) {
+            addAnonymousSubtreeBoxes(child);
+        }
+        addAnonymousChildBoxes(boxNode);
+    }
+
+    /**
+     * Inserts new anonymous boxes in the place of the children of a box that are not valid in it. Each anonymous box
+     * takes the invalid child as well as the consecutive siblings after it that have an inner display type in the
+     * same set of types as the child.
+     * @param boxNode       The box whose children to check.
+     * @return      True iff any anonymous boxes were added.
+     */
+    private boolean addAnonymousParentsToChildren(BoxNode boxNode) {
+        List<BoxNode> children = boxNode.children;
+        List<BoxNode> newChildren = null;
+        int i = 0;
+        while (i < children.size()) {
+            BoxNode child = children.get(i);
+            Map.Entry<Set<DisplayType>, DisplayType> addedParentEntry = getAddedParentEntry(child);
+            if (addedParentEntry == null) {
+                if (newChildren != null) {
+                    newChildren.add(child);
                 }
-                replaceWithAnonymousBox(currentBoxNode, anonymousParentType, addedParentEntry.getKey());
-                removeDescendantsOfBoxFromQueue(currentBoxNode.parent, queue);
-                queue.add(currentBoxNode.parent);
-            } else {
-                queue.addAll(currentBoxNode.children);
+                i++;
+                continue;
             }
+
+            if (newChildren == null) {
+                newChildren = new ArrayList<>(children.subList(0, i));
+            }
+            BoxNode anonymousBox = createAnonymousBox(child, addedParentEntry.getValue());
+            anonymousBox.style = boxNode.style.deepCopy();
+            anonymousBox.parent = boxNode;
+            while (i < children.size() && addedParentEntry.getKey().contains(children.get(i).innerDisplayType)) {
+                BoxNode sibling = children.get(i);
+                sibling.parent = anonymousBox;
+                anonymousBox.children.add(sibling);
+                i++;
+            }
+            newChildren.add(anonymousBox);
+        }
+
+        if (newChildren == null) {
+            return false;
         }
+        boxNode.children = newChildren;
+        return true;
     }
 
-    // Private methods
+    /**
+     * Finds the anonymous parent a box needs within the table context.
+     * @param boxNode       The box node to check.
+     * @return      The entry with the anonymous parent's inner display, and the set of display types that the anonymous
+     * parent takes as children. Null if the box is not a table box, or is valid where it is.
+     */
+    private Map.Entry<Set<DisplayType>, DisplayType> getAddedParentEntry(BoxNode boxNode) {
+        if (!CSSConstants.tableInnerDisplayTypes.contains(boxNode.innerDisplayType)) {
+            return null;
+        } else if (!hasValidParentType(boxNode)) {
+            return findEntry(addedAnonymousParentType, boxNode.innerDisplayType);
+        } else if (!isValidChildType(boxNode)) {
+            return findEntry(addedAnonymousChildType, boxNode.innerDisplayType);
+        }
+        return null;
+    }
 
     /**
-     * Inserts a new anonymous box in the place of a given box. The new anonymous box will have the given inner display
-     * type, and will take the given box as well as any other siblings that have an inner display type in the given list
-     * as children. The siblings must be consecutive with the original box.
-     * @param boxNode       The box to replace.
+     * Creates an anonymous box to become the parent of a box.
+     * @param boxNode       The box that the anonymous box will contain.
      * @param type      The inner display of the anonymous box.
-     * @param addedSiblingTypes     The types of consecutive sibling boxes to remove as children of the anonymous box.
+     * @return      The anonymous box, which has no children yet.
      */
-    private void replaceWithAnonymousBox(BoxNode boxNode, DisplayType type, Set<DisplayType> addedSiblingTypes) {
+    private BoxNode createAnonymousBox(BoxNode boxNode, DisplayType type) {
         BoxNode anonymousBox = new BoxNode();
         anonymousBox.isAnonymous = true;
         anonymousBox.outerDisplayType = DisplayType.BLOCK;
         anonymousBox.innerDisplayType = type;
-        anonymousBox.id = BoxNode.nextId++;
-        BoxNode originalParent = boxNode.parent;
-        int originalIndexInParent = boxNode.parent == null ? 0 : boxNode.parent.children.indexOf(boxNode);
-        List<BoxNode> newChildren = new ArrayList<>();
-        if (boxNode.parent == null) {
-            boxNode.parent = anonymousBox;
-            newChildren.add(boxNode);
-        } else {
-            anonymousBox.style = boxNode.parent.style.deepCopy();
-            int indexInParent = boxNode.parent.children.indexOf(boxNode);
-            for (int i = indexInParent; i < boxNode.parent.children.size(); i++) {
-                BoxNode sibling = boxNode.parent.children.get(i);
-                if (addedSiblingTypes.contains(sibling.innerDisplayType)) {
-                    newChildren.add(sibling);
-                } else {
-                    break;
-                }
-            }
-            for (BoxNode child : newChildren) {
-                boxNode.parent.children.remove(child);
-                child.parent = anonymousBox;
-            }
-        }
-
-        anonymousBox.children = newChildren;
-        anonymousBox.parent = originalParent;
-        if (originalParent != null) {
-            originalParent.children.add(originalIndexInParent, anonymousBox);
+        // If an anonymous table box is being added within an inline box, the added box should be an inline table.
+        if (type.equals(DisplayType.TABLE) && boxNode.parent != null && boxNode.parent.outerDisplayType.equals(DisplayType.INLINE)) {
+            anonymousBox.innerDisplayType = DisplayType.INLINE_TABLE;
         }
+        anonymousBox.id = BoxNode.nextId.getAndIncrement();
+        return anonymousBox;
     }
 
     /**
@@ -143,10 +196,9 @@ public class TableAnonymousBoxAdder {
         } else if (boxNode.parent == null) {
             return validRootTableTypes.contains(boxNode.innerDisplayType);
         }
-        Optional<Set<DisplayType>> requiredParentTypeOptional = requiredParentType.entrySet().stream()
-                .filter(e -> e.getKey().contains(boxNode.innerDisplayType)).map(Map.Entry::getValue).findFirst();
-        if (requiredParentTypeOptional.isPresent()) {
-            Set<DisplayType> allowedParentTypes = requiredParentTypeOptional.get();
+        Map.Entry<Set<DisplayType>, Set<DisplayType>> requiredParentTypeEntry = findEntry(requiredParentType, boxNode.innerDisplayType);
+        if (requiredParentTypeEntry != null) {
+            Set<DisplayType> allowedParentTypes = requiredParentTypeEntry.getValue();
             return allowedParentTypes.contains(boxNode.parent.innerDisplayType);
         }
         return false;
@@ -168,20 +220,23 @@ public class TableAnonymousBoxAdder {
         } else if (boxNode.parent == null) {
             return validRootTableTypes.contains(boxNode.innerDisplayType);
         }
-        Optional<Set<DisplayType>> requiredChildTypeOptional = requiredChildType.entrySet().stream()
-                .filter(e -> e.getKey().contains(boxNode.parent.innerDisplayType)).map(Map.Entry::getValue).findFirst();
-        if (requiredChildTypeOptional.isPresent()) {
-            Set<DisplayType> allowedChildTypes = requiredChildTypeOptional.get();
+        Map.Entry<Set<DisplayType>, Set<DisplayType>> requiredChildTypeEntry = findEntry(requiredChildType, boxNode.parent.innerDisplayType);
+        if (requiredChildTypeEntry != null) {
+            Set<DisplayType> allowedChildTypes = requiredChildTypeEntry.getValue();
             return allowedChildTypes.contains(boxNode.innerDisplayType);
         }
         return false;
     }
 
-    private void removeDescendantsOfBoxFromQueue(BoxNode rootBoxNode, List<BoxNode> queue) {
-        for (int i = queue.size() - 1; i >= 0; i--) {
-            if (queue.get(i).isDescendantOf(rootBoxNode.id)) {
-                queue.remove(i);
+    /**
+     * @return The entry of the map whose set of display types contains the given type, or null if there is none.
+     */
+    private static <V> Map.Entry<Set<DisplayType>, V> findEntry(Map<Set<DisplayType>, V> map, DisplayType type) {
+        for (Map.Entry<Set<DisplayType>, V> entry : map.entrySet()) {
+            if (entry.getKey().contains(type)) {
+                return entry;
             }
         }
+        return null;
     }
 }
@@ -54,18 +54,18 @@ public class TableLayoutFormatter {
 
     public float getHeightFromChildren(BoxNode boxNode, TableFormattingContext context) {
         if (boxNode.children.size() == 0) {
-            return boxNode.height == null ? 0 : boxNode.height;
+            return boxNode.hasHeight() ? boxNode.height : 0;
         }
 
         // TODO calculate cell, row group, and table sizes based on the context as well, not based on children sizes.
         if (boxNode.innerDisplayType.equals(TABLE_ROW)) {
-            int rowIndex = boxNode.parent.children.indexOf(boxNode);
+            int rowIndex = boxNode.getIndexInParent();
             return context.rowHeights.get(rowIndex);
         }
 
         float maxY = 0;
         for (BoxNode childBox : boxNode.children) {
-            float childHeight = childBox.height == null ? 0 : childBox.height;
+            float childHeight = childBox.hasHeight() ? childBox.height : 0;
             float newY = childBox.y + childHeight;
             maxY = Math.max(maxY, newY);
         }
@@ -157,9 +157,15 @@ public class TableLayoutFormatter {
      * @param context       The table formatting context.
      */
     private void placeCell(BoxNode boxNode, TableFormattingContext context) {
-        int rowIndex = boxNode.parent.parent.children.indexOf(boxNode.parent);
-        List<Integer> rowCellIds = context.rows.get(rowIndex).cells.stream().map(cell -> cell.boxNode.id).toList();
-        int startingColumn = rowCellIds.indexOf(boxNode.id);
+        int rowIndex = boxNode.parent.getIndexInParent();
+        List<TableCell> rowCells = context.rows.get(rowIndex).cells;
+        int startingColumn = -1;
+        for (int i = 0; i < rowCells.size(); i++) {
+            if (rowCells.get(i).boxNode.id == boxNode.id) {
+                startingColumn = i;
+                break;
+            }
+        }
 
         float x = context.lastPlacedRow.x + context.lastPlacedRow.style.paddingLeft;
         if (startingColumn > 0) {
@@ -270,7 +276,7 @@ public class TableLayoutFormatter {
         context.width = tableWidth;
         context.height = tableHeight;
         context.availableWidth = availableWidth;
-        if (boxNode.width != null) {
+        if (boxNode.hasWidth()) {
             context.fixedWidth = boxNode.width;
             context.hasFixedWidth = true;
         }
@@ -351,7 +357,7 @@ public class TableLayoutFormatter {
             totalMaxWidth += width;
         }
 
-        if (context.tableBoxNode.width != null) {
+        if (context.tableBoxNode.hasWidth()) {
             // The table has fixed width, update cells or table width.
             float width = context.tableBoxNode.width;
             context.columnWidths = columnMinimumWidths;
@@ -414,7 +420,7 @@ public class TableLayoutFormatter {
             totalMinHeight += height;
         }
 
-        if (context.tableBoxNode.height != null) {
+        if (context.tableBoxNode.hasHeight()) {
             // The table has fixed height, update cells or table height.
             float height = context.tableBoxNode.height;
             context.rowHeights = rowMinimumHeights;
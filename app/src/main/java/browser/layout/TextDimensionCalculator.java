@@ -1,34 +1,40 @@
 package browser.layout;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.scene.text.Text;
 
 import browser.css.CSSStyle;
+import browser.model.CacheStatistics;
 import browser.model.Vector2;
 
 import lombok.Data;
+import lombok.Getter;
 
 public class TextDimensionCalculator {
 
-    private final Map<Integer, Vector2> cache = new HashMap<>();
+    private final Map<Integer, Vector2> cache = new ConcurrentHashMap<>();
+    @Getter
+    private final CacheStatistics cacheStatistics = new CacheStatistics();
 
     /**
      * Determine the width and height of the box containing some text based on its CSS styling.
-     * @param string      The text to determine the size of.
+     * @param string      The text to determine the size of. Only text that is not in the cache is copied into a String.
      * @param style     The CSS rules applying to the text.
      * @return      A vector of the text's width and height;
      */
-    public Vector2 getDimension(String string, CSSStyle style) {
+    public Vector2 getDimension(CharSequence string, CSSStyle style) {
         int key = new TextCacheKey(string, style.fontFamily, style.fontSize, style.fontWeight.ordinal()).hashCode();
         if (cache.containsKey(key)) {
+            cacheStatistics.recordHit();
             return cache.get(key);
         }
+        cacheStatistics.recordMiss();
 
-        Text text = new Text(string);
+        Text text = new Text(string.toString());
         FontWeight fontWeight = FontWeight.NORMAL;
         if (style.fontWeight == CSSStyle.fontWeightType.BOLD) {
             fontWeight = FontWeight.BOLD;
@@ -44,7 +50,8 @@ public class TextDimensionCalculator {
 
     @Data
     private static class TextCacheKey {
-        private final String text;
+        // A String or TextSlice, which have the same hash code for the same text.
+        private final CharSequence text;
         private final String fontFamily;
         private final float fontSize;
         private final int fontWeight;
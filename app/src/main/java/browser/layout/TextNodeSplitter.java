@@ -8,6 +8,7 @@ import java.util.List;
 import browser.css.CSSStyle;
 import browser.model.BoxNode;
 import browser.model.Vector2;
+import browser.parser.StringUtils;
 
 public class TextNodeSplitter {
 
@@ -27,8 +28,8 @@ public class TextNodeSplitter {
             return false;
         }
 
-        String text = boxNode.correspondingRenderNode.text.substring(boxNode.textStartIndex, boxNode.textEndIndex);
-        return text.contains(" ");
+        CharSequence text = boxNode.correspondingRenderNode.text.subSequence(boxNode.textStartIndex, boxNode.textEndIndex);
+        return StringUtils.indexOf(text, ' ', 0) != -1;
     }
 
     /**
@@ -56,7 +57,7 @@ public class TextNodeSplitter {
         int currentLineEndIndex = 0;
         float currentAvailableWidth = firstLineAvailableWidth;
         List<String> wordsInCurrentLine = new ArrayList<>();
-        String[] words = boxNode.correspondingRenderNode.text.split("\s");
+        String[] words = boxNode.correspondingRenderNode.text.toString().split("\s");
         for (String word : words) {
             float width = textDimensionCalculator.getDimension(word, style).x;
             float widthForWord = (wordsInCurrentLine.size() == 0 ? 0 : spaceWidth) + width;
@@ -104,13 +105,16 @@ public class TextNodeSplitter {
         }
 
         CSSStyle style = boxNode.style;
-        String text = boxNode.correspondingRenderNode.text.substring(boxNode.textStartIndex, boxNode.textEndIndex);
-        Vector2 textDimension = textDimensionCalculator.getDimension(text, style);
+        CharSequence boxText = boxNode.correspondingRenderNode.text.subSequence(boxNode.textStartIndex, boxNode.textEndIndex);
+        Vector2 textDimension = textDimensionCalculator.getDimension(boxText, style);
         if (textDimension.x <= availableWidth + DELTA) {
             // The text fits in the available space. No extra node is needed.
             return null;
         }
 
+        // The text is only copied when it needs to be split into words.
+        String text = boxText.toString();
+
         int leadingSpaces = countLeadingSpaces(text);
         int trailingSpaces = countTrailingSpaces(text);
 
@@ -154,10 +158,10 @@ public class TextNodeSplitter {
         BoxNode newBoxNode = new BoxNode(boxNode);
         newBoxNode.textStartIndex = currentEndIndex + (containsSpace ? 1 : 0);
         newBoxNode.whiteSpaceAfter = containsSpace;
-        String newBoxText = newBoxNode.correspondingRenderNode.text.substring(newBoxNode.textStartIndex, newBoxNode.textEndIndex);
+        CharSequence newBoxText = newBoxNode.correspondingRenderNode.text.subSequence(newBoxNode.textStartIndex, newBoxNode.textEndIndex);
         boxNode.textEndIndex = currentEndIndex;
 
-        if (newBoxText.isBlank() || newBoxText.isEmpty()) {
+        if (StringUtils.isBlank(newBoxText)) {
             return null;
         }
 
@@ -176,14 +180,14 @@ public class TextNodeSplitter {
         if (!boxNode.isTextNode) {
             return false;
         } else {
-            String text = boxNode.correspondingRenderNode.text.substring(boxNode.textStartIndex, boxNode.textEndIndex);
+            CharSequence text = boxNode.correspondingRenderNode.text.subSequence(boxNode.textStartIndex, boxNode.textEndIndex);
             int leadingSpaces = countLeadingSpaces(text);
-            int spaceIndex = text.indexOf(" ", leadingSpaces);
+            int spaceIndex = StringUtils.indexOf(text, ' ', leadingSpaces);
             if (spaceIndex == -1) {
                 return false;
             }
 
-            String firstWord = text.substring(0, spaceIndex);
+            CharSequence firstWord = text.subSequence(0, spaceIndex);
             float firstWordWidth = textDimensionCalculator.getDimension(firstWord, boxNode.style).x;
             return firstWordWidth <= availableWidth;
         }
@@ -200,7 +204,7 @@ public class TextNodeSplitter {
         return boxes;
     }
 
-    private int countLeadingSpaces(String string) {
+    private int countLeadingSpaces(CharSequence string) {
         int i = 0;
         while (i < string.length() && string.charAt(i) == ' ') {
             i++;
@@ -208,7 +212,7 @@ public class TextNodeSplitter {
         return i;
     }
 
-    private int countTrailingSpaces(String string) {
+    private int countTrailingSpaces(CharSequence string) {
         int i = string.length() - 1;
         int count = 0;
         while (i >= 0 && string.charAt(i) == ' ') {
@@ -0,0 +1,186 @@
+package browser.model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The attributes of an HTML tag, stored in parallel arrays of names and values. Most tags have no more than a few
+ * attributes, so lookups scan the names, and a map without attributes allocates no arrays. Attributes are iterated in
+ * the order they were added. Values can be null, for attributes without a value.
+ */
+public class AttributeMap extends AbstractMap<String, String> {
+
+    private static final int INITIAL_CAPACITY = 2;
+
+    private String[] names;
+    private String[] values;
+    private int size = 0;
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object name) {
+        return indexOf(name) != -1;
+    }
+
+    @Override
+    public String get(Object name) {
+        int index = indexOf(name);
+        return index == -1 ? null : values[index];
+    }
+
+    @Override
+    public String put(String name, String value) {
+        Objects.requireNonNull(name);
+        int index = indexOf(name);
+        if (index != -1) {
+            String previous = values[index];
+            values[index] = value;
+            return previous;
+        }
+        if (names == null) {
+            names = new String[INITIAL_CAPACITY];
+            values = new String[INITIAL_CAPACITY];
+        } else if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        names[size] = name;
+        values[size] = value;
+        size++;
+        return null;
+    }
+
+    @Override
+    public String remove(Object name) {
+        int index = indexOf(name);
+        if (index == -1) {
+            return null;
+        }
+        String previous = values[index];
+        removeAt(index);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        names = null;
+        values = null;
+        size = 0;
+    }
+
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<String, String>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private int indexOf(Object name) {
+        for (int i = 0; i < size; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void removeAt(int index) {
+        System.arraycopy(names, index + 1, names, index, size - index - 1);
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        names[size] = null;
+        values[size] = null;
+    }
+
+    private class EntryIterator implements Iterator<Map.Entry<String, String>> {
+        private int next = 0;
+        private int last = -1;
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        public Map.Entry<String, String> next() {
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+            last = next++;
+            return new Entry(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last == -1) {
+                throw new IllegalStateException();
+            }
+            removeAt(last);
+            next = last;
+            last = -1;
+        }
+    }
+
+    /**
+     * An attribute of the map, which reads and writes the map's arrays.
+     */
+    private class Entry implements Map.Entry<String, String> {
+        private final int index;
+
+        private Entry(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public String getKey() {
+            return names[index];
+        }
+
+        @Override
+        public String getValue() {
+            return values[index];
+        }
+
+        @Override
+        public String setValue(String value) {
+            String previous = values[index];
+            values[index] = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Map.Entry<?, ?> entry && Objects.equals(getKey(), entry.getKey()) &&
+                    Objects.equals(getValue(), entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+
+}
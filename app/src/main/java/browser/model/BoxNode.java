@@ -5,12 +5,14 @@ import static browser.css.CSSStyle.DisplayType;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import browser.css.CSSStyle;
 
 public class BoxNode {
 
-    public static int nextId = 0;
+    // Ids are unique across all trees, since pipelines on different threads share the counter.
+    public static final AtomicInteger nextId = new AtomicInteger();
 
     public int id;
     public List<BoxNode> children = new ArrayList<>();
@@ -20,17 +22,19 @@ public class BoxNode {
     public int blockFormattingContextId = -1;
     public int tableFormattingContextId = -1;
     public RenderNode correspondingRenderNode = null;
-    public CSSStyle style = new CSSStyle();
+    public CSSStyle style;
     public DisplayType outerDisplayType;
     public DisplayType innerDisplayType;
     public DisplayType auxiliaryDisplayType = null;
     public boolean isAnonymous = false;
     public boolean isTextNode = false;
     public boolean isPseudo = false;
-    public Float x = null;
-    public Float y = null;
-    public Float width = null;
-    public Float height = null;
+    // The position and size of the box, which are NaN until layout sets them. Use hasWidth() and hasHeight() to check
+    // whether a size has been set, since NaN compares unequal to everything, including itself.
+    public float x = Float.NaN;
+    public float y = Float.NaN;
+    public float width = Float.NaN;
+    public float height = Float.NaN;
     public boolean whiteSpaceAfter;
 
     // The range of indices for the text of this node: from textStartIndex up to (but not including) textEndIndex.
@@ -41,10 +45,24 @@ public class BoxNode {
     // instances where a block box's width should be shrunk to its content. This flag enables that shrinking.
     public boolean shrinkBlockWidthToContent = false;
 
-    public BoxNode() {}
+    // The cached index of this node in its parent's children. Use getIndexInParent(), which checks it.
+    private int indexInParent = -1;
+    // The index of this node in the BoxArena of the last layout of its tree. Use BoxArena.indexOf(), which checks it.
+    public int arenaIndex = -1;
+
+    public BoxNode() {
+        style = new CSSStyle();
+    }
+
+    /**
+     * @param style     The style of the new box, which the box takes without copying it.
+     */
+    public BoxNode(CSSStyle style) {
+        this.style = style;
+    }
 
     public BoxNode(BoxNode other) {
-        this.id = nextId++;
+        this.id = nextId.getAndIncrement();
         this.parent = other.parent;
         this.renderNodeId = other.renderNodeId;
         this.inlineFormattingContextId = other.inlineFormattingContextId;
@@ -73,8 +91,8 @@ public class BoxNode {
                 other.innerDisplayType != innerDisplayType || other.isAnonymous != isAnonymous ||
                 other.isTextNode != isTextNode || ((parent == null) != (other.parent == null)) ||
                 (parent != null && (parent.id != other.parent.id)) || other.children.size() != children.size() ||
-                renderNodeId != other.renderNodeId || !Objects.equals(x, other.x) || !Objects.equals(y, other.y) ||
-                !Objects.equals(width, other.width) || !Objects.equals(height, other.height) ||
+                renderNodeId != other.renderNodeId || Float.compare(x, other.x) != 0 || Float.compare(y, other.y) != 0 ||
+                Float.compare(width, other.width) != 0 || Float.compare(height, other.height) != 0 ||
                 !Objects.equals(textStartIndex, other.textStartIndex) || !Objects.equals(textEndIndex, other.textEndIndex) ||
                 whiteSpaceAfter != other.whiteSpaceAfter) {
             return false;
@@ -117,6 +135,30 @@ public class BoxNode {
         return string.toString();
     }
 
+    public boolean hasWidth() {
+        return !Float.isNaN(width);
+    }
+
+    public boolean hasHeight() {
+        return !Float.isNaN(height);
+    }
+
+    /**
+     * Marks the position of the box as not yet set, for a box that has to be placed again.
+     */
+    public void clearPosition() {
+        x = Float.NaN;
+        y = Float.NaN;
+    }
+
+    /**
+     * Marks the size of the box as not yet set, for a box that has to be sized again.
+     */
+    public void clearSize() {
+        width = Float.NaN;
+        height = Float.NaN;
+    }
+
     public boolean isDescendantOf(int id) {
         if (parent == null) {
             return false;
@@ -129,6 +171,25 @@ public class BoxNode {
         return parent.isDescendantOf(id);
     }
 
+    /**
+     * @return The index of this node in its parent's children, or -1 if it has no parent or is not one of its parent's
+     * children. The index is cached, and is checked before it is used since the children can change. When it is out of
+     * date the indices of all the siblings are updated together, so lookups in a wide parent take constant time.
+     */
+    public int getIndexInParent() {
+        if (parent == null) {
+            return -1;
+        }
+        List<BoxNode> siblings = parent.children;
+        if (indexInParent < 0 || indexInParent >= siblings.size() || siblings.get(indexInParent) != this) {
+            indexInParent = -1;
+            for (int i = 0; i < siblings.size(); i++) {
+                siblings.get(i).indexInParent = i;
+            }
+        }
+        return indexInParent;
+    }
+
     public BoxNode deepCopy() {
         BoxNode copy = new BoxNode(this);
         copy.parent = null;
@@ -2,6 +2,7 @@ package browser.model;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import browser.constants.CSSConstants;
 
@@ -19,6 +20,11 @@ import lombok.EqualsAndHashCode;
 @EqualsAndHashCode
 public class CSSSelectorGroup {
 
+    private static final AtomicInteger nextId = new AtomicInteger();
+
+    // Identifies this selector group in the selector match cache.
+    @EqualsAndHashCode.Exclude
+    public final int id = nextId.getAndIncrement();
     public final List<CSSConstants.SelectorCombinator> combinators;
     public final List<CSSSelector> selectors;
     // The @media rule containing this selector group, if any.
@@ -5,15 +5,66 @@ import browser.parser.CSSLexer;
 public class CSSToken {
 
     public CSSLexer.CSSTokenType type;
-    public String value;
+    // The range of the token's text in the stylesheet it was lexed from, or -1 if the token was not lexed.
+    public int start = -1;
+    public int end = -1;
+    // The characters of the stylesheet a lexed token is from. The value is only copied out of them by getValue().
+    private final char[] source;
+    private String value;
 
     public CSSToken(CSSLexer.CSSTokenType type, String value) {
         this.type = type;
         this.value = value;
+        source = null;
     }
 
     public CSSToken(CSSLexer.CSSTokenType type, char value) {
+        this(type, String.valueOf(value));
+    }
+
+    public CSSToken(CSSLexer.CSSTokenType type, String value, int start, int end) {
+        this(type, value);
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Creates a lexed token whose value is the text from start up to end, which is only copied if it is used.
+     */
+    public CSSToken(CSSLexer.CSSTokenType type, char[] source, int start, int end) {
         this.type = type;
-        this.value = String.valueOf(value);
+        this.source = source;
+        this.start = start;
+        this.end = end;
     }
+
+    /**
+     * @return The token's text, which is created the first time it is needed.
+     */
+    public String getValue() {
+        if (value == null) {
+            value = new String(source, start, end - start);
+        }
+        return value;
+    }
+
+    /**
+     * @return True if the token's text starts with the prefix. The text is compared in place, without creating the
+     * value.
+     */
+    public boolean startsWith(String prefix) {
+        if (value != null || source == null) {
+            return getValue().startsWith(prefix);
+        }
+        if (end - start < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (source[start + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
 }
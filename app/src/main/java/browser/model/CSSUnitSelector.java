@@ -1,6 +1,8 @@
 package browser.model;
 
 import browser.constants.CSSConstants;
+import browser.parser.AtomTable;
+import browser.parser.Atoms;
 
 import lombok.EqualsAndHashCode;
 
@@ -9,10 +11,35 @@ public class CSSUnitSelector {
 
     public CSSConstants.SelectorType type;
     public String value;
+    // The atom of the value for type, class and id selectors. Classes and ids are matched case-insensitively, so their
+    // atoms are lowercase. NONE for a name that is not in the atom table, which matches no node.
+    @EqualsAndHashCode.Exclude
+    public final int atom;
 
     public CSSUnitSelector(CSSConstants.SelectorType type, String value) {
+        this(type, value, null);
+    }
+
+    /**
+     * @param atoms     The atom table of the page the selector belongs to, or null for a selector shared between pages,
+     *                  such as one from the default stylesheet, which only uses the fixed atoms.
+     */
+    public CSSUnitSelector(CSSConstants.SelectorType type, String value, AtomTable atoms) {
+        this(type, value, switch (type) {
+            case TYPE -> getAtom(value, atoms);
+            case CLASS, ID -> getAtom(value.toLowerCase(), atoms);
+            default -> Atoms.NONE;
+        });
+    }
+
+    private CSSUnitSelector(CSSConstants.SelectorType type, String value, int atom) {
         this.type = type;
         this.value = value;
+        this.atom = atom;
+    }
+
+    private static int getAtom(String name, AtomTable atoms) {
+        return atoms == null ? Atoms.find(name) : atoms.get(name);
     }
 
     public String toString() {
@@ -20,6 +47,6 @@ public class CSSUnitSelector {
     }
 
     public CSSUnitSelector deepCopy() {
-        return new CSSUnitSelector(type, value);
+        return new CSSUnitSelector(type, value, atom);
     }
 }
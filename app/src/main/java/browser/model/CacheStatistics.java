@@ -0,0 +1,54 @@
+package browser.model;
+
+/**
+ * Hit and miss counters for a cache. Not thread safe; caches shared between threads should keep one instance per
+ * thread.
+ */
+public class CacheStatistics {
+
+    private long hits = 0;
+    private long misses = 0;
+
+    public void recordHit() {
+        hits++;
+    }
+
+    public void recordMiss() {
+        misses++;
+    }
+
+    public void reset() {
+        hits = 0;
+        misses = 0;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getLookups() {
+        return hits + misses;
+    }
+
+    public float getHitRate() {
+        long lookups = getLookups();
+        return lookups == 0 ? 0 : (float) hits / lookups;
+    }
+
+    public CacheStatistics copy() {
+        CacheStatistics copy = new CacheStatistics();
+        copy.hits = hits;
+        copy.misses = misses;
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d/%d hits (%.1f%%)", hits, getLookups(), getHitRate() * 100);
+    }
+
+}
@@ -1,16 +1,18 @@
 package browser.model;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import browser.parser.HTMLElements;
+
 public class DOMNode {
-    
+
     public String type;
     public String content;
     public Map<String, String> attributes;
+    // Text nodes are always leaves, so they start with an empty list that holds no array until a child is added.
     public List<DOMNode> children;
     public DOMNode parent;
     // True if the original tag was followed by some form of whitespace.
@@ -18,10 +20,10 @@ public class DOMNode {
     
     public DOMNode(String type) {
         this.type = type;
-        children = new ArrayList<DOMNode>();
-        attributes = new HashMap<String, String>();
+        children = type.equals(HTMLElements.TEXT) ? new ArrayList<DOMNode>(0) : new ArrayList<DOMNode>();
+        attributes = new AttributeMap();
     }
-    
+
     public void addChild(DOMNode n) {
         children.add(n);
         n.parent = this;
@@ -6,5 +6,7 @@ public class Dimension {
 
     public Float value;
     public CSSStyle.DimensionType type;
+    // True if the value is in em or rem, and must be multiplied by a font size.
+    public boolean fontRelative;
 
 }
@@ -5,6 +5,8 @@ import browser.parser.HTMLLexer.HTMLTokenType;
 public class HTMLToken {
     public HTMLTokenType type;
     public String value;
+    // True for a text token that is empty or only whitespace.
+    public boolean whitespace;
 
     public HTMLToken(HTMLTokenType type, String value) {
         this.type = type;
@@ -4,18 +4,24 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import browser.css.CSSStyle;
+import browser.parser.Atoms;
 
 public class RenderNode {
 
-    public static int nextId = 0;
+    // Ids are unique across all trees, since pipelines on different threads share the counter.
+    public static final AtomicInteger nextId = new AtomicInteger();
     
     public int id;
     // Depth of 0 is the root body element.
     public int depth;
     public String type;
-    public String text;
+    // The text of text nodes, which is a slice of the document's TextBuffer for nodes generated from a DOM.
+    public CharSequence text;
+    // Nodes generated from DOM nodes without children start with an empty list that holds no array until a child is
+    // added, since most of them stay leaves.
     public List<RenderNode> children;
     public RenderNode parent;
     public CSSStyle style;
@@ -28,8 +34,15 @@ public class RenderNode {
     public boolean whiteSpaceAfter;
     // A map of the attributes appearing in the HTML tag, such as style.
     public Map<String, String> attributes;
-    // A generic set of properties used during layout and rendering.
-    public final Map<String, Object> properties = new HashMap<>();
+    // The atoms of the tag name, id attribute and classes, used for selector matching. The CSSLoader sets them from the
+    // page's atom table each time it applies styles, so changes to the attributes take effect at the next styling.
+    public int typeAtom;
+    public int idAtom = Atoms.NONE;
+    public int[] classAtoms = Atoms.EMPTY;
+    // A generic set of properties used during layout and rendering, created when the first property is set.
+    private Map<String, Object> properties;
+    // The cached index of this node in its parent's children. Use getIndexInParent(), which checks it.
+    private int indexInParent = -1;
     
     // False until the BoxLayoutCalculator sets this node's box object correctly
     // This way we don't consider nodes to be at position (0, 0) when they are 
@@ -38,32 +51,37 @@ public class RenderNode {
     
     public RenderNode(String type) {
         this.type = type;
+        typeAtom = Atoms.find(type);
         children = new ArrayList<RenderNode>();
         box = new Box();
         maxWidth = null;
         maxHeight = null;
         cssAttribute = null;
         style = new CSSStyle();
-        attributes = new HashMap<String, String>();
+        attributes = new AttributeMap();
     }
     
     public RenderNode(DOMNode dom, int id, int depth) {
         type = dom.type;
+        typeAtom = Atoms.find(type);
         text = dom.content;
         this.depth = depth;
         this.id = id;
-        children = new ArrayList<RenderNode>();
+        children = new ArrayList<RenderNode>(dom.children.size());
         box = new Box();
         cssAttribute = dom.attributes.get("style");
         style = new CSSStyle();
-        attributes = new HashMap<String, String>();
+        attributes = dom.attributes;
     }
     
     public RenderNode(RenderNode node) {
         type = node.type;
+        typeAtom = node.typeAtom;
+        idAtom = node.idAtom;
+        classAtoms = node.classAtoms;
         text = node.text;
         depth = node.depth;
-        id = nextId++;
+        id = nextId.getAndIncrement();
         children = new ArrayList<RenderNode>();
         box = new Box();
         cssAttribute = node.cssAttribute;
@@ -95,6 +113,17 @@ public class RenderNode {
         return nodes;
     }
 
+    public Object getProperty(String key) {
+        return properties == null ? null : properties.get(key);
+    }
+
+    public void setProperty(String key, Object value) {
+        if (properties == null) {
+            properties = new HashMap<>();
+        }
+        properties.put(key, value);
+    }
+
     public void addChild(RenderNode n) {
         children.add(n);
         n.parent = this;
@@ -106,6 +135,25 @@ public class RenderNode {
         }
     }
 
+    /**
+     * @return The index of this node in its parent's children, or -1 if it has no parent or is not one of its parent's
+     * children. The index is cached, and is checked before it is used since the children can change. When it is out of
+     * date the indices of all the siblings are updated together, so lookups in a wide parent take constant time.
+     */
+    public int getIndexInParent() {
+        if (parent == null) {
+            return -1;
+        }
+        List<RenderNode> siblings = parent.children;
+        if (indexInParent < 0 || indexInParent >= siblings.size() || siblings.get(indexInParent) != this) {
+            indexInParent = -1;
+            for (int i = 0; i < siblings.size(); i++) {
+                siblings.get(i).indexInParent = i;
+            }
+        }
+        return indexInParent;
+    }
+
     @Override
     public boolean equals(Object object) {
         if (!(object instanceof RenderNode node)) {
@@ -171,7 +219,7 @@ public class RenderNode {
             }
         }
 
-        if (text == null && node.text != null || (text != null && !text.equals(node.text))) {
+        if (text == null && node.text != null || (text != null && (node.text == null || CharSequence.compare(text, node.text) != 0))) {
             return false;
         }
 
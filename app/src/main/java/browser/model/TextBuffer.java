@@ -0,0 +1,71 @@
+package browser.model;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The text of a document that differs from the text of its DOM, such as text with collapsed whitespace or decoded
+ * character references, stored in a single character array. Text nodes refer to their text as a TextSlice of this
+ * buffer, so the text can be trimmed and split into fragments without copying it.
+ */
+public class TextBuffer implements CharSequence {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Slices read the characters through the buffer, so they see the new array after it grows.
+    char[] chars;
+    private int length = 0;
+
+    public TextBuffer() {
+        chars = new char[INITIAL_CAPACITY];
+    }
+
+    /**
+     * @param text  The text to add to the end of the buffer.
+     * @return A slice of the buffer containing the text.
+     */
+    public TextSlice append(String text) {
+        int start = length;
+        ensureCapacity(length + text.length());
+        text.getChars(0, text.length(), chars, length);
+        length += text.length();
+        return new TextSlice(this, start, length);
+    }
+
+    /**
+     * Frees the unused capacity once all the text has been added. Text can still be added afterwards.
+     */
+    public void trimToSize() {
+        if (chars.length > length) {
+            chars = Arrays.copyOf(chars, length);
+        }
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        Objects.checkIndex(index, length);
+        return chars[index];
+    }
+
+    @Override
+    public TextSlice subSequence(int start, int end) {
+        return new TextSlice(this, start, end);
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(capacity, chars.length * 2));
+        }
+    }
+
+}
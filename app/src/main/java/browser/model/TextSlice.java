@@ -0,0 +1,86 @@
+package browser.model;
+
+import java.util.Objects;
+
+/**
+ * A view of a range of text, which is either in the document's TextBuffer or the String of a DOM node. Taking a
+ * subsequence of a slice creates another view of the same text, and the text is only copied into a String when one is
+ * needed, such as for drawing. Slices with the same text are equal and have the same hash code as that text's String.
+ */
+public final class TextSlice implements CharSequence {
+
+    private final CharSequence source;
+    private final int start;
+    private final int end;
+    // The text as a String, created the first time it is needed.
+    private String string;
+    private int hash;
+
+    /**
+     * Creates a view of all of a String's text, without copying it.
+     */
+    public TextSlice(String source) {
+        this(source, 0, source.length());
+    }
+
+    TextSlice(CharSequence source, int start, int end) {
+        this.source = source;
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        Objects.checkIndex(index, end - start);
+        return source.charAt(start + index);
+    }
+
+    @Override
+    public TextSlice subSequence(int start, int end) {
+        Objects.checkFromToIndex(start, end, length());
+        if (start == 0 && end == length()) {
+            return this;
+        }
+        return new TextSlice(source, this.start + start, this.start + end);
+    }
+
+    @Override
+    public String toString() {
+        if (string == null) {
+            if (source instanceof TextBuffer buffer) {
+                string = new String(buffer.chars, start, end - start);
+            } else {
+                // Returns the source itself if this is a view of all of it.
+                string = source.toString().substring(start, end);
+            }
+        }
+        return string;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TextSlice other) || other.length() != length() || other.hashCode() != hashCode()) {
+            return false;
+        }
+        return CharSequence.compare(this, other) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            for (int i = start; i < end; i++) {
+                h = 31 * h + source.charAt(i);
+            }
+            hash = h;
+        }
+        return h;
+    }
+
+}
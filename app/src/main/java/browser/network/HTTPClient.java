@@ -18,17 +18,22 @@ import javafx.scene.image.Image;
 import browser.constants.ErrorConstants;
 import browser.constants.ResourceConstants;
 import browser.exception.PageLoadException;
+import browser.model.IntVector2;
 import browser.parser.SpecialSymbolHandler;
+import browser.renderer.ImageHeaderSniffer;
 
+/**
+ * Downloads a page and its resources. A client is created for each page load, since the URLs of the page's resources
+ * are resolved against the page it requested. Clients are not shared between threads.
+ */
 public class HTTPClient {
 
-    // Save a reference to the site so we can build up the URLs for other local resources
-    // TODO: have a better system than this
-    private static String baseURL;
-    private static URL pageURL;
+    // Save a reference to the site so we can build up the URLs for other resources of the page
+    private String baseURL;
+    private URL pageURL;
     
-    public static String requestPage(String urlString) throws PageLoadException {
-        urlString = HTTPClient.formatURL(urlString);
+    public String requestPage(String urlString) throws PageLoadException {
+        urlString = formatURL(urlString);
         
         try {
             URL url = new URL(urlString);
@@ -74,7 +79,7 @@ public class HTTPClient {
         }
     }
     
-    public static String requestResource(String rawURL) {
+    public String requestResource(String rawURL) {
         for (String urlString : getURLCandidateList(rawURL)) {
             HttpURLConnection conn = null;
             try {
@@ -106,25 +111,37 @@ public class HTTPClient {
         return null;
     }
     
-    public static Image downloadImage(String rawURL) {
+    /**
+     * Downloads an image. When its dimensions can be read from the header, only the header is read here, and the image
+     * is requested again and decoded in the background, so the page can be laid out before the image finishes.
+     * Whatever draws the page is responsible for repainting the image once it loads.
+     * @param rawURL    The image source as written in the page.
+     * @param backgroundLoading     False to always decode the image before returning.
+     * @return The image and the dimensions read from its header, or null if it could not be downloaded.
+     */
+    public ImageDownload downloadImage(String rawURL, boolean backgroundLoading) {
         if (rawURL == null) {
             return null;
         }
 
         for (String urlString : getURLCandidateList(rawURL)) {
-            try {
-                URL url = new URL(formatURL(urlString));
-                InputStream in = new BufferedInputStream(url.openStream());
-                return new Image(in);
+            String formattedURL = formatURL(urlString);
+            try (InputStream in = new BufferedInputStream(new URL(formattedURL).openStream())) {
+                IntVector2 dimensions = ImageHeaderSniffer.getDimensions(in);
+                if (backgroundLoading && dimensions != null) {
+                    return new ImageDownload(new Image(formattedURL, true), dimensions);
+                }
+                // The sniffer resets the stream, so the decoder reads the image from the start.
+                return new ImageDownload(new Image(in), dimensions);
             } catch (IOException e) {
-                System.err.printf("HTTPClient: IO error downloading image from %s\n", formatURL(urlString));
+                System.err.printf("HTTPClient: IO error downloading image from %s\n", formattedURL);
             }
         }
 
         return null;
     }
     
-    private static String formatURL(String url) {
+    private String formatURL(String url) {
         url = SpecialSymbolHandler.insertSymbols(url);
         url = URLDecoder.decode(url, StandardCharsets.UTF_8);
         String protocol = pageURL == null ? "https" : pageURL.getProtocol();
@@ -136,14 +153,29 @@ public class HTTPClient {
         return url;
     }
 
-    private static List<String> getURLCandidateList(String rawURL) {
+    private List<String> getURLCandidateList(String rawURL) {
         List<String> urls = new ArrayList<>();
         if (!rawURL.startsWith("/")) {
             urls.add(rawURL);
         }
-        urls.add(formatURL(String.format("%s%s%s", baseURL, !(baseURL.endsWith("/") || rawURL.startsWith("/")) ? "/" : "", rawURL)));
-        urls.add(formatURL(String.format("%s%s%s", pageURL.getHost(), !(pageURL.getHost().endsWith("/") || rawURL.startsWith("/")) ? "/" : "", rawURL)));
+        if (pageURL != null) {
+            urls.add(formatURL(String.format("%s%s%s", baseURL, !(baseURL.endsWith("/") || rawURL.startsWith("/")) ? "/" : "", rawURL)));
+            urls.add(formatURL(String.format("%s%s%s", pageURL.getHost(), !(pageURL.getHost().endsWith("/") || rawURL.startsWith("/")) ? "/" : "", rawURL)));
+        }
         return urls;
     }
 
+    /**
+     * A downloaded image, which may still be loading, along with its dimensions if they were read from its header.
+     */
+    public static class ImageDownload {
+        public final Image image;
+        public final IntVector2 dimensions;
+
+        private ImageDownload(Image image, IntVector2 dimensions) {
+            this.image = image;
+            this.dimensions = dimensions;
+        }
+    }
+
 }
@@ -0,0 +1,169 @@
+package browser.network;
+
+import static browser.constants.ResourceConstants.FILE_PREFIX;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Loads files for a single local page. Files are memory mapped and decoded directly from the mapping, using the
+ * charset declared by a byte order mark, a meta tag (HTML) or an @charset rule (CSS), defaulting to UTF-8. Relative
+ * resource paths are resolved against the page directory once and cached for the lifetime of the provider.
+ */
+public class LocalResourceProvider {
+
+    // The HTML spec requires charset declarations to be within the first 1024 bytes.
+    private static final int CHARSET_SNIFF_BYTES = 1024;
+    private static final Pattern META_CHARSET_PATTERN = Pattern.compile("<meta[^>]*charset\\s*=\\s*[\"']?\\s*([a-zA-Z0-9_.:\\-]+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern CSS_CHARSET_PATTERN = Pattern.compile("^@charset\\s+\"([a-zA-Z0-9_.:\\-]+)\";");
+
+    private final Path pageDirectory;
+    private final Map<String, Path> resolvedPaths = new HashMap<>();
+
+    public LocalResourceProvider(String pageURL) {
+        Path pagePath = toPath(pageURL);
+        pageDirectory = pagePath.getParent();
+    }
+
+    /**
+     * Converts a file URL or path string into a path, normalizing Windows separators.
+     * @param url       A path, optionally prefixed with the file protocol.
+     * @return The corresponding path.
+     */
+    public static Path toPath(String url) {
+        String path = url.startsWith(FILE_PREFIX) ? url.substring(FILE_PREFIX.length()) : url;
+        return Paths.get(path.replace("\\", "/"));
+    }
+
+    /**
+     * Finds the file referenced by a resource link on the page. Links are tried relative to the page's directory,
+     * then relative to the working directory. Results, including missing files, are cached.
+     * @param resource      The link from the page, such as an image src or stylesheet href.
+     * @return The path of an existing regular file, or null if none was found.
+     */
+    public Path resolve(String resource) {
+        if (resolvedPaths.containsKey(resource)) {
+            return resolvedPaths.get(resource);
+        }
+
+        String relativePath = resource.replace("\\", "/");
+        if (relativePath.startsWith(FILE_PREFIX)) {
+            relativePath = relativePath.substring(FILE_PREFIX.length());
+        } else if (relativePath.startsWith("./")) {
+            relativePath = relativePath.substring(2);
+        }
+
+        Path resolved = null;
+        try {
+            List<Path> candidates = pageDirectory == null ?
+                    List.of(Paths.get(relativePath)) :
+                    List.of(pageDirectory.resolve(relativePath), Paths.get(relativePath));
+            for (Path candidate : candidates) {
+                if (Files.isRegularFile(candidate)) {
+                    resolved = candidate;
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.printf("LocalResourceProvider: invalid resource path %s.\n", resource);
+        }
+
+        resolvedPaths.put(resource, resolved);
+        return resolved;
+    }
+
+    /**
+     * Reads an HTML file, using the charset from its byte order mark or meta tag.
+     */
+    public String readHTML(Path path) throws IOException {
+        MappedByteBuffer buffer = map(path);
+        Charset charset = sniffBOM(buffer);
+        if (charset == null) {
+            charset = sniffDeclaredCharset(buffer, META_CHARSET_PATTERN);
+        }
+        return decode(buffer, charset);
+    }
+
+    /**
+     * Reads a text resource such as a stylesheet, using the charset from its byte order mark or @charset rule.
+     */
+    public String readText(Path path) throws IOException {
+        MappedByteBuffer buffer = map(path);
+        Charset charset = sniffBOM(buffer);
+        if (charset == null) {
+            charset = sniffDeclaredCharset(buffer, CSS_CHARSET_PATTERN);
+        }
+        return decode(buffer, charset);
+    }
+
+    private MappedByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Checks for a byte order mark. If one is found, the buffer position is moved past it.
+     */
+    private Charset sniffBOM(ByteBuffer buffer) {
+        int length = buffer.remaining();
+        int b0 = length > 0 ? buffer.get(0) & 0xFF : -1;
+        int b1 = length > 1 ? buffer.get(1) & 0xFF : -1;
+        int b2 = length > 2 ? buffer.get(2) & 0xFF : -1;
+        if (b0 == 0xEF && b1 == 0xBB && b2 == 0xBF) {
+            buffer.position(3);
+            return StandardCharsets.UTF_8;
+        } else if (b0 == 0xFE && b1 == 0xFF) {
+            buffer.position(2);
+            return StandardCharsets.UTF_16BE;
+        } else if (b0 == 0xFF && b1 == 0xFE) {
+            buffer.position(2);
+            return StandardCharsets.UTF_16LE;
+        }
+        return null;
+    }
+
+    /**
+     * Looks for a charset declaration near the start of the file. Declarations are ASCII, so the prefix is read as
+     * ISO-8859-1, which maps each byte to one character.
+     */
+    private Charset sniffDeclaredCharset(ByteBuffer buffer, Pattern pattern) {
+        ByteBuffer prefix = buffer.duplicate();
+        prefix.limit(Math.min(prefix.limit(), CHARSET_SNIFF_BYTES));
+        String text = StandardCharsets.ISO_8859_1.decode(prefix).toString();
+        Matcher matcher = pattern.matcher(text);
+        if (matcher.find()) {
+            String name = matcher.group(1);
+            try {
+                if (Charset.isSupported(name)) {
+                    return Charset.forName(name);
+                }
+            } catch (IllegalArgumentException ignored) {}
+            System.err.printf("LocalResourceProvider: unsupported charset %s, using UTF-8.\n", name);
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private String decode(ByteBuffer buffer, Charset charset) throws IOException {
+        return charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                .decode(buffer)
+                .toString();
+    }
+
+}
@@ -5,7 +5,6 @@ import static browser.constants.ResourceConstants.FILE_PREFIX;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -45,9 +44,11 @@ public class ResourceLoader {
      * Load the HTML for a given URL, and load all other resources linked in that file
      */
     public void loadWebpage(String url) throws PageLoadException {
+        LocalResourceProvider localResources = url.startsWith(FILE_PREFIX) ? new LocalResourceProvider(url) : null;
+        HTTPClient httpClient = url.startsWith(FILE_PREFIX) ? null : new HTTPClient();
         String html = url.startsWith(FILE_PREFIX) ?
-                loadLocalHTMLFile(url) :
-                HTTPClient.requestPage(url);
+                loadLocalHTMLFile(url, localResources) :
+                httpClient.requestPage(url);
         
         if (url.equals(ErrorConstants.ErrorPagePath)) {
             html = ErrorPageHandler.populateHTML(html);
@@ -62,18 +63,21 @@ public class ResourceLoader {
         extractResourceAttributes(dom);
 
         for (String imgURL : resources.get(resourceType.IMG)) {
-            if (url.startsWith(FILE_PREFIX)) {
-                ImageCache.loadLocalImage(imgURL, url);
+            if (localResources != null) {
+                Path imagePath = localResources.resolve(imgURL);
+                if (imagePath != null) {
+                    ImageCache.loadLocalImage(imgURL, imagePath.toFile());
+                }
             } else {
-                ImageCache.loadImage(imgURL);
+                ImageCache.loadImage(imgURL, httpClient);
             }
         }
 
         externalCSS.clear();
         for (String cssURL : resources.get(resourceType.CSS)) {
-            String css = url.startsWith(FILE_PREFIX) ?
-                    loadLocalFileAsText(cssURL, url) :
-                    HTTPClient.requestResource(cssURL);
+            String css = localResources != null ?
+                    loadLocalFileAsText(cssURL, localResources) :
+                    httpClient.requestResource(cssURL);
             if (css != null && !css.isBlank()) {
                 externalCSS.add(css);
                 System.out.printf("Loaded %d characters of css from %s.\n", css.length(), cssURL);
@@ -101,16 +105,16 @@ public class ResourceLoader {
         }
     }
 
-    private String loadLocalHTMLFile(String filePath) throws PageLoadException {
+    private String loadLocalHTMLFile(String filePath, LocalResourceProvider localResources) throws PageLoadException {
         if (filePath.endsWith(".html")) {
             try {
-                Path path = Paths.get(filePath.substring(FILE_PREFIX.length()));
+                Path path = LocalResourceProvider.toPath(filePath);
                 if (!Files.exists(path)) {
                     throw new PageLoadException(ErrorType.LOCAL_FILE_DOES_NOT_EXIST, Map.of(ErrorConstants.PATH, filePath));
                 } else if (Files.isDirectory(path)) {
                     throw new PageLoadException(ErrorType.LOCAL_FILE_IS_DIRECTORY, Map.of(ErrorConstants.PATH, filePath));
                 } else {
-                    return new String(Files.readAllBytes(path));
+                    return localResources.readHTML(path);
                 }
             } catch (IOException e) {
                 System.err.printf("ResourceLoader: failed to load %s, %s\n", filePath, e.getLocalizedMessage());
@@ -121,28 +125,18 @@ public class ResourceLoader {
         }
     }
 
-    private String loadLocalFileAsText(String filePath, String pageURL) {
-        List<String> paths = new ArrayList<>(List.of(
-                filePath,
-                Path.of(pageURL.substring(FILE_PREFIX.length()), filePath).toString()
-        ));
-
-        List<String> separators = List.of("/", "\\");
-        for (String separator : separators) {
-            if (pageURL.substring(FILE_PREFIX.length()).contains(separator)) {
-                paths.add(Path.of(pageURL.substring(FILE_PREFIX.length(), pageURL.lastIndexOf(separator)), filePath).toString());
-            }
+    private String loadLocalFileAsText(String filePath, LocalResourceProvider localResources) {
+        Path path = localResources.resolve(filePath);
+        if (path == null) {
+            return null;
         }
 
-        for (String pathString : paths) {
-            Path path = Paths.get(pathString);
-            if (Files.exists(path) && !Files.isDirectory(path)) {
-                try {
-                    return new String(Files.readAllBytes(path));
-                } catch (IOException ignored) {}
-            }
+        try {
+            return localResources.readText(path);
+        } catch (IOException e) {
+            System.err.printf("ResourceLoader: failed to load %s, %s\n", path, e.getLocalizedMessage());
+            return null;
         }
-        return null;
     }
 
 }
@@ -0,0 +1,88 @@
+package browser.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The atoms of a single page, for the names its stylesheets match on that are not fixed {@link Atoms}, such as classes,
+ * ids and custom elements. Standard names keep their fixed atoms, and the page's own names are numbered down from
+ * below {@link Atoms#NONE}, so the two never collide. The table is owned by the page's CSSLoader, and is discarded
+ * along with it.
+ */
+public class AtomTable {
+
+    private final Map<String, Integer> atoms = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    /**
+     * @return The atom of the name, adding it to the table if it is neither fixed nor already in the table. Names are
+     * case-sensitive, so callers lowercase names that are matched case-insensitively.
+     */
+    public int get(String name) {
+        int atom = find(name);
+        if (atom != Atoms.NONE) {
+            return atom;
+        }
+        names.add(name);
+        atom = Atoms.NONE - names.size();
+        atoms.put(name, atom);
+        return atom;
+    }
+
+    /**
+     * @return The atom of the name, or {@link Atoms#NONE} if it is neither fixed nor in the table. The table is not
+     * changed, so names that no selector uses do not take up space.
+     */
+    public int find(String name) {
+        int atom = Atoms.find(name);
+        if (atom != Atoms.NONE) {
+            return atom;
+        }
+        Integer pageAtom = atoms.get(name);
+        return pageAtom == null ? Atoms.NONE : pageAtom;
+    }
+
+    public String getName(int atom) {
+        return atom >= 0 ? Atoms.getName(atom) : names.get(Atoms.NONE - atom - 1);
+    }
+
+    /**
+     * Splits a whitespace separated list, such as a class attribute, into the atoms of its lowercase items. Items that
+     * are not in the table cannot match any selector, and are left out.
+     * @param list  The list to split, or null.
+     * @return The atoms of the items in the table, in order.
+     */
+    public int[] findAllLowercase(String list) {
+        if (list == null || list.isEmpty()) {
+            return Atoms.EMPTY;
+        }
+        int[] result = null;
+        int count = 0;
+        int start = -1;
+        for (int i = 0; i <= list.length(); i++) {
+            boolean whitespace = i == list.length() || Character.isWhitespace(list.charAt(i));
+            if (!whitespace && start == -1) {
+                start = i;
+            } else if (whitespace && start != -1) {
+                int atom = find(list.substring(start, i).toLowerCase());
+                if (atom != Atoms.NONE) {
+                    if (result == null) {
+                        result = new int[4];
+                    } else if (count == result.length) {
+                        result = Arrays.copyOf(result, count * 2);
+                    }
+                    result[count++] = atom;
+                }
+                start = -1;
+            }
+        }
+        if (result == null) {
+            return Atoms.EMPTY;
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+}
@@ -0,0 +1,82 @@
+package browser.parser;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The fixed atoms, which are small integer ids for the standard tag names and attribute names. Each name has a single
+ * atom and a single interned instance, so names repeated throughout a page are stored once and compared as ints. The
+ * known elements from {@link HTMLElements} are added first, in order, so their atoms are the same in every run.
+ * <p>
+ * The table is built once and never changes, so it can be read from any thread. Names that are not fixed, such as
+ * classes, ids and custom elements, have atoms in the {@link AtomTable} of the page using them.
+ */
+public class Atoms {
+
+    // The atom of an absent name, such as the id of a node without an id attribute.
+    public static final int NONE = -1;
+    public static final int[] EMPTY = new int[0];
+
+    // The standard elements that have no constant in HTMLElements, including those in the default stylesheet.
+    private static final String[] STANDARD_ELEMENTS = {"abbr", "address", "article", "audio", "bdi", "bdo",
+            "blockquote", "button", "canvas", "cite", "data", "datalist", "dd", "del", "details", "dfn", "dialog",
+            "dl", "dt", "fieldset", "figcaption", "figure", "footer", "form", "hgroup", "iframe", "ins", "kbd", "label",
+            "legend", "main", "map", "mark", "menu", "meter", "nav", "noscript", "object", "optgroup", "option",
+            "output", "picture", "progress", "q", "rp", "rt", "ruby", "s", "samp", "search", "section", "select",
+            "slot", "small", "strike", "sub", "summary", "sup", "svg", "template", "textarea", "th", "time", "u",
+            "var", "video", "font", "math"};
+    private static final String[] STANDARD_ATTRIBUTES = {"id", "class", "style", "href", "src", "srcset", "sizes",
+            "rel", "type", "name", "value", "alt", "title", "lang", "dir", "width", "height", "colspan", "rowspan",
+            "bgcolor", "color", "face", "size", "align", "valign", "border", "cellpadding", "cellspacing", "nowrap",
+            "action", "method", "target", "content", "charset", "http-equiv", "media", "role", "tabindex", "hidden",
+            "disabled", "checked", "selected", "placeholder", "for", "start", "reversed", "loading", "decoding",
+            "async", "defer", "crossorigin", "integrity", "referrerpolicy", "property", "xmlns", "viewbox", "fill",
+            "d"};
+
+    private static final Map<String, Integer> atoms = new HashMap<>();
+    private static final String[] names;
+
+    static {
+        int size = HTMLElements.KNOWN_ELEMENTS.length + STANDARD_ELEMENTS.length + STANDARD_ATTRIBUTES.length;
+        String[] allNames = new String[size];
+        int count = 0;
+        for (String[] group : new String[][] {HTMLElements.KNOWN_ELEMENTS, STANDARD_ELEMENTS, STANDARD_ATTRIBUTES}) {
+            for (String name : group) {
+                if (atoms.putIfAbsent(name, count) == null) {
+                    allNames[count++] = name;
+                }
+            }
+        }
+        names = Arrays.copyOf(allNames, count);
+    }
+
+    /**
+     * @return The atom of the name, or {@link #NONE} if it is not a standard tag or attribute name. Names are
+     * case-sensitive, so callers lowercase names that are matched case-insensitively.
+     */
+    public static int find(String name) {
+        Integer atom = atoms.get(name);
+        return atom == null ? NONE : atom;
+    }
+
+    /**
+     * @return The interned instance of the name if it is a standard tag or attribute name, or null otherwise.
+     */
+    public static String intern(String name) {
+        Integer atom = atoms.get(name);
+        return atom == null ? null : names[atom];
+    }
+
+    public static String getName(int atom) {
+        return names[atom];
+    }
+
+    /**
+     * @return True if the atom is one of the elements in {@link HTMLElements#KNOWN_ELEMENTS}.
+     */
+    public static boolean isKnownElement(int atom) {
+        return atom >= 0 && atom < HTMLElements.KNOWN_ELEMENTS.length;
+    }
+
+}
@@ -1,11 +1,17 @@
 package browser.parser;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
-import java.util.Set;
 
 import browser.model.CSSToken;
 
+/**
+ * Splits a stylesheet into tokens in a single forward pass over its characters. Each token records the range of its
+ * text in the stylesheet. Whitespace between tokens is skipped without creating tokens, and comments can be skipped
+ * the same way when the caller does not need them.
+ */
 public class CSSLexer {
 
     public enum CSSTokenType {
@@ -31,232 +37,334 @@ public class CSSLexer {
         NestedAtRule
     }
 
-    private static final Set<CSSTokenType> commentTokenTypes = Set.of(CSSTokenType.COMMENT_START, CSSTokenType.COMMENT, CSSTokenType.COMMENT_END);
+    private static final String MEDIA_AT_RULE = "@media";
 
-    public static List<CSSToken> getTokens(String css) {
-        List<BlockContext> contextStack = new ArrayList<>();
-        css = css.trim();
-        List<CSSToken> tokens = new ArrayList<>();
-        CSSTokenType lastToken = CSSTokenType.AT_RULE_CLOSE_BRACKET;
-        CSSTokenType lastNonCommentToken = CSSTokenType.AT_RULE_CLOSE_BRACKET;
-        int index = 0;
-        while (index < css.length()) {
-            CSSToken token = getToken(css, index, lastToken, lastNonCommentToken, contextStack);
-            if (token == null) {
-                System.err.printf("Lexing failure: given last token %s, failed to find token at \"%s...\".\n", lastToken.name(), css.substring(index, Math.min(css.length(), index + 10)));
-                index++;
-            } else {
-                index += token.value.length();
-                if (!token.type.equals(CSSTokenType.SKIP)) {
-                    if (!token.type.equals(CSSTokenType.COMMENT)) {
-                        token.value = token.value.trim();
-                    }
-                    tokens.add(token);
-                    lastToken = token.type;
-                    if (!commentTokenTypes.contains(token.type)) {
-                        lastNonCommentToken = token.type;
-                    }
-                }
-            }
+    private final char[] css;
+    // The stylesheet is lexed without its leading and trailing whitespace, from start up to end.
+    private final int end;
+    private final boolean includeComments;
+    private final List<CSSToken> tokens = new ArrayList<>();
+    private final Deque<BlockContext> contextStack = new ArrayDeque<>();
+    private int index;
+    // The type of the last token, which determines how the next characters are lexed. Comments do not change it.
+    private CSSTokenType lastToken = CSSTokenType.AT_RULE_CLOSE_BRACKET;
+    // True if the last at-rule is a media rule, whose block contains rules rather than declarations.
+    private boolean mediaAtRule = false;
+
+    private CSSLexer(String css, boolean includeComments) {
+        this.css = css.toCharArray();
+        this.includeComments = includeComments;
+        int start = 0;
+        int end = this.css.length;
+        while (start < end && this.css[start] <= ' ') {
+            start++;
+        }
+        while (end > start && this.css[end - 1] <= ' ') {
+            end--;
         }
+        this.index = start;
+        this.end = end;
+    }
 
-        return tokens;
+    public static List<CSSToken> getTokens(String css) {
+        return getTokens(css, true);
     }
 
-    private static CSSToken getToken(String css, int index, CSSTokenType lastToken, CSSTokenType lastNonCommentToken, List<BlockContext> contextStack) {
-        if (StringUtils.substringMatch(css, "/*", index)) {
-            return new CSSToken(CSSTokenType.COMMENT_START, "/*");
-        }
+    /**
+     * @param css       The stylesheet to lex.
+     * @param includeComments       False to skip comments without creating tokens for them.
+     * @return The tokens of the stylesheet, in order.
+     */
+    public static List<CSSToken> getTokens(String css, boolean includeComments) {
+        return new CSSLexer(css, includeComments).lex();
+    }
 
-        switch (lastToken) {
-            case SELECTOR -> { return handleSelector(css, index, contextStack); }
-            case AT_RULE -> { return handleAtRule(css, index, contextStack); }
-            case AT_RULE_OPEN_BRACKET -> { return handleAtRuleOpenBracket(css, index, contextStack); }
-            case AT_RULE_CLOSE_BRACKET -> { return handleAtRuleCloseBracket(css, index); }
-            case SELECTOR_OPEN_BRACKET -> { return handleSelectorOpenBracket(css, index, contextStack); }
-            case PROPERTY_NAME -> { return handlePropertyName(css, index); }
-            case COLON -> { return handleColon(css, index); }
-            case PROPERTY_VALUE -> { return handlePropertyValue(css, index, contextStack); }
-            case SEMI_COLON -> { return handleSemiColon(css, index, contextStack); }
-            case SELECTOR_CLOSE_BRACKET -> { return handleSelectorCloseBracket(css, index, contextStack); }
-            case COMMENT_START -> { return handleCommentStart(css, index); }
-            case COMMENT -> { return handleComment(css, index); }
-            case COMMENT_END -> { return handleCommentEnd(css, index, lastNonCommentToken, contextStack); }
+    private List<CSSToken> lex() {
+        while (index < end) {
+            if (matches('/', '*', index)) {
+                lexComment();
+                continue;
+            }
+
+            boolean lexed = switch (lastToken) {
+                case SELECTOR -> lexAfterSelector();
+                case AT_RULE -> lexAfterAtRule();
+                case AT_RULE_OPEN_BRACKET -> lexAfterAtRuleOpenBracket();
+                case AT_RULE_CLOSE_BRACKET -> lexAfterAtRuleCloseBracket();
+                case SELECTOR_OPEN_BRACKET -> lexAfterSelectorOpenBracket();
+                case PROPERTY_NAME -> lexAfterPropertyName();
+                case COLON -> lexAfterColon();
+                case PROPERTY_VALUE -> lexAfterPropertyValue();
+                case SEMI_COLON -> lexAfterSemiColon();
+                case SELECTOR_CLOSE_BRACKET -> lexAfterSelectorCloseBracket();
+                default -> false;
+            };
+            if (!lexed) {
+                System.err.printf("Lexing failure: given last token %s, failed to find token at \"%s...\".\n", lastToken.name(), new String(css, index, Math.min(end - index, 10)));
+                index++;
+            }
         }
 
-        return null;
+        return tokens;
     }
 
     // Handling for each token type
 
     // SELECTOR: Handles characters after a selector: "div, span?"
-    private static CSSToken handleSelector(String css, int index, List<BlockContext> contextStack) {
-        if (css.charAt(index) == '{') {
-            contextStack.add(BlockContext.Selector);
-            return new CSSToken(CSSTokenType.SELECTOR_OPEN_BRACKET, "{");
+    private boolean lexAfterSelector() {
+        if (css[index] == '{') {
+            contextStack.push(BlockContext.Selector);
+            addCharacterToken(CSSTokenType.SELECTOR_OPEN_BRACKET);
+            return true;
         }
-
-        return null;
+        return false;
     }
 
     // AT_RULE: Handles characters after an at rule: "@media?"
-    private static CSSToken handleAtRule(String css, int index, List<BlockContext> contextStack) {
-        char c = css.charAt(index);
-        if (Character.isWhitespace(c)) {
-            return new CSSToken(CSSTokenType.SKIP, StringUtils.whitespaceSubstring(css, index));
-        } else if (css.charAt(index) == '{') {
-            // Check if previous token started with @media, in that case use nested at rule
-            int atIndex = StringUtils.prevIndexOf(css, "@", index);
-            if (atIndex == -1) {
-                return null;
-            } else if (StringUtils.substringMatch(css, "@media", atIndex)) {
-                contextStack.add(BlockContext.NestedAtRule);
-                return new CSSToken(CSSTokenType.AT_RULE_OPEN_BRACKET, "{");
-            } else {
-                contextStack.add(BlockContext.SingularAtRule);
-                return new CSSToken(CSSTokenType.AT_RULE_OPEN_BRACKET, "{");
-            }
+    private boolean lexAfterAtRule() {
+        if (skipWhitespace()) {
+            return true;
+        } else if (css[index] == '{') {
+            // The block of a media rule contains rules, while other at-rules such as @font-face contain declarations.
+            contextStack.push(mediaAtRule ? BlockContext.NestedAtRule : BlockContext.SingularAtRule);
+            addCharacterToken(CSSTokenType.AT_RULE_OPEN_BRACKET);
+            return true;
         }
-        return null;
+        return false;
     }
 
-    private static CSSToken handleAtRuleOpenBracket(String css, int index, List<BlockContext> contextStack) {
-        char c = css.charAt(index);
-        if (Character.isWhitespace(c)) {
-            return new CSSToken(CSSTokenType.SKIP, StringUtils.whitespaceSubstring(css, index));
-        } else if (c == '}') {
-            contextStack.remove(contextStack.size() - 1);
-            return new CSSToken(CSSTokenType.AT_RULE_CLOSE_BRACKET, '}');
-        } else {
-            int openIndex = css.indexOf("{", index);
-            int closeIndex = css.indexOf("}", index);
-            if (openIndex != -1 && openIndex < closeIndex) {
-                // If a new open bracket occurs before a close, assume this is a nested @rule.
-                String selector = StringUtils.substringUntil(css, index, "{");
-                return new CSSToken(CSSTokenType.SELECTOR, selector);
-            } else {
-                // Assume this is not a nested @rule.
-                return handleSelectorOpenBracket(css, index, contextStack);
-            }
+    private boolean lexAfterAtRuleOpenBracket() {
+        if (skipWhitespace()) {
+            return true;
+        } else if (css[index] == '}') {
+            popContext();
+            addCharacterToken(CSSTokenType.AT_RULE_CLOSE_BRACKET);
+            return true;
+        }
+        // If an open bracket occurs before a close bracket, assume this is a rule nested in the at-rule. Otherwise the
+        // at-rule block contains declarations.
+        int bracketIndex = indexOfEither('{', '}', index);
+        if (bracketIndex != end && css[bracketIndex] == '{') {
+            addToken(CSSTokenType.SELECTOR, index, bracketIndex);
+            return true;
         }
+        return lexAfterSelectorOpenBracket();
     }
 
-    private static CSSToken handleAtRuleCloseBracket(String css, int index) {
-        char c = css.charAt(index);
-        if (Character.isWhitespace(c)) {
-            return new CSSToken(CSSTokenType.SKIP, StringUtils.whitespaceSubstring(css, index));
-        } else if (c == '@') {
-            String atRule = StringUtils.substringUntil(css, index, "{");
-            return new CSSToken(CSSTokenType.AT_RULE, atRule);
+    private boolean lexAfterAtRuleCloseBracket() {
+        if (skipWhitespace()) {
+            return true;
+        } else if (css[index] == '@') {
+            lexAtRule();
         } else {
-            String selector = StringUtils.substringUntil(css, index, "{");
-            return new CSSToken(CSSTokenType.SELECTOR, selector);
+            addToken(CSSTokenType.SELECTOR, index, indexOf('{', index));
         }
+        return true;
     }
 
     // OPEN_BRACKET: Handles characters after an opening bracket: "div, span {?"
-    private static CSSToken handleSelectorOpenBracket(String css, int index, List<BlockContext> contextStack) {
-        char c = css.charAt(index);
-        if (Character.isWhitespace(c)) {
-            return new CSSToken(CSSTokenType.SKIP, StringUtils.whitespaceSubstring(css, index));
-        } else if (c == '}') {
-            contextStack.remove(contextStack.size() - 1);
-            return new CSSToken(CSSTokenType.SELECTOR_CLOSE_BRACKET, "}");
-        } else if (StringUtils.substringMatch(css, "/*", index)) {
-            return new CSSToken(CSSTokenType.COMMENT_START, "/*");
+    private boolean lexAfterSelectorOpenBracket() {
+        if (skipWhitespace()) {
+            return true;
+        } else if (css[index] == '}') {
+            popContext();
+            addCharacterToken(CSSTokenType.SELECTOR_CLOSE_BRACKET);
+            return true;
         }
-        String propertyName = StringUtils.substringUntil(css, index, ":");
-        return new CSSToken(CSSTokenType.PROPERTY_NAME, propertyName);
+        addToken(CSSTokenType.PROPERTY_NAME, index, indexOf(':', index));
+        return true;
     }
 
     // PROPERTY_NAME: Handles characters after a property name: "div, span { font-size?"
-    private static CSSToken handlePropertyName(String css, int index) {
-        if (css.charAt(index) == ':') {
-            return new CSSToken(CSSTokenType.COLON, ":");
+    private boolean lexAfterPropertyName() {
+        if (css[index] == ':') {
+            addCharacterToken(CSSTokenType.COLON);
+            return true;
         }
-        return null;
+        return false;
     }
 
     // COLON: Handles characters after a property colon: "div, span { font-size:?"
-    private static CSSToken handleColon(String css, int index) {
-        String value = StringUtils.substringUntil(css, index, List.of(";", "}"));
-        return new CSSToken(CSSTokenType.PROPERTY_VALUE, value);
+    private boolean lexAfterColon() {
+        addToken(CSSTokenType.PROPERTY_VALUE, index, indexOfEither(';', '}', index));
+        return true;
     }
 
     // PROPERTY_VALUE: Handles characters after a property value: "div, span { font-size: 10px?"
-    private static CSSToken handlePropertyValue(String css, int index, List<BlockContext> contextStack) {
-        if (css.charAt(index) == ';') {
-            return new CSSToken(CSSTokenType.SEMI_COLON, ";");
-        } else if (css.charAt(index) == '}') {
-            contextStack.remove(contextStack.size() - 1);
-            return new CSSToken(CSSTokenType.SELECTOR_CLOSE_BRACKET, '}');
+    private boolean lexAfterPropertyValue() {
+        if (css[index] == ';') {
+            addCharacterToken(CSSTokenType.SEMI_COLON);
+            return true;
+        } else if (css[index] == '}') {
+            popContext();
+            addCharacterToken(CSSTokenType.SELECTOR_CLOSE_BRACKET);
+            return true;
         }
-        return null;
+        return false;
     }
 
     // SEMI_COLON: Handles characters after a property semicolon: "div, span { font-size: 10px;?"
-    private static CSSToken handleSemiColon(String css, int index, List<BlockContext> contextStack) {
-        char c = css.charAt(index);
-        if (Character.isWhitespace(c)) {
-            return new CSSToken(CSSTokenType.SKIP, StringUtils.whitespaceSubstring(css, index));
-        }
-
-        if (c == '}') {
-            BlockContext currentContext = contextStack.remove(contextStack.size() - 1);
-            if (currentContext.equals(BlockContext.SingularAtRule)) {
-                return new CSSToken(CSSTokenType.AT_RULE_CLOSE_BRACKET, '}');
+    private boolean lexAfterSemiColon() {
+        if (skipWhitespace()) {
+            return true;
+        } else if (css[index] == '}') {
+            BlockContext currentContext = popContext();
+            if (currentContext == BlockContext.SingularAtRule) {
+                addCharacterToken(CSSTokenType.AT_RULE_CLOSE_BRACKET);
             } else {
-                return new CSSToken(CSSTokenType.SELECTOR_CLOSE_BRACKET, '}');
+                addCharacterToken(CSSTokenType.SELECTOR_CLOSE_BRACKET);
             }
+            return true;
         }
 
         // TODO check for next char being : or ;
 
-        String name = StringUtils.substringUntil(css, index, ":");
-        return new CSSToken(CSSTokenType.PROPERTY_NAME, name);
+        addToken(CSSTokenType.PROPERTY_NAME, index, indexOf(':', index));
+        return true;
     }
 
     // CLOSE_BRACKET: Handles characters after a close bracket: "div, span { font-size: 10px; }?"
-    private static CSSToken handleSelectorCloseBracket(String css, int index, List<BlockContext> contextStack) {
-        char c = css.charAt(index);
-        if (Character.isWhitespace(c)) {
-            return new CSSToken(CSSTokenType.SKIP, StringUtils.whitespaceSubstring(css, index));
-        } else if (c == '@') {
-            String atRule = StringUtils.substringUntil(css, index, "{");
-            return new CSSToken(CSSTokenType.AT_RULE, atRule.trim());
-        } else if (c == '}') {
-            contextStack.remove(contextStack.size() - 1);
-            return new CSSToken(CSSTokenType.AT_RULE_CLOSE_BRACKET, '}');
+    private boolean lexAfterSelectorCloseBracket() {
+        if (skipWhitespace()) {
+            return true;
+        } else if (css[index] == '@') {
+            lexAtRule();
+        } else if (css[index] == '}') {
+            popContext();
+            addCharacterToken(CSSTokenType.AT_RULE_CLOSE_BRACKET);
         } else {
-            String selector = StringUtils.substringUntil(css, index, "{");
-            return new CSSToken(CSSTokenType.SELECTOR, selector);
+            addToken(CSSTokenType.SELECTOR, index, indexOf('{', index));
         }
+        return true;
     }
 
-    // COMMENT_START: Handles characters after a comment start: "/*?"
-    private static CSSToken handleCommentStart(String css, int index) {
-        if (StringUtils.substringMatch(css, "*/", index)) {
-            return new CSSToken(CSSTokenType.COMMENT_END, "*/");
-        } else {
-            String commentText = StringUtils.substringUntil(css, index, "*/");
-            return new CSSToken(CSSTokenType.COMMENT, commentText);
+    /**
+     * Adds the at-rule starting at the current index, up to its block. The at-rule is a media rule if its last "@"
+     * starts "@media".
+     */
+    private void lexAtRule() {
+        int lastAtIndex = index;
+        int i = index;
+        while (i < end && css[i] != '{') {
+            if (css[i] == '@') {
+                lastAtIndex = i;
+            }
+            i++;
         }
+        mediaAtRule = matches(MEDIA_AT_RULE, lastAtIndex);
+        addToken(CSSTokenType.AT_RULE, index, i);
     }
 
-    // COMMENT: Handles characters after a comment text: "/*comment?"
-    private static CSSToken handleComment(String css, int index) {
-        return new CSSToken(CSSTokenType.COMMENT_END, "*/");
+    /**
+     * Skips the comment starting at the current index, adding tokens for it if comments are included. The whitespace
+     * after the comment is skipped as well, and the next token is lexed as if the comment were not there.
+     */
+    private void lexComment() {
+        int textStart = index + 2;
+        int commentEnd = textStart;
+        while (commentEnd < end && !matches('*', '/', commentEnd)) {
+            commentEnd++;
+        }
+        if (includeComments) {
+            tokens.add(new CSSToken(CSSTokenType.COMMENT_START, "/*", index, textStart));
+            if (commentEnd > textStart) {
+                tokens.add(new CSSToken(CSSTokenType.COMMENT, css, textStart, commentEnd));
+            }
+            if (commentEnd < end) {
+                tokens.add(new CSSToken(CSSTokenType.COMMENT_END, "*/", commentEnd, commentEnd + 2));
+            }
+        }
+        index = Math.min(commentEnd + 2, end);
+        while (index < end && Character.isWhitespace(css[index])) {
+            index++;
+        }
     }
 
-    // COMMENT_END Handles characters after a comment end: "/*comment*/?"
-    private static CSSToken handleCommentEnd(String css, int index, CSSTokenType lastNonCommentToken, List<BlockContext> contextStack) {
-        char c = css.charAt(index);
-        if (Character.isWhitespace(c)) {
-            String whitespace = StringUtils.whitespaceSubstring(css, index);
-            return new CSSToken(CSSTokenType.SKIP, whitespace);
-        } else {
-            return getToken(css, index, lastNonCommentToken, null, contextStack);
+    // Helper methods
+
+    /**
+     * Adds a token for the text from start up to stop, without its leading and trailing whitespace, and moves past it.
+     * The token refers to the text by its offsets, and only copies it if the token's value is used.
+     */
+    private void addToken(CSSTokenType type, int start, int stop) {
+        int valueStart = start;
+        int valueEnd = stop;
+        while (valueStart < valueEnd && css[valueStart] <= ' ') {
+            valueStart++;
+        }
+        while (valueEnd > valueStart && css[valueEnd - 1] <= ' ') {
+            valueEnd--;
+        }
+        tokens.add(new CSSToken(type, css, valueStart, valueEnd));
+        index = stop;
+        lastToken = type;
+    }
+
+    /**
+     * Adds a token for the single character at the current index, and moves past it.
+     */
+    private void addCharacterToken(CSSTokenType type) {
+        String value = switch (css[index]) {
+            case '{' -> "{";
+            case '}' -> "}";
+            case ':' -> ":";
+            case ';' -> ";";
+            default -> String.valueOf(css[index]);
+        };
+        tokens.add(new CSSToken(type, value, index, index + 1));
+        index++;
+        lastToken = type;
+    }
+
+    /**
+     * @return True if there was whitespace at the current index, which has been skipped.
+     */
+    private boolean skipWhitespace() {
+        int start = index;
+        while (index < end && Character.isWhitespace(css[index])) {
+            index++;
+        }
+        return index > start;
+    }
+
+    private BlockContext popContext() {
+        // Unbalanced closing brackets are treated as closing a rule.
+        return contextStack.isEmpty() ? BlockContext.Selector : contextStack.pop();
+    }
+
+    /**
+     * @return The index of the first occurrence of the character from the start index, or the end of the stylesheet.
+     */
+    private int indexOf(char c, int start) {
+        int i = start;
+        while (i < end && css[i] != c) {
+            i++;
+        }
+        return i;
+    }
+
+    private int indexOfEither(char c1, char c2, int start) {
+        int i = start;
+        while (i < end && css[i] != c1 && css[i] != c2) {
+            i++;
+        }
+        return i;
+    }
+
+    private boolean matches(char c1, char c2, int start) {
+        return start + 1 < end && css[start] == c1 && css[start + 1] == c2;
+    }
+
+    private boolean matches(String string, int start) {
+        if (start + string.length() > end) {
+            return false;
+        }
+        for (int i = 0; i < string.length(); i++) {
+            if (css[start + i] != string.charAt(i)) {
+                return false;
+            }
         }
+        return true;
     }
 
 }
@@ -1,7 +1,6 @@
 package browser.parser;
 
 import java.util.*;
-import java.util.regex.Matcher;
 
 import browser.constants.CSSConstants;
 import browser.constants.CSSConstants.SelectorCombinator;
@@ -9,15 +8,30 @@ import browser.model.*;
 
 public class CSSParser {
 
+    /**
+     * Parses a stylesheet that is shared between pages, such as the default stylesheet. Its selectors only match on the
+     * fixed {@link Atoms}.
+     */
     public static Map<CSSSelectorGroup, Map<String, String>> parseRules(String css) {
-        List<CSSToken> tokens = CSSLexer.getTokens(css);
-        removeCommentTokens(tokens);
+        return parseRules(css, null);
+    }
+
+    /**
+     * Parses a page's stylesheet.
+     * @param css       The stylesheet.
+     * @param atoms     The page's atom table, which the classes, ids and custom elements in the selectors are added to.
+     * @return The declarations of each selector group, in source order.
+     */
+    public static Map<CSSSelectorGroup, Map<String, String>> parseRules(String css, AtomTable atoms) {
+        List<CSSToken> tokens = CSSLexer.getTokens(css, false);
         ListIterator<CSSToken> tokenIterator = tokens.listIterator();
 
-        Map<CSSSelectorGroup, Map<String, String>> rules = new HashMap<>();
+        // Rules are kept in source order, which breaks ties in the cascade.
+        Map<CSSSelectorGroup, Map<String, String>> rules = new LinkedHashMap<>();
         CSSMediaExpression currentMediaExpression = null;
         List<CSSSelectorGroup> currentSelectorGroups = new ArrayList<>();
-        Map<String, String> currentRuleSet = new HashMap<>();
+        // Declarations are kept in source order, which breaks ties between them in the cascade.
+        Map<String, String> currentRuleSet = new LinkedHashMap<>();
         String currentPropertyName = null;
 
         while (tokenIterator.hasNext()) {
@@ -25,24 +39,24 @@ public class CSSParser {
 
             switch (nextToken.type) {
                 case AT_RULE -> {
-                    switch (parseAtRuleType(nextToken.value.trim(), tokenIterator)) {
+                    switch (parseAtRuleType(nextToken)) {
                         case "@media" -> {
-                            currentMediaExpression = MediaQueryParser.getExpression(nextToken.value.trim());
+                            currentMediaExpression = MediaQueryParser.getExpression(nextToken.getValue());
                         }
                     }
                 }
                 case SELECTOR -> {
-                    currentSelectorGroups = parseSelectorsGroups(nextToken.value.trim(), currentMediaExpression);
-                    currentRuleSet = new HashMap<>();
+                    currentSelectorGroups = parseSelectorsGroups(nextToken.getValue(), currentMediaExpression, atoms);
+                    currentRuleSet = new LinkedHashMap<>();
                     currentPropertyName = null;
                 }
                 case PROPERTY_NAME -> {
-                    currentPropertyName = nextToken.value;
+                    currentPropertyName = nextToken.getValue();
                 }
                 case PROPERTY_VALUE -> {
                     if (currentPropertyName != null) {
-                        String propertyValue = nextToken.value;
-                        currentRuleSet.put(currentPropertyName, propertyValue);
+                        String propertyValue = nextToken.getValue();
+                        putDeclaration(currentRuleSet, currentPropertyName, propertyValue);
                         currentPropertyName = null;
                     }
                 }
@@ -60,125 +74,178 @@ public class CSSParser {
         return rules;
     }
 
-    private static void removeCommentTokens(List<CSSToken> tokens) {
-        List<CSSLexer.CSSTokenType> commentTypes = List.of(
-                CSSLexer.CSSTokenType.COMMENT_START,
-                CSSLexer.CSSTokenType.COMMENT,
-                CSSLexer.CSSTokenType.COMMENT_END
-        );
+    /**
+     * Parses a list of declarations with no selector, such as the contents of a style attribute:
+     * "color: red; margin: 0 auto". Declarations with no property name or no value are ignored. Colons and semicolons
+     * within quoted strings and parentheses, such as in <code>url(data:image/png;base64,...)</code>, are part of the
+     * value.
+     * @param css       The declaration list.
+     * @return      The value of each declared property, in source order. Later declarations of a property replace
+     * earlier ones, and take their place in the order.
+     */
+    public static Map<String, String> parseDeclarations(String css) {
+        if (css.contains("/*")) {
+            css = removeComments(css);
+        }
+        Map<String, String> declarations = new LinkedHashMap<>();
 
-        for (int i = tokens.size() - 1; i >= 0; i--) {
-            if (commentTypes.contains(tokens.get(i).type)) {
-                tokens.remove(i);
+        int start = 0;
+        int colon = -1;
+        int depth = 0;
+        int i = 0;
+        while (i <= css.length()) {
+            // The end of the text ends the last declaration.
+            char c = i < css.length() ? css.charAt(i) : ';';
+            if (c == '"' || c == '\'') {
+                i = skipString(css, i);
+                continue;
+            }
+
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && depth > 0) {
+                depth--;
+            } else if (depth == 0 && c == ':' && colon == -1) {
+                colon = i;
+            } else if (depth == 0 && (c == ';' || c == '}')) {
+                if (colon != -1) {
+                    String property = css.substring(start, colon).trim();
+                    String value = css.substring(colon + 1, i).trim();
+                    if (!property.isEmpty() && !value.isEmpty()) {
+                        putDeclaration(declarations, property, value);
+                    }
+                }
+                if (c == '}') {
+                    // As in a rule, a closing bracket ends the declarations.
+                    break;
+                }
+                start = i + 1;
+                colon = -1;
             }
+            i++;
         }
+
+        return declarations;
     }
 
-    private static List<CSSSelectorGroup> parseSelectorsGroups(String text, CSSMediaExpression mediaExpression) {
-        String[] items = text.split(",");
-        List<CSSSelectorGroup> selectors = new ArrayList<>();
-        for (String item : items) {
-            item = item.trim();
-            CSSSelectorGroup selector = new CSSSelectorGroup();
-
-            boolean expectingCombinator = false;
-            int i = 0;
-            while (i < item.length()) {
-                boolean whitespace = Character.isWhitespace(item.charAt(i));
-                while (Character.isWhitespace(item.charAt(i))) {
-                    i++;
-                }
+    /**
+     * Parses a selector list, such as <code>div.item > a, #id</code>, in a single pass over the text.
+     * @param text      The selector list.
+     * @return The selector group of each selector in the list, in order.
+     */
+    public static List<CSSSelectorGroup> parseSelectorsGroups(String text) {
+        return parseSelectorsGroups(text, null, null);
+    }
 
-                String itemText = getSelectorListString(item, i);
-                if (expectingCombinator) {
-                    boolean whitespaceCombinator = false;
-                    if (!CSSConstants.CSS_COMBINATOR_CHARACTERS.contains(item.charAt(i)) && whitespace) {
-                        whitespaceCombinator = true;
-                        itemText = " ";
-                        i--;
-                    }
-                    boolean validCombinator = parseSelectorCombinator(itemText, selector);
-                    // TODO skip this selector if invalid combinator
-                    expectingCombinator = false;
-                    while (i < item.length() && Character.isWhitespace(text.charAt(i))) {
-                        i++;
-                    }
+    private static String removeComments(String css) {
+        StringBuilder result = new StringBuilder(css.length());
+        int index = 0;
+        while (index < css.length()) {
+            int commentStart = css.indexOf("/*", index);
+            if (commentStart == -1) {
+                result.append(css, index, css.length());
+                break;
+            }
+            result.append(css, index, commentStart);
+            int commentEnd = css.indexOf("*/", commentStart + 2);
+            index = commentEnd == -1 ? css.length() : commentEnd + 2;
+        }
+        return result.toString();
+    }
 
-                    if (!whitespaceCombinator) {
-                        i += itemText.length();
-                    }
-                } else {
-                    parseSelector(itemText, selector);
-                    expectingCombinator = true;
-                    i += itemText.length();
-                }
+    private static List<CSSSelectorGroup> parseSelectorsGroups(String text, CSSMediaExpression mediaExpression, AtomTable atoms) {
+        List<CSSSelectorGroup> selectorGroups = new ArrayList<>();
+        CSSSelectorGroup selectorGroup = new CSSSelectorGroup();
+        int i = skipWhitespace(text, 0);
+        while (i < text.length()) {
+            if (text.charAt(i) == ',') {
+                // An empty selector in the list, such as in "a,,b".
+                selectorGroups.add(selectorGroup);
+                selectorGroup = new CSSSelectorGroup();
+                i = skipWhitespace(text, i + 1);
+                continue;
+            }
+
+            i = parseSelector(text, i, selectorGroup, atoms);
+            int next = skipWhitespace(text, i);
+            if (next == text.length()) {
+                break;
+            }
+            char c = text.charAt(next);
+            if (c == ',') {
+                selectorGroups.add(selectorGroup);
+                selectorGroup = new CSSSelectorGroup();
+                i = skipWhitespace(text, next + 1);
+            } else if (CSSConstants.CSS_COMBINATOR_CHARACTERS.contains(c)) {
+                parseSelectorCombinator(String.valueOf(c), selectorGroup);
+                i = skipWhitespace(text, next + 1);
+            } else {
+                parseSelectorCombinator(" ", selectorGroup);
+                i = next;
             }
-            selectors.add(selector);
         }
+        selectorGroups.add(selectorGroup);
 
         if (mediaExpression != null) {
-            for (CSSSelectorGroup group : selectors) {
+            for (CSSSelectorGroup group : selectorGroups) {
                 group.mediaExpression = mediaExpression;
             }
         }
-        return selectors;
+        return selectorGroups;
     }
 
-    private static void parseSelector(String text, CSSSelectorGroup selectorGroup) {
+    /**
+     * Parses the basic selectors of one compound selector, such as <code>span.code-block</code>, and adds it to the
+     * selector group.
+     * @param text      The selector list containing the selector.
+     * @param start     The index of the first character of the selector.
+     * @param selectorGroup     The selector group to add the selector to.
+     * @param atoms     The page's atom table, or null to only use the fixed atoms.
+     * @return The index after the end of the selector.
+     */
+    private static int parseSelector(String text, int start, CSSSelectorGroup selectorGroup, AtomTable atoms) {
         List<CSSUnitSelector> unitSelectors = new ArrayList<>();
 
-        int i = 0;
-        while (i < text.length()) {
-            String c = text.substring(i, i + 1);
-            Matcher matcher = CSSConstants.CSS_IDENTIFIER_PATTERN.matcher(text.substring(i));
+        int i = start;
+        while (i < text.length() && !isSelectorEnd(text.charAt(i))) {
+            char c = text.charAt(i);
             switch (c) {
-                case "*" -> {
-                    unitSelectors.add(new CSSUnitSelector(CSSConstants.SelectorType.UNIVERSAL, c));
+                case '*' -> {
+                    unitSelectors.add(new CSSUnitSelector(CSSConstants.SelectorType.UNIVERSAL, "*"));
                     i++;
                 }
-                case "." -> {
-                    if (matcher.find()) {
-                        String classString = matcher.group();
-                        unitSelectors.add(new CSSUnitSelector(CSSConstants.SelectorType.CLASS, classString));
-                        i += classString.length() + 1;
-                    } else {
-                        i++;
-                    }
-                }
-                case "#" -> {
-                    if (matcher.find()) {
-                        String idString = matcher.group();
-                        unitSelectors.add(new CSSUnitSelector(CSSConstants.SelectorType.ID, idString));
-                        i += idString.length() + 1;
-                    } else {
-                        i++;
+                case '.', '#' -> {
+                    int end = getIdentifierEnd(text, i + 1);
+                    if (end > i + 1) {
+                        CSSConstants.SelectorType type = c == '.' ? CSSConstants.SelectorType.CLASS : CSSConstants.SelectorType.ID;
+                        unitSelectors.add(new CSSUnitSelector(type, text.substring(i + 1, end), atoms));
                     }
+                    i = end;
                 }
-                case "[" -> {
-                    int attributeEnd = text.indexOf("]", i + 1);
+                case '[' -> {
+                    int attributeEnd = text.indexOf(']', i + 1);
                     if (attributeEnd != -1) {
-                        String attributeText = text.substring(i + 1, attributeEnd);
-                        CSSUnitAttributeSelector attributeSelector = parseAttributeSelector(attributeText);
-                        unitSelectors.add(attributeSelector);
-                        i += attributeText.length() + 2;
+                        unitSelectors.add(parseAttributeSelector(text.substring(i + 1, attributeEnd)));
+                        i = attributeEnd + 1;
                     } else {
                         i++;
                     }
                 }
-                case ":" -> {
-                    if (matcher.find()) {
-                        String pseudoString = matcher.group();
-                        unitSelectors.add(new CSSUnitSelector(CSSConstants.SelectorType.PSEUDO, pseudoString));
-                        i += pseudoString.length() + 1;
-                    } else {
-                        i++;
+                case ':' -> {
+                    // Pseudo-elements such as "::before" are stored the same way as pseudo-classes.
+                    int nameStart = i + 1 < text.length() && text.charAt(i + 1) == ':' ? i + 2 : i + 1;
+                    int end = getIdentifierEnd(text, nameStart);
+                    if (end > nameStart) {
+                        unitSelectors.add(new CSSUnitSelector(CSSConstants.SelectorType.PSEUDO, text.substring(nameStart, end)));
                     }
+                    // Arguments of functional pseudo-classes, such as ":not(.a, .b)", are not supported and skipped.
+                    i = end < text.length() && text.charAt(end) == '(' ? skipParentheses(text, end) : end;
                 }
                 default -> {
-                    if (matcher.find()) {
-                        String typeString = matcher.group();
-                        unitSelectors.add(new CSSUnitSelector(CSSConstants.SelectorType.TYPE, typeString));
-                        i += typeString.length();
+                    int end = getIdentifierEnd(text, i);
+                    if (end > i) {
+                        unitSelectors.add(new CSSUnitSelector(CSSConstants.SelectorType.TYPE, text.substring(i, end), atoms));
+                        i = end;
                     } else {
                         i++;
                     }
@@ -187,6 +254,7 @@ public class CSSParser {
         }
 
         selectorGroup.selectors.add(new CSSSelector(unitSelectors));
+        return i;
     }
 
     private static boolean parseSelectorCombinator(String text, CSSSelectorGroup selectorGroup) {
@@ -239,47 +307,100 @@ public class CSSParser {
         return selector;
     }
 
-    private static String getSelectorListString(String fullSelectorText, int startIndex) {
-        StringBuilder string = new StringBuilder();
-        boolean inAttribute = false;
-        for (int i = startIndex; i < fullSelectorText.length(); i++) {
-            char c = fullSelectorText.charAt(i);
-            if (c == '[') {
-                inAttribute = true;
-            } else if (c == ' ' && !inAttribute) {
-                break;
-            }
+    private static boolean isSelectorEnd(char c) {
+        return Character.isWhitespace(c) || c == ',' || CSSConstants.CSS_COMBINATOR_CHARACTERS.contains(c);
+    }
+
+    private static boolean isIdentifierCharacter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '_';
+    }
 
-            string.append(c);
+    private static int getIdentifierEnd(String text, int start) {
+        int i = start;
+        while (i < text.length() && isIdentifierCharacter(text.charAt(i))) {
+            i++;
         }
+        return i;
+    }
+
+    private static int skipWhitespace(String text, int start) {
+        int i = start;
+        while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @param start     The index of an opening parenthesis.
+     * @return The index after the matching closing parenthesis, or the length of the text if it is not closed.
+     */
+    private static int skipParentheses(String text, int start) {
+        int depth = 0;
+        for (int i = start; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i + 1;
+            }
+        }
+        return text.length();
+    }
 
-        return string.toString();
+    /**
+     * @param start     The index of an opening quote.
+     * @return The index after the matching closing quote, or the length of the text if it is not closed. A backslash
+     * escapes the character after it.
+     */
+    private static int skipString(String text, int start) {
+        char quote = text.charAt(start);
+        for (int i = start + 1; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == quote) {
+                return i + 1;
+            }
+        }
+        return text.length();
     }
 
     private static void addRuleDeclarationSet(Map<CSSSelectorGroup, Map<String, String>> rules, CSSSelectorGroup group, Map<String, String> newRules) {
         if (rules.containsKey(group)) {
             Map<String, String> currentRules = rules.get(group);
-            for (String key : newRules.keySet()) {
-                currentRules.put(key, newRules.get(key));
+            for (Map.Entry<String, String> declaration : newRules.entrySet()) {
+                putDeclaration(currentRules, declaration.getKey(), declaration.getValue());
             }
         } else {
-            rules.put(group, new HashMap<>(newRules));
+            rules.put(group, new LinkedHashMap<>(newRules));
         }
     }
 
-    private static String parseAtRuleType(String text, ListIterator<CSSToken> tokenIterator) {
-        String invalidType = "invalid";
-        if (text == null || text.isBlank()) {
-            return invalidType;
-        }
+    /**
+     * Adds a declaration after all others, replacing any earlier declaration of the property. A map of declarations
+     * is ordered by where each property was last declared, so that a shorthand property declared between two
+     * declarations of one of its longhands does not win over the later one.
+     */
+    private static void putDeclaration(Map<String, String> declarations, String property, String value) {
+        declarations.remove(property);
+        declarations.put(property, value);
+    }
 
-        text = text.trim();
-        if (text.startsWith("@media")) {
+    /**
+     * @param token     An at-rule token, whose value the lexer has already trimmed.
+     * @return The type of the at-rule, or "invalid" if it is not supported. The type is checked in place, so the
+     * token's value is only created to report an unsupported at-rule.
+     */
+    private static String parseAtRuleType(CSSToken token) {
+        if (token.startsWith("@media")) {
             return "@media";
-        } else {
+        }
+        String text = token.getValue();
+        if (!text.isEmpty()) {
             System.err.printf("Unsupported at-rule \"%s\". Ignoring.\n", text);
-            return invalidType;
         }
+        return "invalid";
     }
 
     public static void printRules(Map<CSSSelectorGroup, Map<String, String>> rules) {
@@ -70,6 +70,8 @@ public class HTMLElements {
     private static final String[] VALID_ELEMENTS = {TEXT, HTML, HEAD, STYLE, TITLE, BODY, H1, H2, H3, H4, H5, H6, HEADER, DIV, SPAN, P, UL, OL, LI, HR, B, I, IMG, A, PRE, TT, CODE, EM, STRONG, CENTER, TABLE, THEAD, TBODY, TFOOT, TR, TD, COL, COLGROUP, CAPTION, ASIDE, BR};
     private static final String[] EMPTY_ELEMENTS = {DOCTYPE, IMG, BR, LINK, BR, INPUT, META, HR};
     public static final String[] NOT_IN_RENDER_TREE_ELEMENTS = {STYLE, HTML, HEAD, TITLE};
+    // Every element above. These are the first atoms in the atom table, in this order.
+    public static final String[] KNOWN_ELEMENTS = {TEXT, DOCTYPE, HTML, HEAD, META, STYLE, TITLE, BODY, H1, H2, H3, H4, H5, H6, HEADER, DIV, SPAN, P, INPUT, UL, OL, LI, HR, B, I, IMG, A, TABLE, THEAD, TBODY, TFOOT, TR, TD, COL, COLGROUP, CAPTION, PRE, TT, BR, LINK, CODE, EM, STRONG, CENTER, NOBR, ASIDE, AREA, BASE, EMBED, SOURCE, TRACK, WBR, SCRIPT, NO_SCRIPT, MJX_CONTAINER, PSEUDO_MARKER, ANONYMOUS};
 
     private static Set<String> validElements;
     private static Set<String> emptyElements;
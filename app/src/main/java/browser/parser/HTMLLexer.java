@@ -28,23 +28,45 @@ public class HTMLLexer {
     }
 
     private final String input;
+    private final boolean includeComments;
 
+    private int index = 0;
+    private HTMLTokenType lastToken = HTMLTokenType.TAG_CLOSE;
     private String currentTagName = "none";
     private boolean inScript;
     private boolean inComment;
     private HTMLTokenType lastOpeningTagType = HTMLTokenType.TAG_END_OPEN;
 
     public HTMLLexer(String input) {
+        this(input, true);
+    }
+
+    /**
+     * @param input     The html to lex.
+     * @param includeComments       False to skip comments, along with any whitespace text directly after them.
+     */
+    public HTMLLexer(String input, boolean includeComments) {
         this.input = input;
+        this.includeComments = includeComments;
     }
 
     public List<HTMLToken> getTokens() {
         List<HTMLToken> tokens = new ArrayList<>();
+        HTMLToken token = nextToken();
+        while (token != null) {
+            tokens.add(token);
+            token = nextToken();
+        }
+        return tokens;
+    }
 
-        int index = 0;
-        HTMLTokenType lastToken = HTMLTokenType.TAG_CLOSE;
-
+    /**
+     * Lexes the next token, so the html can be parsed without holding all of its tokens at once.
+     * @return The next token, or null if the end of the input has been reached.
+     */
+    public HTMLToken nextToken() {
         while (index < input.length()) {
+            HTMLTokenType previousToken = lastToken;
             HTMLToken token = getToken(index, lastToken);
             if (token.type.equals(HTMLTokenType.TAG_NAME)) {
                 currentTagName = token.value;
@@ -57,11 +79,6 @@ public class HTMLLexer {
                 inScript = true;
             }
 
-            if (!token.type.equals(HTMLTokenType.SKIP)) {
-                tokens.add(token);
-                lastToken = token.type;
-            }
-
             if (token.type.equals(HTMLTokenType.TAG_OPEN)) {
                 lastOpeningTagType = HTMLTokenType.TAG_OPEN;
             } else if (token.type.equals(HTMLTokenType.TAG_END_OPEN)) {
@@ -69,9 +86,26 @@ public class HTMLLexer {
             }
 
             index += token.value.length();
+
+            if (token.type.equals(HTMLTokenType.SKIP)) {
+                continue;
+            }
+            lastToken = token.type;
+            if (!includeComments) {
+                if (isCommentToken(token.type)) {
+                    continue;
+                } else if (previousToken.equals(HTMLTokenType.COMMENT_END) && token.whitespace) {
+                    continue;
+                }
+            }
+            return token;
         }
 
-        return tokens;
+        return null;
+    }
+
+    private boolean isCommentToken(HTMLTokenType type) {
+        return type == HTMLTokenType.COMMENT_START || type == HTMLTokenType.COMMENT || type == HTMLTokenType.COMMENT_END;
     }
 
     private HTMLToken getToken(int index, HTMLTokenType lastToken) {
@@ -145,9 +179,7 @@ public class HTMLLexer {
             return new HTMLToken(HTMLTokenType.TAG_OPEN, c);
         }
 
-        String endString = inScript ? "</script" : "<";
-        String text = StringUtils.substringUntil(input, index, List.of(endString));
-        return new HTMLToken(HTMLTokenType.TEXT, text);
+        return createTextToken(index, inScript ? "</script" : "<");
     }
 
     // TAG_NAME: Handles characters occurring after a tag name: "<div?"
@@ -267,8 +299,11 @@ public class HTMLLexer {
         }
 
         // All the text until the next quote
-        String attributeValue = StringUtils.substringUntil(input, index, List.of("'", "\""));
-        return new HTMLToken(HTMLTokenType.ATTRIBUTE_VALUE, attributeValue);
+        int end = index;
+        while (end < input.length() && input.charAt(end) != '"' && input.charAt(end) != '\'') {
+            end++;
+        }
+        return new HTMLToken(HTMLTokenType.ATTRIBUTE_VALUE, input.substring(index, end));
     }
 
     // ATTRIBUTE_END_QUOTES: Handles characters occurring after an attribute's starting quotation: "<a href="www""
@@ -324,8 +359,25 @@ public class HTMLLexer {
             return new HTMLToken(HTMLTokenType.TAG_OPEN, c);
         }
 
-        String text = StringUtils.substringUntil(input, index, List.of("<"));
-        return new HTMLToken(HTMLTokenType.TEXT, text);
+        return createTextToken(index, "<");
+    }
+
+    /**
+     * Creates a text token for the input from the index up to the end string, or to the end of the input. Whether the
+     * text is only whitespace is found while it is lexed, so the parser does not need to check it again.
+     */
+    private HTMLToken createTextToken(int index, String endString) {
+        int end = input.indexOf(endString, index);
+        if (end == -1) {
+            end = input.length();
+        }
+        boolean whitespace = true;
+        for (int i = index; i < end && whitespace; i++) {
+            whitespace = Character.isWhitespace(input.charAt(i));
+        }
+        HTMLToken token = new HTMLToken(HTMLTokenType.TEXT, input.substring(index, end));
+        token.whitespace = whitespace;
+        return token;
     }
 
 }
@@ -1,9 +1,8 @@
 package browser.parser;
 
-import java.util.Iterator;
-import java.util.List;
-import java.util.ListIterator;
-import java.util.Set;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
 import browser.constants.HTMLConstants;
 import browser.model.DOMNode;
@@ -12,11 +11,14 @@ import browser.parser.HTMLLexer.HTMLTokenType;
 
 public class HTMLParser {
 
+    // The instance of each tag and attribute name in the page that is not one of the fixed atoms, so that names repeated
+    // throughout the page are stored once.
+    private final Map<String, String> names = new HashMap<>();
+
     public DOMNode generateDOMTree(String html) {
-        HTMLLexer lexer = new HTMLLexer(html.trim());
-        List<HTMLToken> tokens = lexer.getTokens();
-        removeCommentTokens(tokens);
-        ListIterator<HTMLToken> tokenIterator = tokens.listIterator();
+        names.clear();
+        // Comments, and the whitespace after them, are skipped by the lexer.
+        TokenStream tokenIterator = new TokenStream(new HTMLLexer(html.trim(), false));
         consumeStartingWhitespace(tokenIterator);
 
         DOMNode root = null;
@@ -86,7 +88,7 @@ public class HTMLParser {
         return root;
     }
 
-    private DOMNode createDOMNode(ListIterator<HTMLToken> tokenIterator, boolean preserveWhitespace) {
+    private DOMNode createDOMNode(TokenStream tokenIterator, boolean preserveWhitespace) {
         HTMLToken firstToken = tokenIterator.next();
         DOMNode node = null;
         if (isTagCloseToken(firstToken)) {
@@ -94,7 +96,7 @@ public class HTMLParser {
             node = new DOMNode("");
         } else if (firstToken.type.equals(HTMLTokenType.TAG_NAME)) {
             // A normal tag with a name
-            node = new DOMNode(firstToken.value.toLowerCase());
+            node = new DOMNode(intern(firstToken.value.toLowerCase()));
             setNodeAttributes(node, tokenIterator);
         } else {
             System.err.printf("Unexpected token (%s:%s) after tag open.\n", firstToken.type, firstToken.value);
@@ -106,12 +108,17 @@ public class HTMLParser {
         return node;
     }
 
-    private void setNodeAttributes(DOMNode node, Iterator<HTMLToken> tokenIterator) {
+    private String intern(String name) {
+        String fixed = Atoms.intern(name);
+        return fixed != null ? fixed : names.computeIfAbsent(name, key -> key);
+    }
+
+    private void setNodeAttributes(DOMNode node, TokenStream tokenIterator) {
         HTMLToken nextToken = tokenIterator.next();
         String currentAttributeName = null;
         while (!isTagCloseToken(nextToken)) {
             if (nextToken.type.equals(HTMLTokenType.ATTRIBUTE_NAME)) {
-                currentAttributeName = nextToken.value.toLowerCase();
+                currentAttributeName = intern(nextToken.value.toLowerCase());
                 node.attributes.put(currentAttributeName, null);
             } else if (nextToken.type.equals(HTMLTokenType.ATTRIBUTE_VALUE)) {
                 node.attributes.put(currentAttributeName, nextToken.value);
@@ -135,23 +142,15 @@ public class HTMLParser {
         return HTMLConstants.docTypeStrings.contains(node.type.toLowerCase());
     }
 
-    private boolean isSingularTag(DOMNode node, ListIterator<HTMLToken> tokenIterator) {
+    private boolean isSingularTag(DOMNode node, TokenStream tokenIterator) {
         if (HTMLConstants.voidElements.contains(node.type)) {
             return true;
         }
 
-        if (tokenIterator.previous().type.equals(HTMLTokenType.TAG_END_CLOSE)) {
-            // Restore the iterator index.
-            tokenIterator.next();
-            return true;
-        }
-        // Restore the iterator index.
-        tokenIterator.next();
-
-        return false;
+        return tokenIterator.current().type.equals(HTMLTokenType.TAG_END_CLOSE);
     }
 
-    private void handleWhitespaceAfterTag(ListIterator<HTMLToken> tokenIterator, DOMNode currentNode, boolean setFlag, boolean preserveWhitespace) {
+    private void handleWhitespaceAfterTag(TokenStream tokenIterator, DOMNode currentNode, boolean setFlag, boolean preserveWhitespace) {
         if (!tokenIterator.hasNext()) {
             return;
         }
@@ -161,7 +160,7 @@ public class HTMLParser {
 
         HTMLToken tokenAfterClose = tokenIterator.next();
         if (tokenAfterClose.type.equals(HTMLTokenType.TEXT)) {
-            if (tokenAfterClose.value.isBlank()) {
+            if (tokenAfterClose.whitespace) {
                 restorePreviousToken = false;
                 whitespaceAfter = true;
             } else if (Character.isWhitespace(tokenAfterClose.value.charAt(0))) {
@@ -178,32 +177,66 @@ public class HTMLParser {
         }
     }
 
-    private void removeCommentTokens(List<HTMLToken> tokens) {
-        Set<HTMLTokenType> commentTypes = Set.of(
-                HTMLTokenType.COMMENT_START,
-                HTMLTokenType.COMMENT,
-                HTMLTokenType.COMMENT_END);
-
-        for (int i = tokens.size() - 1; i >= 0; i--) {
-            if (tokens.get(i).type.equals(HTMLTokenType.COMMENT_END)) {
-                // If token after comment is whitespace, remove it.
-                if (i < tokens.size() - 1 && tokens.get(i + 1).type.equals(HTMLTokenType.TEXT) && tokens.get(i + 1).value.isBlank()) {
-                    tokens.remove(i + 1);
-                }
-            }
+    private void consumeStartingWhitespace(TokenStream tokenIterator) {
+        HTMLToken token = tokenIterator.next();
+        while (token.type.equals(HTMLTokenType.TEXT) && token.whitespace) {
+            token = tokenIterator.next();
+        }
+        tokenIterator.previous();
+    }
 
-            if (commentTypes.contains(tokens.get(i).type)) {
-                tokens.remove(i);
+    /**
+     * The tokens of the html, lexed as they are needed. Like a list iterator, the last token read can be stepped back
+     * over with {@link #previous()}, once, so it is read again by the next call to {@link #next()}.
+     */
+    private static class TokenStream {
+        private final HTMLLexer lexer;
+        // The next token from the lexer, read ahead so the end of the tokens is known.
+        private HTMLToken next;
+        // The token stepped back over, which is read again before the next token from the lexer.
+        private HTMLToken returned;
+        // The last token read, and the token read before it.
+        private HTMLToken current;
+        private HTMLToken beforeCurrent;
+
+        private TokenStream(HTMLLexer lexer) {
+            this.lexer = lexer;
+            this.next = lexer.nextToken();
+        }
+
+        private boolean hasNext() {
+            return returned != null || next != null;
+        }
+
+        private HTMLToken next() {
+            HTMLToken token;
+            if (returned != null) {
+                token = returned;
+                returned = null;
+            } else if (next != null) {
+                token = next;
+                next = lexer.nextToken();
+            } else {
+                throw new NoSuchElementException();
             }
+            beforeCurrent = current;
+            current = token;
+            return token;
         }
-    }
 
-    private void consumeStartingWhitespace(ListIterator<HTMLToken> tokenIterator) {
-        HTMLToken token = tokenIterator.next();
-        while (token.type.equals(HTMLTokenType.TEXT) && token.value.isBlank()) {
-            token = tokenIterator.next();
+        /**
+         * @return The last token read, which is the token that {@link #previous()} would step back over.
+         */
+        private HTMLToken current() {
+            return current;
+        }
+
+        private void previous() {
+            returned = current;
+            current = beforeCurrent;
+            beforeCurrent = null;
         }
-        tokenIterator.previous();
     }
 
+
 }
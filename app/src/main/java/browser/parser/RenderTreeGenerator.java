@@ -7,6 +7,8 @@ import browser.constants.HTMLConstants;
 import browser.css.CSSStyle;
 import browser.model.DOMNode;
 import browser.model.RenderNode;
+import browser.model.TextBuffer;
+import browser.model.TextSlice;
 
 public class RenderTreeGenerator {
 
@@ -29,14 +31,52 @@ public class RenderTreeGenerator {
         }
     }
 
+    /**
+     * Trims the whitespace around text, which depends on the display of each node. The whitespace within text is
+     * collapsed when the render tree is generated.
+     */
     public void cleanupRenderNodeText(RenderNode renderNode) {
         if (renderNode != null) {
-            removeDuplicateWhitespace(renderNode, false);
             trimTextWhitespace(renderNode, false);
-            removeDuplicateWhitespaceAfterSameNode(renderNode);
         }
     }
 
+    /**
+     * Collapses each sequence of whitespace characters in text into a single space, as done for text outside of
+     * pre-formatted blocks.
+     * @param text  The text to collapse.
+     * @return The collapsed text, which is the same instance if there was nothing to collapse.
+     */
+    public static String collapseWhitespace(String text) {
+        int length = text.length();
+        int firstChange = 0;
+        while (firstChange < length) {
+            char c = text.charAt(firstChange);
+            if (isCollapsibleWhitespace(c) && (c != ' ' || (firstChange + 1 < length && isCollapsibleWhitespace(text.charAt(firstChange + 1))))) {
+                break;
+            }
+            firstChange++;
+        }
+        if (firstChange == length) {
+            return text;
+        }
+
+        StringBuilder collapsed = new StringBuilder(length);
+        collapsed.append(text, 0, firstChange);
+        boolean inWhitespace = false;
+        for (int i = firstChange; i < length; i++) {
+            char c = text.charAt(i);
+            if (!isCollapsibleWhitespace(c)) {
+                collapsed.append(c);
+                inWhitespace = false;
+            } else if (!inWhitespace) {
+                collapsed.append(' ');
+                inWhitespace = true;
+            }
+        }
+        return collapsed.toString();
+    }
+
     public DOMNode getBodyNode(DOMNode dom) {
         if (dom.type.equals(HTMLElements.BODY)) {
             return dom;
@@ -55,65 +95,34 @@ public class RenderTreeGenerator {
 
     private RenderNode domTreeToRenderTree(DOMNode dom) {
         DOMNode body = getBodyNode(dom);
-        return copyTree(body == null ? dom : body, null, 0);
+        TextBuffer textBuffer = new TextBuffer();
+        RenderNode root = copyTree(body == null ? dom : body, null, 0, false, textBuffer);
+        textBuffer.trimToSize();
+        return root;
     }
 
-    private RenderNode copyTree(DOMNode dom, RenderNode parent, int depth) {
-        RenderNode renderNode = new RenderNode(dom, RenderNode.nextId, depth);
-        renderNode.attributes = dom.attributes;
+    /**
+     * @param inPre       True if the node is within a pre-formatted block, where the whitespace in text is kept.
+     * @param textBuffer  The buffer holding the text of the document that differs from the text of its DOM.
+     */
+    private RenderNode copyTree(DOMNode dom, RenderNode parent, int depth, boolean inPre, TextBuffer textBuffer) {
+        RenderNode renderNode = new RenderNode(dom, RenderNode.nextId.getAndIncrement(), depth);
+        if (dom.content != null) {
+            String text = SpecialSymbolHandler.insertSymbols(inPre ? dom.content : collapseWhitespace(dom.content));
+            // Text that is not changed is a view of the DOM's text rather than a copy of it.
+            renderNode.text = text == dom.content ? new TextSlice(text) : textBuffer.append(text);
+        }
         renderNode.parent = parent;
-        RenderNode.nextId++;
         renderNode.style.parentStyle = parent == null ? null : parent.style;
         for (DOMNode child : dom.children) {
             if (!HTMLConstants.elementsExcludedFromRender.contains(child.type)) {
-                renderNode.children.add(copyTree(child, renderNode, depth + 1));
+                renderNode.children.add(copyTree(child, renderNode, depth + 1, inPre || dom.type.equals(HTMLElements.PRE), textBuffer));
             }
         }
         renderNode.whiteSpaceAfter = dom.whiteSpaceAfter;
         return renderNode;
     }
 
-    /**
-     * Remove all new lines, carriage returns, and extra spaces from text. The only place
-     * that these should be left as-is is inside a 'pre' tag.
-     * @param root  The render node to start on.
-     * @param inPre True if the node is within a pre-formatted block.
-     */
-    // TODO make this private
-    public void removeDuplicateWhitespace(RenderNode root, boolean inPre) {
-        if (root == null) return;
-        if (root.text != null && !inPre) {
-            root.text = root.text.replaceAll("[\n\r]", " ");
-            root.text = root.text.replaceAll("\\s+", " ");
-            root.text = root.text.replace("\\\\t", " ")
-                    .replace("\\\\s", " ")
-                    .replace("\\\\r", " ");
-        }
-
-        if (root.text != null) {
-            root.text = SpecialSymbolHandler.insertSymbols(root.text);
-        }
-
-        for (RenderNode child : root.children) {
-            removeDuplicateWhitespace(child, inPre || root.type.equals(HTMLElements.PRE));
-        }
-    }
-
-    /**
-     * Sets the whiteSpaceAfter flag to false on all text nodes that have text that ends with a space.
-     * @param root      The render node to process.
-     */
-    public void removeDuplicateWhitespaceAfterSameNode(RenderNode root) {
-        if (root.type.equals(HTMLElements.TEXT) && root.text != null && root.text.endsWith(" ")) {
-            // Text ends with space, so can remove white space after flag.
-            removeWhiteSpaceAfterFlag(root);
-        }
-
-        for (RenderNode child : root.children) {
-            removeDuplicateWhitespaceAfterSameNode(child);
-        }
-    }
-
     /**
      * Whitespace around text should be removed, but whitespace within text or around tags that are themselves within
      * text (such as "some <b>bold</b> text") should be retained. The following steps decide if whitespace should
@@ -129,6 +138,8 @@ public class RenderTreeGenerator {
      *      - Does the next child not have text? If so, trim.
      *      - Otherwise, do not trim.
      *
+     * Text that ends with a space does not need whitespace after it, so the whiteSpaceAfter flag is then removed.
+     *
      * @param node  The node to start on.
      */
     // TODO make this private
@@ -138,29 +149,34 @@ public class RenderTreeGenerator {
         if (node.parent != null && node.text != null && !inPre) {
             // Trim the start of the text.
             RenderNode previousTextNode = getPreviousInlineTextNode(node);
-            if (previousTextNode == null || previousTextNode.text.endsWith(" ") || previousSiblingHasWhiteSpaceAfter(node)) {
-                node.text = node.text.stripLeading();
+            if (previousTextNode == null || StringUtils.endsWith(previousTextNode.text, ' ') || previousSiblingHasWhiteSpaceAfter(node)) {
+                node.text = StringUtils.stripLeading(node.text);
             }
 
             // Trim the end of the text.
             RenderNode nextTextNode = getNextInlineTextNode(node);
             if ((nextTextNode == null || nextTextNode.text == null)) {
-                node.text = node.text.stripTrailing();
+                node.text = StringUtils.stripTrailing(node.text);
                 removeWhiteSpaceAfterFlag(node);
             }
         }
 
-        int indexInParent = node.parent != null ? node.parent.children.indexOf(node) : -1;
         boolean parentIsPre = node.parent != null && node.parent.type.equals(HTMLElements.PRE);
-        if (node.text != null && indexInParent == 0 && parentIsPre) {
+        if (node.text != null && parentIsPre && node.getIndexInParent() == 0) {
             // The first newline of a pre block is removed.
-            if (node.text.startsWith("\r\n")) {
-                node.text = node.text.substring(2);
-            } else if (node.text.startsWith("\n")) {
-                node.text = node.text.substring(1);
+            if (StringUtils.substringMatch(node.text, "\r\n", 0)) {
+                node.text = node.text.subSequence(2, node.text.length());
+            } else if (StringUtils.substringMatch(node.text, "\n", 0)) {
+                node.text = node.text.subSequence(1, node.text.length());
             }
         }
 
+        if (node.type.equals(HTMLElements.TEXT) && node.text != null && StringUtils.endsWith(node.text, ' ')) {
+            // Text ends with space, so can remove white space after flag. Text later in the tree is only trimmed
+            // more when this flag is removed if it would already be trimmed for following this text.
+            removeWhiteSpaceAfterFlag(node);
+        }
+
         for (RenderNode child : node.children) {
             trimTextWhitespace(child, inPre || node.type.equals(HTMLElements.PRE));
         }
@@ -176,7 +192,7 @@ public class RenderTreeGenerator {
         boolean reachedNonInlineNode = false;
         // Start at the parent
         RenderNode current = node.parent;
-        lastVisitedChildIndex.put(current.id, node.parent.children.indexOf(node));
+        lastVisitedChildIndex.put(current.id, node.getIndexInParent());
 
         while (!current.type.equals(HTMLElements.TEXT)) {
             if (current.style.outerDisplay != CSSStyle.DisplayType.INLINE) {
@@ -193,7 +209,7 @@ public class RenderTreeGenerator {
                     lastVisitedChildIndex.put(current.id, 0);
                     current = current.children.get(0);
                 } else {
-                    lastVisitedChildIndex.put(current.parent.id, current.parent.children.indexOf(current));
+                    lastVisitedChildIndex.put(current.parent.id, current.getIndexInParent());
                     current = current.parent;
                 }
             } else if (lastVisitedChildIndex.get(current.id) < current.children.size() - 1) {
@@ -201,7 +217,7 @@ public class RenderTreeGenerator {
                 current = current.children.get(lastVisitedChildIndex.get(current.id) + 1);
             } else if (current.parent != null) {
                 // Move to the parent.
-                lastVisitedChildIndex.put(current.parent.id, current.parent.children.indexOf(current));
+                lastVisitedChildIndex.put(current.parent.id, current.getIndexInParent());
                 current = current.parent;
             } else {
                 // No available children and no parent.
@@ -218,7 +234,7 @@ public class RenderTreeGenerator {
 
         // Start at the parent
         RenderNode current = node.parent;
-        lastVisitedChildIndex.put(current.id, node.parent.children.indexOf(node));
+        lastVisitedChildIndex.put(current.id, node.getIndexInParent());
 
         while (!current.type.equals(HTMLElements.TEXT)) {
             if (current.style.outerDisplay != CSSStyle.DisplayType.INLINE) {
@@ -235,7 +251,7 @@ public class RenderTreeGenerator {
                     lastVisitedChildIndex.put(current.id, current.children.size() - 1);
                     current = current.children.get(current.children.size() - 1);
                 } else {
-                    lastVisitedChildIndex.put(current.parent.id, current.parent.children.indexOf(current));
+                    lastVisitedChildIndex.put(current.parent.id, current.getIndexInParent());
                     current = current.parent;
                 }
             } else if (lastVisitedChildIndex.get(current.id) > 0) {
@@ -243,7 +259,7 @@ public class RenderTreeGenerator {
                 current = current.children.get(lastVisitedChildIndex.get(current.id) - 1);
             } else if (current.parent != null) {
                 // Move to the parent.
-                lastVisitedChildIndex.put(current.parent.id, current.parent.children.indexOf(current));
+                lastVisitedChildIndex.put(current.parent.id, current.getIndexInParent());
                 current = current.parent;
             } else {
                 // No available children and no parent.
@@ -254,12 +270,19 @@ public class RenderTreeGenerator {
         return current;
     }
 
+    /**
+     * @return True for the whitespace characters that are collapsed, which are those matched by "\\s" in a regex.
+     */
+    private static boolean isCollapsibleWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
     private boolean previousSiblingHasWhiteSpaceAfter(RenderNode node) {
         if (node.parent == null) {
             return false;
         }
 
-        int indexInParent = node.parent.children.indexOf(node);
+        int indexInParent = node.getIndexInParent();
         if (indexInParent > 0) {
             return node.parent.children.get(indexInParent - 1).whiteSpaceAfter;
         } else {
@@ -271,7 +294,7 @@ public class RenderTreeGenerator {
         node.whiteSpaceAfter = false;
         RenderNode currentParent = node.parent;
         RenderNode currentChild = node;
-        while (currentParent != null && currentParent.children.indexOf(currentChild) == currentParent.children.size() - 1) {
+        while (currentParent != null && currentChild.getIndexInParent() == currentParent.children.size() - 1) {
             currentParent.whiteSpaceAfter = false;
             currentChild = currentParent;
             currentParent = currentParent.parent;
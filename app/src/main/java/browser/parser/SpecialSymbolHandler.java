@@ -5,11 +5,21 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Map.Entry;
 
+/**
+ * Decodes character references such as {@code &amp;}, {@code &#38;} and {@code &#x26;} in text. Named references
+ * are looked up in a trie of the names in specialSymbols.txt, and numeric references are decoded from their code point,
+ * so text is decoded in a single pass whatever the number of symbols.
+ */
 public class SpecialSymbolHandler {
 
-    private static Map<String, String> symbols = new HashMap<String, String>();
+    // The longest numeric reference decoded, which is enough for every code point with leading zeros.
+    private static final int MAX_NUMERIC_LENGTH = 10;
+
+    private static SymbolTrie names = new SymbolTrie();
+    // Symbols for numeric references that do not decode to their own code point, such as "&#160;".
+    private static Map<Integer, String> numericSymbols = new HashMap<>();
+    private static int symbolCount = 0;
 
     public static void init() {
         try {
@@ -18,14 +28,15 @@ public class SpecialSymbolHandler {
             while ((line = reader.readLine()) != null) {
                 String[] values = line.split("\\t");
                 if (values.length > 1) {
-                    symbols.put(values[1], values[0]);
+                    String symbol = unescapeSymbol(values[0]);
+                    addSymbol(values[1], symbol);
                     if (values.length == 3) {
-                        symbols.put(values[2], values[0]);
+                        addSymbol(values[2], symbol);
                     }
                 }
             }
             reader.close();
-            System.out.printf("SpecialSymbolHandler: loaded %d symbols\n", symbols.size());
+            System.out.printf("SpecialSymbolHandler: loaded %d symbols\n", symbolCount);
         } catch (IOException e) {
             System.err.println("SpecialSymbolHandler: error reading file specialSymbols.txt");
             e.printStackTrace();
@@ -33,12 +44,192 @@ public class SpecialSymbolHandler {
 
     }
 
+    /**
+     * @param s     The text to decode, or null.
+     * @return The text with its character references replaced by their symbols. References that are not known or not
+     * terminated by a semicolon are kept as they are. The same instance is returned if the text has no references.
+     */
     public static String insertSymbols(String s) {
         if (s == null) return null;
-        for (Entry<String, String> e : symbols.entrySet()) {
-            s = s.replace(e.getKey(), e.getValue());
+        int ampersandIndex = s.indexOf('&');
+        if (ampersandIndex == -1) {
+            return s;
+        }
+
+        StringBuilder result = null;
+        // The start of the text that has not been copied to the result yet.
+        int copiedIndex = 0;
+        while (ampersandIndex != -1) {
+            int referenceEnd;
+            String symbol;
+            if (ampersandIndex + 1 < s.length() && s.charAt(ampersandIndex + 1) == '#') {
+                referenceEnd = getNumericReferenceEnd(s, ampersandIndex);
+                symbol = referenceEnd == -1 ? null : getNumericSymbol(s, ampersandIndex, referenceEnd);
+            } else {
+                SymbolTrie match = names.find(s, ampersandIndex + 1);
+                referenceEnd = match == null ? -1 : ampersandIndex + 1 + match.depth;
+                symbol = match == null ? null : match.symbol;
+            }
+
+            if (symbol == null) {
+                ampersandIndex = s.indexOf('&', ampersandIndex + 1);
+                continue;
+            }
+            if (result == null) {
+                result = new StringBuilder(s.length());
+            }
+            result.append(s, copiedIndex, ampersandIndex).append(symbol);
+            copiedIndex = referenceEnd;
+            ampersandIndex = s.indexOf('&', referenceEnd);
+        }
+
+        if (result == null) {
+            return s;
+        }
+        return result.append(s, copiedIndex, s.length()).toString();
+    }
+
+    private static void addSymbol(String reference, String symbol) {
+        if (reference.length() < 3 || reference.charAt(0) != '&' || reference.charAt(reference.length() - 1) != ';') {
+            System.err.printf("SpecialSymbolHandler: invalid reference %s\n", reference);
+            return;
+        }
+        if (reference.charAt(1) == '#') {
+            int codePoint = parseCodePoint(reference, 0, reference.length() - 1);
+            if (codePoint == -1) {
+                System.err.printf("SpecialSymbolHandler: invalid reference %s\n", reference);
+                return;
+            }
+            if (!symbol.equals(new String(Character.toChars(codePoint)))) {
+                numericSymbols.put(codePoint, symbol);
+            }
+        } else {
+            names.add(reference, 1, symbol);
+        }
+        symbolCount++;
+    }
+
+    /**
+     * The file writes whitespace symbols as escapes, such as "\\s" for a space. A non-breaking space is kept as
+     * U+00A0, so that whitespace collapsing and trimming leave it in the text.
+     */
+    private static String unescapeSymbol(String symbol) {
+        return switch (symbol) {
+            case "\\\\t" -> "\t";
+            case "\\\\r" -> "\r";
+            case "\\\\s" -> " ";
+            case "\\\\u00a0" -> "\u00a0";
+            default -> symbol;
+        };
+    }
+
+    /**
+     * @return The index after the semicolon ending the numeric reference starting at the index, or -1 if there is no
+     * semicolon close enough to end it.
+     */
+    private static int getNumericReferenceEnd(String s, int start) {
+        int limit = Math.min(s.length(), start + MAX_NUMERIC_LENGTH + 3);
+        for (int i = start + 2; i < limit; i++) {
+            if (s.charAt(i) == ';') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static String getNumericSymbol(String s, int start, int end) {
+        int codePoint = parseCodePoint(s, start, end - 1);
+        if (codePoint == -1) {
+            return null;
+        }
+        String symbol = numericSymbols.get(codePoint);
+        return symbol != null ? symbol : new String(Character.toChars(codePoint));
+    }
+
+    /**
+     * @param s     The text containing a numeric reference such as "&#38;" or "&#x26;".
+     * @param start The index of the reference's ampersand.
+     * @param end   The index of the reference's semicolon.
+     * @return The code point of the reference, or -1 if it is not a valid code point.
+     */
+    private static int parseCodePoint(String s, int start, int end) {
+        int digitsStart = start + 2;
+        int radix = 10;
+        if (digitsStart < end && (s.charAt(digitsStart) == 'x' || s.charAt(digitsStart) == 'X')) {
+            digitsStart++;
+            radix = 16;
+        }
+        if (digitsStart == end) {
+            return -1;
+        }
+        int codePoint = 0;
+        for (int i = digitsStart; i < end; i++) {
+            char c = s.charAt(i);
+            int digit = c < 128 ? Character.digit(c, radix) : -1;
+            if (digit == -1) {
+                return -1;
+            }
+            codePoint = codePoint * radix + digit;
+            if (codePoint > Character.MAX_CODE_POINT) {
+                return -1;
+            }
+        }
+        if (codePoint == 0 || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+            return -1;
+        }
+        return codePoint;
+    }
+
+    /**
+     * A node in a trie of reference names, where each child follows one more character of a name. A node for the end
+     * of a name, which includes its semicolon, has the name's symbol.
+     */
+    private static class SymbolTrie {
+        // Names are ASCII, so children are indexed by character.
+        private static final int ALPHABET_SIZE = 128;
+
+        private SymbolTrie[] children;
+        private String symbol;
+        // The number of characters from the root to this node.
+        private int depth;
+
+        private void add(String reference, int start, String symbol) {
+            SymbolTrie node = this;
+            for (int i = start; i < reference.length(); i++) {
+                char c = reference.charAt(i);
+                if (c >= ALPHABET_SIZE) {
+                    System.err.printf("SpecialSymbolHandler: invalid reference %s\n", reference);
+                    return;
+                }
+                if (node.children == null) {
+                    node.children = new SymbolTrie[ALPHABET_SIZE];
+                }
+                if (node.children[c] == null) {
+                    node.children[c] = new SymbolTrie();
+                    node.children[c].depth = node.depth + 1;
+                }
+                node = node.children[c];
+            }
+            node.symbol = symbol;
+        }
+
+        /**
+         * @return The node of the name starting at the index, or null if no name starts there.
+         */
+        private SymbolTrie find(String s, int start) {
+            SymbolTrie node = this;
+            for (int i = start; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (node.children == null || c >= ALPHABET_SIZE || node.children[c] == null) {
+                    return null;
+                }
+                node = node.children[c];
+                if (node.symbol != null) {
+                    return node;
+                }
+            }
+            return null;
         }
-        return s;
     }
 
 }
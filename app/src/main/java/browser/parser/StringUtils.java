@@ -104,7 +104,7 @@ public class StringUtils {
      * @param startIndex        The index to start at.
      * @return      True if match is present at startIndex.
      */
-    public static boolean substringMatch(String string, String match, int startIndex) {
+    public static boolean substringMatch(CharSequence string, String match, int startIndex) {
         if (startIndex >= string.length() || startIndex + match.length() > string.length()) {
             return false;
         }
@@ -116,6 +116,54 @@ public class StringUtils {
         return true;
     }
 
+    /**
+     * @return The index of the first occurrence of the character from the start index, or -1 if there is none.
+     */
+    public static int indexOf(CharSequence text, char c, int startIndex) {
+        for (int i = Math.max(startIndex, 0); i < text.length(); i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public static boolean endsWith(CharSequence text, char c) {
+        return text.length() > 0 && text.charAt(text.length() - 1) == c;
+    }
+
+    public static boolean isBlank(CharSequence text) {
+        return countLeadingWhitespace(text) == text.length();
+    }
+
+    /**
+     * The CharSequence equivalents of String.stripLeading() and String.stripTrailing(). Like the subsequences they
+     * return, these do not copy the text of a String or TextSlice.
+     */
+    public static CharSequence stripLeading(CharSequence text) {
+        return text.subSequence(countLeadingWhitespace(text), text.length());
+    }
+
+    public static CharSequence stripTrailing(CharSequence text) {
+        return text.subSequence(0, text.length() - countTrailingWhitespace(text));
+    }
+
+    public static int countLeadingWhitespace(CharSequence text) {
+        int i = 0;
+        while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    public static int countTrailingWhitespace(CharSequence text) {
+        int i = text.length();
+        while (i > 0 && Character.isWhitespace(text.charAt(i - 1))) {
+            i--;
+        }
+        return text.length() - i;
+    }
+
     public static <T extends Enum<T>> T toEnum(Class<T> enumClass, String string) {
         if (enumClass != null && string != null) {
             try {
@@ -0,0 +1,314 @@
+package browser.renderer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Paint;
+import javafx.scene.text.Font;
+
+import browser.model.Box;
+
+/**
+ * A flat list of paint operations recorded from a laid out box tree. The list is recorded once per layout and can then
+ * be replayed to any GraphicsContext, either in full or culled to a clip rectangle, and compared with the list of a
+ * previous frame to find the region that needs repainting.
+ *
+ * Operations are stored in parallel primitive arrays. Paints, fonts, texts and images are stored once in a resource
+ * table and referenced by index, so a page with thousands of text runs in a few fonts holds only a few font objects.
+ */
+public class DisplayList {
+
+    public static final byte FILL_RECT = 0;
+    public static final byte BORDER = 1;
+    public static final byte TEXT = 2;
+    public static final byte IMAGE = 3;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int size = 0;
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    // The x, y, width and height of each operation.
+    private float[] bounds = new float[INITIAL_CAPACITY * 4];
+    // The resource index of the fill paint, or of the image for image operations.
+    private int[] paints = new int[INITIAL_CAPACITY];
+    // The resource indices of the font and string of text operations, or -1 for other operations.
+    private int[] fonts = new int[INITIAL_CAPACITY];
+    private int[] texts = new int[INITIAL_CAPACITY];
+    // The y coordinate text is drawn at, or 0 for operations other than text.
+    private float[] baselines = new float[INITIAL_CAPACITY];
+
+    private final List<Object> resources = new ArrayList<>();
+    private final Map<Object, Integer> resourceIndices = new HashMap<>();
+    private Paint background;
+
+    public void setBackground(Paint background) {
+        this.background = background;
+    }
+
+    public Paint getBackground() {
+        return background;
+    }
+
+    public void fillRect(Paint paint, float x, float y, float width, float height) {
+        addRect(FILL_RECT, paint, x, y, width, height);
+    }
+
+    public void border(Paint paint, float x, float y, float width, float height) {
+        addRect(BORDER, paint, x, y, width, height);
+    }
+
+    /**
+     * Adds a run of text. The bounds are those of the box containing the text, and are used for culling. The text can be
+     * a TextSlice of the document, which is only copied into a String the first time it is drawn.
+     */
+    public void text(CharSequence text, Font font, Paint paint, float x, float y, float width, float height, float baseline) {
+        if (text == null || text.length() == 0) return;
+        int index = add(TEXT, x, y, width, height);
+        paints[index] = getResourceIndex(paint);
+        fonts[index] = getResourceIndex(font);
+        texts[index] = getResourceIndex(text);
+        baselines[index] = baseline;
+    }
+
+    public void image(Image image, float x, float y, float width, float height) {
+        if (image == null) return;
+        int index = add(IMAGE, x, y, width, height);
+        paints[index] = getResourceIndex(image);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public byte getType(int index) {
+        return types[index];
+    }
+
+    public Box getBounds(int index) {
+        return new Box(bounds[index * 4], bounds[index * 4 + 1], bounds[index * 4 + 2], bounds[index * 4 + 3]);
+    }
+
+    /**
+     * Draws every operation in order.
+     * @return The number of operations drawn.
+     */
+    public int replay(GraphicsContext gc) {
+        ReplayState state = new ReplayState();
+        for (int i = 0; i < size; i++) {
+            replayOperation(gc, i, state);
+        }
+        return size;
+    }
+
+    /**
+     * Draws the operations that intersect the clip rectangle, in order. Drawing is not clipped to the rectangle, so
+     * the caller should set a clip on the GraphicsContext if operations must not draw outside it.
+     * @return The number of operations drawn.
+     */
+    public int replay(GraphicsContext gc, Box clip) {
+        ReplayState state = new ReplayState();
+        int drawn = 0;
+        for (int i = 0; i < size; i++) {
+            if (intersects(i, clip)) {
+                replayOperation(gc, i, state);
+                drawn++;
+            }
+        }
+        return drawn;
+    }
+
+    /**
+     * @return The indices of the operations that intersect the clip rectangle, in drawing order.
+     */
+    public int[] getVisibleOperations(Box clip) {
+        int[] visible = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (intersects(i, clip)) {
+                visible[count++] = i;
+            }
+        }
+        return Arrays.copyOf(visible, count);
+    }
+
+    /**
+     * @return The images drawn by this list that are still being decoded in the background. Once one finishes, the
+     * region returned by getImageBounds needs repainting, since comparing display lists does not detect the change.
+     */
+    public List<Image> getLoadingImages() {
+        List<Image> loading = new ArrayList<>();
+        for (Object resource : resources) {
+            if (resource instanceof Image image && image.getProgress() < 1 && !image.isError()) {
+                loading.add(image);
+            }
+        }
+        return loading;
+    }
+
+    /**
+     * @return The smallest rectangle containing every drawing of the image, or null if this list does not draw it.
+     */
+    public Box getImageBounds(Image image) {
+        Integer resourceIndex = resourceIndices.get(image);
+        if (resourceIndex == null) {
+            return null;
+        }
+
+        Box imageBounds = null;
+        for (int i = 0; i < size; i++) {
+            if (types[i] == IMAGE && paints[i] == resourceIndex) {
+                imageBounds = include(imageBounds, bounds, i);
+            }
+        }
+        return imageBounds;
+    }
+
+    /**
+     * Compares this list with one drawn previously. Operations are compared pairwise in drawing order, and the bounds
+     * of both the old and new operation are included for each pair that differs, along with any operations only
+     * present in one of the lists.
+     * @param previous      The previously drawn list, or null if nothing was drawn.
+     * @return The smallest rectangle containing every changed operation, or null if the lists draw the same thing.
+     */
+    public Box diff(DisplayList previous) {
+        if (previous == null) {
+            return size == 0 ? null : union(this, 0, size, null);
+        }
+
+        Box damage = null;
+        int common = Math.min(size, previous.size);
+        for (int i = 0; i < common; i++) {
+            if (!sameOperation(i, previous)) {
+                damage = include(damage, bounds, i);
+                damage = include(damage, previous.bounds, i);
+            }
+        }
+        damage = union(this, common, size, damage);
+        damage = union(previous, common, previous.size, damage);
+        return damage;
+    }
+
+    private boolean sameOperation(int i, DisplayList other) {
+        if (types[i] != other.types[i]) return false;
+        for (int j = i * 4; j < i * 4 + 4; j++) {
+            if (bounds[j] != other.bounds[j]) return false;
+        }
+        if (!Objects.equals(resources.get(paints[i]), other.resources.get(other.paints[i]))) return false;
+        if (types[i] == TEXT) {
+            return baselines[i] == other.baselines[i] &&
+                    resources.get(fonts[i]).equals(other.resources.get(other.fonts[i])) &&
+                    resources.get(texts[i]).equals(other.resources.get(other.texts[i]));
+        }
+        return true;
+    }
+
+    private void replayOperation(GraphicsContext gc, int i, ReplayState state) {
+        int b = i * 4;
+        switch (types[i]) {
+            case FILL_RECT, BORDER -> {
+                setFill(gc, i, state);
+                gc.fillRect(bounds[b], bounds[b + 1], bounds[b + 2], bounds[b + 3]);
+            }
+            case TEXT -> {
+                setFill(gc, i, state);
+                if (fonts[i] != state.font) {
+                    gc.setFont((Font) resources.get(fonts[i]));
+                    state.font = fonts[i];
+                }
+                gc.fillText(resources.get(texts[i]).toString(), bounds[b], baselines[i]);
+            }
+            case IMAGE -> gc.drawImage((Image) resources.get(paints[i]), bounds[b], bounds[b + 1], bounds[b + 2], bounds[b + 3]);
+        }
+    }
+
+    private void setFill(GraphicsContext gc, int i, ReplayState state) {
+        // Consecutive operations often share a paint, so only change it when needed.
+        if (paints[i] != state.paint) {
+            gc.setFill((Paint) resources.get(paints[i]));
+            state.paint = paints[i];
+        }
+    }
+
+    private boolean intersects(int i, Box clip) {
+        int b = i * 4;
+        return bounds[b] < clip.x + clip.width && bounds[b] + bounds[b + 2] > clip.x &&
+                bounds[b + 1] < clip.y + clip.height && bounds[b + 1] + bounds[b + 3] > clip.y;
+    }
+
+    private void addRect(byte type, Paint paint, float x, float y, float width, float height) {
+        if (width <= 0f || height <= 0f) return;
+        int index = add(type, x, y, width, height);
+        paints[index] = getResourceIndex(paint);
+    }
+
+    private int add(byte type, float x, float y, float width, float height) {
+        if (size == types.length) {
+            grow();
+        }
+        int index = size++;
+        types[index] = type;
+        bounds[index * 4] = x;
+        bounds[index * 4 + 1] = y;
+        bounds[index * 4 + 2] = width;
+        bounds[index * 4 + 3] = height;
+        fonts[index] = -1;
+        texts[index] = -1;
+        baselines[index] = 0;
+        return index;
+    }
+
+    private void grow() {
+        int capacity = types.length * 2;
+        types = Arrays.copyOf(types, capacity);
+        bounds = Arrays.copyOf(bounds, capacity * 4);
+        paints = Arrays.copyOf(paints, capacity);
+        fonts = Arrays.copyOf(fonts, capacity);
+        texts = Arrays.copyOf(texts, capacity);
+        baselines = Arrays.copyOf(baselines, capacity);
+    }
+
+    private int getResourceIndex(Object resource) {
+        Integer index = resourceIndices.get(resource);
+        if (index == null) {
+            index = resources.size();
+            resources.add(resource);
+            resourceIndices.put(resource, index);
+        }
+        return index;
+    }
+
+    private static Box union(DisplayList list, int start, int end, Box box) {
+        for (int i = start; i < end; i++) {
+            box = include(box, list.bounds, i);
+        }
+        return box;
+    }
+
+    private static Box include(Box box, float[] bounds, int i) {
+        int b = i * 4;
+        if (box == null) {
+            return new Box(bounds[b], bounds[b + 1], bounds[b + 2], bounds[b + 3]);
+        }
+        float minX = Math.min(box.x, bounds[b]);
+        float minY = Math.min(box.y, bounds[b + 1]);
+        float maxX = Math.max(box.x + box.width, bounds[b] + bounds[b + 2]);
+        float maxY = Math.max(box.y + box.height, bounds[b + 1] + bounds[b + 3]);
+        box.x = minX;
+        box.y = minY;
+        box.width = maxX - minX;
+        box.height = maxY - minY;
+        return box;
+    }
+
+    private static class ReplayState {
+        private int paint = -1;
+        private int font = -1;
+    }
+
+}
@@ -19,39 +19,83 @@ import browser.parser.HTMLElements;
 public class HTMLRenderer {
 
     private static final float textOffsetScale = 0.75f;
+    private static final CSSColor paddingColor = new CSSColor("rgba(183, 196, 127, 100)");
+    private static final CSSColor marginColor = new CSSColor("rgba(227, 151, 73, 100)");
+    private static final CSSColor highlightColor = new CSSColor("rgba(3, 152, 252, 100)");
     
     public static void render(GraphicsContext gc, BoxNode root) {
+        record(root).replay(gc);
+    }
+
+    /**
+     * Records the paint operations for a laid out box tree, in the order they are drawn.
+     * @param root      The root of the box tree.
+     * @return The display list, which can be replayed to a GraphicsContext.
+     */
+    public static DisplayList record(BoxNode root) {
+        DisplayList displayList = new DisplayList();
+        record(displayList, root);
+        return displayList;
+    }
+
+    private static void record(DisplayList displayList, BoxNode root) {
         // Draw box background
         if (!root.isAnonymous && !root.correspondingRenderNode.type.equals(HTMLElements.TEXT) && root.style.backgroundColor != null) {
-            fillRect(gc, root.style.backgroundColor, root.x, root.y, root.width, root.height);
+            displayList.fillRect(root.style.backgroundColor.toPaint(), root.x, root.y, root.width, root.height);
         }
 
         if (!root.isAnonymous) {
             switch (root.correspondingRenderNode.type) {
                 case HTMLElements.IMG:
-                    renderImage(gc, root);
+                    recordImage(displayList, root);
                     break;
                 case HTMLElements.HR:
-                    fillRect(gc, root.style.color, root.x, root.y, root.width, root.height);
+                    displayList.fillRect(root.style.color.toPaint(), root.x, root.y, root.width, root.height);
                     break;
                 case HTMLElements.PSEUDO_MARKER:
-                    renderPseudoMarker(gc, root);
+                    recordPseudoMarker(displayList, root);
                     break;
             }
         }
 
-        drawBorder(gc, root);
+        recordBorder(displayList, root);
+
+        if (root.isTextNode) recordText(displayList, root);
+
+        for (BoxNode child : root.children) {
+            record(displayList, child);
+        }
+    }
+
+    /**
+     * Draws the inspector highlight and the debug outlines, margins and padding selected in {@link RenderSettings}.
+     * These are drawn separately from the page so that they can be redrawn on an overlay canvas without repainting
+     * the page or recalculating the layout. The canvas is not cleared first.
+     * @param gc        The GraphicsContext of the overlay.
+     * @param root      The root of the box tree the page was rendered from.
+     */
+    public static void renderOverlay(GraphicsContext gc, BoxNode root) {
+        if (root == null) return;
+        if (!RenderSettings.renderOutlines && !RenderSettings.renderMargins && !RenderSettings.renderPadding &&
+                RenderSettings.hoveredElementID == -1) {
+            return;
+        }
+        renderOverlayNode(gc, root);
+    }
+
+    private static void renderOverlayNode(GraphicsContext gc, BoxNode root) {
+        // A render node can be split into several boxes, such as text wrapping over multiple lines, so the hovered
+        // element is matched by its render node.
+        boolean hovered = !root.isAnonymous && root.renderNodeId == RenderSettings.hoveredElementID;
 
-        if (RenderSettings.renderPadding || root.id == RenderSettings.hoveredElementID) {
-            CSSColor paddingColor = new CSSColor("rgba(183, 196, 127, 100)");
+        if (RenderSettings.renderPadding || hovered) {
             fillRect(gc, paddingColor, root.x, root.y, root.width, root.style.paddingTop);
             fillRect(gc, paddingColor, root.x, root.y + root.height - root.style.paddingBottom, root.width, root.style.paddingBottom);
             fillRect(gc, paddingColor, root.x, root.y, root.style.paddingLeft, root.height);
             fillRect(gc, paddingColor, root.x + root.width - root.style.paddingRight, root.y, root.style.paddingRight, root.height);
         }
 
-        if (RenderSettings.renderMargins || root.id == RenderSettings.hoveredElementID) {
-            CSSColor marginColor = new CSSColor("rgba(227, 151, 73, 100)");
+        if (RenderSettings.renderMargins || hovered) {
             fillRect(gc, marginColor, root.x, root.y - root.style.marginTop, root.width, root.style.marginTop);
             fillRect(gc, marginColor, root.x, root.y + root.height, root.width, root.style.marginBottom);
             fillRect(gc, marginColor, root.x - root.style.marginLeft, root.y, root.style.marginLeft, root.height);
@@ -62,30 +106,27 @@ public class HTMLRenderer {
             drawBoxOutline(gc, root);
         }
 
-        if (root.isTextNode) drawText(gc, root);
-
         for (BoxNode child : root.children) {
-            render(gc, child);
+            renderOverlayNode(gc, child);
         }
 
         // Render the highlight after the children, so it appears on top.
-        if (root.id == RenderSettings.hoveredElementID) {
-            CSSColor highlightColor = new CSSColor("rgba(3, 152, 252, 100)");
+        if (hovered) {
             Box contentBox = BoxUtils.getBoxWithoutPadding(root);
             fillRect(gc, highlightColor, contentBox.x, contentBox.y, contentBox.width, contentBox.height);
         }
     }
     
-    public static void renderImage(GraphicsContext gc, BoxNode root) {
+    private static void recordImage(DisplayList displayList, BoxNode root) {
         Image image = ImageCache.getImage(root.correspondingRenderNode.attributes.get("src"));
-        gc.drawImage(image, root.x, root.y, root.width, root.height);
+        displayList.image(image, root.x, root.y, root.width, root.height);
     }
 
-    public static void renderPseudoMarker(GraphicsContext gc, BoxNode node) {
-        gc.setFill(node.style.color.toPaint());
-        gc.setFont(Font.font(node.style.fontFamily, FontWeight.NORMAL, FontPosture.REGULAR, node.style.fontSize));
-        String text = node.correspondingRenderNode.text;
-        gc.fillText(text, node.x, node.y + node.height * textOffsetScale);
+    private static void recordPseudoMarker(DisplayList displayList, BoxNode node) {
+        Font font = Font.font(node.style.fontFamily, FontWeight.NORMAL, FontPosture.REGULAR, node.style.fontSize);
+        CharSequence text = node.correspondingRenderNode.text;
+        displayList.text(text, font, node.style.color.toPaint(), node.x, node.y, node.width, node.height,
+                node.y + node.height * textOffsetScale);
     }
     
     public static void drawBoxOutline(GraphicsContext gc, BoxNode box) {
@@ -93,30 +134,29 @@ public class HTMLRenderer {
         gc.strokeRect(box.x, box.y, box.width, box.height);
     }
     
-    public static void drawText(GraphicsContext gc, BoxNode node) {
+    private static void recordText(DisplayList displayList, BoxNode node) {
         FontWeight fontWeight = FontWeight.NORMAL;
         FontPosture fontPosture = FontPosture.REGULAR;
         if (node.style.fontWeight == fontWeightType.BOLD) fontWeight = FontWeight.BOLD;
         if (node.style.fontStyle == fontStyleType.ITALICS) fontPosture = FontPosture.ITALIC;
-        gc.setFill(node.style.color.toPaint());
-        gc.setFont(Font.font(node.style.fontFamily, fontWeight, fontPosture, node.style.fontSize));
-        String fullText = node.correspondingRenderNode.text;
-        String subText = fullText.substring(node.textStartIndex, node.textEndIndex);
-        gc.fillText(subText, node.x, node.y + node.height * textOffsetScale);
+        Font font = Font.font(node.style.fontFamily, fontWeight, fontPosture, node.style.fontSize);
+        CharSequence text = node.correspondingRenderNode.text.subSequence(node.textStartIndex, node.textEndIndex);
+        displayList.text(text, font, node.style.color.toPaint(), node.x, node.y, node.width, node.height,
+                node.y + node.height * textOffsetScale);
     }
 
-    private static void drawBorder(GraphicsContext gc, BoxNode node) {
+    private static void recordBorder(DisplayList displayList, BoxNode node) {
         if (node.style.borderWidthTop > 0 && !node.style.borderStyleTop.equals(CSSStyle.BorderStyle.NONE)) {
-            fillRect(gc, node.style.borderColorTop, node.x, node.y, node.width, node.style.borderWidthTop);
+            displayList.border(node.style.borderColorTop.toPaint(), node.x, node.y, node.width, node.style.borderWidthTop);
         }
         if (node.style.borderWidthBottom > 0 && !node.style.borderStyleBottom.equals(CSSStyle.BorderStyle.NONE)) {
-            fillRect(gc, node.style.borderColorBottom, node.x, node.y + node.height - node.style.borderWidthBottom, node.width, node.style.borderWidthTop);
+            displayList.border(node.style.borderColorBottom.toPaint(), node.x, node.y + node.height - node.style.borderWidthBottom, node.width, node.style.borderWidthTop);
         }
         if (node.style.borderWidthLeft > 0 && !node.style.borderStyleLeft.equals(CSSStyle.BorderStyle.NONE)) {
-            fillRect(gc, node.style.borderColorLeft, node.x, node.y, node.style.borderWidthLeft, node.height);
+            displayList.border(node.style.borderColorLeft.toPaint(), node.x, node.y, node.style.borderWidthLeft, node.height);
         }
         if (node.style.borderWidthRight > 0 && !node.style.borderStyleRight.equals(CSSStyle.BorderStyle.NONE)) {
-            fillRect(gc, node.style.borderColorRight, node.x + node.width - node.style.borderWidthRight, node.y, node.style.borderWidthRight, node.height);
+            displayList.border(node.style.borderColorRight.toPaint(), node.x + node.width - node.style.borderWidthRight, node.y, node.style.borderWidthRight, node.height);
         }
     }
     
@@ -1,22 +1,27 @@
 package browser.renderer;
 
-import static browser.constants.ResourceConstants.FILE_PREFIX;
-
 import java.io.File;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javafx.scene.image.Image;
 
+import browser.model.CacheStatistics;
+import browser.model.IntVector2;
 import browser.model.Vector2;
 import browser.network.HTTPClient;
 
 public class ImageCache {
 
-    private static final Map<String, Image> images = new HashMap<>();
-    private static final Set<String> brokenImageLinks = new HashSet<>();
+    private static final Map<String, Image> images = new ConcurrentHashMap<>();
+    private static final Map<String, IntVector2> imageDimensions = new ConcurrentHashMap<>();
+    private static final Set<String> brokenImageLinks = ConcurrentHashMap.newKeySet();
+    // Dimension lookups are counted per thread, since each thread lays out one page at a time.
+    private static final ThreadLocal<CacheStatistics> dimensionCacheStatistics = ThreadLocal.withInitial(CacheStatistics::new);
+    // Whether images with known dimensions are decoded in the background. Anything drawing a page as soon as it
+    // is laid out without repainting images as they finish, such as a snapshot, needs this off.
+    private static volatile boolean backgroundLoading = true;
 
     public static void loadDefaultImages() {
         File file = new File("./src/main/resources//images//defaultImage.png");
@@ -31,60 +36,72 @@ public class ImageCache {
         }
     }
 
-    public static void loadLocalImage(String imagePath, String url) {
-        // Replace backslashes (Windows local file paths) with forward slashes.
-        if (url.contains("\\")) {
-            url = url.replace("\\", "/");
-        }
-
-        String originalImagePath = imagePath;
-        url = url.startsWith(FILE_PREFIX) ? url.substring(FILE_PREFIX.length()) : url;
-        imagePath = imagePath.startsWith("./") ? imagePath.substring(2) : imagePath;
-
-        String urlPreviousLevel = url.substring(0, url.lastIndexOf("/") + 1);
-
-        if (!url.endsWith("/")) {
-            url = url + "/";
+    /**
+     * Loads an image from a local file. The file path should already be resolved relative to the page. When the
+     * dimensions can be read from the header, the image is decoded in the background, and whatever draws the page is
+     * responsible for repainting it once it finishes.
+     * @param imagePath     The image source as written in the page, used as the cache key.
+     * @param imageFile     The image file.
+     */
+    public static void loadLocalImage(String imagePath, File imageFile) {
+        // If the dimensions are known from the header, layout does not need to wait for the image to decode.
+        IntVector2 dimensions = ImageHeaderSniffer.getDimensions(imageFile);
+        if (dimensions != null) {
+            imageDimensions.put(imagePath, dimensions);
         }
+        Image image = new Image(imageFile.toURI().toString(), backgroundLoading && dimensions != null);
+        images.put(imagePath, image);
+    }
 
-        String[] filePaths = {
-                url + imagePath,
-                urlPreviousLevel + imagePath,
-                imagePath
-        };
-
-        for (String filePath : filePaths) {
-            File imageFile = new File(filePath);
-            if (imageFile.exists()) {
-                Image image = new Image(imageFile.toURI().toString());
-                images.put(originalImagePath, image);
-                break;
-            }
-        }
+    public static void setBackgroundLoading(boolean backgroundLoading) {
+        ImageCache.backgroundLoading = backgroundLoading;
     }
 
-    public static void loadImage(String url) {
-        Image image = HTTPClient.downloadImage(url);
-        if (image != null) {
-            images.put(url, image);
+    /**
+     * Downloads an image. As with local images, when the dimensions can be read from the header, the image is decoded
+     * in the background.
+     * @param url           The image source as written in the page, used as the cache key.
+     * @param httpClient    The client that requested the page, which resolves the URL against it.
+     */
+    public static void loadImage(String url, HTTPClient httpClient) {
+        HTTPClient.ImageDownload download = httpClient.downloadImage(url, backgroundLoading);
+        if (download != null) {
+            if (download.dimensions != null) {
+                imageDimensions.put(url, download.dimensions);
+            }
+            images.put(url, download.image);
         } else {
             brokenImageLinks.add(url);
         }
     }
 
     public static Image getImage(String url) {
-        Image image = images.get(url);
+        Image image = url == null ? null : images.get(url);
         if (image == null) image = images.get("default");
         return image;
     }
 
     public static Vector2 getImageDimensions(String url) {
-        if (images.containsKey(url)) {
+        IntVector2 dimensions = url == null ? null : imageDimensions.get(url);
+        if (dimensions != null) {
+            dimensionCacheStatistics.get().recordHit();
+            return new Vector2(dimensions.x, dimensions.y);
+        } else if (url != null && images.containsKey(url)) {
+            dimensionCacheStatistics.get().recordHit();
             Image image = images.get(url);
             return new Vector2((float) image.getWidth(), (float) image.getHeight());
         } else {
+            dimensionCacheStatistics.get().recordMiss();
             return new Vector2(50, 50);
         }
     }
 
+    /**
+     * @return Statistics for image dimension lookups made by the current thread. A miss is a lookup for an image
+     * that was not loaded, which falls back to a default size.
+     */
+    public static CacheStatistics getDimensionCacheStatistics() {
+        return dimensionCacheStatistics.get();
+    }
+
 }
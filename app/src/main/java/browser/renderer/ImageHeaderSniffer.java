@@ -0,0 +1,228 @@
+package browser.renderer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import browser.model.IntVector2;
+
+/**
+ * Reads the intrinsic width and height of PNG, GIF, JPEG and BMP images from their headers, without decoding any
+ * pixel data. This allows layout to size image boxes while the full image is still being decoded.
+ */
+public class ImageHeaderSniffer {
+
+    // PNG, GIF and BMP dimensions are always within the first few bytes. JPEG stores them in the first SOF segment,
+    // which may follow metadata segments, so streams are read in growing chunks up to this limit.
+    private static final int INITIAL_READ_BYTES = 256;
+    private static final int MAX_READ_BYTES = 64 * 1024;
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    /**
+     * Reads image dimensions from a local file. Only the header region of the file is mapped into memory.
+     * @param file      The image file.
+     * @return The image dimensions, or null if the format is not recognized or the header is malformed.
+     */
+    public static IntVector2 getDimensions(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = Math.min(channel.size(), MAX_READ_BYTES);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return getDimensions(buffer);
+        } catch (IOException e) {
+            System.err.printf("ImageHeaderSniffer: failed to read header of %s.\n", file.getPath());
+            return null;
+        }
+    }
+
+    /**
+     * Reads image dimensions from the start of a stream. The stream is reset to its starting position afterwards, so
+     * it can be passed on to a decoder.
+     * @param in        A stream supporting mark and reset.
+     * @return The image dimensions, or null if the format is not recognized or the header is malformed.
+     */
+    public static IntVector2 getDimensions(InputStream in) throws IOException {
+        if (!in.markSupported()) {
+            return null;
+        }
+
+        in.mark(MAX_READ_BYTES);
+        try {
+            byte[] bytes = new byte[INITIAL_READ_BYTES];
+            int length = 0;
+            while (true) {
+                int read = in.readNBytes(bytes, length, bytes.length - length);
+                length += read;
+                boolean endOfStream = length < bytes.length;
+
+                ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+                IntVector2 dimensions = getDimensions(buffer);
+                if (dimensions != null || endOfStream || bytes.length >= MAX_READ_BYTES || !isJPEG(buffer)) {
+                    return dimensions;
+                }
+                bytes = Arrays.copyOf(bytes, Math.min(bytes.length * 4, MAX_READ_BYTES));
+            }
+        } finally {
+            in.reset();
+        }
+    }
+
+    /**
+     * Reads image dimensions from a buffer containing the start of an image file. The buffer position is not modified.
+     * @param buffer    The image header bytes, starting at the buffer's position.
+     * @return The image dimensions, or null if the format is not recognized or the header is malformed.
+     */
+    public static IntVector2 getDimensions(ByteBuffer buffer) {
+        ByteBuffer header = buffer.slice();
+        if (isPNG(header)) {
+            return getPNGDimensions(header);
+        } else if (isGIF(header)) {
+            return getGIFDimensions(header);
+        } else if (isJPEG(header)) {
+            return getJPEGDimensions(header);
+        } else if (isBMP(header)) {
+            return getBMPDimensions(header);
+        }
+        return null;
+    }
+
+    // Format detection
+
+    private static boolean isPNG(ByteBuffer header) {
+        if (header.limit() < PNG_SIGNATURE.length) {
+            return false;
+        }
+        for (int i = 0; i < PNG_SIGNATURE.length; i++) {
+            if (header.get(i) != PNG_SIGNATURE[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isGIF(ByteBuffer header) {
+        return header.limit() >= 6 &&
+                header.get(0) == 'G' && header.get(1) == 'I' && header.get(2) == 'F' &&
+                header.get(3) == '8' && (header.get(4) == '7' || header.get(4) == '9') && header.get(5) == 'a';
+    }
+
+    private static boolean isJPEG(ByteBuffer header) {
+        return header.limit() >= 2 && (header.get(0) & 0xFF) == 0xFF && (header.get(1) & 0xFF) == 0xD8;
+    }
+
+    private static boolean isBMP(ByteBuffer header) {
+        return header.limit() >= 2 && header.get(0) == 'B' && header.get(1) == 'M';
+    }
+
+    // Dimension parsing
+
+    /**
+     * The IHDR chunk is required to be first, so width and height are the big-endian integers at bytes 16 and 20.
+     */
+    private static IntVector2 getPNGDimensions(ByteBuffer header) {
+        if (header.limit() < 24) {
+            return null;
+        }
+        header.order(ByteOrder.BIG_ENDIAN);
+        return validDimensions(header.getInt(16), header.getInt(20));
+    }
+
+    /**
+     * The logical screen width and height are little-endian shorts directly after the signature.
+     */
+    private static IntVector2 getGIFDimensions(ByteBuffer header) {
+        if (header.limit() < 10) {
+            return null;
+        }
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        return validDimensions(header.getShort(6) & 0xFFFF, header.getShort(8) & 0xFFFF);
+    }
+
+    /**
+     * The DIB header follows the 14 byte file header. OS/2 core headers (12 bytes) use shorts for the dimensions, all
+     * later versions use integers. A negative height indicates a top-down bitmap.
+     */
+    private static IntVector2 getBMPDimensions(ByteBuffer header) {
+        if (header.limit() < 18) {
+            return null;
+        }
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        int dibHeaderSize = header.getInt(14);
+        if (dibHeaderSize == 12) {
+            if (header.limit() < 22) {
+                return null;
+            }
+            return validDimensions(header.getShort(18) & 0xFFFF, header.getShort(20) & 0xFFFF);
+        } else {
+            if (header.limit() < 26) {
+                return null;
+            }
+            return validDimensions(header.getInt(18), Math.abs(header.getInt(22)));
+        }
+    }
+
+    /**
+     * Walks the JPEG marker segments until a start of frame segment is found. Each SOF segment contains the sample
+     * precision byte followed by the height and width as big-endian shorts.
+     */
+    private static IntVector2 getJPEGDimensions(ByteBuffer header) {
+        header.order(ByteOrder.BIG_ENDIAN);
+        int index = 2;
+        while (index + 1 < header.limit()) {
+            if ((header.get(index) & 0xFF) != 0xFF) {
+                return null;
+            }
+            // Markers may be preceded by any number of fill bytes.
+            while (index + 1 < header.limit() && (header.get(index + 1) & 0xFF) == 0xFF) {
+                index++;
+            }
+            if (index + 1 >= header.limit()) {
+                return null;
+            }
+
+            int marker = header.get(index + 1) & 0xFF;
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+                // Standalone markers without a length.
+                index += 2;
+                continue;
+            } else if (marker == 0xD9 || marker == 0xDA) {
+                // End of image or start of scan, no frame header was found.
+                return null;
+            }
+
+            if (index + 3 >= header.limit()) {
+                return null;
+            }
+            int segmentLength = header.getShort(index + 2) & 0xFFFF;
+            if (isStartOfFrame(marker)) {
+                if (index + 8 >= header.limit()) {
+                    return null;
+                }
+                int height = header.getShort(index + 5) & 0xFFFF;
+                int width = header.getShort(index + 7) & 0xFFFF;
+                return validDimensions(width, height);
+            }
+            index += 2 + segmentLength;
+        }
+        return null;
+    }
+
+    private static boolean isStartOfFrame(int marker) {
+        // SOF0 through SOF15, excluding DHT (C4), JPG (C8) and DAC (CC).
+        return marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+    }
+
+    private static IntVector2 validDimensions(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+        return new IntVector2(width, height);
+    }
+
+}
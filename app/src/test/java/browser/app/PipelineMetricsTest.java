@@ -0,0 +1,79 @@
+package browser.app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import browser.app.PipelineMetrics.Stage;
+import browser.exception.LayoutException;
+import browser.model.CacheStatistics;
+import browser.model.DOMNode;
+import browser.parser.HTMLElements;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class PipelineMetricsTest {
+
+    @Before
+    public void setup() {
+        Pipeline.init();
+    }
+
+    @Test
+    public void stageTimingTest() {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.startStage(Stage.CSS);
+        metrics.startStage(Stage.BOX_TREE);
+        metrics.endStage();
+        metrics.endStage();
+
+        assertTrue(metrics.getStageNanos(Stage.CSS) > 0);
+        assertTrue(metrics.getStageNanos(Stage.BOX_TREE) > 0);
+        assertEquals(0, metrics.getStageNanos(Stage.BOX_LAYOUT));
+        assertEquals(metrics.getStageNanos(Stage.CSS) + metrics.getStageNanos(Stage.BOX_TREE), metrics.getTotalNanos());
+    }
+
+    @Test
+    public void cacheStatisticsTest() {
+        CacheStatistics statistics = new CacheStatistics();
+        assertEquals(0, statistics.getHitRate(), 0);
+        statistics.recordHit();
+        statistics.recordHit();
+        statistics.recordHit();
+        statistics.recordMiss();
+        assertEquals(4, statistics.getLookups());
+        assertEquals(0.75f, statistics.getHitRate(), 0.0001);
+
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.setCacheStatistics(PipelineMetrics.Cache.SELECTOR_MATCH, statistics);
+        statistics.reset();
+        assertEquals(3, metrics.getCacheStatistics(PipelineMetrics.Cache.SELECTOR_MATCH).getHits());
+        assertEquals(0, metrics.getCacheStatistics(PipelineMetrics.Cache.TEXT_DIMENSION).getLookups());
+    }
+
+    @Test
+    public void calculateLayoutRecordsStagesTest() throws LayoutException {
+        DOMNode domRoot = new DOMNode("root");
+        DOMNode domBody = new DOMNode(HTMLElements.BODY);
+        DOMNode domDiv = new DOMNode(HTMLElements.DIV);
+        DOMNode domText = new DOMNode(HTMLElements.TEXT);
+        domText.content = "text";
+        domRoot.addChild(domBody);
+        domBody.addChild(domDiv);
+        domDiv.addChild(domText);
+
+        Pipeline pipeline = new Pipeline();
+        pipeline.setDomRoot(domRoot);
+        pipeline.calculateLayout(100, 0);
+
+        PipelineMetrics metrics = pipeline.getMetrics();
+        for (Stage stage : new Stage[] {Stage.RENDER_TREE, Stage.CSS, Stage.BOX_TREE, Stage.BOX_LAYOUT}) {
+            assertTrue(stage.name(), metrics.getStageNanos(stage) > 0);
+        }
+        assertEquals(0, metrics.getStageNanos(Stage.LOAD));
+        assertEquals(3, (int) metrics.getCounts().get("Render nodes"));
+        assertTrue(metrics.getCacheStatistics(PipelineMetrics.Cache.SELECTOR_MATCH).getLookups() > 0);
+        assertTrue(metrics.getCacheStatistics(PipelineMetrics.Cache.TEXT_DIMENSION).getLookups() > 0);
+    }
+
+}
@@ -2,9 +2,19 @@ package browser.app;
 
 import static browser.constants.MathConstants.DELTA;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import browser.app.Pipeline;
 import browser.exception.LayoutException;
+import browser.model.BoxNode;
 import browser.model.DOMNode;
 import browser.model.RenderNode;
 import browser.parser.HTMLElements;
@@ -168,4 +178,65 @@ public class PipelineTest {
         assertEquals(divHeight, div.box.height, DELTA);
     }
 
+    /**
+     * Lays out several pages at once, as the batch renderer does. Render and box ids key the caches and lookups of a
+     * layout, so they must stay unique when they are handed out on several threads.
+     */
+    @Test
+    public void concurrentLayoutsHaveUniqueIdsTest() throws Exception {
+        final int pages = 8;
+        final int divs = 500;
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        Set<Integer> renderNodeIds = new HashSet<>();
+        Set<Integer> boxNodeIds = new HashSet<>();
+        try {
+            List<Future<Pipeline>> futures = new ArrayList<>();
+            for (int i = 0; i < pages; i++) {
+                futures.add(executor.submit(() -> {
+                    DOMNode domRoot = new DOMNode("root");
+                    DOMNode domBody = new DOMNode(HTMLElements.BODY);
+                    domRoot.addChild(domBody);
+                    for (int j = 0; j < divs; j++) {
+                        DOMNode domDiv = new DOMNode(HTMLElements.DIV);
+                        domDiv.attributes.put("style", "height: 10px;");
+                        domBody.addChild(domDiv);
+                    }
+
+                    Pipeline pipeline = new Pipeline();
+                    pipeline.setDomRoot(domRoot);
+                    pipeline.calculateLayout(100, 0);
+                    return pipeline;
+                }));
+            }
+
+            float height = futures.get(0).get().getHeight();
+            for (Future<Pipeline> future : futures) {
+                Pipeline pipeline = future.get();
+                addRenderNodeIds(pipeline.getRootRenderNode(), renderNodeIds);
+                addBoxNodeIds(pipeline.getRootBoxNode(), boxNodeIds);
+                assertEquals(height, pipeline.getHeight(), DELTA);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(pages * (divs + 1), renderNodeIds.size());
+        assertEquals(pages * (divs + 1), boxNodeIds.size());
+    }
+
+    private void addRenderNodeIds(RenderNode node, Set<Integer> ids) {
+        assertTrue(ids.add(node.id));
+        for (RenderNode child : node.children) {
+            addRenderNodeIds(child, ids);
+        }
+    }
+
+    private void addBoxNodeIds(BoxNode node, Set<Integer> ids) {
+        assertTrue(ids.add(node.id));
+        for (BoxNode child : node.children) {
+            addBoxNodeIds(child, ids);
+        }
+    }
+
 }
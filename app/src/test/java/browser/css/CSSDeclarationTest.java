@@ -0,0 +1,73 @@
+package browser.css;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import browser.css.CSSStyle.MarginType;
+
+import org.junit.Test;
+
+public class CSSDeclarationTest {
+
+    @Test
+    public void importantTest() {
+        CSSDeclaration declaration = new CSSDeclaration("margin", "4px !important");
+        assertEquals("4px", declaration.value);
+        assertTrue(declaration.important);
+        assertFalse(new CSSDeclaration("margin", "4px").important);
+    }
+
+    @Test
+    public void shorthandParsedOnceTest() {
+        CSSDeclaration declaration = CSSDeclaration.parseAll(Map.of("margin", "1px 2px 3px auto"))[0];
+        CSSStyle style1 = new CSSStyle();
+        CSSStyle style2 = new CSSStyle();
+        declaration.applyTo(style1);
+        declaration.applyTo(style2);
+        for (CSSStyle style : new CSSStyle[] {style1, style2}) {
+            assertEquals(1, style.properties.get("margin-top"));
+            assertEquals(2, style.properties.get("margin-right"));
+            assertEquals(3, style.properties.get("margin-bottom"));
+            assertEquals(MarginType.AUTO, style.properties.get("margin-left-type"));
+        }
+    }
+
+    @Test
+    public void fontRelativeLengthTest() {
+        CSSDeclaration margin = new CSSDeclaration("margin-top", "2em");
+        CSSDeclaration fontSize = new CSSDeclaration("font-size", "1.5em");
+
+        CSSStyle parent = new CSSStyle();
+        parent.fontSize = 10;
+        parent.properties.put("font-size", 10f);
+        CSSStyle child = new CSSStyle();
+        child.parentStyle = parent;
+        margin.applyTo(child);
+        fontSize.applyTo(child);
+        assertEquals(20, child.properties.get("margin-top"));
+        assertEquals(15f, child.properties.get("font-size"));
+
+        // The same declaration resolves against the parent of each node it applies to.
+        parent.fontSize = 20;
+        parent.properties.put("font-size", 20f);
+        CSSStyle otherChild = new CSSStyle();
+        otherChild.parentStyle = parent;
+        margin.applyTo(otherChild);
+        fontSize.applyTo(otherChild);
+        assertEquals(40, otherChild.properties.get("margin-top"));
+        assertEquals(30f, otherChild.properties.get("font-size"));
+    }
+
+    @Test
+    public void inheritKeywordTest() {
+        CSSStyle style = new CSSStyle();
+        style.setProperty("width", "inherit");
+        assertFalse(style.shouldInheritProperty("width"));
+        style.setComputedValues();
+        assertTrue(style.shouldInheritProperty("width"));
+    }
+
+}
@@ -1,6 +1,13 @@
 package browser.css;
 
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+
+import browser.model.AttributeMap;
 import browser.model.RenderNode;
+import browser.parser.HTMLElements;
 
 import org.junit.Test;
 
@@ -28,4 +35,30 @@ public class CSSLoaderTest {
 
     }
 
+    @Test
+    public void attributeChangesApplyAtNextStylingTest() {
+        CSSLoader loader = new CSSLoader(null, List.of(".Big { margin-top: 5px; } #main { margin-top: 7px; } custom-item { margin-top: 3px; }"), 800, 600);
+        Map<String, String> attributes = new AttributeMap();
+        attributes.put("class", "small other");
+        assertEquals(0, getStyledMarginTop(loader, HTMLElements.DIV, attributes));
+
+        attributes.put("class", "other BIG");
+        assertEquals(5, getStyledMarginTop(loader, HTMLElements.DIV, attributes));
+        attributes.put("id", "Main");
+        assertEquals(7, getStyledMarginTop(loader, HTMLElements.DIV, attributes));
+        assertEquals(3, getStyledMarginTop(loader, "custom-item", new AttributeMap()));
+    }
+
+    private int getStyledMarginTop(CSSLoader loader, String type, Map<String, String> attributes) {
+        // Each styling uses a new render tree, which shares the attributes of the DOM.
+        RenderNode body = new RenderNode(HTMLElements.BODY);
+        RenderNode node = new RenderNode(type);
+        // Selector matches are cached by node id.
+        node.id = 1;
+        node.attributes = attributes;
+        body.addChild(node);
+        loader.applyAllCSS(body);
+        return node.style.marginTop;
+    }
+
 }
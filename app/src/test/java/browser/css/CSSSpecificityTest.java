@@ -86,4 +86,32 @@ public class CSSSpecificityTest {
             assertTrue(specificity2.hasEqualOrGreaterSpecificityThan(specificity1));
         }
     }
+
+    @Test
+    public void multipleDigitSpecificityComparison() {
+        CSSSpecificity specificity1 = new CSSSpecificity(0, 0, 10, 0);
+        CSSSpecificity specificity2 = new CSSSpecificity(0, 0, 9, 0);
+        assertTrue(specificity1.hasEqualOrGreaterSpecificityThan(specificity2));
+        assertFalse(specificity2.hasEqualOrGreaterSpecificityThan(specificity1));
+
+        CSSSpecificity saturated = new CSSSpecificity(0, 0, 1000, 0);
+        assertTrue(saturated.hasEqualOrGreaterSpecificityThan(new CSSSpecificity(0, 0, 255, 0)));
+        assertFalse(saturated.hasEqualOrGreaterSpecificityThan(new CSSSpecificity(0, 1, 0, 0)));
+    }
+
+    @Test
+    public void cascadeOrderComparison() {
+        CSSSpecificity low = new CSSSpecificity(0, 0, 0, 1);
+        CSSSpecificity high = new CSSSpecificity(0, 1, 0, 0);
+        CSSSpecificity.Origin ua = CSSSpecificity.Origin.USER_AGENT;
+        CSSSpecificity.Origin author = CSSSpecificity.Origin.AUTHOR;
+
+        // Origin and importance outweigh specificity, and specificity outweighs source order.
+        assertTrue(low.toCascadeOrder(author, false, 0) > high.toCascadeOrder(ua, false, 1));
+        assertTrue(low.toCascadeOrder(author, true, 0) > high.toCascadeOrder(author, false, 1));
+        assertTrue(low.toCascadeOrder(ua, true, 0) > high.toCascadeOrder(author, true, 1));
+        assertTrue(high.toCascadeOrder(author, false, 0) > low.toCascadeOrder(author, false, 1));
+        assertTrue(low.toCascadeOrder(author, false, 2) > low.toCascadeOrder(author, false, 1));
+        assertTrue(low.toCascadeOrder(ua, true, 0) < (1L << CSSSpecificity.PACKED_BITS));
+    }
 }
@@ -0,0 +1,105 @@
+package browser.css;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Map;
+
+import browser.css.CSSSpecificity.Origin;
+import browser.model.CSSSelectorGroup;
+import browser.parser.CSSParser;
+
+import org.junit.Test;
+
+public class DeclarationCascadeTest {
+
+    @Test
+    public void laterRuleWinsTest() {
+        CSSStyle style = new CSSStyle();
+        DeclarationCascade cascade = new DeclarationCascade();
+        cascade.add(Map.of("color", "red", "width", "10px"), new CSSSpecificity(0, 0, 1, 0), Origin.AUTHOR, 1);
+        cascade.add(Map.of("color", "blue"), new CSSSpecificity(0, 0, 1, 0), Origin.AUTHOR, 2);
+        cascade.applyTo(style);
+        assertEquals("blue", style.propertyStrings.get("color"));
+        assertEquals("10px", style.propertyStrings.get("width"));
+    }
+
+    @Test
+    public void specificityWinsOverSourceOrderTest() {
+        CSSStyle style = new CSSStyle();
+        DeclarationCascade cascade = new DeclarationCascade();
+        cascade.add(Map.of("color", "red"), new CSSSpecificity(0, 1, 0, 0), Origin.AUTHOR, 1);
+        cascade.add(Map.of("color", "blue"), new CSSSpecificity(0, 0, 11, 0), Origin.AUTHOR, 2);
+        cascade.applyTo(style);
+        assertEquals("red", style.propertyStrings.get("color"));
+    }
+
+    @Test
+    public void importantTest() {
+        CSSStyle style = new CSSStyle();
+        DeclarationCascade cascade = new DeclarationCascade();
+        cascade.add(Map.of("color", "red !important"), new CSSSpecificity(0, 0, 0, 1), Origin.AUTHOR, 1);
+        cascade.add(Map.of("color", "blue"), new CSSSpecificity(1, 1, 0, 0), Origin.AUTHOR, 2);
+        cascade.applyTo(style);
+        assertEquals("red", style.propertyStrings.get("color"));
+    }
+
+    @Test
+    public void authorWinsOverUserAgentTest() {
+        CSSStyle style = new CSSStyle();
+        DeclarationCascade cascade = new DeclarationCascade();
+        cascade.add(Map.of("margin", "8px"), new CSSSpecificity(0, 1, 0, 1), Origin.USER_AGENT, 1);
+        cascade.add(Map.of("margin", "0"), new CSSSpecificity(0, 0, 0, 0), Origin.AUTHOR, 0);
+        cascade.applyTo(style);
+        assertEquals("0", style.propertyStrings.get("margin"));
+    }
+
+    @Test
+    public void declaredPropertiesNotInheritedTest() {
+        CSSStyle style = new CSSStyle();
+        DeclarationCascade cascade = new DeclarationCascade();
+        cascade.add(Map.of("color", "red"), new CSSSpecificity(), Origin.AUTHOR, 0);
+        cascade.applyTo(style);
+        assertFalse(style.shouldInheritProperty("color"));
+    }
+
+    @Test
+    public void reusedCascadeTest() {
+        DeclarationCascade cascade = new DeclarationCascade();
+        CSSStyle first = new CSSStyle();
+        // More declarations than the initial buffers hold.
+        for (int i = 0; i < 40; i++) {
+            cascade.add(Map.of("width", i + "px"), new CSSSpecificity(0, 0, 0, 1), Origin.AUTHOR, i);
+        }
+        cascade.add(Map.of("color", "red"), new CSSSpecificity(0, 0, 0, 1), Origin.AUTHOR, 0);
+        cascade.applyTo(first);
+        assertEquals("39px", first.propertyStrings.get("width"));
+        assertEquals(0, cascade.size());
+
+        // Nothing from the first style carries over to the next.
+        CSSStyle second = new CSSStyle();
+        cascade.add(Map.of("width", "5px"), new CSSSpecificity(0, 0, 0, 1), Origin.AUTHOR, 0);
+        cascade.applyTo(second);
+        assertEquals(Map.of("width", "5px"), second.propertyStrings);
+    }
+
+    @Test
+    public void laterLonghandWinsWithinRuleTest() {
+        assertEquals(5, getMarginTop("div { margin: 0; margin-left: auto; margin-top: 5px; }"));
+        assertEquals(0, getMarginTop("div { margin-left: auto; margin-top: 5px; margin: 0; }"));
+        // A repeated declaration takes the place of the earlier one, after the shorthand in between.
+        assertEquals(5, getMarginTop("div { margin-top: 7px; margin: 0; margin-top: 5px; }"));
+        assertEquals(5, getMarginTop("div { margin-top: 7px; margin: 0; } div { margin-top: 5px; }"));
+    }
+
+    private int getMarginTop(String css) {
+        Map<CSSSelectorGroup, Map<String, String>> rules = CSSParser.parseRules(css);
+        CSSStyle style = new CSSStyle();
+        DeclarationCascade cascade = new DeclarationCascade();
+        cascade.add(rules.values().iterator().next(), new CSSSpecificity(0, 0, 0, 1), Origin.AUTHOR, 0);
+        cascade.applyTo(style);
+        style.setClassProperties();
+        return style.marginTop;
+    }
+
+}
@@ -0,0 +1,59 @@
+package browser.css;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import browser.parser.CSSParser;
+
+import org.junit.Test;
+
+public class MediaQueryIndexTest {
+
+    private MediaQueryIndex createIndex(String css) {
+        return new MediaQueryIndex(List.of(CSSParser.parseRules(css)));
+    }
+
+    @Test
+    public void noMediaQueriesTest() {
+        MediaQueryIndex index = createIndex("div { color: red; } p { margin: 0; }");
+        assertEquals(0, index.getThresholdCount());
+        assertTrue(index.matchesSameRules(100, 100, 2000, 50));
+    }
+
+    @Test
+    public void minAndMaxWidthTest() {
+        MediaQueryIndex index = createIndex(
+                "@media (min-width: 600px) { div { color: red; } }" +
+                "@media (max-width: 300px) { div { color: blue; } p { color: blue; } }");
+        assertEquals(2, index.getThresholdCount());
+
+        assertTrue(index.matchesSameRules(400, 0, 500, 0));
+        assertTrue(index.matchesSameRules(700, 0, 1200, 0));
+        assertTrue(index.matchesSameRules(100, 0, 250, 0));
+        // Height does not affect width features.
+        assertTrue(index.matchesSameRules(400, 0, 400, 900));
+
+        assertFalse(index.matchesSameRules(500, 0, 700, 0));
+        assertFalse(index.matchesSameRules(599, 0, 600, 0));
+        assertFalse(index.matchesSameRules(300, 0, 301, 0));
+        assertFalse(index.matchesSameRules(200, 0, 400, 0));
+    }
+
+    @Test
+    public void exactWidthAndHeightTest() {
+        MediaQueryIndex index = createIndex(
+                "@media (width: 500px) { div { color: red; } }" +
+                "@media (height: 400px) { div { color: blue; } }");
+
+        assertFalse(index.matchesSameRules(499, 0, 500, 0));
+        assertFalse(index.matchesSameRules(500, 0, 501, 0));
+        assertTrue(index.matchesSameRules(300, 0, 450, 0));
+
+        assertFalse(index.matchesSameRules(100, 399, 100, 400));
+        assertTrue(index.matchesSameRules(100, 500, 100, 800));
+    }
+
+}
@@ -0,0 +1,73 @@
+package browser.css;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import browser.model.CSSSelectorGroup;
+import browser.model.RenderNode;
+import browser.parser.CSSParser;
+import browser.parser.HTMLElements;
+
+import org.junit.Test;
+
+public class SelectorMatcherTest {
+
+    private CSSSelectorGroup parseSelector(String selector) {
+        return CSSParser.parseRules(selector + " { color: red; }").keySet().iterator().next();
+    }
+
+    private RenderNode createNode(String type, int id, RenderNode parent) {
+        RenderNode node = new RenderNode(type);
+        node.id = id;
+        if (parent != null) {
+            parent.addChild(node);
+        }
+        return node;
+    }
+
+    private boolean matches(String selector, RenderNode node) {
+        SelectorMatcher.clearCache();
+        return SelectorMatcher.selectorGroupMatchesNode(parseSelector(selector), node);
+    }
+
+    @Test
+    public void siblingCombinatorsTest() {
+        RenderNode body = createNode(HTMLElements.BODY, 0, null);
+        RenderNode h1 = createNode(HTMLElements.H1, 1, body);
+        RenderNode div = createNode(HTMLElements.DIV, 2, body);
+        RenderNode p = createNode(HTMLElements.P, 3, body);
+
+        assertTrue(matches("h1 + div", div));
+        assertFalse(matches("h1 + p", p));
+        assertTrue(matches("h1 ~ p", p));
+        assertTrue(matches("div ~ p", p));
+        // Siblings after the node do not match.
+        assertFalse(matches("p ~ div", div));
+        assertFalse(matches("div ~ h1", h1));
+        assertFalse(matches("body + h1", h1));
+    }
+
+    @Test
+    public void indexInParentTest() {
+        RenderNode body = createNode(HTMLElements.BODY, 0, null);
+        RenderNode first = createNode(HTMLElements.DIV, 1, body);
+        RenderNode second = createNode(HTMLElements.DIV, 2, body);
+        assertEquals(-1, body.getIndexInParent());
+        assertEquals(0, first.getIndexInParent());
+        assertEquals(1, second.getIndexInParent());
+
+        // The cached indices are updated after the children change.
+        RenderNode inserted = new RenderNode(HTMLElements.SPAN);
+        inserted.parent = body;
+        assertEquals(-1, inserted.getIndexInParent());
+        body.children.add(0, inserted);
+        assertEquals(0, inserted.getIndexInParent());
+        assertEquals(1, first.getIndexInParent());
+        assertEquals(2, second.getIndexInParent());
+        body.children.remove(first);
+        assertEquals(1, second.getIndexInParent());
+        assertTrue(matches("span + div", second));
+    }
+
+}
@@ -0,0 +1,104 @@
+package browser.layout;
+
+import static org.junit.Assert.*;
+
+import browser.css.CSSStyle;
+import browser.model.BoxNode;
+
+import org.junit.Test;
+
+public class BoxArenaTest {
+
+    /**
+     * root (10)
+     *      node1 (11)
+     *          node3 (13)
+     *          node4 (14)
+     *      node2 (12)
+     */
+    @Test
+    public void preOrderLinksTest() {
+        BoxNode root = createBox(10, null);
+        BoxNode node1 = createBox(11, root);
+        BoxNode node2 = createBox(12, root);
+        BoxNode node3 = createBox(13, node1);
+        BoxNode node4 = createBox(14, node1);
+
+        BoxArena arena = new BoxArena(root);
+
+        assertEquals(5, arena.size());
+        assertSame(root, arena.getBoxNode(0));
+        assertSame(node1, arena.getBoxNode(1));
+        assertSame(node3, arena.getBoxNode(2));
+        assertSame(node4, arena.getBoxNode(3));
+        assertSame(node2, arena.getBoxNode(4));
+
+        assertEquals(BoxArena.NONE, arena.getParent(0));
+        assertEquals(0, arena.getParent(1));
+        assertEquals(1, arena.getParent(2));
+        assertEquals(1, arena.getParent(3));
+        assertEquals(0, arena.getParent(4));
+
+        assertEquals(3, arena.indexOf(node4));
+        assertEquals(BoxArena.NONE, arena.indexOf(createBox(12, null)));
+        // A box that is not in the tree is not found, even if it was in the tree of an earlier arena.
+        BoxNode other = createBox(20, null);
+        createBox(21, other);
+        BoxNode otherChild = createBox(22, other);
+        new BoxArena(other);
+        assertEquals(2, otherChild.arenaIndex);
+        assertEquals(BoxArena.NONE, arena.indexOf(otherChild));
+        assertEquals(BoxArena.NONE, arena.indexOf(new BoxNode(node3)));
+    }
+
+    @Test
+    public void moveSubtreeTest() {
+        BoxNode root = createBox(0, null);
+        BoxNode node1 = createBox(1, root);
+        BoxNode node2 = createBox(2, node1);
+        BoxNode node3 = createBox(3, root);
+        node3.width = Float.NaN;
+
+        BoxArena arena = new BoxArena(root);
+        arena.moveSubtree(1, 5, 2);
+
+        arena.moveSubtree(2, 1, 0);
+        arena.moveSubtree(0, 10, 0);
+
+        // The arena includes the moves of ancestors, but nothing changes in the box nodes until written back.
+        assertEquals(17f, arena.getX(2), 0);
+        assertEquals(3f, arena.getY(2), 0);
+        assertEquals(11f, arena.getX(3), 0);
+        assertEquals(1f, node2.x, 0);
+
+        arena.writeBack();
+        assertEquals(11f, root.x, 0);
+        assertEquals(1f, root.y, 0);
+        assertEquals(16f, node1.x, 0);
+        assertEquals(3f, node1.y, 0);
+        assertEquals(17f, node2.x, 0);
+        assertEquals(3f, node2.y, 0);
+        assertEquals(11f, node3.x, 0);
+        assertFalse(node3.hasWidth());
+
+        // Written back moves are not applied again.
+        arena.writeBack();
+        assertEquals(17f, node2.x, 0);
+    }
+
+    private BoxNode createBox(int id, BoxNode parent) {
+        BoxNode boxNode = new BoxNode();
+        boxNode.id = id;
+        boxNode.style = new CSSStyle();
+        boxNode.x = 1f;
+        boxNode.y = 1f;
+        boxNode.width = 10f;
+        boxNode.height = 10f;
+        if (parent != null) {
+            boxNode.parent = parent;
+            parent.children.add(boxNode);
+        }
+        return boxNode;
+    }
+
+}
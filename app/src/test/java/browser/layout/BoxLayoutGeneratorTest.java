@@ -266,10 +266,10 @@ public class BoxLayoutGeneratorTest {
         assertEquals(box1.parent == null, box2.parent == null);
         assertEquals(box1.children.size(), box2.children.size());
         assertEquals(box1.renderNodeId, box2.renderNodeId);
-        assertEquals(box1.x, box2.x);
-        assertEquals(box1.y, box2.y);
-        assertEquals(box1.width, box2.width);
-        assertEquals(box1.height, box2.height);
+        assertEquals(box1.x, box2.x, 0);
+        assertEquals(box1.y, box2.y, 0);
+        assertEquals(box1.width, box2.width, 0);
+        assertEquals(box1.height, box2.height, 0);
         assertEquals(box1.textStartIndex, box2.textStartIndex);
         assertEquals(box1.textEndIndex, box2.textEndIndex);
 
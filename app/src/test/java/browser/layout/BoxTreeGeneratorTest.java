@@ -24,8 +24,8 @@ public class BoxTreeGeneratorTest {
 
     @Before
     public void setupPerTest() {
-        BoxNode.nextId = 0;
-        RenderNode.nextId = 0;
+        BoxNode.nextId.set(0);
+        RenderNode.nextId.set(0);
     }
 
     @Test
@@ -473,28 +473,28 @@ public class BoxTreeGeneratorTest {
         div4Box.parent = div3Box;
 
         BoxNode anonymousBox1 = new BoxNode();
-        anonymousBox1.id = 7;
+        anonymousBox1.id = 10;
         anonymousBox1.outerDisplayType = DisplayType.BLOCK;
         anonymousBox1.innerDisplayType = DisplayType.FLOW;
         anonymousBox1.isAnonymous = true;
         anonymousBox1.parent = div1Box;
 
         BoxNode anonymousBox2 = new BoxNode();
-        anonymousBox2.id = 8;
+        anonymousBox2.id = 9;
         anonymousBox2.outerDisplayType = DisplayType.BLOCK;
         anonymousBox2.innerDisplayType = DisplayType.FLOW;
         anonymousBox2.isAnonymous = true;
         anonymousBox2.parent = div3Box;
 
         BoxNode anonymousBox3 = new BoxNode();
-        anonymousBox3.id = 9;
+        anonymousBox3.id = 7;
         anonymousBox3.outerDisplayType = DisplayType.BLOCK;
         anonymousBox3.innerDisplayType = DisplayType.FLOW;
         anonymousBox3.isAnonymous = true;
         anonymousBox3.parent = anonymousBox1;
 
         BoxNode anonymousBox4 = new BoxNode();
-        anonymousBox4.id = 10;
+        anonymousBox4.id = 8;
         anonymousBox4.outerDisplayType = DisplayType.BLOCK;
         anonymousBox4.innerDisplayType = DisplayType.FLOW;
         anonymousBox4.isAnonymous = true;
@@ -739,12 +739,12 @@ public class BoxTreeGeneratorTest {
     @Test
     public void generatePreLines() {
         RenderNode pre = new RenderNode(HTMLElements.PRE);
-        pre.id = RenderNode.nextId++;
+        pre.id = RenderNode.nextId.getAndIncrement();
         pre.style.outerDisplay = DisplayType.BLOCK;
         pre.style.innerDisplay = DisplayType.FLOW;
 
         RenderNode text = new RenderNode(HTMLElements.TEXT);
-        text.id = RenderNode.nextId++;
+        text.id = RenderNode.nextId.getAndIncrement();
         text.style.outerDisplay = DisplayType.INLINE;
         text.style.innerDisplay = DisplayType.FLOW;
         text.text = "some\npre\ntext";
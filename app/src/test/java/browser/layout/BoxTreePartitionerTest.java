@@ -110,7 +110,7 @@ public class BoxTreePartitionerTest {
         BoxNode node23 = new BoxNode();
         node23.id = 5;
 
-        BoxNode.nextId = 6;
+        BoxNode.nextId.set(6);
 
         root.children.addAll(List.of(node11, node12));
         node11.children.addAll(List.of(node21, node22));
@@ -209,7 +209,7 @@ public class BoxTreePartitionerTest {
         BoxNode node51 = new BoxNode();
         node51.id = 10;
 
-        BoxNode.nextId = 11;
+        BoxNode.nextId.set(11);
 
         root.children.addAll(List.of(node11, node12, node13));
         node12.children.add(node21);
@@ -345,7 +345,7 @@ public class BoxTreePartitionerTest {
         BoxNode node32 = new BoxNode();
         node32.id = 6;
 
-        BoxNode.nextId = 7;
+        BoxNode.nextId.set(7);
 
         root.children.addAll(List.of(node11, node12));
         node12.children.addAll(List.of(node21, node22));
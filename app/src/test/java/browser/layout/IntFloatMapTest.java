@@ -0,0 +1,41 @@
+package browser.layout;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class IntFloatMapTest {
+
+    private static final float DELTA = 0.001f;
+
+    @Test
+    public void putAndGetTest() {
+        IntFloatMap map = new IntFloatMap();
+        assertFalse(map.containsKey(0));
+        assertEquals(-1, map.get(0, -1), DELTA);
+
+        map.put(0, 1.5f);
+        map.put(-7, 2.5f);
+        map.put(0, 3.5f);
+        assertEquals(2, map.size());
+        assertTrue(map.containsKey(-7));
+        assertEquals(3.5f, map.get(0, -1), DELTA);
+        assertEquals(2.5f, map.get(-7, -1), DELTA);
+        assertEquals(-1, map.get(7, -1), DELTA);
+    }
+
+    @Test
+    public void growTest() {
+        IntFloatMap map = new IntFloatMap();
+        // Box ids are spread out, since boxes copied during layout take new ids.
+        for (int i = 0; i < 1000; i++) {
+            map.put(i * 64, i);
+        }
+        assertEquals(1000, map.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, map.get(i * 64, -1), DELTA);
+        }
+        assertFalse(map.containsKey(1));
+    }
+
+}
@@ -0,0 +1,35 @@
+package browser.layout;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class IntObjectMapTest {
+
+    @Test
+    public void putAndGetTest() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        assertNull(map.get(3));
+
+        map.put(3, "a");
+        map.put(19, "b");
+        map.put(3, "c");
+        assertEquals(2, map.size());
+        assertEquals("c", map.get(3));
+        assertEquals("b", map.get(19));
+        assertNull(map.get(4));
+    }
+
+    @Test
+    public void growTest() {
+        IntObjectMap<Integer> map = new IntObjectMap<>();
+        for (int i = 0; i < 1000; i++) {
+            map.put(i * 16, i);
+        }
+        assertEquals(1000, map.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(Integer.valueOf(i), map.get(i * 16));
+        }
+    }
+
+}
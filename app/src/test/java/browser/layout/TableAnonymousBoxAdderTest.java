@@ -1,6 +1,9 @@
 package browser.layout;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
 
 import browser.app.Pipeline;
 import browser.css.CSSStyle;
@@ -36,4 +39,70 @@ public class TableAnonymousBoxAdderTest {
         assertEquals(CSSStyle.DisplayType.TABLE_CELL, table.children.get(0).children.get(0).innerDisplayType);
     }
 
+    /**
+     * <div>
+     *     <cell1></cell1>
+     *     <cell2></cell2>
+     *     <span></span>
+     *     <cell3></cell3>
+     * </div>
+     *
+     * -->
+     *
+     * <div>
+     *     <table>
+     *         <row>
+     *             <cell1></cell1>
+     *             <cell2></cell2>
+     *         </row>
+     *     </table>
+     *     <span></span>
+     *     <table>
+     *         <row>
+     *             <cell3></cell3>
+     *         </row>
+     *     </table>
+     * </div>
+     */
+    @Test
+    public void consecutiveCellsOutsideTable() {
+        BoxNode div = createBox(CSSStyle.DisplayType.BLOCK, CSSStyle.DisplayType.FLOW, null);
+        BoxNode cell1 = createBox(CSSStyle.DisplayType.BLOCK, CSSStyle.DisplayType.TABLE_CELL, div);
+        BoxNode cell2 = createBox(CSSStyle.DisplayType.BLOCK, CSSStyle.DisplayType.TABLE_CELL, div);
+        BoxNode span = createBox(CSSStyle.DisplayType.INLINE, CSSStyle.DisplayType.FLOW, div);
+        BoxNode cell3 = createBox(CSSStyle.DisplayType.BLOCK, CSSStyle.DisplayType.TABLE_CELL, div);
+
+        tableAnonymousBoxAdder.addAnonymousBoxes(div);
+        assertEquals(3, div.children.size());
+        assertSame(span, div.children.get(1));
+
+        BoxNode table1 = div.children.get(0);
+        assertEquals(CSSStyle.DisplayType.TABLE, table1.innerDisplayType);
+        assertSame(div, table1.parent);
+        assertEquals(1, table1.children.size());
+        BoxNode row1 = table1.children.get(0);
+        assertEquals(CSSStyle.DisplayType.TABLE_ROW, row1.innerDisplayType);
+        assertSame(table1, row1.parent);
+        assertEquals(List.of(cell1, cell2), row1.children);
+        assertSame(row1, cell1.parent);
+        assertSame(row1, cell2.parent);
+
+        BoxNode table2 = div.children.get(2);
+        assertEquals(CSSStyle.DisplayType.TABLE, table2.innerDisplayType);
+        assertEquals(1, table2.children.size());
+        assertEquals(List.of(cell3), table2.children.get(0).children);
+    }
+
+    private BoxNode createBox(CSSStyle.DisplayType outerDisplayType, CSSStyle.DisplayType innerDisplayType, BoxNode parent) {
+        BoxNode boxNode = new BoxNode();
+        boxNode.id = BoxNode.nextId.getAndIncrement();
+        boxNode.outerDisplayType = outerDisplayType;
+        boxNode.innerDisplayType = innerDisplayType;
+        if (parent != null) {
+            boxNode.parent = parent;
+            parent.children.add(boxNode);
+        }
+        return boxNode;
+    }
+
 }
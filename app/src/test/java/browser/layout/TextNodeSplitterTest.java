@@ -59,10 +59,10 @@ public class TextNodeSplitterTest {
         float width = 10;
         List<BoxNode> results = textNodeSplitter.split(boxNode, width, width);
         assertEquals(4, results.size());
-        assertEquals("first word", renderNode.text.substring(results.get(0).textStartIndex, results.get(0).textEndIndex));
-        assertEquals("second", renderNode.text.substring(results.get(1).textStartIndex, results.get(1).textEndIndex));
-        assertEquals("word third", renderNode.text.substring(results.get(2).textStartIndex, results.get(2).textEndIndex));
-        assertEquals("word", renderNode.text.substring(results.get(3).textStartIndex, results.get(3).textEndIndex));
+        assertEquals("first word", renderNode.text.subSequence(results.get(0).textStartIndex, results.get(0).textEndIndex));
+        assertEquals("second", renderNode.text.subSequence(results.get(1).textStartIndex, results.get(1).textEndIndex));
+        assertEquals("word third", renderNode.text.subSequence(results.get(2).textStartIndex, results.get(2).textEndIndex));
+        assertEquals("word", renderNode.text.subSequence(results.get(3).textStartIndex, results.get(3).textEndIndex));
     }
 
     @Test
@@ -75,10 +75,10 @@ public class TextNodeSplitterTest {
         float width = 15;
         List<BoxNode> results = textNodeSplitter.split(boxNode, width, width);
         assertEquals(4, results.size());
-        assertEquals("first word", renderNode.text.substring(results.get(0).textStartIndex, results.get(0).textEndIndex));
-        assertEquals("very-long-second-word", renderNode.text.substring(results.get(1).textStartIndex, results.get(1).textEndIndex));
-        assertEquals("third word", renderNode.text.substring(results.get(2).textStartIndex, results.get(2).textEndIndex));
-        assertEquals("very-long-fourth-and-final-word", renderNode.text.substring(results.get(3).textStartIndex, results.get(3).textEndIndex));
+        assertEquals("first word", renderNode.text.subSequence(results.get(0).textStartIndex, results.get(0).textEndIndex));
+        assertEquals("very-long-second-word", renderNode.text.subSequence(results.get(1).textStartIndex, results.get(1).textEndIndex));
+        assertEquals("third word", renderNode.text.subSequence(results.get(2).textStartIndex, results.get(2).textEndIndex));
+        assertEquals("very-long-fourth-and-final-word", renderNode.text.subSequence(results.get(3).textStartIndex, results.get(3).textEndIndex));
     }
 
     @Test
@@ -90,11 +90,11 @@ public class TextNodeSplitterTest {
         boxNode.correspondingRenderNode = renderNode;
         List<BoxNode> results = textNodeSplitter.split(boxNode, 5, 10);
         assertEquals(5, results.size());
-        assertEquals("first", renderNode.text.substring(results.get(0).textStartIndex, results.get(0).textEndIndex));
-        assertEquals("word", renderNode.text.substring(results.get(1).textStartIndex, results.get(1).textEndIndex));
-        assertEquals("second", renderNode.text.substring(results.get(2).textStartIndex, results.get(2).textEndIndex));
-        assertEquals("word third", renderNode.text.substring(results.get(3).textStartIndex, results.get(3).textEndIndex));
-        assertEquals("word", renderNode.text.substring(results.get(4).textStartIndex, results.get(4).textEndIndex));
+        assertEquals("first", renderNode.text.subSequence(results.get(0).textStartIndex, results.get(0).textEndIndex));
+        assertEquals("word", renderNode.text.subSequence(results.get(1).textStartIndex, results.get(1).textEndIndex));
+        assertEquals("second", renderNode.text.subSequence(results.get(2).textStartIndex, results.get(2).textEndIndex));
+        assertEquals("word third", renderNode.text.subSequence(results.get(3).textStartIndex, results.get(3).textEndIndex));
+        assertEquals("word", renderNode.text.subSequence(results.get(4).textStartIndex, results.get(4).textEndIndex));
     }
 
     @Test
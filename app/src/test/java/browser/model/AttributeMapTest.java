@@ -0,0 +1,82 @@
+package browser.model;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class AttributeMapTest {
+
+    @Test
+    public void putAndGetTest() {
+        AttributeMap attributes = new AttributeMap();
+        assertTrue(attributes.isEmpty());
+        assertNull(attributes.get("id"));
+
+        attributes.put("id", "main");
+        attributes.put("class", "a b");
+        attributes.put("hidden", null);
+        assertEquals(3, attributes.size());
+        assertEquals("main", attributes.get("id"));
+        assertEquals("a b", attributes.get("class"));
+        assertNull(attributes.get("hidden"));
+        assertTrue(attributes.containsKey("hidden"));
+        assertFalse(attributes.containsKey("style"));
+
+        // A repeated attribute replaces the value, and putIfAbsent keeps the first one.
+        assertEquals("main", attributes.put("id", "other"));
+        assertEquals("other", attributes.putIfAbsent("id", "third"));
+        assertEquals("other", attributes.get("id"));
+        assertEquals(3, attributes.size());
+    }
+
+    @Test
+    public void insertionOrderTest() {
+        AttributeMap attributes = new AttributeMap();
+        for (String name : List.of("e", "d", "c", "b", "a")) {
+            attributes.put(name, name + name);
+        }
+        assertEquals(List.of("e", "d", "c", "b", "a"), List.copyOf(attributes.keySet()));
+        assertEquals("{e=ee, d=dd, c=cc, b=bb, a=aa}", attributes.toString());
+    }
+
+    @Test
+    public void removeTest() {
+        AttributeMap attributes = new AttributeMap();
+        attributes.put("a", "1");
+        attributes.put("b", "2");
+        attributes.put("c", "3");
+        assertEquals("2", attributes.remove("b"));
+        assertNull(attributes.remove("b"));
+        assertEquals(List.of("a", "c"), List.copyOf(attributes.keySet()));
+
+        Iterator<Map.Entry<String, String>> iterator = attributes.entrySet().iterator();
+        iterator.next();
+        iterator.remove();
+        assertEquals("c", iterator.next().getKey());
+        assertFalse(iterator.hasNext());
+        assertEquals(Map.of("c", "3"), attributes);
+    }
+
+    @Test
+    public void equalsTest() {
+        AttributeMap attributes = new AttributeMap();
+        attributes.put("a", "1");
+        attributes.put("b", null);
+        Map<String, String> expected = new HashMap<>();
+        expected.put("b", null);
+        expected.put("a", "1");
+        assertEquals(expected, attributes);
+        assertEquals(attributes, expected);
+        assertEquals(expected.hashCode(), attributes.hashCode());
+
+        attributes.entrySet().iterator().next().setValue("2");
+        assertEquals("2", attributes.get("a"));
+        assertNotEquals(expected, attributes);
+    }
+
+}
@@ -0,0 +1,55 @@
+package browser.model;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TextSliceTest {
+
+    @Test
+    public void bufferSlicesTest() {
+        TextBuffer buffer = new TextBuffer();
+        TextSlice first = buffer.append("first text");
+        // Enough text to grow the buffer, after which earlier slices still read their text.
+        TextSlice second = buffer.append("x".repeat(2000));
+        buffer.trimToSize();
+
+        assertEquals(2010, buffer.length());
+        assertEquals("first text", first.toString());
+        assertEquals(2000, second.length());
+        assertEquals('x', second.charAt(1999));
+        assertSame(first.toString(), first.toString());
+    }
+
+    @Test
+    public void subSequenceTest() {
+        TextBuffer buffer = new TextBuffer();
+        TextSlice slice = buffer.append("some text here");
+        TextSlice word = slice.subSequence(5, 9);
+        assertEquals("text", word.toString());
+        assertEquals('x', word.charAt(2));
+        assertEquals("ex", word.subSequence(1, 3).toString());
+        assertSame(slice, slice.subSequence(0, slice.length()));
+    }
+
+    @Test
+    public void stringSliceTest() {
+        String text = "dom text";
+        TextSlice slice = new TextSlice(text);
+        // A view of all of a String returns it rather than a copy.
+        assertSame(text, slice.toString());
+        assertEquals("text", slice.subSequence(4, 8).toString());
+    }
+
+    @Test
+    public void equalsTest() {
+        TextBuffer buffer = new TextBuffer();
+        TextSlice bufferSlice = buffer.append("a b a").subSequence(0, 1);
+        TextSlice stringSlice = new TextSlice("b a").subSequence(2, 3);
+        assertEquals(bufferSlice, stringSlice);
+        assertEquals("a".hashCode(), bufferSlice.hashCode());
+        assertEquals(bufferSlice.hashCode(), stringSlice.hashCode());
+        assertNotEquals(bufferSlice, buffer.append("b").subSequence(0, 1));
+    }
+
+}
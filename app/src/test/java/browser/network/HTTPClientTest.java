@@ -7,12 +7,12 @@ public class HTTPClientTest {
 
     @Test
     public void testRequestPage() throws PageLoadException {
-        String html = HTTPClient.requestPage("https://en.wikipedia.org/wiki/Siberian_accentor");
+        String html = new HTTPClient().requestPage("https://en.wikipedia.org/wiki/Siberian_accentor");
     }
 
     @Test
     public void testDownloadImage() {
-        HTTPClient.downloadImage("https://upload.wikimedia.org/wikipedia/en/9/90/ElderScrollsOblivionScreenshot11.jpg");
+        new HTTPClient().downloadImage("https://upload.wikimedia.org/wikipedia/en/9/90/ElderScrollsOblivionScreenshot11.jpg", false);
     }
 
 }
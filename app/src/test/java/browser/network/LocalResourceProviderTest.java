@@ -0,0 +1,83 @@
+package browser.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+public class LocalResourceProviderTest {
+
+    private static final String SPAMHAUS_PAGE = "file://src/main/resources/offline-webpages/spamhaus/About The Spamhaus Project.html";
+
+    @Test
+    public void resolveRelativeToPageTest() {
+        LocalResourceProvider provider = new LocalResourceProvider(SPAMHAUS_PAGE);
+        Path expected = Path.of("src/main/resources/offline-webpages/spamhaus/About The Spamhaus Project_files/sh.css");
+        assertEquals(expected, provider.resolve("./About The Spamhaus Project_files/sh.css"));
+        assertEquals(expected, provider.resolve("About The Spamhaus Project_files/sh.css"));
+        assertEquals(expected, provider.resolve("About The Spamhaus Project_files\\sh.css"));
+        assertEquals(Path.of("src/main/resources/css/default.css"), provider.resolve("src/main/resources/css/default.css"));
+        assertNull(provider.resolve("missing.css"));
+        assertNull(provider.resolve("About The Spamhaus Project_files"));
+    }
+
+    @Test
+    public void decodeUTF8Test() throws IOException {
+        LocalResourceProvider provider = new LocalResourceProvider(SPAMHAUS_PAGE);
+        Path path = Path.of(SPAMHAUS_PAGE.substring("file://".length()));
+        assertEquals(Files.readString(path, StandardCharsets.UTF_8), provider.readHTML(path));
+    }
+
+    @Test
+    public void byteOrderMarkTest() throws IOException {
+        LocalResourceProvider provider = new LocalResourceProvider(SPAMHAUS_PAGE);
+        String html = "<html><body>\u00e9t\u00e9</body></html>";
+
+        byte[] utf8 = html.getBytes(StandardCharsets.UTF_8);
+        byte[] utf8BOM = new byte[utf8.length + 3];
+        utf8BOM[0] = (byte) 0xEF;
+        utf8BOM[1] = (byte) 0xBB;
+        utf8BOM[2] = (byte) 0xBF;
+        System.arraycopy(utf8, 0, utf8BOM, 3, utf8.length);
+        assertEquals(html, provider.readHTML(writeTempFile(utf8BOM)));
+
+        byte[] utf16 = html.getBytes(StandardCharsets.UTF_16BE);
+        byte[] utf16BOM = new byte[utf16.length + 2];
+        utf16BOM[0] = (byte) 0xFE;
+        utf16BOM[1] = (byte) 0xFF;
+        System.arraycopy(utf16, 0, utf16BOM, 2, utf16.length);
+        assertEquals(html, provider.readHTML(writeTempFile(utf16BOM)));
+    }
+
+    @Test
+    public void declaredCharsetTest() throws IOException {
+        LocalResourceProvider provider = new LocalResourceProvider(SPAMHAUS_PAGE);
+        String html = "<html><head><meta charset=\"iso-8859-1\"></head><body>caf\u00e9</body></html>";
+        assertEquals(html, provider.readHTML(writeTempFile(html.getBytes(StandardCharsets.ISO_8859_1))));
+
+        String httpEquiv = "<html><head><meta http-equiv=\"Content-Type\" content=\"text/html; charset=windows-1252\"></head>caf\u00e9</html>";
+        assertEquals(httpEquiv, provider.readHTML(writeTempFile(httpEquiv.getBytes(StandardCharsets.ISO_8859_1))));
+
+        String css = "@charset \"ISO-8859-1\";\ndiv::after { content: \"\u00e9\"; }";
+        assertEquals(css, provider.readText(writeTempFile(css.getBytes(StandardCharsets.ISO_8859_1))));
+    }
+
+    @Test
+    public void emptyFileTest() throws IOException {
+        LocalResourceProvider provider = new LocalResourceProvider(SPAMHAUS_PAGE);
+        assertEquals("", provider.readHTML(writeTempFile(new byte[0])));
+    }
+
+    private Path writeTempFile(byte[] bytes) throws IOException {
+        Path path = Files.createTempFile("kelp", ".html");
+        path.toFile().deleteOnExit();
+        Files.write(path, bytes);
+        return path;
+    }
+
+}
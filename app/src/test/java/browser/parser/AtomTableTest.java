@@ -0,0 +1,52 @@
+package browser.parser;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class AtomTableTest {
+
+    @Test
+    public void getTest() {
+        AtomTable atoms = new AtomTable();
+        // Fixed names keep their fixed atoms.
+        assertEquals(Atoms.find(HTMLElements.DIV), atoms.get(HTMLElements.DIV));
+        assertEquals(Atoms.NONE, atoms.find("title-bar"));
+        int titleBar = atoms.get("title-bar");
+        int subtext = atoms.get("subtext");
+        assertTrue(titleBar < Atoms.NONE);
+        assertNotEquals(titleBar, subtext);
+        assertEquals(titleBar, atoms.get(new String("title-bar")));
+        assertEquals(titleBar, atoms.find("title-bar"));
+        assertEquals("title-bar", atoms.getName(titleBar));
+        assertEquals("subtext", atoms.getName(subtext));
+        assertEquals(HTMLElements.DIV, atoms.getName(atoms.get(HTMLElements.DIV)));
+    }
+
+    @Test
+    public void tablesAreSeparateTest() {
+        AtomTable first = new AtomTable();
+        AtomTable second = new AtomTable();
+        first.get("title-bar");
+        assertEquals(Atoms.NONE, second.find("title-bar"));
+        assertEquals(Atoms.NONE, Atoms.find("title-bar"));
+    }
+
+    @Test
+    public void findAllLowercaseTest() {
+        AtomTable atoms = new AtomTable();
+        int title = atoms.get("title-bar");
+        int subtext = atoms.get("subtext");
+        // Classes that are not in the table are left out, and not added.
+        int[] classes = atoms.findAllLowercase("  Title-Bar\tunused subtext\n\ntitle-bar ");
+        assertArrayEquals(new int[] {title, subtext, title}, classes);
+        assertEquals(Atoms.NONE, atoms.find("unused"));
+        assertEquals(0, atoms.findAllLowercase("unused").length);
+        assertEquals(0, atoms.findAllLowercase(null).length);
+        assertEquals(0, atoms.findAllLowercase("   ").length);
+    }
+
+}
@@ -0,0 +1,59 @@
+package browser.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import browser.model.DOMNode;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class AtomsTest {
+
+    @Before
+    public void before() {
+        HTMLElements.init();
+    }
+
+    @Test
+    public void knownElementsTest() {
+        for (int i = 0; i < HTMLElements.KNOWN_ELEMENTS.length; i++) {
+            assertEquals(i, Atoms.find(HTMLElements.KNOWN_ELEMENTS[i]));
+            assertTrue(Atoms.isKnownElement(i));
+        }
+        assertFalse(Atoms.isKnownElement(Atoms.find("blockquote")));
+        assertFalse(Atoms.isKnownElement(Atoms.NONE));
+    }
+
+    @Test
+    public void internTest() {
+        String name = new String("class");
+        assertSame(Atoms.intern("class"), Atoms.intern(name));
+        assertEquals("class", Atoms.getName(Atoms.find(name)));
+        // Names that are not fixed are never added.
+        assertEquals(Atoms.NONE, Atoms.find("custom-element"));
+        assertNull(Atoms.intern("custom-element"));
+        assertEquals(Atoms.NONE, Atoms.find("custom-element"));
+    }
+
+    @Test
+    public void parsedNamesTest() {
+        DOMNode div = new HTMLParser().generateDOMTree("<DIV ID=\"Main\" Class=\"Big  box\"><my-item Data-Value=\"1\"></my-item><my-item data-value=\"2\"></my-item></DIV>");
+        assertSame(HTMLElements.DIV, div.type);
+        assertSame(Atoms.intern("class"), getAttributeName(div, "class"));
+        // Other names are shared within the page.
+        DOMNode first = div.children.get(0);
+        DOMNode second = div.children.get(1);
+        assertEquals("my-item", first.type);
+        assertSame(first.type, second.type);
+        assertSame(getAttributeName(first, "data-value"), getAttributeName(second, "data-value"));
+    }
+
+    private String getAttributeName(DOMNode node, String name) {
+        return node.attributes.keySet().stream().filter(name::equals).findFirst().orElseThrow();
+    }
+
+}
@@ -1,6 +1,8 @@
 package browser.parser;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.util.List;
 
@@ -165,22 +167,78 @@ public class CSSLexerTest {
         assertTokenListsEqual(expectedTokens, tokens);
     }
 
+    @Test
+    public void skippedComments() {
+        String css = "/* a */ div {/*b*/ font-size:/*c*/12px; /* /* d */ } /* e";
+        List<CSSToken> tokens = CSSLexer.getTokens(css, false);
+        List<CSSToken> expectedTokens = List.of(
+                new CSSToken(CSSLexer.CSSTokenType.SELECTOR, "div"),
+                new CSSToken(CSSLexer.CSSTokenType.SELECTOR_OPEN_BRACKET, "{"),
+                new CSSToken(CSSLexer.CSSTokenType.PROPERTY_NAME, "font-size"),
+                new CSSToken(CSSLexer.CSSTokenType.COLON, ":"),
+                new CSSToken(CSSLexer.CSSTokenType.PROPERTY_VALUE, "12px"),
+                new CSSToken(CSSLexer.CSSTokenType.SEMI_COLON, ";"),
+                new CSSToken(CSSLexer.CSSTokenType.SELECTOR_CLOSE_BRACKET, "}")
+        );
+        assertTokenListsEqual(expectedTokens, tokens);
+    }
+
+    @Test
+    public void tokenOffsets() {
+        String css = "  @media screen { a  { color : red } }";
+        List<CSSToken> tokens = CSSLexer.getTokens(css);
+        for (CSSToken token : tokens) {
+            assertEquals(token.getValue(), css.substring(token.start, token.end));
+        }
+        assertEquals(2, tokens.get(0).start);
+        assertEquals(16, tokens.get(1).start);
+    }
+
+    @Test
+    public void tokenStartsWith() {
+        List<CSSToken> tokens = CSSLexer.getTokens("@media screen { a { color: red } } @font-face { }", false);
+        assertTrue(tokens.get(0).startsWith("@media"));
+        assertFalse(tokens.get(0).startsWith("@media screen {"));
+        assertFalse(tokens.get(0).startsWith("@font-face"));
+        assertEquals("@media screen", tokens.get(0).getValue());
+        assertTrue(tokens.get(0).startsWith("@media"));
+        assertTrue(new CSSToken(CSSLexer.CSSTokenType.AT_RULE, "@media print").startsWith("@media"));
+    }
+
+    @Test
+    public void unterminatedDeclarationBlock() {
+        String css = "div { color: red; width: 1px";
+        List<CSSToken> tokens = CSSLexer.getTokens(css);
+        List<CSSToken> expectedTokens = List.of(
+                new CSSToken(CSSLexer.CSSTokenType.SELECTOR, "div"),
+                new CSSToken(CSSLexer.CSSTokenType.SELECTOR_OPEN_BRACKET, "{"),
+                new CSSToken(CSSLexer.CSSTokenType.PROPERTY_NAME, "color"),
+                new CSSToken(CSSLexer.CSSTokenType.COLON, ":"),
+                new CSSToken(CSSLexer.CSSTokenType.PROPERTY_VALUE, "red"),
+                new CSSToken(CSSLexer.CSSTokenType.SEMI_COLON, ";"),
+                new CSSToken(CSSLexer.CSSTokenType.PROPERTY_NAME, "width"),
+                new CSSToken(CSSLexer.CSSTokenType.COLON, ":"),
+                new CSSToken(CSSLexer.CSSTokenType.PROPERTY_VALUE, "1px")
+        );
+        assertTokenListsEqual(expectedTokens, tokens);
+    }
+
     private void assertTokenListsEqual(List<CSSToken> expected, List<CSSToken> actual) {
         assertEquals(expected.size(), actual.size());
         for (int i = 0; i < expected.size(); i++) {
             assert(expected.get(i).type.equals(actual.get(i).type));
-            assert(expected.get(i).value.equals(actual.get(i).value));
+            assert(expected.get(i).getValue().equals(actual.get(i).getValue()));
         }
     }
 
     private void logTokenLists(List<CSSToken> expected, List<CSSToken> actual) {
         System.out.println("Expected:");
         for (CSSToken token : expected) {
-            System.out.printf("  %22s: %s\n", token.type.toString(), token.value);
+            System.out.printf("  %22s: %s\n", token.type.toString(), token.getValue());
         }
         System.out.println("Actual:");
         for (CSSToken token : actual) {
-            System.out.printf("  %22s: %s\n", token.type.toString(), token.value);
+            System.out.printf("  %22s: %s\n", token.type.toString(), token.getValue());
         }
     }
 
@@ -3,6 +3,7 @@ package browser.parser;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -124,6 +125,49 @@ public class CSSParserTest {
         assertEquals(expectedDeclarations, rules.get(group));
     }
 
+    @Test
+    public void combinatorsWithoutWhitespace() {
+        List<CSSSelectorGroup> groups = CSSParser.parseSelectorsGroups("ul>li+li~p\n  a,\tdiv");
+
+        CSSSelectorGroup group1 = new CSSSelectorGroup();
+        group1.selectors.add(new CSSSelector(List.of(new CSSUnitSelector(SelectorType.TYPE, "ul"))));
+        group1.combinators.add(SelectorCombinator.CHILD);
+        group1.selectors.add(new CSSSelector(List.of(new CSSUnitSelector(SelectorType.TYPE, "li"))));
+        group1.combinators.add(SelectorCombinator.ADJACENT_SIBLING);
+        group1.selectors.add(new CSSSelector(List.of(new CSSUnitSelector(SelectorType.TYPE, "li"))));
+        group1.combinators.add(SelectorCombinator.SIBLING);
+        group1.selectors.add(new CSSSelector(List.of(new CSSUnitSelector(SelectorType.TYPE, "p"))));
+        group1.combinators.add(SelectorCombinator.DESCENDANT);
+        group1.selectors.add(new CSSSelector(List.of(new CSSUnitSelector(SelectorType.TYPE, "a"))));
+
+        CSSSelectorGroup group2 = new CSSSelectorGroup();
+        group2.selectors.add(new CSSSelector(List.of(new CSSUnitSelector(SelectorType.TYPE, "div"))));
+
+        assertEquals(List.of(group1, group2), groups);
+    }
+
+    @Test
+    public void pseudoSelectorArguments() {
+        List<CSSSelectorGroup> groups = CSSParser.parseSelectorsGroups("a:not(.b, .c) > span::before, [data-x=\"a,b\"] em");
+
+        CSSSelectorGroup group1 = new CSSSelectorGroup();
+        group1.selectors.add(new CSSSelector(List.of(
+                new CSSUnitSelector(SelectorType.TYPE, "a"),
+                new CSSUnitSelector(SelectorType.PSEUDO, "not"))));
+        group1.combinators.add(SelectorCombinator.CHILD);
+        group1.selectors.add(new CSSSelector(List.of(
+                new CSSUnitSelector(SelectorType.TYPE, "span"),
+                new CSSUnitSelector(SelectorType.PSEUDO, "before"))));
+
+        CSSSelectorGroup group2 = new CSSSelectorGroup();
+        group2.selectors.add(new CSSSelector(List.of(
+                new CSSUnitAttributeSelector("data-x", "a,b", AttributeSelectorComparisonType.EXACT))));
+        group2.combinators.add(SelectorCombinator.DESCENDANT);
+        group2.selectors.add(new CSSSelector(List.of(new CSSUnitSelector(SelectorType.TYPE, "em"))));
+
+        assertEquals(List.of(group1, group2), groups);
+    }
+
     @Test
     public void missingFinalDeclarationSemicolon() {
         String css = "div { font-size: 12px }";
@@ -402,6 +446,35 @@ public class CSSParserTest {
         assertEquals(Map.of(), rules.get(group));
     }
 
+    @Test
+    public void inlineDeclarations() {
+        assertEquals(Map.of("color", "red", "margin", "0 auto"), CSSParser.parseDeclarations("color: red; margin: 0 auto"));
+        assertEquals(Map.of("color", "blue !important", "width", "10px"),
+                CSSParser.parseDeclarations(" color:red;width: 10px;; color: blue !important ; "));
+        assertEquals(Map.of("background", "url(http://example.com/a.png)"),
+                CSSParser.parseDeclarations("/* comment: a; */background: url(http://example.com/a.png)"));
+        assertEquals(Map.of(), CSSParser.parseDeclarations("color; : red; width:"));
+    }
+
+    @Test
+    public void inlineDeclarationsInSourceOrder() {
+        Map<String, String> declarations = CSSParser.parseDeclarations("margin-left: auto; margin: 0; width: 1px; margin-left: 5px");
+        assertEquals(List.of("margin", "width", "margin-left"), new ArrayList<>(declarations.keySet()));
+        assertEquals("5px", declarations.get("margin-left"));
+    }
+
+    @Test
+    public void inlineDeclarationsWithDelimitersInValues() {
+        String dataURL = "url(data:image/png;base64,iVBORw0KGgo=)";
+        assertEquals(Map.of("background", dataURL, "color", "red"),
+                CSSParser.parseDeclarations("background: " + dataURL + "; color: red"));
+        assertEquals(Map.of("content", "\"a;b\"", "font-family", "\"x:y\", 'a;}b'", "width", "1px"),
+                CSSParser.parseDeclarations("content: \"a;b\"; font-family: \"x:y\", 'a;}b'; width: 1px"));
+        assertEquals(Map.of("content", "\"a\\\";b\""), CSSParser.parseDeclarations("content: \"a\\\";b\""));
+        assertEquals(Map.of("background", "url(\"a;b.png\")"), CSSParser.parseDeclarations("background: url(\"a;b.png\")} color: red"));
+        assertEquals(Map.of("content", "\"a;b"), CSSParser.parseDeclarations("content: \"a;b"));
+    }
+
     private String rulesToString(Map<CSSSelectorGroup, Map<String, String>> rules) {
         StringBuilder stringBuilder = new StringBuilder();
         stringBuilder.append(String.format("Rules (%d):\n", rules.size()));
@@ -1,6 +1,9 @@
 package browser.parser;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.util.List;
 
@@ -274,6 +277,45 @@ public class HTMLLexerTest {
         assertTokenListsEqual(expectedTokens, tokens);
     }
 
+    @Test
+    public void skippedComments() {
+        String input = "<div><!--a--> \n<!--b-->div <!--c-->\n</div>";
+        List<HTMLToken> expectedTokens = List.of(
+                new HTMLToken(HTMLTokenType.TAG_OPEN, '<'),
+                new HTMLToken(HTMLTokenType.TAG_NAME, "div"),
+                new HTMLToken(HTMLTokenType.TAG_CLOSE, '>'),
+                new HTMLToken(HTMLTokenType.TEXT, "div "),
+                new HTMLToken(HTMLTokenType.TAG_END_OPEN, "</"),
+                new HTMLToken(HTMLTokenType.TAG_NAME, "div"),
+                new HTMLToken(HTMLTokenType.TAG_CLOSE, '>')
+        );
+        HTMLLexer htmlLexer = new HTMLLexer(input, false);
+        List<HTMLToken> tokens = htmlLexer.getTokens();
+        assertTokenListsEqual(expectedTokens, tokens);
+    }
+
+    @Test
+    public void whitespaceText() {
+        HTMLLexer htmlLexer = new HTMLLexer("<div> \n\t<p>a </p>\u00a0</div>");
+        List<HTMLToken> text = htmlLexer.getTokens().stream()
+                .filter(token -> token.type == HTMLTokenType.TEXT)
+                .toList();
+        assertEquals(3, text.size());
+        assertTrue(text.get(0).whitespace);
+        assertFalse(text.get(1).whitespace);
+        // A non-breaking space is not whitespace that can be collapsed.
+        assertFalse(text.get(2).whitespace);
+    }
+
+    @Test
+    public void lazyTokens() {
+        HTMLLexer htmlLexer = new HTMLLexer("<p>a</p>");
+        assertEquals(HTMLTokenType.TAG_OPEN, htmlLexer.nextToken().type);
+        assertEquals("p", htmlLexer.nextToken().value);
+        assertEquals(5, htmlLexer.getTokens().size());
+        assertNull(htmlLexer.nextToken());
+    }
+
     private void assertTokenListsEqual(List<HTMLToken> expected, List<HTMLToken> actual) {
         assertEquals(expected.size(), actual.size());
         for (int i = 0; i < expected.size(); i++) {
@@ -1,9 +1,11 @@
 package browser.parser;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import browser.app.Pipeline;
 import browser.css.CSSStyle;
+import browser.model.DOMNode;
 import browser.model.RenderNode;
 
 import org.junit.Before;
@@ -25,50 +27,65 @@ public class RenderTreeGeneratorTest {
     }
 
     @Test
-    public void removeDuplicateWhitespace_SingleLineWhitespace() {
-        RenderNode body = new RenderNode(HTMLElements.BODY);
-        RenderNode text1 = new RenderNode(HTMLElements.TEXT);
-        text1.text = "   This text is \n";
-        RenderNode b = new RenderNode(HTMLElements.B);
-        RenderNode text2 = new RenderNode(HTMLElements.TEXT);
-        text2.text = "\t\tbold\n";
-        RenderNode text3 = new RenderNode(HTMLElements.TEXT);
-        text3.text = " text. \n";
-
-        body.addChildren(text1, b, text3);
-        b.addChild(text2);
+    public void collapseWhitespace_SingleLineWhitespace() {
+        assertEquals(" This text is ", RenderTreeGenerator.collapseWhitespace("   This text is \n"));
+        assertEquals(" bold ", RenderTreeGenerator.collapseWhitespace("\t\tbold\n"));
+        assertEquals(" text. ", RenderTreeGenerator.collapseWhitespace(" text. \n"));
+        String collapsed = "a b c";
+        assertSame(collapsed, RenderTreeGenerator.collapseWhitespace(collapsed));
+        // Non-breaking spaces are not collapsed.
+        assertEquals("a\u00a0\u00a0b", RenderTreeGenerator.collapseWhitespace("a\u00a0\u00a0b"));
+    }
 
-        renderTreeGenerator.removeDuplicateWhitespace(body, false);
+    @Test
+    public void generateRenderTree_CollapsedText() {
+        DOMNode dom = new HTMLParser().generateDOMTree("<body><p>a  &amp;\n b</p><pre>a  &lt;\n b</pre></body>");
+        RenderNode body = renderTreeGenerator.generateRenderTree(dom);
+        assertEquals("a & b", body.children.get(0).children.get(0).text.toString());
+        assertEquals("a  <\n b", body.children.get(1).children.get(0).text.toString());
+    }
 
-        assertEquals(" This text is ", text1.text);
-        assertEquals(" bold ", text2.text);
-        assertEquals(" text. ", text3.text);
+    @Test
+    public void generateRenderTree_LeafChildrenAreMutable() {
+        DOMNode dom = new HTMLParser().generateDOMTree("<body><p>a</p><br></body>");
+        RenderNode body = renderTreeGenerator.generateRenderTree(dom);
+        RenderNode text = body.children.get(0).children.get(0);
+        RenderNode br = body.children.get(1);
+
+        // Leaves can be given children directly, as the list marker generator does.
+        text.children.add(new RenderNode(HTMLElements.SPAN));
+        br.children.add(new RenderNode(HTMLElements.SPAN));
+        DOMNode textDOMNode = new DOMNode(HTMLElements.TEXT);
+        textDOMNode.children.add(new DOMNode(HTMLElements.SPAN));
+        assertEquals(1, text.children.size());
+        assertEquals(1, br.children.size());
+        assertEquals(1, textDOMNode.children.size());
     }
 
     @Test
     public void trimTextWhitespace_SingleLine() {
         // "  This text is <b>bold</b> for testing. "
         RenderNode div = new RenderNode(HTMLElements.DIV);
-        div.id = RenderNode.nextId++;
+        div.id = RenderNode.nextId.getAndIncrement();
 
         RenderNode text1 = new RenderNode(HTMLElements.TEXT);
         text1.style.outerDisplay = CSSStyle.DisplayType.INLINE;
         text1.text = "  This text is ";
-        text1.id = RenderNode.nextId++;
+        text1.id = RenderNode.nextId.getAndIncrement();
 
         RenderNode b = new RenderNode(HTMLElements.B);
         b.style.outerDisplay = CSSStyle.DisplayType.INLINE;
-        b.id = RenderNode.nextId++;
+        b.id = RenderNode.nextId.getAndIncrement();
 
         RenderNode text2 = new RenderNode(HTMLElements.TEXT);
         text2.style.outerDisplay = CSSStyle.DisplayType.INLINE;
         text2.text = "bold";
-        text2.id = RenderNode.nextId++;
+        text2.id = RenderNode.nextId.getAndIncrement();
 
         RenderNode text3 = new RenderNode(HTMLElements.TEXT);
         text3.style.outerDisplay = CSSStyle.DisplayType.INLINE;
         text3.text = " text for testing. ";
-        text3.id = RenderNode.nextId++;
+        text3.id = RenderNode.nextId.getAndIncrement();
 
         div.addChildren(text1, b, text3);
         b.addChild(text2);
@@ -84,49 +101,49 @@ public class RenderTreeGeneratorTest {
     public void trimTextWhitespace_MultipleBolds() {
         // "  Start <b>b1</b>, <b>b2</b>, and <b>b3</b>"
         RenderNode div = new RenderNode(HTMLElements.DIV);
-        div.id = RenderNode.nextId++;
+        div.id = RenderNode.nextId.getAndIncrement();
 
         RenderNode text1 = new RenderNode(HTMLElements.TEXT);
         text1.style.outerDisplay = CSSStyle.DisplayType.INLINE;
         text1.text = "  Start ";
-        text1.id = RenderNode.nextId++;
+        text1.id = RenderNode.nextId.getAndIncrement();
 
         RenderNode b1 = new RenderNode(HTMLElements.B);
         b1.style.outerDisplay = CSSStyle.DisplayType.INLINE;
-        b1.id = RenderNode.nextId++;
+        b1.id = RenderNode.nextId.getAndIncrement();
 
         RenderNode text2 = new RenderNode(HTMLElements.TEXT);
         text2.style.outerDisplay = CSSStyle.DisplayType.INLINE;
         text2.text = "b1";
-        text2.id = RenderNode.nextId++;
+        text2.id = RenderNode.nextId.getAndIncrement();
 
         RenderNode text3 = new RenderNode(HTMLElements.TEXT);
         text3.style.outerDisplay = CSSStyle.DisplayType.INLINE;
         text3.text = ", ";
-        text3.id = RenderNode.nextId++;
+        text3.id = RenderNode.nextId.getAndIncrement();
 
         RenderNode b2 = new RenderNode(HTMLElements.B);
         b2.style.outerDisplay = CSSStyle.DisplayType.INLINE;
-        b2.id = RenderNode.nextId++;
+        b2.id = RenderNode.nextId.getAndIncrement();
 
         RenderNode text4 = new RenderNode(HTMLElements.TEXT);
         text4.style.outerDisplay = CSSStyle.DisplayType.INLINE;
         text4.text = "b2";
-        text4.id = RenderNode.nextId++;
+        text4.id = RenderNode.nextId.getAndIncrement();
 
         RenderNode text5 = new RenderNode(HTMLElements.TEXT);
         text5.style.outerDisplay = CSSStyle.DisplayType.INLINE;
         text5.text = ", and ";
-        text5.id = RenderNode.nextId++;
+        text5.id = RenderNode.nextId.getAndIncrement();
 
         RenderNode b3 = new RenderNode(HTMLElements.B);
         b3.style.outerDisplay = CSSStyle.DisplayType.INLINE;
-        b3.id = RenderNode.nextId++;
+        b3.id = RenderNode.nextId.getAndIncrement();
 
         RenderNode text6 = new RenderNode(HTMLElements.TEXT);
         text6.style.outerDisplay = CSSStyle.DisplayType.INLINE;
         text6.text = "b3";
-        text6.id = RenderNode.nextId++;
+        text6.id = RenderNode.nextId.getAndIncrement();
 
         div.addChildren(text1, b1, text3, b2, text5, b3);
         b1.addChild(text2);
@@ -148,19 +165,19 @@ public class RenderTreeGeneratorTest {
         // "<div> a <code> b  </code></div>"
 
         RenderNode div = new RenderNode(HTMLElements.DIV);
-        div.id = RenderNode.nextId++;
+        div.id = RenderNode.nextId.getAndIncrement();
 
         RenderNode text1 = new RenderNode(HTMLElements.TEXT);
-        text1.id = RenderNode.nextId++;
+        text1.id = RenderNode.nextId.getAndIncrement();
         text1.style.outerDisplay = CSSStyle.DisplayType.INLINE;
         text1.text = " a ";
 
         RenderNode code = new RenderNode(HTMLElements.CODE);
-        code.id = RenderNode.nextId++;
+        code.id = RenderNode.nextId.getAndIncrement();
         code.style.outerDisplay = CSSStyle.DisplayType.INLINE;
 
         RenderNode text2 = new RenderNode(HTMLElements.TEXT);
-        text2.id = RenderNode.nextId++;
+        text2.id = RenderNode.nextId.getAndIncrement();
         text2.style.outerDisplay = CSSStyle.DisplayType.INLINE;
         text2.text = "b";
 
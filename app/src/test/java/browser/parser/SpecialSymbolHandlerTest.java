@@ -0,0 +1,45 @@
+package browser.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class SpecialSymbolHandlerTest {
+
+    @BeforeClass
+    public static void beforeClass() {
+        SpecialSymbolHandler.init();
+    }
+
+    @Test
+    public void namedSymbolsTest() {
+        assertEquals("a & b", SpecialSymbolHandler.insertSymbols("a &amp; b"));
+        assertEquals("<p class=\"x\">", SpecialSymbolHandler.insertSymbols("&lt;p class=&quot;x&quot;&gt;"));
+        assertEquals("a\u00a0b", SpecialSymbolHandler.insertSymbols("a&nbsp;b"));
+        // References are decoded once, so an escaped reference stays a reference.
+        assertEquals("&amp;", SpecialSymbolHandler.insertSymbols("&amp;amp;"));
+    }
+
+    @Test
+    public void numericSymbolsTest() {
+        assertEquals("A&A", SpecialSymbolHandler.insertSymbols("&#65;&#38;&#x41;"));
+        assertEquals("é—😀", SpecialSymbolHandler.insertSymbols("&#233;&#X2014;&#x1F600;"));
+        assertEquals("a\tb", SpecialSymbolHandler.insertSymbols("a&#09;b"));
+        assertEquals("\u00a0", SpecialSymbolHandler.insertSymbols("&#160;"));
+        assertEquals("a b", SpecialSymbolHandler.insertSymbols("a&#32;b"));
+    }
+
+    @Test
+    public void unknownSymbolsTest() {
+        String text = "Q&A";
+        assertSame(text, SpecialSymbolHandler.insertSymbols(text));
+        assertEquals("& &unknown; &amp &#; &#x; &#xZZ; &#1114112; &#55296;",
+                SpecialSymbolHandler.insertSymbols("& &unknown; &amp &#; &#x; &#xZZ; &#1114112; &#55296;"));
+        assertEquals("?a=1&b=2&c", SpecialSymbolHandler.insertSymbols("?a=1&amp;b=2&c"));
+        assertNull(SpecialSymbolHandler.insertSymbols(null));
+    }
+
+}
@@ -0,0 +1,94 @@
+package browser.renderer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import javafx.embed.swing.JFXPanel;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+
+import browser.model.Box;
+
+import org.junit.Test;
+
+public class DisplayListTest {
+
+    private DisplayList createDisplayList(Color textColor) {
+        DisplayList displayList = new DisplayList();
+        displayList.fillRect(Color.WHITE, 0, 0, 100, 1000);
+        displayList.border(Color.BLACK, 0, 0, 100, 1);
+        displayList.text("top", Font.font("Arial", 12), textColor, 10, 10, 30, 16, 22);
+        displayList.text("bottom", Font.font("Arial", 12), textColor, 10, 900, 50, 16, 912);
+        return displayList;
+    }
+
+    @Test
+    public void emptyOperationsSkippedTest() {
+        DisplayList displayList = new DisplayList();
+        displayList.fillRect(Color.WHITE, 0, 0, 0, 10);
+        displayList.border(Color.BLACK, 0, 0, 10, -1);
+        displayList.text("", Font.font("Arial", 12), Color.BLACK, 0, 0, 10, 10, 8);
+        displayList.image(null, 0, 0, 10, 10);
+        assertEquals(0, displayList.size());
+    }
+
+    @Test
+    public void growTest() {
+        DisplayList displayList = new DisplayList();
+        for (int i = 0; i < 1000; i++) {
+            displayList.fillRect(Color.WHITE, 0, i, 10, 1);
+        }
+        assertEquals(1000, displayList.size());
+        assertEquals(new Box(0, 999, 10, 1), displayList.getBounds(999));
+        assertEquals(DisplayList.FILL_RECT, displayList.getType(999));
+    }
+
+    @Test
+    public void visibleOperationsTest() {
+        DisplayList displayList = createDisplayList(Color.BLACK);
+        assertArrayEquals(new int[] {0, 1, 2}, displayList.getVisibleOperations(new Box(0, 0, 100, 100)));
+        assertArrayEquals(new int[] {0, 3}, displayList.getVisibleOperations(new Box(0, 850, 100, 100)));
+        assertArrayEquals(new int[] {}, displayList.getVisibleOperations(new Box(200, 0, 100, 100)));
+    }
+
+    @Test
+    public void identicalListsDiffTest() {
+        assertNull(createDisplayList(Color.BLACK).diff(createDisplayList(Color.BLACK)));
+    }
+
+    @Test
+    public void changedOperationDiffTest() {
+        DisplayList previous = createDisplayList(Color.BLACK);
+        DisplayList current = createDisplayList(Color.BLACK);
+        current.fillRect(Color.BLACK, 20, 500, 10, 10);
+        assertEquals(new Box(20, 500, 10, 10), current.diff(previous));
+
+        DisplayList recolored = createDisplayList(Color.GRAY);
+        assertEquals(new Box(10, 10, 50, 906), recolored.diff(previous));
+    }
+
+    @Test
+    public void imageBoundsTest() {
+        new JFXPanel();
+        Image image = new Image("file:./src/main/resources/images/defaultImage.png");
+        Image otherImage = new Image("file:./src/main/resources/images/defaultImage.png");
+        DisplayList displayList = createDisplayList(Color.BLACK);
+        displayList.image(image, 10, 100, 20, 20);
+        displayList.image(otherImage, 50, 50, 10, 10);
+        displayList.image(image, 40, 300, 20, 20);
+
+        assertEquals(new Box(10, 100, 50, 220), displayList.getImageBounds(image));
+        assertEquals(new Box(50, 50, 10, 10), displayList.getImageBounds(otherImage));
+        assertNull(displayList.getImageBounds(new Image("file:./src/main/resources/images/defaultImage.png")));
+        assertNull(new DisplayList().getImageBounds(image));
+    }
+
+    @Test
+    public void diffWithNoPreviousListTest() {
+        assertEquals(new Box(0, 0, 100, 1000), createDisplayList(Color.BLACK).diff(null));
+        assertNull(new DisplayList().diff(null));
+    }
+
+}
@@ -0,0 +1,99 @@
+package browser.renderer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+
+import browser.model.IntVector2;
+
+import org.junit.Test;
+
+public class ImageHeaderSnifferTest {
+
+    private static final String OFFLINE_PAGES = "./src/main/resources/offline-webpages/";
+
+    @Test
+    public void pngDimensionsTest() {
+        assertEquals(new IntVector2(413, 77), sniff("serenity/SerenityOS man pages_files/banner.png"));
+        assertEquals(new IntVector2(708, 410), sniff("eytzinger/Eytzinger Binary Search - Algorithmica_files/btree.png"));
+    }
+
+    @Test
+    public void gifDimensionsTest() {
+        assertEquals(new IntVector2(92, 28), sniff("spamhaus/About The Spamhaus Project_files/shbn_home.gif"));
+        assertEquals(new IntVector2(1, 1), sniff("hn/Hacker News_files/s.gif"));
+    }
+
+    @Test
+    public void jpegDimensionsTest() {
+        assertEquals(new IntVector2(260, 32), sniff("spamhaus/About The Spamhaus Project_files/sh_logo1.jpg"));
+        assertEquals(new IntVector2(81, 83), sniff("spamhaus/About The Spamhaus Project_files/fbi.jpg"));
+        assertEquals(new IntVector2(960, 960), sniff("saturn/APOD_ 2022 July 24 - Saturn in Infrared from Cassini_files/SaturnIR_CassiniKakitsev_960.jpg"));
+    }
+
+    @Test
+    public void bmpDimensionsTest() {
+        ByteBuffer header = ByteBuffer.allocate(54).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(0, (byte) 'B').put(1, (byte) 'M');
+        header.putInt(14, 40);
+        header.putInt(18, 120);
+        header.putInt(22, -45);
+        assertEquals(new IntVector2(120, 45), ImageHeaderSniffer.getDimensions(header));
+
+        ByteBuffer coreHeader = ByteBuffer.allocate(26).order(ByteOrder.LITTLE_ENDIAN);
+        coreHeader.put(0, (byte) 'B').put(1, (byte) 'M');
+        coreHeader.putInt(14, 12);
+        coreHeader.putShort(18, (short) 64);
+        coreHeader.putShort(20, (short) 32);
+        assertEquals(new IntVector2(64, 32), ImageHeaderSniffer.getDimensions(coreHeader));
+    }
+
+    @Test
+    public void invalidHeaderTest() {
+        assertNull(ImageHeaderSniffer.getDimensions(ByteBuffer.wrap(new byte[0])));
+        assertNull(ImageHeaderSniffer.getDimensions(ByteBuffer.wrap("<html></html>".getBytes())));
+        // Truncated PNG header.
+        assertNull(ImageHeaderSniffer.getDimensions(ByteBuffer.wrap(new byte[] {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0})));
+    }
+
+    @Test
+    public void streamIsResetTest() throws IOException {
+        File file = new File(OFFLINE_PAGES + "saturn/APOD_ 2022 July 24 - Saturn in Infrared from Cassini_files/SaturnIR_CassiniKakitsev_960.jpg");
+        byte[] expected = Files.readAllBytes(file.toPath());
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            assertEquals(new IntVector2(960, 960), ImageHeaderSniffer.getDimensions(in));
+            assertArrayEquals(expected, in.readAllBytes());
+        }
+
+        // Streams without mark support are not read.
+        InputStream unmarkable = new ByteArrayInputStream(expected) {
+            @Override
+            public boolean markSupported() {
+                return false;
+            }
+        };
+        assertNull(ImageHeaderSniffer.getDimensions(unmarkable));
+        assertEquals(expected.length, unmarkable.available());
+    }
+
+    private IntVector2 sniff(String path) {
+        IntVector2 fromFile = ImageHeaderSniffer.getDimensions(new File(OFFLINE_PAGES + path));
+        try (InputStream in = new BufferedInputStream(new FileInputStream(OFFLINE_PAGES + path))) {
+            assertEquals(fromFile, ImageHeaderSniffer.getDimensions(in));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return fromFile;
+    }
+
+}
@@ -37,17 +37,17 @@ public class TestDataLoader {
             }
             if (object.containsKey("renderTree")) {
                 JSONObject rootObject = (JSONObject) ((JSONObject) object.get("renderTree")).get("root");
-                RenderNode.nextId = 0;
+                RenderNode.nextId.set(0);
                 testData.rootRenderNode = buildRenderTree(rootObject);
             }
             if (object.containsKey("boxTree")) {
                 JSONObject rootObject = (JSONObject) ((JSONObject) object.get("boxTree")).get("root");
-                BoxNode.nextId = 0;
+                BoxNode.nextId.set(0);
                 testData.rootBoxNode = buildBoxTree(rootObject);
             }
             if (object.containsKey("boxTreeAfterLayout") && ((JSONObject) object.get("boxTreeAfterLayout")).containsKey("root")) {
                 JSONObject rootObject = (JSONObject) ((JSONObject) object.get("boxTreeAfterLayout")).get("root");
-                BoxNode.nextId = 0;
+                BoxNode.nextId.set(0);
                 testData.rootBoxNodeAfterLayout = buildBoxTree(rootObject);
             }
             return testData;
@@ -65,7 +65,7 @@ public class TestDataLoader {
                 throw new RuntimeException(String.format("Invalid template %s.", template));
             }
         }
-        renderNode.id = RenderNode.nextId++;
+        renderNode.id = RenderNode.nextId.getAndIncrement();
 
         if (root.containsKey("style")) {
             setRenderNodeStyle(renderNode, (JSONObject) root.get("style"));
@@ -177,7 +177,7 @@ public class TestDataLoader {
                 throw new RuntimeException(String.format("Invalid template %s.", template));
             }
         }
-        boxNode.id = BoxNode.nextId++;
+        boxNode.id = BoxNode.nextId.getAndIncrement();
 
         if (root.containsKey("correspondingRenderNode")) {
             String referenceName = (String) root.get("correspondingRenderNode");